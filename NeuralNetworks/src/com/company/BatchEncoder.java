@@ -0,0 +1,291 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class runs an autoencoder over every bitmap in a directory in one process, instead of starting EncoderDibDump once per
+ * image. One network is trained on all of the bitmaps (or its weights are loaded from a file written by an earlier run), and
+ * then every bitmap is decoded, encoded and decoded by the network, and written to the output directory as an 8-bit grayscale
+ * bitmap with the same name, by several workers at once.
+ *
+ * Each worker keeps its own BmpReader, ImagePreprocessor, BmpWriter and inference copy of the network (see:
+ * Network.createInferenceCopy), which shares the trained weights but has its own activations, so the workers share nothing
+ * but the weights, which are only read, and the counter that hands out the bitmaps. Bitmaps whose size differs from the size
+ * the network was trained on are area-resized to it.
+ *
+ * The parameters file has the format of encodertest.txt: the number of hidden layers, the size of each hidden layer, the
+ * number of test cases (ignored, since every bitmap in the directory is a test case), the learning factor, the minimum and
+ * maximum random weight values, the error threshold and the maximum number of iterations.
+ *
+ * The BatchEncoder class contains the following instance variables:
+ *    Network  network: the trained autoencoder
+ *    int      height, width: the size of the images that the network encodes
+ *    String[] fileNames: the names of the bitmaps
+ *    String   inputDirectory: the directory that the bitmaps are read from
+ *    String   outputDirectory: the directory that the reconstructed bitmaps are written to
+ *    double   totalError: the sum of the errors of every reconstructed bitmap in the last run
+ *    long     elapsedNanos: the time that the last run took
+ *    int      numThreads: the number of workers that the last run used
+ *
+ */
+public class BatchEncoder
+{
+    /**
+     * the number of bits in each pel of the reconstructed bitmaps
+     */
+    public static final int OUTPUT_BIT_COUNT = 8;
+
+    private Network network;
+    private int height;
+    private int width;
+    private String[] fileNames;
+    private String inputDirectory;
+    private String outputDirectory;
+    private double totalError;
+    private long elapsedNanos;
+    private int numThreads;
+
+    /**
+     * Creates a BatchEncoder
+     *
+     * @param network         the trained autoencoder, whose input and output sizes are both height * width
+     * @param height          the number of rows of the images that the network encodes
+     * @param width           the number of columns of the images that the network encodes
+     * @param fileNames       the names of the bitmaps
+     * @param inputDirectory  the directory that the bitmaps are in, which the names of the outputs are relative to
+     * @param outputDirectory the directory that the reconstructed bitmaps are written to
+     */
+    public BatchEncoder(Network network, int height, int width, String[] fileNames, String inputDirectory,
+                        String outputDirectory)
+    {
+        this.network = network;
+        this.height = height;
+        this.width = width;
+        this.fileNames = fileNames;
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+    } // public BatchEncoder
+
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * returns the number of workers that the last run used, which is never more than the number of bitmaps
+     * @return the number of workers
+     */
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * returns the number of bitmaps encoded per second in the last run
+     * @return the images per second
+     */
+    public double getImagesPerSecond()
+    {
+        return fileNames.length / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * returns the average error of the reconstructed bitmaps in the last run
+     * @return the average error
+     */
+    public double getAverageError()
+    {
+        return totalError / Math.max(fileNames.length, 1);
+    }
+
+    /**
+     * returns the name of the output of a bitmap: the same path relative to the output directory as the bitmap has relative to
+     * the input directory, so that bitmaps with the same name in different class subdirectories do not overwrite each other
+     *
+     * @param fileName the name of the bitmap
+     * @return the name of the reconstructed bitmap
+     */
+    private String outputName(String fileName)
+    {
+        String relative = new File(inputDirectory).toURI().relativize(new File(fileName).toURI()).getPath();
+        File output = new File(outputDirectory, relative);
+        output.getParentFile().mkdirs();
+        return output.getPath();
+    } // private String outputName
+
+    /**
+     * encodes and writes every bitmap with the given number of workers (but no more workers than there are bitmaps), each
+     * taking the next bitmap that no worker has taken
+     *
+     * @param numThreads the number of workers
+     * @throws IOException if a bitmap cannot be read or written
+     */
+    public void run(int numThreads) throws IOException
+    {
+        final AtomicInteger nextImage = new AtomicInteger();
+        numThreads = Math.max(1, Math.min(numThreads, fileNames.length));
+        this.numThreads = numThreads;
+
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("encode"));
+        List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+
+        for (int task = 0; task < numThreads; task++)
+        {
+            tasks.add(new Callable<Double>()
+            {
+                public Double call() throws IOException
+                {
+                    BmpReader reader = new BmpReader(); // the state of this worker alone
+                    ImagePreprocessor preprocessor = new ImagePreprocessor(height, width);
+                    BmpWriter writer = new BmpWriter(OUTPUT_BIT_COUNT);
+                    Network copy = network.createInferenceCopy();
+                    double[] inputs = new double[height * width];
+                    double error = 0.0;
+                    int image;
+
+                    while ((image = nextImage.getAndIncrement()) < fileNames.length)
+                    {
+                        reader.read(fileNames[image]);
+                        preprocessor.process(reader, inputs);   // decodes the bitmap into input activations
+
+                        copy.setInputs(inputs);
+                        copy.calculateAllActivations();         // encodes and decodes it
+                        error += copy.calculateError(inputs);
+
+                        writer.writeActivations(outputName(fileNames[image]), copy.getOutputActivations(), 0, height,
+                                width);
+                    } // while ((image = nextImage.getAndIncrement()) < fileNames.length)
+                    return error;
+                } // public Double call
+            });
+        } // for (int task = 0; task < numThreads; task++)
+
+        long start = System.nanoTime();
+        totalError = 0.0;
+
+        try
+        {
+            for (Future<Double> result : workers.invokeAll(tasks))
+            {
+                totalError += result.get();
+            }
+        } // try
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("the batch was interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            workers.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    } // public void run
+
+    /**
+     * creates the autoencoder described by a parameters file, without training it
+     *
+     * @param parametersFileName the name of the parameters file
+     * @param inputNodes         the number of input (and output) activations
+     * @return the network
+     * @throws IOException if the parameters file cannot be read
+     */
+    public static Network readNetwork(String parametersFileName, int inputNodes) throws IOException
+    {
+        Scanner sc = new Scanner(new FileInputStream(parametersFileName));
+
+        try
+        {
+            int[] hiddenLayerNodes = new int[sc.nextInt()];
+
+            for (int layer = 0; layer < hiddenLayerNodes.length; layer++)
+            {
+                hiddenLayerNodes[layer] = sc.nextInt();
+            }
+
+            sc.nextInt();                                   // skips the number of test cases
+            double lambda = sc.nextDouble();
+            double minWeightValue = sc.nextDouble();
+            double maxWeightValue = sc.nextDouble();
+            double threshold = sc.nextDouble();
+            int maxIterations = sc.nextInt();
+
+            return new Network(inputNodes, hiddenLayerNodes, inputNodes, lambda, maxIterations, 0, minWeightValue,
+                    maxWeightValue, threshold);
+        } // try
+        finally
+        {
+            sc.close();
+        }
+    } // public static Network readNetwork
+
+    /**
+     * trains an autoencoder on every bitmap in a directory, or loads its weights, and writes the reconstruction of every bitmap
+     * to the output directory, printing the images per second
+     *
+     * @param args the input directory, the output directory, the parameters file, the weights file (loaded if it exists, or
+     *             written after training if it does not), and the number of workers
+     * @throws Exception if a file cannot be read or written
+     */
+    public static void main(String[] args) throws Exception
+    {
+        String inputDirectory = args.length > 0 ? args[0] : "src/com/company/TrainingData";
+        String outputDirectory = args.length > 1 ? args[1] : "encoded";
+        String parametersFileName = args.length > 2 ? args[2] : "src/com/company/encodertest.txt";
+        String weightsFileName = args.length > 3 ? args[3] : "encoder.weights";
+        int numThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        ImageIngestor ingestor = ImageIngestor.fromDirectory(inputDirectory); // throws if there are no bitmaps
+
+        int[] size = DibDump.readImageSize(ingestor.getFileNames()[0]); // every bitmap is encoded at the size of the first
+        ingestor.setOutputSize(size[0], size[1]);
+
+        Network network = readNetwork(parametersFileName, size[0] * size[1]);
+
+        if (new File(weightsFileName).isFile())
+        {
+            Scanner sc = new Scanner(new FileInputStream(weightsFileName));
+            network.setAllWeights(sc);
+            sc.close();
+            System.out.println("loaded the weights from " + weightsFileName);
+        }
+        else
+        {
+            // every bitmap in the directory is decoded once into the cache file and trained on as its own expected output
+            MappedDataset dataset = new DatasetCache(false, numThreads).load(ingestor, "encoder.cache", true);
+            network.setDataset(dataset);
+            network.trainNetwork();
+            network.outputWeightsToTextFile(weightsFileName);
+        }
+
+        BatchEncoder encoder = new BatchEncoder(network, size[0], size[1], ingestor.getFileNames(), inputDirectory,
+                outputDirectory);
+        encoder.run(numThreads);
+
+        System.out.printf("encoded %d images with %d threads in %.1f ms: %.1f images/s, average error %.6f\n",
+                ingestor.getNumImages(), encoder.getNumThreads(), encoder.getElapsedNanos() / 1e6, encoder.getImagesPerSecond(),
+                encoder.getAverageError());
+    } // public static void main
+} // public class BatchEncoder
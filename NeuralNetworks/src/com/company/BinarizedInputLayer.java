@@ -0,0 +1,119 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a binarized copy of the first layer of weights of a trained network, for inputs that are packed 64 to a
+ * long (see: BitPackedDataset). Every weight w[i][j] between input node i and hidden node j is replaced with alpha[j] * sign
+ * (w[i][j]), where alpha[j] is the average magnitude of the weights into hidden node j, so the weights of each hidden node fit
+ * in one bit each, packed like the inputs. With inputs x[i] that are 0 or 1, the theta of hidden node j is then
+ *
+ *    sum(x[i] * alpha[j] * sign(w[i][j])) = alpha[j] * (2 * popcount(x AND positive[j]) - popcount(x)),
+ *
+ * where positive[j] holds the bits of the positive weights, so each hidden node costs one AND and one Long.bitCount per 64
+ * inputs instead of 64 multiplications. The weights are 64 times smaller than doubles. The thetas are only an approximation of
+ * the thetas of the real weights, so the accuracy of the network should be checked with the binarized layer before it is used
+ * (BitPackedDataset.main reports it).
+ *
+ * The layer is a snapshot of the weights when it was created, so it must be created again after the network is trained more.
+ *
+ * The BinarizedInputLayer class contains the following instance variables:
+ *    int      inputSize: the number of input nodes
+ *    int      outputSize: the number of nodes in the first hidden layer
+ *    int      numWords: the number of longs in each row of packed bits
+ *    long[]   positiveBits: the bits of the positive weights of every hidden node, row after row
+ *    double[] alphas: the average magnitude of the weights into each hidden node
+ *
+ */
+public class BinarizedInputLayer
+{
+    private int inputSize;
+    private int outputSize;
+    private int numWords;
+    private long[] positiveBits;
+    private double[] alphas;
+
+    /**
+     * Creates a BinarizedInputLayer from the first layer of weights of a network
+     *
+     * @param network the trained network
+     */
+    public BinarizedInputLayer(Network network)
+    {
+        double[][] activations = network.getActivations();
+        inputSize = activations[0].length;
+        outputSize = activations[1].length;
+        numWords = BitPackedDataset.numWords(inputSize);
+
+        positiveBits = new long[outputSize * numWords];
+        alphas = new double[outputSize];
+
+        for (int node = 0; node < outputSize; node++) // iterates through the hidden nodes
+        {
+            double sum = 0.0;
+
+            for (int inputNode = 0; inputNode < inputSize; inputNode++)
+            {
+                double weight = network.getWeight(0, inputNode, node);
+                sum += Math.abs(weight);
+
+                if (weight > 0.0)
+                {
+                    positiveBits[node * numWords + (inputNode >>> 6)] |= 1L << inputNode; // the shift only uses the low 6 bits
+                }
+            }
+            alphas[node] = sum / inputSize;
+        } // for (int node = 0; node < outputSize; node++)
+    } // public BinarizedInputLayer
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return outputSize;
+    }
+
+    /**
+     * returns the number of bytes that the binarized weights take, which is about a 64th of the bytes of the doubles
+     * @return the size of the weights in bytes
+     */
+    public long getWeightBytes()
+    {
+        return 8L * positiveBits.length + 8L * alphas.length;
+    }
+
+    /**
+     * calculates the approximate thetas of the first hidden layer from packed inputs
+     *
+     * @param bits   the packed input activations
+     * @param thetas the array that the thetas are stored in
+     * @throws IllegalArgumentException if the bits are not exactly one bit per input node (see: BitPackedDataset.checkBits)
+     */
+    public void calculateThetas(long[] bits, double[] thetas)
+    {
+        BitPackedDataset.checkBits(bits, inputSize);
+
+        int setBits = 0;
+
+        for (int word = 0; word < numWords; word++)
+        {
+            setBits += Long.bitCount(bits[word]);
+        }
+
+        for (int node = 0; node < outputSize; node++)
+        {
+            int start = node * numWords;
+            int positive = 0;
+
+            for (int word = 0; word < numWords; word++) // counts the set inputs whose weights are positive
+            {
+                positive += Long.bitCount(bits[word] & positiveBits[start + word]);
+            }
+            thetas[node] = alphas[node] * (2 * positive - setBits);
+        } // for (int node = 0; node < outputSize; node++)
+    } // public void calculateThetas
+} // public class BinarizedInputLayer
@@ -4,85 +4,154 @@ package com.company;
 // limitation of this approach is that the resulting file will always have
 // a number of bits that is a multiple of 8.  In effect, whatever bits are
 // output to the file are padded at the end with 0's to make the total
-// number of bits a multiple of 8.
+// number of bits a multiple of 8.  The first byte of the file holds the
+// number of padding bits, and the bits of each byte are stored starting
+// with its least significant bit.
+//
+// The file is read through a FileChannel into a 64 KB buffer, and the bits
+// are taken from a 64-bit word at a time (the bytes are little-endian, so
+// bit k of the stream is bit k % 64 of word k / 64), so reading a field of
+// up to 64 bits costs a mask and a shift instead of a read per byte and a
+// division per bit.
 //
 // BitInputStream has the following public methods:
 //     public BitInputStream(String file)
 //         opens an input stream with the given file name
 //     public int nextBit()
 //         reads the next bit from input (throws -1 if at end of file)
+//     public long readBits(int n)
+//         reads the next n bits (0 to 64) from input, the first bit in the
+//         least significant position
 //     public boolean hasNextBit()
 //         returns true if there's another bit in the input stream to be read
+//     public long bitsRemaining()
+//         returns the number of bits left to be read
 //     public void close()
 //         closes the input
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
-@SuppressWarnings("deprecation")
-public class BitInputStream {
-    private FileInputStream input;
-    private int currentByte;     // current set of bits (buffer)
-    private int nextByte;        // next set of bits (buffer)
-    private int numBits;         // how many bits from buffer have been used
-    private int remainingAtEnd;  // how many bits will be remaining at the end
-    // after we're done
+public class BitInputStream implements Closeable {
+    private FileChannel input;
+    private ByteBuffer buffer;   // bytes read from the file but not yet taken
+    private long word;          // the bits of the current word not yet read
+    private int wordBits;       // how many bits of word are left
+    private long remaining;     // how many bits are left before the padding
 
-    private static final int BYTE_SIZE = 8;  // bits per byte
+    private static final int BYTE_SIZE = 8;            // bits per byte
+    private static final int WORD_SIZE = 64;           // bits per word
+    private static final int BUFFER_SIZE = 1 << 16;    // bytes per channel read
 
     // pre : given file name is legal
     // post: creates a BitInputStream reading input from the file
     public BitInputStream(String file) {
         try {
-            this.input = new FileInputStream(file);
+            this.input = new FileInputStream(file).getChannel();
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+            this.buffer.flip();                        // starts out empty
 
-            // Read in the number of remaining bits at the end
-            this.remainingAtEnd = this.input.read();
+            long size = this.input.size();
+            this.fill();
 
-            // Set up the nextByte field.
-            this.nextByte = this.input.read();
+            // Read in the number of remaining bits at the end
+            int remainingAtEnd = size > 0 ? this.buffer.get() & 0xFF : 0;
+            this.remaining = Math.max(0, (size - 1) * BYTE_SIZE - remainingAtEnd);
         } catch (IOException ex) {
             throw new RuntimeException(ex.toString());
         }
-
-        this.nextByte();
     }
 
     public boolean hasNextBit() {
-        boolean atEnd = this.currentByte == -1;
-        boolean onlyRemaining = this.nextByte == -1
-                && BYTE_SIZE - this.numBits == this.remainingAtEnd;
-        return !atEnd && !onlyRemaining;
+        return this.remaining > 0;
+    }
+
+    public long bitsRemaining() {
+        return this.remaining;
     }
 
     // post: reads next bit from input (-1 if at end of file)
     //       throws NoSuchElementException if there is no bit to return
     public int nextBit() {
-        // if at eof, throw exception
-        if (!this.hasNextBit()) {
+        return (int) this.readBits(1);
+    }
+
+    // pre : 0 <= n <= 64
+    // post: reads the next n bits from input, the first bit read being the
+    //       least significant bit of the result
+    //       throws NoSuchElementException if fewer than n bits are left
+    public long readBits(int n) {
+        if (n < 0 || n > WORD_SIZE) {
+            throw new IllegalArgumentException("can only read 0 to 64 bits, not " + n);
+        }
+        if (n > this.remaining) {
             throw new NoSuchElementException();
         }
-        int result = this.currentByte % 2;
-        this.currentByte /= 2;
-        this.numBits++;
-        if (this.numBits == BYTE_SIZE) {
-            this.nextByte();
+        this.remaining -= n;
+
+        if (n <= this.wordBits) { // the whole field is in the current word
+            long result = this.word & mask(n);
+            this.word = shiftRight(this.word, n);
+            this.wordBits -= n;
+            return result;
         }
+
+        long low = this.word;                          // the low bits of the field
+        int lowBits = this.wordBits;
+        this.nextWord();
+
+        int rest = n - lowBits;                        // the high bits come from the next word
+        long result = low | ((this.word & mask(rest)) << lowBits);
+        this.word = shiftRight(this.word, rest);
+        this.wordBits -= rest;
         return result;
     }
 
-    // post: refreshes the internal buffer with the next BYTE_SIZE bits
-    private void nextByte() {
-        this.currentByte = this.nextByte;
-        if (this.currentByte != -1) {
-            try {
-                this.nextByte = this.input.read();
-            } catch (IOException e) {
-                throw new RuntimeException(e.toString());
+    // post: returns a mask of the n lowest bits
+    static long mask(int n) {
+        return n == WORD_SIZE ? -1L : (1L << n) - 1;
+    }
+
+    // post: returns value shifted right by n bits, where n may be 64
+    private static long shiftRight(long value, int n) {
+        return n == WORD_SIZE ? 0L : value >>> n;
+    }
+
+    // post: moves the unread bytes to the front of the buffer and fills the
+    //       rest of it from the channel
+    private void fill() throws IOException {
+        this.buffer.compact();
+        while (this.buffer.hasRemaining() && this.input.read(this.buffer) > 0) {
+        }
+        this.buffer.flip();
+    }
+
+    // post: refreshes the internal word with the next WORD_SIZE bits, or
+    //       with the last bytes of the file
+    private void nextWord() {
+        try {
+            if (this.buffer.remaining() < WORD_SIZE / BYTE_SIZE) {
+                this.fill();
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
         }
 
-        this.numBits = 0;
+        if (this.buffer.remaining() >= WORD_SIZE / BYTE_SIZE) {
+            this.word = this.buffer.getLong();
+            this.wordBits = WORD_SIZE;
+        } else {
+            this.word = 0;
+            this.wordBits = 0;
+            while (this.buffer.hasRemaining()) {
+                this.word |= (this.buffer.get() & 0xFFL) << this.wordBits;
+                this.wordBits += BYTE_SIZE;
+            }
+        }
     }
 
     // post: input is closed
@@ -93,9 +162,4 @@ public class BitInputStream {
             throw new RuntimeException(e.toString());
         }
     }
-
-    // included to ensure that the stream is closed
-    protected void finalize() {
-        this.close();
-    }
 }
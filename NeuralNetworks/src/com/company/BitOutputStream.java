@@ -0,0 +1,180 @@
+package com.company;
+// The BitOutputStream writes the files that BitInputStream reads: a first
+// byte that holds the number of 0 bits padded onto the end, then the bits,
+// each byte filled starting with its least significant bit.
+//
+// Bits are collected into a 64-bit word and each full word is put into a
+// 64 KB little-endian buffer, which is written to a FileChannel when it is
+// full, so writing a field of up to 64 bits costs a shift and an or.  The
+// padding count is not known until the stream is closed, so close() writes
+// it over the placeholder at the start of the file.
+//
+// BitOutputStream has the following public methods:
+//     public BitOutputStream(String file)
+//         opens an output stream with the given file name
+//     public void writeBit(int bit)
+//         writes the given bit to output
+//     public void writeBits(long value, int n)
+//         writes the n lowest bits (0 to 64) of value to output, the least
+//         significant bit first
+//     public long bitsWritten()
+//         returns the number of bits written so far
+//     public void close()
+//         pads the last byte with 0's and closes the output
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+public class BitOutputStream implements Closeable {
+    private FileChannel output;
+    private ByteBuffer buffer;   // bytes not yet written to the file
+    private long word;           // the bits of the current word
+    private int wordBits;        // how many bits of word are filled
+    private long written;        // how many bits have been written
+
+    private static final int BYTE_SIZE = 8;            // bits per byte
+    private static final int WORD_SIZE = 64;           // bits per word
+    private static final int BUFFER_SIZE = 1 << 16;    // bytes per channel write
+
+    // pre : given file name is legal
+    // post: creates a BitOutputStream sending output to the file
+    public BitOutputStream(String file) {
+        try {
+            this.output = new FileOutputStream(file).getChannel();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.toString());
+        }
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.put((byte) 0);                     // the padding count is written by close()
+    }
+
+    public long bitsWritten() {
+        return this.written;
+    }
+
+    // pre : bit is 0 or 1
+    // post: writes given bit to output
+    public void writeBit(int bit) {
+        if (bit < 0 || bit > 1) {
+            throw new IllegalArgumentException("Illegal bit: " + bit);
+        }
+        this.writeBits(bit, 1);
+    }
+
+    // pre : 0 <= n <= 64
+    // post: writes the n lowest bits of value to output, the least
+    //       significant bit first
+    public void writeBits(long value, int n) {
+        if (n < 0 || n > WORD_SIZE) {
+            throw new IllegalArgumentException("can only write 0 to 64 bits, not " + n);
+        }
+        value &= BitInputStream.mask(n);
+        this.word |= value << this.wordBits;
+        this.written += n;
+
+        if (this.wordBits + n < WORD_SIZE) {
+            this.wordBits += n;
+            return;
+        }
+
+        this.putWord(this.word);                       // the word is full
+        int spill = this.wordBits + n - WORD_SIZE;     // the bits of value that did not fit
+        this.word = spill > 0 ? value >>> (n - spill) : 0L;
+        this.wordBits = spill;
+    }
+
+    // post: puts a full word into the buffer, writing the buffer first if it
+    //       has no room
+    private void putWord(long value) {
+        if (this.buffer.remaining() < WORD_SIZE / BYTE_SIZE) {
+            this.flush();
+        }
+        this.buffer.putLong(value);
+    }
+
+    // post: writes the bytes in the buffer to the file
+    private void flush() {
+        try {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.output.write(this.buffer);
+            }
+            this.buffer.clear();
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    // post: output is closed, with the last byte padded with 0's and the
+    //       number of padding bits stored at the start of the file
+    public void close() {
+        int bytes = (this.wordBits + BYTE_SIZE - 1) / BYTE_SIZE;
+        int padding = bytes * BYTE_SIZE - this.wordBits;
+
+        for (int i = 0; i < bytes; i++) {
+            if (!this.buffer.hasRemaining()) {
+                this.flush();
+            }
+            this.buffer.put((byte) (this.word >>> (i * BYTE_SIZE)));
+        }
+        this.flush();
+
+        try {
+            this.output.write(ByteBuffer.wrap(new byte[] {(byte) padding}), 0);
+            this.output.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    // post: writes and reads back a file of fields of every width from 1 to
+    //       64 bits, checks that every field survives, and prints the MB/s of
+    //       each direction
+    //       args: the name of the file and the number of megabytes to write
+    public static void main(String[] args) {
+        String file = args.length > 0 ? args[0] : "bits.tmp";
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long totalBits = (long) megabytes * 1024 * 1024 * BYTE_SIZE;
+
+        long[] values = new long[1 << 12];             // made up front so that the timings are of the streams alone
+        Random random = new Random(42);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong();
+        }
+
+        for (int repetition = 0; repetition < 3; repetition++) { // the first repetitions warm up the JIT compiler
+            long start = System.nanoTime();
+            BitOutputStream out = new BitOutputStream(file);
+            long bits = 0;
+
+            for (int i = 0; bits < totalBits; i++) {
+                int n = i % WORD_SIZE + 1;
+                out.writeBits(values[i & (values.length - 1)], n);
+                bits += n;
+            }
+            out.close();
+            long writeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BitInputStream in = new BitInputStream(file);
+
+            for (int i = 0; in.hasNextBit(); i++) {
+                int n = i % WORD_SIZE + 1;
+                if (in.readBits(n) != (values[i & (values.length - 1)] & BitInputStream.mask(n))) {
+                    throw new IllegalStateException("a " + n + "-bit field was read back wrong");
+                }
+            }
+            in.close();
+            long readNanos = System.nanoTime() - start;
+
+            double mb = bits / (double) BYTE_SIZE / (1024 * 1024);
+            System.out.printf("%.1f MB: write %.1f MB/s, read %.1f MB/s\n", mb, mb / (writeNanos / 1e9),
+                    mb / (readNanos / 1e9));
+        }
+        new File(file).delete();
+    }
+}
@@ -0,0 +1,387 @@
+package com.company;
+
+import java.io.IOException;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines an in-memory dataset of two-color images with one class label each, with every pixel packed into one bit:
+ * pixel i of a test case is bit i % 64 of the long i / 64 of that test case, so a test case takes a 64th of the memory of a row
+ * of doubles and an 8th of the memory of a CompactDataset. The bits are handed out either as they are, to the packed forward
+ * pass of the network (see: Network.calculateAllActivations(long[]) and BinarizedInputLayer), or expanded into input values of
+ * 0.0 and 1.0 through the Dataset interface, so the network trains on the same values that the packed forward pass sees.
+ *
+ * A pixel is set when its gray level is at least the threshold, or below it if the colors are inverted. The packed forward pass
+ * only does work for the set bits, so the colors should be inverted when most pixels are light (fromCompact can choose this).
+ *
+ * The BitPackedDataset class contains the following instance variables:
+ *    long[] bits: the packed pixels of every test case, test case after test case
+ *    int[]  labels: the class index of every test case
+ *    int    numSamples: the number of test cases
+ *    int    inputSize: the number of pixels in each test case
+ *    int    numClasses: the number of classes, which is the number of expected output values
+ *    int    wordsPerSample: the number of longs in each test case
+ *
+ */
+public class BitPackedDataset implements Dataset
+{
+    /**
+     * the gray level that separates the two colors, halfway between black and white
+     */
+    public static final int GRAY_THRESHOLD = 128;
+
+    private long[] bits;
+    private int[] labels;
+    private int numSamples;
+    private int inputSize;
+    private int numClasses;
+    private int wordsPerSample;
+
+    /**
+     * Creates an empty BitPackedDataset with room for the given number of test cases
+     *
+     * @param numSamples the number of test cases
+     * @param inputSize  the number of pixels in each test case
+     * @param numClasses the number of classes
+     */
+    public BitPackedDataset(int numSamples, int inputSize, int numClasses)
+    {
+        this.numSamples = numSamples;
+        this.inputSize = inputSize;
+        this.numClasses = numClasses;
+
+        wordsPerSample = numWords(inputSize);
+        bits = new long[numSamples * wordsPerSample];
+        labels = new int[numSamples];
+    } // public BitPackedDataset
+
+    /**
+     * returns the number of longs that hold the given number of bits
+     *
+     * @param size the number of bits
+     * @return the number of longs
+     */
+    public static int numWords(int size)
+    {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * checks that packed pixels hold exactly the given number of bits: that there are as many longs as the bits take, and that
+     * the bits after the last pixel in the last long are clear, since the packed forward pass would read them as set inputs
+     *
+     * @param bits the packed pixels of one test case
+     * @param size the number of pixels
+     * @throws IllegalArgumentException if there are too many or too few longs, or a bit after the last pixel is set
+     */
+    public static void checkBits(long[] bits, int size)
+    {
+        if (bits.length != numWords(size))
+        {
+            throw new IllegalArgumentException(size + " packed pixels take " + numWords(size) + " longs, not " + bits.length);
+        }
+
+        int usedBits = size & 63; // the number of pixels in the last long, or 0 if they fill it
+
+        if (usedBits != 0 && (bits[bits.length - 1] >>> usedBits) != 0L)
+        {
+            throw new IllegalArgumentException("a bit after the last of the " + size + " packed pixels is set");
+        }
+    } // public static void checkBits
+
+    /**
+     * packs a two-color CompactDataset, keeping its labels
+     *
+     * @param dataset   the dataset of gray levels
+     * @param threshold the gray level from which a pixel is set
+     * @param invert    true to set the pixels below the threshold instead
+     * @return the packed dataset
+     */
+    public static BitPackedDataset fromCompact(CompactDataset dataset, int threshold, boolean invert)
+    {
+        int inputSize = dataset.getInputSize();
+        BitPackedDataset packed = new BitPackedDataset(dataset.getNumSamples(), inputSize, dataset.getOutputSize());
+        byte[] pixels = dataset.getPixels();
+
+        for (int sample = 0; sample < packed.numSamples; sample++)
+        {
+            int start = sample * packed.wordsPerSample;
+
+            for (int index = 0; index < inputSize; index++)
+            {
+                if (((pixels[sample * inputSize + index] & 0xFF) >= threshold) != invert)
+                {
+                    packed.bits[start + (index >>> 6)] |= 1L << index; // the shift only uses the low 6 bits of index
+                }
+            }
+            packed.labels[sample] = dataset.getLabel(sample);
+        } // for (int sample = 0; sample < packed.numSamples; sample++)
+        return packed;
+    } // public static BitPackedDataset fromCompact
+
+    /**
+     * returns whether most of the pixels of a dataset are at least the threshold, in which case they should be packed inverted
+     *
+     * @param dataset   the dataset of gray levels
+     * @param threshold the gray level that separates the two colors
+     * @return true if more than half of the pixels are at least the threshold
+     */
+    public static boolean isMostlyLight(CompactDataset dataset, int threshold)
+    {
+        byte[] pixels = dataset.getPixels();
+        long light = 0;
+
+        for (int index = 0; index < dataset.getNumSamples() * dataset.getInputSize(); index++)
+        {
+            if ((pixels[index] & 0xFF) >= threshold)
+            {
+                light++;
+            }
+        }
+        return 2 * light > (long) dataset.getNumSamples() * dataset.getInputSize();
+    } // public static boolean isMostlyLight
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return numClasses;
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    public int getWordsPerSample()
+    {
+        return wordsPerSample;
+    }
+
+    public int getLabel(int sample)
+    {
+        return labels[sample];
+    }
+
+    /**
+     * returns the array that holds the packed pixels of every test case. The bits of test case s start at index
+     * s * wordsPerSample.
+     *
+     * @return the packed pixels of the dataset (not a copy)
+     */
+    public long[] getBits()
+    {
+        return bits;
+    }
+
+    /**
+     * copies the packed pixels of a test case
+     *
+     * @param sample the index of the test case
+     * @param sampleBits the array of at least wordsPerSample longs that the bits are copied into
+     */
+    public void copyBits(int sample, long[] sampleBits)
+    {
+        System.arraycopy(bits, sample * wordsPerSample, sampleBits, 0, wordsPerSample);
+    }
+
+    /**
+     * returns the fraction of the pixels of every test case that are set
+     * @return the fraction of set pixels
+     */
+    public double getSetFraction()
+    {
+        long set = 0;
+
+        for (int word = 0; word < bits.length; word++)
+        {
+            set += Long.bitCount(bits[word]);
+        }
+        return (double) set / ((long) numSamples * inputSize);
+    } // public double getSetFraction
+
+    /**
+     * copies a test case into the given arrays, expanding every bit into an input value of 0.0 or 1.0 and the label into a
+     * one-hot row
+     *
+     * @param sample          the index of the test case
+     * @param inputs          the array that the input values are copied into
+     * @param expectedOutputs the array that the expected output values are copied into
+     */
+    public void copySample(int sample, double[] inputs, double[] expectedOutputs)
+    {
+        int start = sample * wordsPerSample;
+
+        for (int index = 0; index < inputSize; index++)
+        {
+            inputs[index] = (bits[start + (index >>> 6)] >>> index) & 1L;
+        }
+
+        for (int outputNode = 0; outputNode < numClasses; outputNode++)
+        {
+            expectedOutputs[outputNode] = 0.0;
+        }
+        expectedOutputs[labels[sample]] = 1.0;
+    } // public void copySample
+
+    /**
+     * starts a pass that visits the test cases in order
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        return new DatasetIterator()
+        {
+            private int sample = 0; // the index of the next test case
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sample >= numSamples)
+                {
+                    return false;
+                }
+
+                copySample(sample++, inputs, expectedOutputs);
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                sample = numSamples;
+            }
+        };
+    } // public DatasetIterator iterator
+
+    /**
+     * packs a directory of bitmaps, trains a network on the packed test cases and compares the forward pass of the expanded
+     * inputs with the packed forward pass and the binarized first layer, printing the memory, time and accuracy of each
+     *
+     * @param args the directory of bitmaps, the side that the images are resized to (0 to keep their size), the number of
+     *             hidden nodes, the number of training iterations and the number of timed passes
+     * @throws IOException if a bitmap cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String directory = args.length > 0 ? args[0] : "src/com/company/TrainingData";
+        int side = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int hiddenNodes = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+        int repetitions = args.length > 4 ? Integer.parseInt(args[4]) : 2000;
+
+        ImageIngestor ingestor = ImageIngestor.fromDirectory(directory);
+
+        if (side > 0)
+        {
+            ingestor.setOutputSize(side, side);
+        }
+
+        CompactDataset compact = ingestor.ingest(Runtime.getRuntime().availableProcessors());
+        boolean invert = isMostlyLight(compact, GRAY_THRESHOLD); // the rarer color becomes the set bits
+        BitPackedDataset dataset = fromCompact(compact, GRAY_THRESHOLD, invert);
+        int inputSize = dataset.getInputSize();
+        int numSamples = dataset.getNumSamples();
+
+        System.out.printf("%d images of %d pixels, %s, %.1f%% of the bits set\n", numSamples, inputSize,
+                invert ? "inverted" : "not inverted", 100.0 * dataset.getSetFraction());
+        System.out.printf("input memory: doubles %d bytes, bytes %d bytes, bits %d bytes\n", 8L * numSamples * inputSize,
+                (long) numSamples * inputSize, 8L * dataset.getBits().length);
+
+        Network network = new Network(inputSize, new int[] {hiddenNodes}, dataset.getOutputSize(), 0.3, iterations, 0, -0.1,
+                0.1, 0.0);
+        network.setDataset(dataset);
+        network.randomizeWeights(-0.1, 0.1);
+
+        double error = 0.0;
+
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            error = network.runTrainingIteration(false);
+        }
+        System.out.printf("trained for %d iterations, error %.6f\n\n", iterations, error);
+
+        double[][] inputs = new double[numSamples][inputSize]; // expanded before the timing, like a dataset of doubles
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        long[][] sampleBits = new long[numSamples][dataset.getWordsPerSample()];
+
+        for (int sample = 0; sample < numSamples; sample++)
+        {
+            dataset.copySample(sample, inputs[sample], expectedOutputs);
+            dataset.copyBits(sample, sampleBits[sample]);
+        }
+
+        BinarizedInputLayer binarized = new BinarizedInputLayer(network);
+        double[] thetas = new double[hiddenNodes];
+        double[][] denseOutputs = new double[numSamples][];
+        String[] names = {"doubles", "set bits", "popcount"};
+        double baseline = 0.0;
+
+        for (int path = 0; path < names.length; path++)
+        {
+            int correct = 0;
+            double maxDifference = 0.0;
+            long start = 0;
+
+            for (int repetition = -repetitions / 10; repetition < repetitions; repetition++) // the first tenth warms up
+            {
+                if (repetition == 0)
+                {
+                    start = System.nanoTime();
+                }
+
+                for (int sample = 0; sample < numSamples; sample++)
+                {
+                    if (path == 0)
+                    {
+                        network.setInputs(inputs[sample]);
+                        network.calculateAllActivations();
+                    }
+                    else if (path == 1)
+                    {
+                        network.calculateAllActivations(sampleBits[sample]);
+                    }
+                    else
+                    {
+                        binarized.calculateThetas(sampleBits[sample], thetas);
+                        network.calculateActivationsFromFirstThetas(thetas);
+                    }
+
+                    if (repetition == repetitions - 1) // checks the outputs of the last pass
+                    {
+                        double[] outputs = network.getOutputActivations();
+
+                        if (path == 0)
+                        {
+                            denseOutputs[sample] = outputs.clone();
+                        }
+                        for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+                        {
+                            maxDifference = Math.max(maxDifference, Math.abs(outputs[outputNode] -
+                                    denseOutputs[sample][outputNode]));
+                        }
+                        if (network.getMaxOutputIndex() == dataset.getLabel(sample))
+                        {
+                            correct++;
+                        }
+                    } // if (repetition == repetitions - 1)
+                } // for (int sample = 0; sample < numSamples; sample++)
+            } // for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+
+            double nanosPerImage = (double) (System.nanoTime() - start) / ((long) repetitions * numSamples);
+
+            if (path == 0)
+            {
+                baseline = nanosPerImage;
+            }
+            System.out.printf("%-9s %10.1f ns/image  (%.2fx)  %d/%d correct  max output difference %.2e\n", names[path],
+                    nanosPerImage, baseline / nanosPerImage, correct, numSamples, maxDifference);
+        } // for (int path = 0; path < names.length; path++)
+
+        System.out.printf("first layer weights: doubles %d bytes, binarized %d bytes\n",
+                8L * inputSize * hiddenNodes, binarized.getWeightBytes());
+    } // public static void main
+} // public class BitPackedDataset
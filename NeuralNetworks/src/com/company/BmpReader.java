@@ -0,0 +1,477 @@
+package com.company;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a reader that decodes Windows bitmaps (see the notes in DibDump for the layout of the file). Instead of
+ * reading every header field and every pel with its own call on a DataInputStream and swapping its bytes, read(String) brings
+ * the whole file into one little-endian ByteBuffer with a single channel read (or maps it, for files of at least MAP_BYTES bytes)
+ * and the headers and pels are then decoded straight from the buffer with absolute gets, so no bytes have to be swapped by hand.
+ *
+ * The reader decodes 1, 2, 4 and 8-bit color table images, 16-bit images (5 bits per color, or the masks of BI_BITFIELDS),
+ * 24-bit images and 32-bit images (with or without BI_BITFIELDS masks), stored either bottom-up (the usual way) or top-down
+ * (a negative biHeight). The pels always come out with the top row first, in the 0x00RRGGBB format used by DibDump, except that
+ * a 32-bit BI_RGB pel keeps its reserved byte in the high byte, the same way DibDump has always read them.
+ *
+ * Every size and offset in the headers is checked against the length of the file before anything is read at it, so a truncated
+ * or damaged bitmap throws an IOException that names the file instead of an exception from the buffer.
+ *
+ * All of the state of a reader belongs to the file it read last, and the buffer is kept and reused for the next file as long as
+ * it is large enough, so a thread that decodes many images should keep one BmpReader of its own. Readers are not thread safe.
+ *
+ * The BmpReader class contains the following instance variables:
+ *    ByteBuffer buffer: the contents of the file that was read last, in little-endian order
+ *    ByteBuffer heapBuffer: the buffer that is reused for files that are read instead of mapped
+ *    int        fileSize: the size of the file, from bfSize
+ *    int        offBits: the index in the file of the first byte of the pels, from bfOffBits
+ *    int        infoSize: the size of the BITMAPINFOHEADER, from biSize
+ *    int        width: the width of the image in pels
+ *    int        height: the height of the image in pels, which is always positive
+ *    boolean    topDown: whether the rows are stored with the top row first (a negative biHeight)
+ *    int        planes: the number of planes, from biPlanes
+ *    int        bitCount: the number of bits in each pel
+ *    int        compression: the type of compression, from biCompression
+ *    int        sizeImage: the size of the pels, from biSizeImage (which may be 0)
+ *    int        xPelsPerMeter: the horizontal resolution, from biXPelsPerMeter
+ *    int        yPelsPerMeter: the vertical resolution, from biYPelsPerMeter
+ *    int        clrUsed: the number of colors used, from biClrUsed
+ *    int        clrImportant: the number of important colors, from biClrImportant
+ *    int[]      colorTable: the colors of the color table, in the 0x00RRGGBB format
+ *    int[]      masks: the red, green and blue masks of a 16 or 32-bit image
+ *
+ */
+public class BmpReader
+{
+    /**
+     * the signature word of a bitmap ("BM")
+     */
+    public static final int BMP_SIGNATURE = 0x4D42;
+
+    /**
+     * the number of bytes in the BITMAPFILEHEADER
+     */
+    public static final int FILE_HEADER_BYTES = 14;
+
+    /**
+     * the value of biCompression for an uncompressed image
+     */
+    public static final int BI_RGB = 0;
+
+    /**
+     * the value of biCompression for an uncompressed image whose colors are selected by masks
+     */
+    public static final int BI_BITFIELDS = 3;
+
+    /**
+     * files of at least this many bytes are mapped instead of read
+     */
+    public static final int MAP_BYTES = 1 << 20;
+
+    private ByteBuffer buffer;
+    private ByteBuffer heapBuffer;
+    private int fileSize;
+    private int offBits;
+    private int infoSize;
+    private int width;
+    private int height;
+    private boolean topDown;
+    private int planes;
+    private int bitCount;
+    private int compression;
+    private int sizeImage;
+    private int xPelsPerMeter;
+    private int yPelsPerMeter;
+    private int clrUsed;
+    private int clrImportant;
+    private int[] colorTable = new int[256];
+    private int[] masks = new int[3];
+
+    /**
+     * reads a bitmap into the buffer and decodes its headers and color table. The pels are decoded later by readPels or
+     * readGrayscale.
+     *
+     * @param fileName the name of the bitmap
+     * @throws IOException if the file cannot be read or is not a bitmap that this reader can decode
+     */
+    public void read(String fileName) throws IOException
+    {
+        FileChannel channel = new FileInputStream(fileName).getChannel();
+
+        try
+        {
+            long size = channel.size();
+
+            if (size >= MAP_BYTES)
+            {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            else
+            {
+                if (heapBuffer == null || heapBuffer.capacity() < size)
+                {
+                    heapBuffer = ByteBuffer.allocate((int) size);
+                }
+                heapBuffer.clear();
+                heapBuffer.limit((int) size);
+
+                while (heapBuffer.hasRemaining()) // one read is almost always enough
+                {
+                    if (channel.read(heapBuffer) < 0)
+                    {
+                        throw new EOFException(fileName + " ended early");
+                    }
+                }
+                buffer = heapBuffer;
+            } // else
+        } // try
+        finally
+        {
+            channel.close();
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        readHeaders(fileName);
+    } // public void read
+
+    /**
+     * decodes the BITMAPFILEHEADER, the BITMAPINFOHEADER, the color masks and the color table from the buffer
+     *
+     * @param fileName the name of the bitmap, for the error messages
+     * @throws IOException if the file is not a bitmap that this reader can decode, or its headers give sizes or offsets that do
+     *                     not fit in the file
+     */
+    private void readHeaders(String fileName) throws IOException
+    {
+        if (buffer.limit() < FILE_HEADER_BYTES + 40 || (buffer.getShort(0) & 0xFFFF) != BMP_SIGNATURE)
+        {
+            throw new IOException(fileName + " is not a bitmap");
+        }
+
+        fileSize      = buffer.getInt(2);              // DWORD bfSize
+        offBits       = buffer.getInt(10);             // DWORD bfOffBits
+        infoSize      = buffer.getInt(14);             // DWORD biSize
+        width         = buffer.getInt(18);             // LONG  biWidth
+        height        = buffer.getInt(22);             // LONG  biHeight
+        planes        = buffer.getShort(26) & 0xFFFF;  // WORD  biPlanes
+        bitCount      = buffer.getShort(28) & 0xFFFF;  // WORD  biBitCount
+        compression   = buffer.getInt(30);             // DWORD biCompression
+        sizeImage     = buffer.getInt(34);             // DWORD biSizeImage
+        xPelsPerMeter = buffer.getInt(38);             // LONG  biXPelsPerMeter
+        yPelsPerMeter = buffer.getInt(42);             // LONG  biYPelsPerMeter
+        clrUsed       = buffer.getInt(46);             // DWORD biClrUsed
+        clrImportant  = buffer.getInt(50);             // DWORD biClrImportant
+
+        topDown = height < 0; // a negative height means that the image is stored rightside up
+        height = Math.abs(height);
+
+        if (width <= 0 || height <= 0) // Math.abs leaves Integer.MIN_VALUE negative
+        {
+            throw new IOException(fileName + " has a bad size of " + width + " x " + buffer.getInt(22));
+        }
+        if (infoSize < 40 || infoSize > buffer.limit() - FILE_HEADER_BYTES)
+        {
+            throw new IOException(fileName + " has a bad header size of " + infoSize);
+        }
+
+        if (bitCount != 1 && bitCount != 2 && bitCount != 4 && bitCount != 8 && bitCount != 16 && bitCount != 24 &&
+                bitCount != 32)
+        {
+            throw new IOException(fileName + " has " + bitCount + " bits per pel");
+        }
+        if (compression != BI_RGB && !(compression == BI_BITFIELDS && (bitCount == 16 || bitCount == 32)))
+        {
+            throw new IOException(fileName + " uses compression " + compression + ", which is not supported");
+        }
+        long bytesPerRow = ((long) width * bitCount + 31) / 32 * 4; // in longs, since a damaged width can overflow an int
+
+        if (offBits < 0 || offBits + bytesPerRow * height > buffer.limit())
+        {
+            throw new IOException(fileName + " is too short for a " + width + " x " + height + " image");
+        }
+
+        int tableStart = FILE_HEADER_BYTES + infoSize; // the masks or the color table follow the BITMAPINFOHEADER
+
+        if (compression == BI_BITFIELDS)
+        {
+            if (infoSize == 40) // the masks follow a plain BITMAPINFOHEADER, but are part of the larger V4 and V5 headers
+            {
+                tableStart += 12;
+            }
+            if (buffer.limit() < FILE_HEADER_BYTES + 52)
+            {
+                throw new IOException(fileName + " ends before its color masks");
+            }
+            masks[0] = buffer.getInt(FILE_HEADER_BYTES + 40);
+            masks[1] = buffer.getInt(FILE_HEADER_BYTES + 44);
+            masks[2] = buffer.getInt(FILE_HEADER_BYTES + 48);
+        }
+        else if (bitCount == 16)
+        {
+            masks[0] = 0x7C00; // 5 bits for each color, with blue in the lowest bits
+            masks[1] = 0x03E0;
+            masks[2] = 0x001F;
+        }
+
+        int numberOfColors = 0; // true color images have no color table
+
+        if (bitCount <= 8)
+        {
+            numberOfColors = clrUsed > 0 ? Math.min(clrUsed, 1 << bitCount) : 1 << bitCount;
+        }
+
+        if ((long) tableStart + 4L * numberOfColors > buffer.limit())
+        {
+            throw new IOException(fileName + " ends before the end of its color table of " + numberOfColors + " colors");
+        }
+
+        for (int color = 0; color < numberOfColors; color++) // each RGBQUAD is blue, green, red, reserved
+        {
+            colorTable[color] = buffer.getInt(tableStart + color * 4) & 0x00FFFFFF;
+        }
+        Arrays.fill(colorTable, numberOfColors, colorTable.length, 0); // a pel past the table is black, not from the last file
+    } // private void readHeaders
+
+    /**
+     * returns the number of bytes in each scan line on disk, including the dead bytes that pad it to a 4 byte boundary
+     * @return the number of bytes in each scan line
+     */
+    public int getBytesPerRow()
+    {
+        return ((width * bitCount + 31) / 32) * 4;
+    }
+
+    /**
+     * returns the index in the buffer of the first byte of a row of the image
+     *
+     * @param row the row of the image, where row 0 is the top row
+     * @return the index in the buffer of the first byte of the row
+     */
+    private int rowStart(int row)
+    {
+        return offBits + (topDown ? row : height - 1 - row) * getBytesPerRow();
+    }
+
+    /**
+     * scales the bits of a color selected by a mask to a value from 0 to 255
+     *
+     * @param value the value of the pel
+     * @param mask  the mask of the color
+     * @return the value of the color, from 0 to 255
+     */
+    private static int maskedColor(int value, int mask)
+    {
+        if (mask == 0)
+        {
+            return 0;
+        }
+
+        int shift = Integer.numberOfTrailingZeros(mask);
+        int bits = Integer.bitCount(mask);
+        int color = (value & mask) >>> shift;
+
+        if (bits >= 8)
+        {
+            return color >>> (bits - 8);
+        }
+        return (color * 255 + ((1 << bits) - 1) / 2) / ((1 << bits) - 1); // stretches fewer than 8 bits over 0 to 255
+    } // private static int maskedColor
+
+    /**
+     * decodes one row of the image
+     *
+     * @param row    the row of the image, where row 0 is the top row
+     * @param pels   the array that the pels of the row are stored in
+     * @param offset the index in pels of the first pel of the row
+     */
+    public void readRow(int row, int[] pels, int offset)
+    {
+        int position = rowStart(row);
+
+        switch (bitCount)
+        {
+            case 1:
+            case 2:
+            case 4: // several pels per byte, with the leftmost pel in the highest bits
+                int pelsPerByte = 8 / bitCount;
+                int mask = (1 << bitCount) - 1;
+
+                for (int column = 0; column < width; column++)
+                {
+                    int byteValue = buffer.get(position + column / pelsPerByte) & 0xFF;
+                    int shift = (pelsPerByte - 1 - column % pelsPerByte) * bitCount;
+                    pels[offset + column] = colorTable[(byteValue >> shift) & mask];
+                }
+                break;
+            case 8:
+                for (int column = 0; column < width; column++)
+                {
+                    pels[offset + column] = colorTable[buffer.get(position + column) & 0xFF];
+                }
+                break;
+            case 16:
+                for (int column = 0; column < width; column++)
+                {
+                    int value = buffer.getShort(position + column * 2) & 0xFFFF;
+                    pels[offset + column] = (maskedColor(value, masks[0]) << 16) | (maskedColor(value, masks[1]) << 8) |
+                            maskedColor(value, masks[2]);
+                }
+                break;
+            case 24: // blue, green, red
+                for (int column = 0; column < width; column++)
+                {
+                    int index = position + column * 3;
+                    pels[offset + column] = (buffer.getShort(index) & 0xFFFF) | ((buffer.get(index + 2) & 0xFF) << 16);
+                }
+                break;
+            case 32:
+                if (compression == BI_BITFIELDS)
+                {
+                    for (int column = 0; column < width; column++)
+                    {
+                        int value = buffer.getInt(position + column * 4);
+                        pels[offset + column] = (maskedColor(value, masks[0]) << 16) |
+                                (maskedColor(value, masks[1]) << 8) | maskedColor(value, masks[2]);
+                    }
+                }
+                else
+                {
+                    for (int column = 0; column < width; column++) // blue, green, red, reserved is one little-endian int
+                    {
+                        pels[offset + column] = buffer.getInt(position + column * 4);
+                    }
+                }
+                break;
+        } // switch (bitCount)
+    } // public void readRow
+
+    /**
+     * decodes every pel of the image into a flat array in row-major order with the top row first
+     *
+     * @param pels   the array that the pels are stored in
+     * @param offset the index in pels of the first pel
+     */
+    public void readPels(int[] pels, int offset)
+    {
+        for (int row = 0; row < height; row++)
+        {
+            readRow(row, pels, offset + row * width);
+        }
+    }
+
+    /**
+     * decodes every pel of the image into an array of rows, the same shape as DibDump's imageArray
+     *
+     * @return the pels of the image, with the top row first
+     */
+    public int[][] readImageArray()
+    {
+        int[][] image = new int[height][width];
+
+        for (int row = 0; row < height; row++)
+        {
+            readRow(row, image[row], 0);
+        }
+        return image;
+    } // public int[][] readImageArray
+
+    /**
+     * decodes every pel of the image and stores its gray level (see: ImagePreprocessor.grayRow) as one byte, in row-major order
+     * with the top row first
+     *
+     * @param pixels the array that the gray levels are stored in
+     * @param offset the index in pixels of the first pel
+     * @param row    an array of at least width ints that holds one decoded row at a time
+     */
+    public void readGrayscale(byte[] pixels, int offset, int[] row)
+    {
+        for (int i = 0; i < height; i++)
+        {
+            readRow(i, row, 0);
+            ImagePreprocessor.grayRow(row, width, row, 0);
+
+            for (int column = 0; column < width; column++)
+            {
+                pixels[offset + i * width + column] = (byte) row[column];
+            }
+        }
+    } // public void readGrayscale
+
+    public int getFileSize()
+    {
+        return fileSize;
+    }
+
+    public int getOffBits()
+    {
+        return offBits;
+    }
+
+    public int getInfoSize()
+    {
+        return infoSize;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public boolean isTopDown()
+    {
+        return topDown;
+    }
+
+    public int getPlanes()
+    {
+        return planes;
+    }
+
+    public int getBitCount()
+    {
+        return bitCount;
+    }
+
+    public int getCompression()
+    {
+        return compression;
+    }
+
+    public int getSizeImage()
+    {
+        return sizeImage;
+    }
+
+    public int getXPelsPerMeter()
+    {
+        return xPelsPerMeter;
+    }
+
+    public int getYPelsPerMeter()
+    {
+        return yPelsPerMeter;
+    }
+
+    public int getClrUsed()
+    {
+        return clrUsed;
+    }
+
+    public int getClrImportant()
+    {
+        return clrImportant;
+    }
+} // public class BmpReader
@@ -0,0 +1,179 @@
+package com.company;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class times BmpReader against the way DibDump used to decode bitmaps, which read every header field and every byte of
+ * every pel with its own call on a DataInputStream over an unbuffered FileInputStream. Both decoders turn the same bitmaps into
+ * grayscale bytes many times, the results are checked to be identical, and the time per image and the speedup are printed.
+ *
+ * Usage: java com.company.BmpReaderBenchmark [repetitions] [bitmap ...]
+ * With no bitmaps, the images in src/com/company/TrainingData are used.
+ *
+ * The BmpReaderBenchmark class contains the following methods:
+ *    void readGrayscalePerByte(String fileName, byte[] pixels, int offset)
+ *    void main(String[] args)
+ *
+ */
+public class BmpReaderBenchmark
+{
+    /**
+     * the number of times each decoder reads every bitmap if no number is given
+     */
+    public static final int DEFAULT_REPETITIONS = 200;
+
+    /**
+     * decodes a 24-bit or 32-bit bitmap into grayscale bytes one byte at a time, the way DibDump used to
+     *
+     * @param fileName the name of the bitmap
+     * @param pixels   the array that the gray levels are stored in
+     * @param offset   the index in pixels of the first pel
+     * @throws IOException if the file cannot be read or is not a 24-bit or 32-bit bitmap
+     */
+    public static void readGrayscalePerByte(String fileName, byte[] pixels, int offset) throws IOException
+    {
+        DibDump dibdumper = new DibDump(); // needed to get to the byte swapping and color methods
+        DataInputStream in = new DataInputStream(new FileInputStream(fileName));
+
+        try
+        {
+            in.skipBytes(10);                                                   // bfType, bfSize, bfReserved1, bfReserved2
+            int offBits  = dibdumper.swapInt(in.readInt());                     // DWORD bfOffBits
+            in.skipBytes(4);                                                    // DWORD biSize
+            int width    = dibdumper.swapInt(in.readInt());                     // LONG  biWidth
+            int height   = dibdumper.swapInt(in.readInt());                     // LONG  biHeight
+            in.skipBytes(2);                                                    // WORD  biPlanes
+            int bitCount = dibdumper.swapShort(in.readUnsignedShort());         // WORD  biBitCount
+
+            boolean topDown = height < 0;
+            height = Math.abs(height);
+
+            if (bitCount != 24 && bitCount != 32)
+            {
+                throw new IOException(fileName + " has " + bitCount + " bits per pel, but only 24 and 32-bit images are read");
+            }
+
+            in.skipBytes(offBits - 30);   // skips the rest of the headers; 30 bytes of them have been read
+
+            int bytesPerPel = bitCount / 8;
+            int deadBytes = (4 - (width * bytesPerPel) % 4) % 4;
+
+            for (int row = 0; row < height; ++row) // read over the rows
+            {
+                int i = topDown ? row : height - 1 - row;
+
+                for (int j = 0; j < width; ++j)         // j is the column counter
+                {
+                    int blue  = in.readUnsignedByte();
+                    int green = in.readUnsignedByte();
+                    int red   = in.readUnsignedByte();
+                    if (bytesPerPel == 4) in.readUnsignedByte(); // the reserved byte of a 32-bit pel
+
+                    int pel = (red << 16) | (green << 8) | blue;
+                    pixels[offset + i * width + j] = (byte) dibdumper.pelToRGB(dibdumper.colorToGrayscale(pel)).blue;
+                }
+                in.skipBytes(deadBytes); // Now skip the "dead bytes" that pad to a 4 byte boundary
+            } // for (int row = 0; row < height; ++row)
+        } // try
+        finally
+        {
+            in.close();
+        }
+    } // public static void readGrayscalePerByte
+
+    /**
+     * times both decoders over the given bitmaps and prints the results
+     *
+     * @param args the number of repetitions, followed by the names of the bitmaps
+     * @throws IOException if a bitmap cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REPETITIONS;
+        String[] fileNames;
+
+        if (args.length > 1)
+        {
+            fileNames = new String[args.length - 1];
+            System.arraycopy(args, 1, fileNames, 0, fileNames.length);
+        }
+        else
+        {
+            java.io.File[] files = new java.io.File("src/com/company/TrainingData").listFiles();
+            fileNames = new String[files.length];
+
+            for (int file = 0; file < files.length; file++)
+            {
+                fileNames[file] = files[file].getPath();
+            }
+        } // else
+
+        BmpReader reader = new BmpReader();
+        int maxPixels = 0;
+        int maxWidth = 0;
+
+        for (String fileName : fileNames)
+        {
+            reader.read(fileName);
+            maxPixels = Math.max(maxPixels, reader.getWidth() * reader.getHeight());
+            maxWidth = Math.max(maxWidth, reader.getWidth());
+        }
+
+        byte[] perBytePixels = new byte[maxPixels];
+        byte[] readerPixels = new byte[maxPixels];
+        int[] row = new int[maxWidth];
+
+        for (String fileName : fileNames) // checks that both decoders agree before timing them
+        {
+            readGrayscalePerByte(fileName, perBytePixels, 0);
+            reader.read(fileName);
+            reader.readGrayscale(readerPixels, 0, row);
+
+            if (!java.util.Arrays.equals(perBytePixels, readerPixels))
+            {
+                throw new IOException("the decoders disagree on " + fileName);
+            }
+        } // for (String fileName : fileNames)
+
+        long perByteNanos = 0;
+        long readerNanos = 0;
+
+        for (int pass = 0; pass < 2; pass++) // the first pass warms up the JIT compiler and is not counted
+        {
+            long start = System.nanoTime();
+
+            for (int repetition = 0; repetition < repetitions; repetition++)
+            {
+                for (String fileName : fileNames)
+                {
+                    readGrayscalePerByte(fileName, perBytePixels, 0);
+                }
+            }
+            perByteNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            for (int repetition = 0; repetition < repetitions; repetition++)
+            {
+                for (String fileName : fileNames)
+                {
+                    reader.read(fileName);
+                    reader.readGrayscale(readerPixels, 0, row);
+                }
+            }
+            readerNanos = System.nanoTime() - start;
+        } // for (int pass = 0; pass < 2; pass++)
+
+        double images = (double) repetitions * fileNames.length;
+
+        System.out.printf("%d images, %d repetitions\n", fileNames.length, repetitions);
+        System.out.printf("per byte:  %10.2f us/image\n", perByteNanos / images / 1e3);
+        System.out.printf("BmpReader: %10.2f us/image\n", readerNanos / images / 1e3);
+        System.out.printf("speedup:   %10.2fx\n", (double) perByteNanos / readerNanos);
+    } // public static void main
+} // public class BmpReaderBenchmark
@@ -0,0 +1,335 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a writer that encodes a whole bitmap (the headers, the color table, every row of pels and the dead bytes
+ * that pad each row to a 4 byte boundary) into one little-endian ByteBuffer and writes it to the file with one channel write,
+ * instead of writing every field and every color byte with its own call and swapping the bytes of the header fields by hand.
+ *
+ * The writer makes 8-bit grayscale bitmaps, whose color table maps each index to the gray of the same level, so each pel is one
+ * byte (a third of the size of a 24-bit bitmap), or 24-bit and 32-bit true color bitmaps. Rows are always written bottom-up with
+ * a positive biHeight, the usual way, no matter how the image was read.
+ *
+ * The buffer is reused for the next image as long as it is large enough, so a thread that writes many images should keep one
+ * BmpWriter of its own; writeAll uses one writer for a whole batch of images. Writers are not thread safe.
+ *
+ * The BmpWriter class contains the following instance variables:
+ *    int        bitCount: the number of bits in each pel, 8, 24 or 32
+ *    ByteBuffer buffer: the buffer that the bitmap is encoded into
+ *
+ */
+public class BmpWriter
+{
+    /**
+     * the number of bytes in the BITMAPINFOHEADER
+     */
+    public static final int INFO_HEADER_BYTES = 40;
+
+    /**
+     * the resolution written into every bitmap, in pels per meter (72 dots per inch)
+     */
+    public static final int PELS_PER_METER = 2835;
+
+    private int bitCount;
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+    /**
+     * Creates a BmpWriter
+     *
+     * @param bitCount the number of bits in each pel, 8 for grayscale or 24 or 32 for true color
+     */
+    public BmpWriter(int bitCount)
+    {
+        if (bitCount != 8 && bitCount != 24 && bitCount != 32)
+        {
+            throw new IllegalArgumentException("only 8, 24 and 32-bit bitmaps can be written, not " + bitCount + "-bit");
+        }
+        this.bitCount = bitCount;
+    } // public BmpWriter
+
+    public int getBitCount()
+    {
+        return bitCount;
+    }
+
+    /**
+     * returns the number of bytes in each scan line, including the dead bytes that pad it to a 4 byte boundary
+     *
+     * @param width the number of pels in each row
+     * @return the number of bytes in each scan line
+     */
+    public int getBytesPerRow(int width)
+    {
+        return ((width * bitCount + 31) / 32) * 4;
+    }
+
+    /**
+     * returns the number of bytes in a bitmap of the given size
+     *
+     * @param height the number of rows
+     * @param width  the number of columns
+     * @return the size of the file
+     */
+    public int getFileSize(int height, int width)
+    {
+        return getOffBits() + getBytesPerRow(width) * height;
+    }
+
+    /**
+     * returns the index in the file of the first byte of the pels, after the headers and the color table
+     * @return the index of the first byte of the pels
+     */
+    private int getOffBits()
+    {
+        return BmpReader.FILE_HEADER_BYTES + INFO_HEADER_BYTES + (bitCount == 8 ? 256 * 4 : 0);
+    }
+
+    /**
+     * clears the buffer, growing it if needed, and encodes the headers and the color table of a bitmap into it
+     *
+     * @param height the number of rows
+     * @param width  the number of columns
+     */
+    private void startImage(int height, int width)
+    {
+        int fileSize = getFileSize(height, width);
+
+        if (buffer.capacity() < fileSize)
+        {
+            buffer = ByteBuffer.allocate(fileSize);
+        }
+        buffer.clear();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        java.util.Arrays.fill(buffer.array(), 0, fileSize, (byte) 0); // the dead bytes are zeros
+
+        // BITMAPFILEHEADER
+        buffer.putShort((short) BmpReader.BMP_SIGNATURE);           // WORD  bfType
+        buffer.putInt(fileSize);                                    // DWORD bfSize
+        buffer.putShort((short) 0);                                 // WORD  bfReserved1
+        buffer.putShort((short) 0);                                 // WORD  bfReserved2
+        buffer.putInt(getOffBits());                                // DWORD bfOffBits
+
+        // BITMAPINFOHEADER
+        buffer.putInt(INFO_HEADER_BYTES);                           // DWORD biSize
+        buffer.putInt(width);                                       // LONG  biWidth
+        buffer.putInt(height);                                      // LONG  biHeight (positive, so stored bottom-up)
+        buffer.putShort((short) 1);                                 // WORD  biPlanes
+        buffer.putShort((short) bitCount);                          // WORD  biBitCount
+        buffer.putInt(BmpReader.BI_RGB);                            // DWORD biCompression
+        buffer.putInt(getBytesPerRow(width) * height);              // DWORD biSizeImage
+        buffer.putInt(PELS_PER_METER);                              // LONG  biXPelsPerMeter
+        buffer.putInt(PELS_PER_METER);                              // LONG  biYPelsPerMeter
+        buffer.putInt(bitCount == 8 ? 256 : 0);                     // DWORD biClrUsed
+        buffer.putInt(0);                                           // DWORD biClrImportant
+
+        if (bitCount == 8) // the gray color table: blue, green, red, reserved
+        {
+            for (int gray = 0; gray < 256; gray++)
+            {
+                buffer.putInt(gray * 0x010101);
+            }
+        }
+        buffer.limit(fileSize);
+    } // private void startImage
+
+    /**
+     * returns the index in the buffer of the first byte of a row of the image
+     *
+     * @param row    the row of the image, where row 0 is the top row
+     * @param height the number of rows
+     * @param width  the number of columns
+     * @return the index in the buffer of the first byte of the row
+     */
+    private int rowStart(int row, int height, int width)
+    {
+        return getOffBits() + (height - 1 - row) * getBytesPerRow(width);
+    }
+
+    /**
+     * stores one pel in the buffer
+     *
+     * @param index the index in the buffer of the pel
+     * @param pel   the pel, in the 0x00RRGGBB format
+     */
+    private void putPel(int index, int pel)
+    {
+        if (bitCount == 8)
+        {
+            buffer.put(index, (byte) ImagePreprocessor.grayLevel(pel));
+        }
+        else if (bitCount == 24)
+        {
+            buffer.putShort(index, (short) pel);           // blue, green
+            buffer.put(index + 2, (byte) (pel >> 16));     // red
+        }
+        else
+        {
+            buffer.putInt(index, pel & 0x00FFFFFF);        // blue, green, red, reserved
+        }
+    } // private void putPel
+
+    /**
+     * stores one gray level in the buffer
+     *
+     * @param index the index in the buffer of the pel
+     * @param gray  the gray level, from 0 to 255
+     */
+    private void putGray(int index, int gray)
+    {
+        if (bitCount == 8)
+        {
+            buffer.put(index, (byte) gray);
+        }
+        else
+        {
+            putPel(index, gray * 0x010101);
+        }
+    } // private void putGray
+
+    /**
+     * writes the encoded bitmap in the buffer to a file with one channel write
+     *
+     * @param fileName the name of the file
+     * @throws IOException if the file cannot be written
+     */
+    private void finishImage(String fileName) throws IOException
+    {
+        FileChannel channel = new FileOutputStream(fileName).getChannel();
+
+        try
+        {
+            buffer.position(0);
+
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        } // try
+        finally
+        {
+            channel.close();
+        }
+    } // private void finishImage
+
+    /**
+     * writes an image of pels, stored as an array of rows with the top row first like DibDump's imageArray
+     *
+     * @param fileName the name of the file
+     * @param image    the pels of the image, in the 0x00RRGGBB format
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String fileName, int[][] image) throws IOException
+    {
+        int height = image.length;
+        int width = image[0].length;
+        int bytesPerPel = bitCount / 8;
+        startImage(height, width);
+
+        for (int row = 0; row < height; row++)
+        {
+            int start = rowStart(row, height, width);
+
+            for (int column = 0; column < width; column++)
+            {
+                putPel(start + column * bytesPerPel, image[row][column]);
+            }
+        }
+        finishImage(fileName);
+    } // public void write
+
+    /**
+     * writes an image of gray levels, stored in row-major order with the top row first like CompactDataset
+     *
+     * @param fileName the name of the file
+     * @param grays    the gray levels, from 0 to 255
+     * @param offset   the index in grays of the first pel
+     * @param height   the number of rows
+     * @param width    the number of columns
+     * @throws IOException if the file cannot be written
+     */
+    public void writeGray(String fileName, byte[] grays, int offset, int height, int width) throws IOException
+    {
+        int bytesPerPel = bitCount / 8;
+        startImage(height, width);
+
+        for (int row = 0; row < height; row++)
+        {
+            if (bitCount == 8) // the row is copied as it is
+            {
+                buffer.position(rowStart(row, height, width));
+                buffer.put(grays, offset + row * width, width);
+            }
+            else
+            {
+                int start = rowStart(row, height, width);
+
+                for (int column = 0; column < width; column++)
+                {
+                    putGray(start + column * bytesPerPel, grays[offset + row * width + column] & 0xFF);
+                }
+            }
+        } // for (int row = 0; row < height; row++)
+        finishImage(fileName);
+    } // public void writeGray
+
+    /**
+     * writes an image of activations from 0.0 to 1.0, such as the output activations of an autoencoder, stored in row-major
+     * order with the top row first. Each activation is rounded to the nearest of the 256 gray levels, and values outside of
+     * 0.0 to 1.0 are clamped.
+     *
+     * @param fileName    the name of the file
+     * @param activations the activations
+     * @param offset      the index in activations of the first pel
+     * @param height      the number of rows
+     * @param width       the number of columns
+     * @throws IOException if the file cannot be written
+     */
+    public void writeActivations(String fileName, double[] activations, int offset, int height, int width) throws IOException
+    {
+        int bytesPerPel = bitCount / 8;
+        startImage(height, width);
+
+        for (int row = 0; row < height; row++)
+        {
+            int start = rowStart(row, height, width);
+
+            for (int column = 0; column < width; column++)
+            {
+                long gray = Math.round(activations[offset + row * width + column] * CompactDataset.MAX_GRAY);
+                putGray(start + column * bytesPerPel, (int) Math.max(0, Math.min(255, gray)));
+            }
+        }
+        finishImage(fileName);
+    } // public void writeActivations
+
+    /**
+     * writes every test case of a CompactDataset to its own bitmap in a directory, named prefix0.bmp, prefix1.bmp and so on,
+     * reusing the one buffer of this writer for every image
+     *
+     * @param dataset   the dataset
+     * @param height    the number of rows of each image
+     * @param width     the number of columns of each image
+     * @param directory the name of the directory, which is created if it does not exist
+     * @param prefix    the start of the name of every bitmap
+     * @throws IOException if a file cannot be written
+     */
+    public void writeAll(CompactDataset dataset, int height, int width, String directory, String prefix) throws IOException
+    {
+        new File(directory).mkdirs();
+
+        for (int sample = 0; sample < dataset.getNumSamples(); sample++)
+        {
+            writeGray(new File(directory, prefix + sample + ".bmp").getPath(), dataset.getPixels(),
+                    sample * dataset.getInputSize(), height, width);
+        }
+    } // public void writeAll
+} // public class BmpWriter
@@ -0,0 +1,218 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines an in-memory dataset of grayscale images with one class label each, stored as compactly as the data
+ * allows. DibDump makes every input value by dividing an 8-bit grayscale value by 255.0, so each pixel is kept as the byte it
+ * came from instead of a double (8 times smaller), and the expected output values of a classifier are always one-hot, so each
+ * test case keeps just the index of its class as an int instead of a row of doubles (outputSize times smaller).
+ *
+ * The pixels are only turned back into doubles when a test case is handed out, through a 256-entry lookup table, and the label
+ * is only expanded into a one-hot row at the same time, so the training loop sees exactly the values it would have seen in an
+ * InMemoryDataset while the dataset itself holds about a ninth of the memory.
+ *
+ * The CompactDataset class contains the following instance variables:
+ *    byte[]   pixels: the grayscale value of every pixel of every test case, stored test case after test case
+ *    int[]    labels: the class index of every test case
+ *    int      numSamples: the number of test cases
+ *    int      inputSize: the number of pixels in each test case
+ *    int      numClasses: the number of classes, which is the number of expected output values
+ *    double[] normalizedValues: normalizedValues[g] = g / 255.0 for every grayscale value g
+ *
+ */
+public class CompactDataset implements Dataset
+{
+    /**
+     * the largest grayscale value, which is normalized to 1.0
+     */
+    public static final double MAX_GRAY = 255.0;
+
+    private byte[] pixels;
+    private int[] labels;
+    private int numSamples;
+    private int inputSize;
+    private int numClasses;
+    private static final double[] normalizedValues = new double[256];
+
+    static
+    {
+        for (int gray = 0; gray < normalizedValues.length; gray++)
+        {
+            normalizedValues[gray] = gray / MAX_GRAY;
+        }
+    }
+
+    /**
+     * Creates an empty CompactDataset with room for the given number of test cases
+     *
+     * @param numSamples the number of test cases
+     * @param inputSize  the number of pixels in each test case
+     * @param numClasses the number of classes
+     */
+    public CompactDataset(int numSamples, int inputSize, int numClasses)
+    {
+        this.numSamples = numSamples;
+        this.inputSize = inputSize;
+        this.numClasses = numClasses;
+
+        pixels = new byte[numSamples * inputSize];
+        labels = new int[numSamples];
+    } // public CompactDataset
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return numClasses;
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    /**
+     * returns the normalized input value of a grayscale value
+     *
+     * @param gray the grayscale value, from 0 to 255
+     * @return the grayscale value divided by 255.0
+     */
+    public static double normalize(int gray)
+    {
+        return normalizedValues[gray & 0xFF];
+    }
+
+    /**
+     * sets the grayscale value of one pixel of a test case
+     *
+     * @param sample the index of the test case
+     * @param index  the index of the pixel in the test case
+     * @param gray   the grayscale value, from 0 to 255
+     */
+    public void setPixel(int sample, int index, int gray)
+    {
+        pixels[sample * inputSize + index] = (byte) gray;
+    }
+
+    /**
+     * returns the grayscale value of one pixel of a test case
+     *
+     * @param sample the index of the test case
+     * @param index  the index of the pixel in the test case
+     * @return the grayscale value, from 0 to 255
+     */
+    public int getPixel(int sample, int index)
+    {
+        return pixels[sample * inputSize + index] & 0xFF;
+    }
+
+    /**
+     * returns the array that holds every pixel of every test case. The pixels of test case s start at index s * inputSize.
+     *
+     * @return the pixels of the dataset (not a copy)
+     */
+    public byte[] getPixels()
+    {
+        return pixels;
+    }
+
+    /**
+     * sets the class of a test case
+     *
+     * @param sample the index of the test case
+     * @param label  the index of the class, from 0 to numClasses - 1
+     */
+    public void setLabel(int sample, int label)
+    {
+        labels[sample] = label;
+    }
+
+    /**
+     * returns the class of a test case
+     *
+     * @param sample the index of the test case
+     * @return the index of the class
+     */
+    public int getLabel(int sample)
+    {
+        return labels[sample];
+    }
+
+    /**
+     * sets the class of a test case from a row of one-hot expected output values, using the index of the largest value
+     *
+     * @param sample          the index of the test case
+     * @param expectedOutputs the expected output values of the test case
+     */
+    public void setLabel(int sample, double[] expectedOutputs)
+    {
+        int label = 0;
+
+        for (int outputNode = 1; outputNode < numClasses; outputNode++)
+        {
+            if (expectedOutputs[outputNode] > expectedOutputs[label])
+            {
+                label = outputNode;
+            }
+        }
+        labels[sample] = label;
+    } // public void setLabel
+
+    /**
+     * copies a test case into the given arrays, normalizing every pixel through the lookup table and expanding the label into a
+     * one-hot row
+     *
+     * @param sample          the index of the test case
+     * @param inputs          the array that the input values are copied into
+     * @param expectedOutputs the array that the expected output values are copied into
+     */
+    public void copySample(int sample, double[] inputs, double[] expectedOutputs)
+    {
+        int offset = sample * inputSize;
+
+        for (int index = 0; index < inputSize; index++)
+        {
+            inputs[index] = normalizedValues[pixels[offset + index] & 0xFF];
+        }
+
+        for (int outputNode = 0; outputNode < numClasses; outputNode++)
+        {
+            expectedOutputs[outputNode] = 0.0;
+        }
+        expectedOutputs[labels[sample]] = 1.0;
+    } // public void copySample
+
+    /**
+     * starts a pass that visits the test cases in order
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        return new DatasetIterator()
+        {
+            private int sample = 0; // the index of the next test case
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sample >= numSamples)
+                {
+                    return false;
+                }
+
+                copySample(sample++, inputs, expectedOutputs);
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                sample = numSamples;
+            }
+        };
+    } // public DatasetIterator iterator
+} // public class CompactDataset
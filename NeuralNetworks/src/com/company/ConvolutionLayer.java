@@ -0,0 +1,260 @@
+package com.company;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a 2D convolution layer. Every filter slides a kernelSize x kernelSize window across every input channel
+ * with the given stride, taking the weighted sum of the window and passing it through the sigmoid threshold function, so each
+ * filter produces one output channel. Only windows that fit completely inside the input are used, so an input of height H
+ * produces (H - kernelSize) / stride + 1 output rows. Because every filter shares its weights across the whole image, the layer
+ * has numFilters * inputChannels * kernelSize^2 weights no matter how large the image is, instead of the pixel count times the
+ * hidden layer size of a dense first layer.
+ *
+ * The inputs, weights and outputs are stored in flat arrays in row-major order:
+ *    input  [channel][row][column]                  at (channel * inputHeight + row) * inputWidth + column
+ *    weight [filter][channel][kernelRow][kernelColumn] at ((filter * inputChannels + channel) * kernelSize + kernelRow) * kernelSize
+ *                                                       + kernelColumn
+ *    output [filter][row][column]                   at (filter * outputHeight + row) * outputWidth + column
+ *
+ * Since a shared weight is used by many windows, the layer sums the derivative of the error with respect to each weight across
+ * all the windows before changing any weights, rather than changing the weights on the fly like the dense layers of Network.
+ *
+ * The ConvolutionLayer class contains the following instance variables:
+ *    int      inputChannels, inputHeight, inputWidth: the shape of the input
+ *    int      numFilters: the number of filters, which is the number of output channels
+ *    int      kernelSize: the width and height of each filter
+ *    int      stride: how many pixels the window moves between outputs
+ *    int      outputHeight, outputWidth: the shape of each output channel
+ *    double[] weights: the weights of every filter
+ *    double[] weightGradients: the sum of the negative derivatives of the error with respect to each weight
+ *    double[] inputs: the inputs of the last forward pass
+ *    double[] outputs: the outputs of the last forward pass
+ *    double[] inputOmegas: the omegas of the inputs calculated by the last backward pass
+ *
+ */
+public class ConvolutionLayer implements Layer
+{
+    private int inputChannels;
+    private int inputHeight;
+    private int inputWidth;
+    private int numFilters;
+    private int kernelSize;
+    private int stride;
+    private int outputHeight;
+    private int outputWidth;
+    private double[] weights;
+    private double[] weightGradients;
+    private double[] inputs;
+    private double[] outputs;
+    private double[] inputOmegas;
+
+    /**
+     * Creates a ConvolutionLayer for inputs of the given shape
+     *
+     * @param inputChannels the number of input channels (1 for a grayscale image)
+     * @param inputHeight   the number of rows in each input channel
+     * @param inputWidth    the number of columns in each input channel
+     * @param numFilters    the number of filters, which is the number of output channels
+     * @param kernelSize    the width and height of each filter
+     * @param stride        how many pixels the window moves between outputs
+     * @throws IllegalArgumentException if the kernel does not fit inside the input
+     */
+    public ConvolutionLayer(int inputChannels, int inputHeight, int inputWidth, int numFilters, int kernelSize, int stride)
+    {
+        if (kernelSize > inputHeight || kernelSize > inputWidth || stride < 1)
+        {
+            throw new IllegalArgumentException("a " + kernelSize + "x" + kernelSize + " kernel with stride " + stride +
+                    " does not fit a " + inputHeight + "x" + inputWidth + " input");
+        }
+
+        this.inputChannels = inputChannels;
+        this.inputHeight = inputHeight;
+        this.inputWidth = inputWidth;
+        this.numFilters = numFilters;
+        this.kernelSize = kernelSize;
+        this.stride = stride;
+
+        outputHeight = (inputHeight - kernelSize) / stride + 1;
+        outputWidth = (inputWidth - kernelSize) / stride + 1;
+
+        weights = new double[numFilters * inputChannels * kernelSize * kernelSize];
+        weightGradients = new double[weights.length];
+        outputs = new double[numFilters * outputHeight * outputWidth];
+        inputOmegas = new double[inputChannels * inputHeight * inputWidth];
+    } // public ConvolutionLayer
+
+    public int getInputSize()
+    {
+        return inputOmegas.length;
+    }
+
+    public int getOutputSize()
+    {
+        return outputs.length;
+    }
+
+    /**
+     * returns the number of output channels, which is the number of filters
+     * @return the number of output channels
+     */
+    public int getOutputChannels()
+    {
+        return numFilters;
+    }
+
+    /**
+     * returns the number of rows in each output channel
+     * @return the number of rows in each output channel
+     */
+    public int getOutputHeight()
+    {
+        return outputHeight;
+    }
+
+    /**
+     * returns the number of columns in each output channel
+     * @return the number of columns in each output channel
+     */
+    public int getOutputWidth()
+    {
+        return outputWidth;
+    }
+
+    /**
+     * calculates every output by taking the weighted sum of its window in every input channel and passing it through the
+     * sigmoid threshold function
+     *
+     * @param inputs the input values of the layer
+     * @return the output values of the layer
+     */
+    public double[] calculateOutputs(double[] inputs)
+    {
+        this.inputs = inputs;
+
+        for (int filter = 0; filter < numFilters; filter++)
+        {
+            for (int row = 0; row < outputHeight; row++)
+            {
+                for (int column = 0; column < outputWidth; column++)
+                {
+                    double sum = 0.0;
+
+                    for (int channel = 0; channel < inputChannels; channel++)
+                    {
+                        for (int kernelRow = 0; kernelRow < kernelSize; kernelRow++)
+                        {
+                            int inputIndex = (channel * inputHeight + row * stride + kernelRow) * inputWidth + column * stride;
+                            int weightIndex = ((filter * inputChannels + channel) * kernelSize + kernelRow) * kernelSize;
+
+                            for (int kernelColumn = 0; kernelColumn < kernelSize; kernelColumn++)
+                            {
+                                sum += inputs[inputIndex + kernelColumn] * weights[weightIndex + kernelColumn];
+                            }
+                        } // for (int kernelRow = 0; kernelRow < kernelSize; kernelRow++)
+                    } // for (int channel = 0; channel < inputChannels; channel++)
+
+                    outputs[(filter * outputHeight + row) * outputWidth + column] = Network.thresholdFunction(sum);
+                } // for (int column = 0; column < outputWidth; column++)
+            } // for (int row = 0; row < outputHeight; row++)
+        } // for (int filter = 0; filter < numFilters; filter++)
+
+        return outputs;
+    } // public double[] calculateOutputs
+
+    /**
+     * calculates the psi of every output, adds the part of each input omega and each weight gradient that depends on it, and
+     * then lowers the error of every weight by the learning factor times its summed gradient
+     *
+     * @param outputOmegas   the omegas of the output values of the layer
+     * @param learningFactor the learning factor used to change the weights
+     * @return the omegas of the input values of the layer
+     */
+    public double[] lowerError(double[] outputOmegas, double learningFactor)
+    {
+        Arrays.fill(inputOmegas, 0.0);
+        Arrays.fill(weightGradients, 0.0);
+
+        for (int filter = 0; filter < numFilters; filter++)
+        {
+            for (int row = 0; row < outputHeight; row++)
+            {
+                for (int column = 0; column < outputWidth; column++)
+                {
+                    int outputIndex = (filter * outputHeight + row) * outputWidth + column;
+                    double output = outputs[outputIndex];
+                    double psi = outputOmegas[outputIndex] * output * (1.0 - output); // f'(theta) = f(theta) * (1 - f(theta))
+
+                    for (int channel = 0; channel < inputChannels; channel++)
+                    {
+                        for (int kernelRow = 0; kernelRow < kernelSize; kernelRow++)
+                        {
+                            int inputIndex = (channel * inputHeight + row * stride + kernelRow) * inputWidth + column * stride;
+                            int weightIndex = ((filter * inputChannels + channel) * kernelSize + kernelRow) * kernelSize;
+
+                            for (int kernelColumn = 0; kernelColumn < kernelSize; kernelColumn++)
+                            {
+                                inputOmegas[inputIndex + kernelColumn] += psi * weights[weightIndex + kernelColumn];
+                                weightGradients[weightIndex + kernelColumn] += inputs[inputIndex + kernelColumn] * psi;
+                            }
+                        } // for (int kernelRow = 0; kernelRow < kernelSize; kernelRow++)
+                    } // for (int channel = 0; channel < inputChannels; channel++)
+                } // for (int column = 0; column < outputWidth; column++)
+            } // for (int row = 0; row < outputHeight; row++)
+        } // for (int filter = 0; filter < numFilters; filter++)
+
+        for (int weight = 0; weight < weights.length; weight++)
+        {
+            weights[weight] += learningFactor * weightGradients[weight];
+        }
+
+        return inputOmegas;
+    } // public double[] lowerError
+
+    public void randomizeWeights(double min, double max)
+    {
+        for (int weight = 0; weight < weights.length; weight++)
+        {
+            weights[weight] = Network.getRandomNumberInRange(min, max);
+        }
+    } // public void randomizeWeights
+
+    public void randomizeWeights(double min, double max, Random random)
+    {
+        for (int weight = 0; weight < weights.length; weight++)
+        {
+            weights[weight] = random.nextDouble() * (max - min) + min;
+        }
+    } // public void randomizeWeights
+
+    public void setAllWeights(Scanner sc)
+    {
+        for (int weight = 0; weight < weights.length; weight++)
+        {
+            weights[weight] = sc.nextDouble();
+        }
+    } // public void setAllWeights
+
+    public void outputWeights(PrintWriter out)
+    {
+        for (int weight = 0; weight < weights.length; weight++)
+        {
+            out.println(weights[weight]);
+        }
+    } // public void outputWeights
+
+    /**
+     * describes the layer for the hyperparameter echo of the network
+     * @return a description of the layer
+     */
+    public String toString()
+    {
+        return "convolution " + inputChannels + "x" + inputHeight + "x" + inputWidth + " -> " + numFilters + "x" + outputHeight +
+                "x" + outputWidth + " (" + kernelSize + "x" + kernelSize + " kernel, stride " + stride + ")";
+    }
+} // public class ConvolutionLayer
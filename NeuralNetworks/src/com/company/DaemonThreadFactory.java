@@ -0,0 +1,42 @@
+package com.company;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a thread factory whose threads are daemon threads, so that the worker pools of the training, decoding and
+ * inference classes never keep the program running after main ends, even if a pool is not shut down.
+ *
+ * The DaemonThreadFactory class contains the following instance variables:
+ *    String name: the name of every thread that the factory makes
+ *
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+    private String name;
+
+    /**
+     * Creates a DaemonThreadFactory
+     *
+     * @param name the name of every thread that the factory makes
+     */
+    public DaemonThreadFactory(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * makes a daemon thread that runs a task
+     *
+     * @param runnable the task
+     * @return the thread, which has not been started
+     */
+    public Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    } // public Thread newThread
+} // public class DaemonThreadFactory
@@ -0,0 +1,227 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class trains a Network on several threads of one JVM, taking the same steps that ParameterServer takes across processes:
+ * each worker has its own copy of the network and its own shard of the training set (see: TrainingWorker.shard), and in every
+ * iteration each copy trains one pass over its shard from the weights of the network (see: TrainingWorker.trainFrom), and the
+ * network moves by the average change of the copies (see: TrainingWorker.addAverageChange).
+ *
+ * Each worker writes its change into its own array of a TreeReducer, and the arrays are only summed once every worker has
+ * finished, by the fixed tree over the worker indices. The threads finish in whatever order they are scheduled, but the order of
+ * the additions never depends on it, so a run is bit-identical for a given seed and number of workers (see: main).
+ *
+ * The DataParallelTrainer class contains the following instance variables:
+ *    Network         network: the network that is trained
+ *    Network[]       copies: the copy of the network of each worker
+ *    int             numWorkers: the number of workers
+ *    int             numSamples: the number of test cases in all the shards together
+ *    TreeReducer     reducer: the change in the weights of each worker during an iteration, and their sum
+ *    double[]        errors: the sum of the errors of the test cases of each worker in the last iteration
+ *    ExecutorService workers: the threads that train the copies
+ *    long            reduceNanos: the nanoseconds spent summing the changes after every worker has finished
+ *
+ */
+public class DataParallelTrainer
+{
+    private Network network;
+    private Network[] copies;
+    private int numWorkers;
+    private int numSamples;
+    private TreeReducer reducer;
+    private double[] errors;
+    private ExecutorService workers;
+    private long reduceNanos;
+
+    /**
+     * Creates a DataParallelTrainer that splits a training set into a shard for each worker
+     *
+     * @param network     the network that is trained
+     * @param trainingSet the training set
+     * @param numWorkers  the number of workers
+     * @param parallelism the threads that the tree is split across, or null to sum on the calling thread
+     */
+    public DataParallelTrainer(Network network, CompactDataset trainingSet, int numWorkers, LayerParallelism parallelism)
+    {
+        this.network = network;
+        this.numWorkers = numWorkers;
+        copies = new Network[numWorkers];
+
+        for (int worker = 0; worker < numWorkers; worker++)
+        {
+            CompactDataset shard = TrainingWorker.shard(trainingSet, worker, numWorkers, 1);
+            copies[worker] = network.createTrainingCopy();
+            copies[worker].setDataset(shard);
+            numSamples += shard.getNumSamples();
+        }
+
+        reducer = new TreeReducer(numWorkers, network.countWeights(), parallelism);
+        errors = new double[numWorkers];
+        workers = Executors.newFixedThreadPool(numWorkers, new DaemonThreadFactory("data"));
+    } // public DataParallelTrainer
+
+    public long getReduceNanos()
+    {
+        return reduceNanos;
+    }
+
+    /**
+     * runs one iteration: every worker trains its copy for one pass over its shard, and the network moves by the average change
+     *
+     * @return the average error of the test cases of every shard during the iteration
+     * @throws IllegalStateException if the iteration is interrupted
+     */
+    public double runIteration()
+    {
+        final double[][][] weights = network.getWeights(); // only read by the workers
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (int worker = 0; worker < numWorkers; worker++)
+        {
+            final int index = worker;
+
+            tasks.add(new Callable<Void>()
+            {
+                public Void call()
+                {
+                    errors[index] = TrainingWorker.trainFrom(copies[index], weights, reducer.getBuffer(index));
+                    return null;
+                }
+            });
+        } // for (int worker = 0; worker < numWorkers; worker++)
+
+        try
+        {
+            for (Future<Void> result : workers.invokeAll(tasks))
+            {
+                result.get();
+            }
+        } // try
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("the iteration was interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+
+        long start = System.nanoTime();
+        double[] sum = reducer.reduce();
+        reduceNanos += System.nanoTime() - start;
+
+        TrainingWorker.addAverageChange(weights, sum, numWorkers);
+        return TreeReducer.reduce(errors) / Math.max(numSamples, 1);
+    } // public double runIteration
+
+    /**
+     * trains until the error is below the error threshold of the network or its largest number of iterations has been run
+     *
+     * @param printErrors true to print the average error of every iteration the way trainNetwork does
+     * @return the average error of the last iteration
+     */
+    public double train(boolean printErrors)
+    {
+        double averageError = Double.MAX_VALUE;
+        int iterations = 0;
+
+        while (iterations < network.getMaxIterations() && averageError > network.getErrorThreshold())
+        {
+            iterations++;
+            averageError = runIteration();
+
+            if (printErrors)
+            {
+                System.out.println("AVERAGE ERROR FOR ITERATION " + iterations + " = " + averageError + "\n");
+            }
+        }
+        return averageError;
+    } // public double train
+
+    /**
+     * stops the worker threads
+     */
+    public void shutdown()
+    {
+        workers.shutdownNow();
+    }
+
+    /**
+     * trains the digit network from the same seed with the same number of workers several times, and checks that every run ends
+     * with the same average error and bit-identical weights
+     *
+     * @param args the number of workers, the largest number of iterations, the seed of the weights, the number of runs and the
+     *             parameters file
+     * @throws IOException if a file cannot be read
+     * @throws IllegalStateException if two runs end differently
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int numWorkers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        String parametersFileName = args.length > 4 ? args[4] : DigitBenchmark.TRAINING_PARAMETERS;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        Network network = benchmark.createNetwork(benchmark.getHiddenLayerNodes(), benchmark.getLambda(),
+                benchmark.getMinWeightValue(), benchmark.getMaxWeightValue(), iterations);
+
+        System.out.printf("%d workers on %d processors, %d runs from seed %d\n\n", numWorkers,
+                Runtime.getRuntime().availableProcessors(), runs, seed);
+
+        double[][][] firstWeights = null;
+        double firstError = 0.0;
+
+        for (int run = 0; run < runs; run++)
+        {
+            network.randomizeWeights(benchmark.getMinWeightValue(), benchmark.getMaxWeightValue(), new Random(seed));
+            DataParallelTrainer trainer = new DataParallelTrainer(network, benchmark.getTrainingSet(), numWorkers, null);
+            double error;
+            long start = System.nanoTime();
+
+            try
+            {
+                error = trainer.train(false);
+            }
+            finally
+            {
+                trainer.shutdown();
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("run %d: FINAL ERROR = %s in %.1f ms (%.3f ms summing after the workers finish)\n", run + 1,
+                    error, millis, trainer.getReduceNanos() / 1e6);
+
+            if (firstWeights == null)
+            {
+                firstWeights = network.copyWeights();
+                firstError = error;
+            }
+            else if (error != firstError || !Arrays.deepEquals(firstWeights, network.getWeights()))
+            {
+                throw new IllegalStateException("run " + (run + 1) + " did not end with the weights and error of run 1");
+            }
+        } // for (int run = 0; run < runs; run++)
+
+        System.out.println("\nevery run ended with the same error and bit-identical weights");
+    } // public static void main
+} // public class DataParallelTrainer
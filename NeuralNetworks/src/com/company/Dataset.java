@@ -0,0 +1,51 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This interface defines a set of test cases that a Network can train on. Each test case is a set of input values and a set of
+ * expected output values. Instead of handing out whole arrays of test cases, a dataset hands out a DatasetIterator that copies one
+ * test case at a time into arrays owned by the caller, so a dataset that is read from a file never has to hold more than a
+ * bounded buffer of test cases in memory, no matter how many test cases it has.
+ *
+ * Every call to iterator() starts a new pass (iteration) over the test cases, and a dataset may hand out several iterators at
+ * once, so that several networks can read the same dataset from different threads.
+ *
+ * The dataset interface contains the following methods:
+ *    int             getInputSize()
+ *    int             getOutputSize()
+ *    int             getNumSamples()
+ *    DatasetIterator iterator()
+ *
+ */
+public interface Dataset
+{
+    /**
+     * returns the number of input values in each test case
+     *
+     * @return the number of input values in each test case
+     */
+    int getInputSize();
+
+    /**
+     * returns the number of expected output values in each test case
+     *
+     * @return the number of expected output values in each test case
+     */
+    int getOutputSize();
+
+    /**
+     * returns the number of test cases in the dataset
+     *
+     * @return the number of test cases
+     */
+    int getNumSamples();
+
+    /**
+     * starts a new pass over the test cases
+     *
+     * @return an iterator that copies the test cases of the pass one at a time
+     */
+    DatasetIterator iterator();
+} // public interface Dataset
@@ -0,0 +1,174 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class builds and reuses the cache file of a set of labeled bitmaps (see: MappedDataset). The first run decodes the
+ * bitmaps with an ImageIngestor and writes the cache file, and every later run maps the cache file instead of decoding anything,
+ * as long as the fingerprint stored in it still matches the bitmaps.
+ *
+ * The fingerprint is a 64-bit FNV-1a hash of the name, size and last-modified time of every bitmap, the label of every bitmap,
+ * the number of classes and the size that the images are resized to, so touching, replacing, adding, removing or relabeling a
+ * bitmap, or changing the input size, makes the cache file stale, and it is rebuilt. When the last-modified times cannot be
+ * trusted (for example after a copy that does not keep them), the contents of every bitmap can be hashed with a CRC32 instead of
+ * their times, which costs one read of every bitmap but no decoding.
+ *
+ * The DatasetCache class contains the following instance variables:
+ *    boolean hashContents: whether the contents of the bitmaps are hashed instead of their last-modified times
+ *    int     numThreads: the number of threads that decode the bitmaps when the cache is rebuilt
+ *    boolean rebuilt: whether the last load had to rebuild the cache file
+ *
+ */
+public class DatasetCache
+{
+    /**
+     * the starting value of the FNV-1a hash
+     */
+    public static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    /**
+     * the multiplier of the FNV-1a hash
+     */
+    public static final long FNV_PRIME = 0x100000001B3L;
+
+    private boolean hashContents;
+    private int numThreads;
+    private boolean rebuilt;
+
+    /**
+     * Creates a DatasetCache
+     *
+     * @param hashContents true to hash the contents of the bitmaps instead of their last-modified times
+     * @param numThreads   the number of threads that decode the bitmaps when the cache is rebuilt
+     */
+    public DatasetCache(boolean hashContents, int numThreads)
+    {
+        this.hashContents = hashContents;
+        this.numThreads = numThreads;
+    } // public DatasetCache
+
+    /**
+     * returns whether the last call to load had to rebuild the cache file
+     * @return true if the cache file was rebuilt
+     */
+    public boolean wasRebuilt()
+    {
+        return rebuilt;
+    }
+
+    /**
+     * mixes a value into an FNV-1a hash, one byte at a time
+     *
+     * @param hash  the hash so far
+     * @param value the value to mix in
+     * @return the new hash
+     */
+    private static long mix(long hash, long value)
+    {
+        for (int shift = 0; shift < 64; shift += 8)
+        {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    } // private static long mix
+
+    /**
+     * returns the CRC32 of the contents of a file
+     *
+     * @param file the file
+     * @return the CRC32 of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static long crc(File file) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        FileChannel channel = new FileInputStream(file).getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        try
+        {
+            while (channel.read(buffer) >= 0)
+            {
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        } // try
+        finally
+        {
+            channel.close();
+        }
+        return crc.getValue();
+    } // private static long crc
+
+    /**
+     * calculates the fingerprint of a set of labeled bitmaps
+     *
+     * @param ingestor the bitmaps and their labels
+     * @return the fingerprint
+     * @throws IOException if the contents of a bitmap are hashed and it cannot be read
+     */
+    public long fingerprint(ImageIngestor ingestor) throws IOException
+    {
+        String[] fileNames = ingestor.getFileNames();
+        int[] labels = ingestor.getLabels();
+        long hash = mix(FNV_OFFSET_BASIS, ingestor.getNumClasses());
+        hash = mix(hash, ingestor.getOutputHeight());
+        hash = mix(hash, ingestor.getOutputWidth());
+
+        for (int image = 0; image < fileNames.length; image++)
+        {
+            File file = new File(fileNames[image]);
+
+            hash = mix(hash, fileNames[image].hashCode());
+            hash = mix(hash, file.length());
+            hash = mix(hash, hashContents ? crc(file) : file.lastModified());
+            hash = mix(hash, labels == null ? 0 : labels[image]);
+        }
+        return hash;
+    } // public long fingerprint
+
+    /**
+     * maps the cache file of a set of labeled bitmaps, rebuilding it first if it is missing or stale
+     *
+     * @param ingestor      the bitmaps and their labels
+     * @param cacheFileName the name of the cache file
+     * @param autoencoder   true to open the dataset as an autoencoder dataset
+     * @return the dataset, mapped from the cache file
+     * @throws IOException if a bitmap cannot be read or the cache file cannot be written
+     */
+    public MappedDataset load(ImageIngestor ingestor, String cacheFileName, boolean autoencoder) throws IOException
+    {
+        long fingerprint = fingerprint(ingestor);
+        rebuilt = false;
+
+        if (new File(cacheFileName).isFile())
+        {
+            try
+            {
+                MappedDataset dataset = new MappedDataset(cacheFileName, autoencoder);
+
+                if (dataset.getFingerprint() == fingerprint && dataset.getNumSamples() == ingestor.getNumImages())
+                {
+                    return dataset;
+                }
+            } // try
+            catch (IOException e)
+            {
+                // a damaged cache file is rebuilt like a stale one
+            }
+        } // if (new File(cacheFileName).isFile())
+
+        MappedDataset.write(ingestor.ingest(numThreads), fingerprint, cacheFileName);
+        rebuilt = true;
+        return new MappedDataset(cacheFileName, autoencoder);
+    } // public MappedDataset load
+} // public class DatasetCache
@@ -0,0 +1,30 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This interface defines one pass over the test cases of a Dataset. Each call to next copies the next test case into arrays
+ * owned by the caller, so the caller can reuse the same two arrays for every test case of every pass.
+ *
+ * The dataset iterator interface contains the following methods:
+ *    boolean next(double[] inputs, double[] expectedOutputs)
+ *    void    close()
+ *
+ */
+public interface DatasetIterator
+{
+    /**
+     * copies the next test case of the pass into the given arrays
+     *
+     * @param inputs          the array that the input values are copied into (getInputSize() values)
+     * @param expectedOutputs the array that the expected output values are copied into (getOutputSize() values)
+     * @return true if a test case was copied, or false if the pass is over
+     */
+    boolean next(double[] inputs, double[] expectedOutputs);
+
+    /**
+     * releases any file or thread that the pass is using. Calling close before the pass is over ends the pass early.
+     */
+    void close();
+} // public interface DatasetIterator
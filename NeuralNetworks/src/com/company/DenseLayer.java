@@ -0,0 +1,173 @@
+package com.company;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a fully connected feature layer. Every output takes a weighted sum of every input and passes it through the
+ * sigmoid threshold function, exactly like one layer of the dense part of Network, so a DenseLayer can be placed between
+ * convolution and pooling layers (for example to mix the channels of a pooled image before the hidden layers). The weights are
+ * stored as weights[inputNode][outputNode], the same layout that Network uses, and they are changed on the fly while the input
+ * omegas are calculated, exactly like Network.lowerErrorForAllWeights.
+ *
+ * The DenseLayer class contains the following instance variables:
+ *    double[][] weights: the weights of the layer
+ *    double[]   inputs: the inputs of the last forward pass
+ *    double[]   outputs: the outputs of the last forward pass
+ *    double[]   psis: the psis of the outputs calculated by the last backward pass
+ *    double[]   inputOmegas: the omegas of the inputs calculated by the last backward pass
+ *
+ */
+public class DenseLayer implements Layer
+{
+    private double[][] weights;
+    private double[] inputs;
+    private double[] outputs;
+    private double[] psis;
+    private double[] inputOmegas;
+
+    /**
+     * Creates a DenseLayer that connects every input to every output
+     *
+     * @param inputSize  the number of input values
+     * @param outputSize the number of output values
+     */
+    public DenseLayer(int inputSize, int outputSize)
+    {
+        weights = new double[inputSize][outputSize];
+        outputs = new double[outputSize];
+        psis = new double[outputSize];
+        inputOmegas = new double[inputSize];
+    } // public DenseLayer
+
+    public int getInputSize()
+    {
+        return inputOmegas.length;
+    }
+
+    public int getOutputSize()
+    {
+        return outputs.length;
+    }
+
+    /**
+     * calculates every output by taking the weighted sum of all the inputs and passing it through the sigmoid threshold function
+     *
+     * @param inputs the input values of the layer
+     * @return the output values of the layer
+     */
+    public double[] calculateOutputs(double[] inputs)
+    {
+        this.inputs = inputs;
+
+        Arrays.fill(outputs, 0.0);
+
+        for (int inputNode = 0; inputNode < inputs.length; inputNode++) // adds each input's row of weights to the sums
+        {
+            double input = inputs[inputNode];
+            double[] row = weights[inputNode];
+
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                outputs[outputNode] += input * row[outputNode];
+            }
+        }
+
+        for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+        {
+            outputs[outputNode] = Network.thresholdFunction(outputs[outputNode]);
+        }
+
+        return outputs;
+    } // public double[] calculateOutputs
+
+    /**
+     * calculates the psi of every output and lowers the error of every weight, adding the part of each input omega that depends on
+     * the weight before it is changed
+     *
+     * @param outputOmegas   the omegas of the output values of the layer
+     * @param learningFactor the learning factor used to change the weights
+     * @return the omegas of the input values of the layer
+     */
+    public double[] lowerError(double[] outputOmegas, double learningFactor)
+    {
+        for (int outputNode = 0; outputNode < outputs.length; outputNode++) // f'(theta) = f(theta) * (1 - f(theta))
+        {
+            psis[outputNode] = outputOmegas[outputNode] * outputs[outputNode] * (1.0 - outputs[outputNode]);
+        }
+
+        for (int inputNode = 0; inputNode < inputOmegas.length; inputNode++)
+        {
+            double omega = 0.0;
+            double input = inputs[inputNode];
+            double[] row = weights[inputNode];
+
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                omega += psis[outputNode] * row[outputNode];
+                row[outputNode] += learningFactor * input * psis[outputNode];
+            }
+            inputOmegas[inputNode] = omega;
+        } // for (int inputNode = 0; inputNode < inputOmegas.length; inputNode++)
+
+        return inputOmegas;
+    } // public double[] lowerError
+
+    public void randomizeWeights(double min, double max)
+    {
+        for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        {
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                weights[inputNode][outputNode] = Network.getRandomNumberInRange(min, max);
+            }
+        }
+    } // public void randomizeWeights
+
+    public void randomizeWeights(double min, double max, Random random)
+    {
+        for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        {
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                weights[inputNode][outputNode] = random.nextDouble() * (max - min) + min;
+            }
+        }
+    } // public void randomizeWeights
+
+    public void setAllWeights(Scanner sc)
+    {
+        for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        {
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                weights[inputNode][outputNode] = sc.nextDouble();
+            }
+        }
+    } // public void setAllWeights
+
+    public void outputWeights(PrintWriter out)
+    {
+        for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        {
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                out.println(weights[inputNode][outputNode]);
+            }
+        }
+    } // public void outputWeights
+
+    /**
+     * describes the layer for the hyperparameter echo of the network
+     * @return a description of the layer
+     */
+    public String toString()
+    {
+        return "dense " + inputOmegas.length + " -> " + outputs.length;
+    }
+} // public class DenseLayer
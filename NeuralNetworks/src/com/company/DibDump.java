@@ -51,6 +51,9 @@ package com.company;
  *  RgbQuad pelToRGB(int pel)
  *  int     rgbToPel(int red, int green, int blue)
  *  int     colorToGrayscale(int pel)
+ *  String  imageFileName(boolean isTraining, int testCase)
+ *  int[]   readImageSize(String fileName)
+ *  void    readGrayscaleImage(String fileName, byte[] pixels, int offset, int numPixels)
  *  void    main(String[] args)
  *
  * There is a lot of cutting and pasting from various
@@ -148,6 +151,11 @@ public class DibDump
 // identify it as such. Note that when the image is saved, it will be written out in the usual
 // inverted format with a positive bmpInfoHeader_biHeight value.
     static boolean topDownDIB = false;
+
+    // the cache files of the decoded training and test images (see: DatasetCache)
+    static final String TRAINING_CACHE = "trainingdata.cache";
+    static final String TEST_CACHE = "testdata.cache";
+
     /*
      * Methods to go between little and big endian integer formats.
      */
@@ -223,6 +231,61 @@ public class DibDump
         int lum = (int)Math.round(0.3 * (double)rgb.red + 0.589 * (double)rgb.green + 0.11 * (double)rgb.blue);
         return rgbToPel(lum, lum, lum);
     }
+
+    /*
+     * The imageFileName method returns the name of the bitmap for a training or test case.
+     */
+    public static String imageFileName(boolean isTraining, int testCase)
+    {
+        if (isTraining)
+        {
+            return "src/com/company/TrainingData/trainingimage" + testCase + ".bmp";
+        }
+        return "src/com/company/TestData/testimage" + testCase + ".bmp";
+    }
+
+    /*
+     * Each thread keeps its own BmpReader, so that the buffer a bitmap is read into is reused from one image to the next
+     * while any number of threads decode images at the same time.
+     */
+    private static final ThreadLocal<BmpReader> readers = new ThreadLocal<BmpReader>()
+    {
+        protected BmpReader initialValue()
+        {
+            return new BmpReader();
+        }
+    };
+
+    /*
+     * The readImageSize method reads the headers of a bitmap and returns {height, width}, so that the shape of the images is
+     * known before the network is created. The height is made positive for top down DIBs.
+     */
+    public static int[] readImageSize(String fileName) throws IOException
+    {
+        BmpReader reader = readers.get();
+        reader.read(fileName);
+        return new int[] {reader.getHeight(), reader.getWidth()};
+    }
+
+    /*
+     * The readGrayscaleImage method decodes a bitmap of any color depth with a BmpReader and stores the grayscale value of every
+     * pel, from 0 to 255, in pixels[offset] to pixels[offset + numPixels - 1] in row-major order with the top row first (the same
+     * order as imageArray). Unlike main, it keeps no state in the static fields, so any number of threads can decode images at the
+     * same time, and the top down flag of one image can never leak into the next one.
+     */
+    public static void readGrayscaleImage(String fileName, byte[] pixels, int offset, int numPixels) throws IOException
+    {
+        BmpReader reader = readers.get();
+        reader.read(fileName);
+
+        if (reader.getWidth() * reader.getHeight() != numPixels)
+        {
+            throw new IOException(fileName + " has " + reader.getWidth() * reader.getHeight() + " pels, but " + numPixels +
+                    " were expected");
+        }
+
+        reader.readGrayscale(pixels, offset, new int[reader.getWidth()]);
+    } // public static void readGrayscaleImage
     /*
      *
      * ---- MAIN ----
@@ -230,21 +293,6 @@ public class DibDump
      */
     public static void main(String[] args) throws Exception
     {
-        String inFileName, outFileName, outFileName2;
-        int i, j, k;
-        int numberOfColors;
-        int pel;
-        int iByteVal, iColumn, iBytesPerRow, iPelsPerRow, iTrailingBits, iDeadBytes;
-// RBGQUAD
-        int rgbQuad_rgbBlue;
-        int rgbQuad_rgbGreen;
-        int rgbQuad_rgbRed;
-        int rgbQuad_rgbReserved;           // not used in this method
-// The color table
-        int[] colorPallet = new int[256];  // reserve space for the largest possible color table
-
-        DibDump dibdumper = new DibDump(); // needed to get to the byte swapping methods
-
         // creates a scanner that reads the user-inputted file name
         try
         {
@@ -274,6 +322,19 @@ public class DibDump
                     filename = "src/com/company/bitmaptest";
                 }
             }
+            // a queue depth decodes the training images in the background while the network trains on the ones before them
+            // (see: PrefetchingDataset), instead of loading them all from the cache before training starts
+            int queueDepth = 0;
+            if (isTraining)
+            {
+                System.out.println("Decode queue depth? Enter nothing to load the images from the cache before training");
+                String depth = fileNameScanner.nextLine().trim();
+                if (depth.length() > 0)
+                {
+                    queueDepth = Integer.parseInt(depth);
+                }
+            }
+
             FileInputStream inStream = new FileInputStream(new File(filename));
 
             // creates a scanner to read the .txt file using the FileInputStream
@@ -318,124 +379,113 @@ public class DibDump
                 maxIterations = sc.nextInt();
             }
 
+            // if the number of pixels is not the size of the images, the images are area-resized to a square of that many pixels
+            // as they are decoded (see: ImagePreprocessor), so the network only ever sees the smaller images
+            int[] imageSize = readImageSize(imageFileName(isTraining, 0));
+            boolean resizing = numPixels != imageSize[0] * imageSize[1];
 
-            // creates the network using all of the gathered values
-            Network network = new Network(numPixels, hiddenLayerNodes, outputNodes, lambda, maxIterations, numTestCases,
-                    minWeightValue, maxWeightValue, threshold);
-
-            for (int testCase = 0; testCase < numTestCases; testCase++)
+            if (resizing)
             {
-                if (isTraining)
-                {
-                    inFileName =
-                            "src/com/company/TrainingData/trainingimage" + testCase + ".bmp";
-                }
-                else
-                {
-                    inFileName = "src/com/company/TestData/testimage" + testCase + ".bmp";
-                }
-                FileInputStream fstream = new FileInputStream(inFileName);
-                DataInputStream in = new DataInputStream(fstream);
-                bmpFileHeader_bfType      = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-                bmpFileHeader_bfSize      = dibdumper.swapInt(in.readInt());                // DWORD
-                bmpFileHeader_bfReserved1 = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-                bmpFileHeader_bfReserved2 = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-                bmpFileHeader_bfOffBits   = dibdumper.swapInt(in.readInt());                // DWORD
-
-                bmpInfoHeader_biSize          = dibdumper.swapInt(in.readInt());              // DWORD
-                bmpInfoHeader_biWidth         = dibdumper.swapInt(in.readInt());              // LONG
-                bmpInfoHeader_biHeight        = dibdumper.swapInt(in.readInt());              // LONG
-                bmpInfoHeader_biPlanes        = dibdumper.swapShort(in.readUnsignedShort());  // WORD
-                bmpInfoHeader_biBitCount      = dibdumper.swapShort(in.readUnsignedShort());  // WORD
-                bmpInfoHeader_biCompression   = dibdumper.swapInt(in.readInt());              // DWORD
-                bmpInfoHeader_biSizeImage     = dibdumper.swapInt(in.readInt());              // DWORD
-                bmpInfoHeader_biXPelsPerMeter = dibdumper.swapInt(in.readInt());              // LONG
-                bmpInfoHeader_biYPelsPerMeter = dibdumper.swapInt(in.readInt());              // LONG
-                bmpInfoHeader_biClrUsed       = dibdumper.swapInt(in.readInt());              // DWORD
-                bmpInfoHeader_biClrImportant  = dibdumper.swapInt(in.readInt());              // DWORD
-
-// Since we use the height to crate arrays, it cannot have a negative a value. If the height field is
-// less than zero, then make it positive and set the topDownDIB flag to TRUE so we know that the image is
-// stored on disc upsidedown (which means it is actually rightside up).
-                if (bmpInfoHeader_biHeight < 0)
-                {
-                    topDownDIB = true;
-                    bmpInfoHeader_biHeight = -bmpInfoHeader_biHeight;
-                }
+                int side = (int) Math.round(Math.sqrt(numPixels));
 
-                switch (bmpInfoHeader_biBitCount) // Determine the number of colors in the default color table
+                if (side * side != numPixels)
                 {
-                    case 1:
-                        numberOfColors = 2;
-                        break;
-                    case 2:
-                        numberOfColors = 4;
-                        break;
-                    case 4:
-                        numberOfColors = 16;
-                        break;
-                    case 8:
-                        numberOfColors = 256;
-                        break;
-                    default:
-                        numberOfColors = 0; // no color table
+                    throw new IOException("the images have " + imageSize[0] * imageSize[1] + " pixels, and " + numPixels +
+                            " is not a square that they can be resized to");
                 }
+                imageSize = new int[] {side, side};
+            }
 
-                if (bmpInfoHeader_biClrUsed > 0) numberOfColors = bmpInfoHeader_biClrUsed;
+            // reads the optional convolution and pooling layers, which take each image in its (resized) shape
+            Layer[] featureLayers = Network.readFeatureLayers(sc, imageSize[0], imageSize[1]);
 
-                for (i = 0; i < numberOfColors; ++i) // Read in the color table (or not if numberOfColors is zero)
-                {
-                    rgbQuad_rgbBlue      = in.readUnsignedByte(); // lowest byte in the color
-                    rgbQuad_rgbGreen     = in.readUnsignedByte();
-                    rgbQuad_rgbRed       = in.readUnsignedByte(); // highest byte in the color
-                    rgbQuad_rgbReserved  = in.readUnsignedByte();
-
-                    // Build the color from the RGB values. Since we declared the rgbQuad values to be int, we can shift and then OR the values
-                    // to build up the color. Since we are reading one byte at a time, there are no "endian" issues.
-
-                    colorPallet[i] = (rgbQuad_rgbRed << 16) | (rgbQuad_rgbGreen << 8) | rgbQuad_rgbBlue;
-                } // for (i = 0; i < numberOfColors; ++i)
-
-                imageArray = new int[bmpInfoHeader_biHeight][bmpInfoHeader_biWidth]; // Create the array for the pels
-                /*
-                 * I use the same loop structure for each case for clarity so you can see the similarities and differences.
-                 * The outer loop is over the rows (in reverse), the inner loop over the columns.
-                 */
-                iPelsPerRow = bmpInfoHeader_biWidth;
-                iDeadBytes = (4 - (iPelsPerRow * 3) % 4) % 4;
-                for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                {
-                    if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
+            // reads the optional "softmax" keyword that selects a softmax output layer with the cross-entropy error
+            boolean softmax = Network.readOutputLayerKeyword(sc);
 
-                    for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
+            // creates the network using all of the gathered values. The images are kept in a CompactDataset (one byte per
+            // pixel and one int label per image) instead of the network's own arrays of doubles.
+            Network network;
+            if (featureLayers.length > 0)
+            {
+                network = new Network(featureLayers, hiddenLayerNodes, outputNodes, lambda, maxIterations, 0,
+                        minWeightValue, maxWeightValue, threshold);
+            }
+            else
+            {
+                network = new Network(numPixels, hiddenLayerNodes, outputNodes, lambda, maxIterations, 0,
+                        minWeightValue, maxWeightValue, threshold);
+            }
+
+            network.setSoftmaxOutput(softmax);
+
+            double[] expectedOutputs = new double[outputNodes];
+            String[] imageFileNames = new String[numTestCases];
+            int[] labels = new int[numTestCases];
+
+            for (int testCase = 0; testCase < numTestCases; testCase++)
+            {
+                imageFileNames[testCase] = imageFileName(isTraining, testCase);
+
+                if (isTraining)
+                {
+                    for (int outputNode = 0; outputNode < outputNodes; outputNode++) // reads the one-hot expected values
                     {
-                        rgbQuad_rgbBlue      = in.readUnsignedByte();
-                        rgbQuad_rgbGreen     = in.readUnsignedByte();
-                        rgbQuad_rgbRed       = in.readUnsignedByte();
-                        pel = (rgbQuad_rgbRed << 16) | (rgbQuad_rgbGreen << 8) | rgbQuad_rgbBlue;
-                        imageArray[i][j] = pel;
+                        expectedOutputs[outputNode] = sc.nextDouble();
+
+                        if (expectedOutputs[outputNode] > expectedOutputs[labels[testCase]])
+                        {
+                            labels[testCase] = outputNode;
+                        }
                     }
-                    for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
                 }
+            } // for (int testCase = 0; testCase < numTestCases; testCase++)
 
-                int counter = 0;
-                for (int row = 0; row < imageArray.length; row++)
+            if (queueDepth > 0)
+            {
+                // decodes CHUNK_IMAGES images at a time on every core, at most queueDepth batches ahead of the training loop,
+                // and keeps the pixels of the first pass so that the iterations after it decode nothing
+                PrefetchingDataset prefetching = new PrefetchingDataset(imageFileNames, labels, numPixels, outputNodes,
+                        Runtime.getRuntime().availableProcessors(), ImageIngestor.CHUNK_IMAGES, queueDepth);
+                if (resizing)
                 {
-                    for (int column = 0; column < imageArray[row].length; column++)
-                    {
-                        network.setTestCaseValue(testCase, counter,
-                                dibdumper.pelToRGB(dibdumper.colorToGrayscale(imageArray[row][column])).blue / 255.0);
-                        counter++;
-                    }
+                    prefetching.setOutputSize(imageSize[0], imageSize[1]);
                 }
-                if (isTraining)
+                prefetching.setKeepDecoded(true);
+
+                network.setDataset(prefetching);
+
+                try
                 {
-                    network.setExpectedOutputValues(sc, testCase);
+                    network.trainNetwork();
                 }
-                in.close();
-                fstream.close();
+                finally
+                {
+                    // stops the decoding thread even when training throws, so that it is not left running
+                    prefetching.shutdown();
+                }
+                System.out.printf("waited %.1f ms for images to be decoded\n", prefetching.getWaitNanos() / 1e6);
+                network.outputWeightsToTextFile();
+                return;
+            } // if (queueDepth > 0)
+
+            // maps the packed cache of the images (one grayscale byte per pixel and one int label per image), which is only
+            // rebuilt, by decoding the images on every core, when an image or a label has changed since the last run
+            ImageIngestor ingestor = new ImageIngestor(imageFileNames, labels, outputNodes);
+
+            if (resizing)
+            {
+                ingestor.setOutputSize(imageSize[0], imageSize[1]);
+            }
+            DatasetCache cache = new DatasetCache(false, Runtime.getRuntime().availableProcessors());
+            MappedDataset dataset = cache.load(ingestor, isTraining ? TRAINING_CACHE : TEST_CACHE, false);
+
+            if (cache.wasRebuilt())
+            {
+                System.out.printf("decoded %d images at %.1f images/s\n", numTestCases, ingestor.getImagesPerSecond());
             }
 
+            network.setDataset(dataset);
+
             if (isTraining)
             {
                 network.trainNetwork();
@@ -447,25 +497,21 @@ public class DibDump
                 Scanner weightscan = new Scanner(in3);
                 network.setAllWeights(weightscan);
 
+                double[] inputs = new double[numPixels];
+
                 for (int testCase = 0; testCase < numTestCases; testCase++) // iterates through the test cases
                 {
-                    network.setAllInputActivations(testCase);
+                    dataset.copySample(testCase, inputs, expectedOutputs);
+                    network.setInputs(inputs);
 
                     network.calculateAllActivations();
                     double[] outputs = network.getOutputActivations();
 
-                    double maxValue = outputs[0];
-                    int maxIndex = 1;
                     for (int outputValue = 0; outputValue < outputNodes; outputValue++)
                     {
                         System.out.println((outputValue + 1) + ": " + outputs[outputValue]);
-                        if (outputs[outputValue] > maxValue)
-                        {
-                            maxValue = outputs[outputValue];
-                            maxIndex = outputValue + 1;
-                        }
                     }
-                    System.out.println("testimage" + testCase + " is: " + maxIndex);
+                    System.out.println("testimage" + testCase + " is: " + (network.getMaxOutputIndex() + 1));
                     System.out.println("\n");
                 }
             }
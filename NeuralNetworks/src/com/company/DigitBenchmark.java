@@ -0,0 +1,366 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class loads the digit task that DibDump trains on, for the tools that compare a trained network with a smaller or faster
+ * version of it (pruning, quantization, factorization and so on): the training images with the labels of a parameters file in
+ * the format of bitmaptrain, the test images, where testimage k is the digit k + 1, and the hyperparameters of the network. It
+ * trains networks quietly, without the output of Network.trainNetwork, and measures their accuracy and speed, so that every tool
+ * reports its numbers the same way.
+ *
+ * The DigitBenchmark class contains the following instance variables:
+ *    int[]          hiddenLayerNodes: the number of nodes in each hidden layer
+ *    double         lambda: the learning factor
+ *    double         minWeightValue, maxWeightValue: the range of the random weights
+ *    double         threshold: the error that training stops at
+ *    int            maxIterations: the largest number of training iterations
+ *    boolean        softmax: true if the output layer is a softmax layer
+ *    CompactDataset trainingSet: the labeled training images
+ *    CompactDataset testSet: the labeled test images
+ *
+ */
+public class DigitBenchmark
+{
+    /**
+     * the parameters file that DibDump trains with
+     */
+    public static final String TRAINING_PARAMETERS = "src/com/company/bitmaptrain";
+
+    /**
+     * the number of digits, which is the number of output nodes
+     */
+    public static final int NUM_CLASSES = 5;
+
+    private int[] hiddenLayerNodes;
+    private double lambda;
+    private double minWeightValue;
+    private double maxWeightValue;
+    private double threshold;
+    private int maxIterations;
+    private boolean softmax;
+    private CompactDataset trainingSet;
+    private CompactDataset testSet;
+
+    /**
+     * Creates a DigitBenchmark from a parameters file in the format of bitmaptrain, decoding the training and test images
+     *
+     * @param parametersFileName the name of the parameters file
+     * @throws IOException if the parameters file or an image cannot be read
+     */
+    public DigitBenchmark(String parametersFileName) throws IOException
+    {
+        Scanner sc = new Scanner(new FileInputStream(new File(parametersFileName)));
+
+        try
+        {
+            hiddenLayerNodes = new int[sc.nextInt()];
+
+            for (int layer = 0; layer < hiddenLayerNodes.length; layer++)
+            {
+                hiddenLayerNodes[layer] = sc.nextInt();
+            }
+
+            int numTestCases = sc.nextInt();
+            lambda = sc.nextDouble();
+            minWeightValue = sc.nextDouble();
+            maxWeightValue = sc.nextDouble();
+            threshold = sc.nextDouble();
+            maxIterations = sc.nextInt();
+
+            if (sc.hasNext("conv|maxpool|avgpool|dense"))
+            {
+                throw new IOException("the benchmark only covers networks without feature layers");
+            }
+            softmax = Network.readOutputLayerKeyword(sc);
+
+            String[] trainingNames = new String[numTestCases];
+            int[] trainingLabels = new int[numTestCases];
+            double[] expectedOutputs = new double[NUM_CLASSES];
+
+            for (int testCase = 0; testCase < numTestCases; testCase++)
+            {
+                trainingNames[testCase] = DibDump.imageFileName(true, testCase);
+
+                for (int outputNode = 0; outputNode < NUM_CLASSES; outputNode++) // reads the one-hot expected values
+                {
+                    expectedOutputs[outputNode] = sc.nextDouble();
+
+                    if (expectedOutputs[outputNode] > expectedOutputs[trainingLabels[testCase]])
+                    {
+                        trainingLabels[testCase] = outputNode;
+                    }
+                }
+            } // for (int testCase = 0; testCase < numTestCases; testCase++)
+
+            String[] testNames = new String[NUM_CLASSES];
+            int[] testLabels = new int[NUM_CLASSES];
+
+            for (int testCase = 0; testCase < NUM_CLASSES; testCase++)
+            {
+                testNames[testCase] = DibDump.imageFileName(false, testCase);
+                testLabels[testCase] = testCase;
+            }
+
+            int numThreads = Runtime.getRuntime().availableProcessors();
+            trainingSet = new ImageIngestor(trainingNames, trainingLabels, NUM_CLASSES).ingest(numThreads);
+            testSet = new ImageIngestor(testNames, testLabels, NUM_CLASSES).ingest(numThreads);
+        } // try
+        finally
+        {
+            sc.close();
+        }
+    } // public DigitBenchmark
+
+    public CompactDataset getTrainingSet()
+    {
+        return trainingSet;
+    }
+
+    public CompactDataset getTestSet()
+    {
+        return testSet;
+    }
+
+    public int[] getHiddenLayerNodes()
+    {
+        return hiddenLayerNodes;
+    }
+
+    public double getLambda()
+    {
+        return lambda;
+    }
+
+    public double getMinWeightValue()
+    {
+        return minWeightValue;
+    }
+
+    public double getMaxWeightValue()
+    {
+        return maxWeightValue;
+    }
+
+    public double getThreshold()
+    {
+        return threshold;
+    }
+
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    }
+
+    /**
+     * creates an untrained network with the hyperparameters of the parameters file, set to train on the training images
+     * @return the network
+     */
+    public Network createNetwork()
+    {
+        return createNetwork(hiddenLayerNodes);
+    }
+
+    /**
+     * creates an untrained network with the hyperparameters of the parameters file but the given hidden layers, set to train on
+     * the training images
+     *
+     * @param hiddenNodes the number of nodes in each hidden layer
+     * @return the network
+     */
+    public Network createNetwork(int[] hiddenNodes)
+    {
+        return createNetwork(hiddenNodes, lambda, minWeightValue, maxWeightValue, maxIterations);
+    }
+
+    /**
+     * creates an untrained network with the output layer and threshold of the parameters file but the given hyperparameters, set
+     * to train on the training images, which every network created by the benchmark shares
+     *
+     * @param hiddenNodes    the number of nodes in each hidden layer
+     * @param learningFactor the learning factor
+     * @param minWeight      the minimum value of a random weight
+     * @param maxWeight      the maximum value of a random weight
+     * @param iterations     the largest number of training iterations
+     * @return the network
+     */
+    public Network createNetwork(int[] hiddenNodes, double learningFactor, double minWeight, double maxWeight, int iterations)
+    {
+        Network network = new Network(trainingSet.getInputSize(), hiddenNodes, NUM_CLASSES, learningFactor, iterations, 0,
+                minWeight, maxWeight, threshold);
+        network.setSoftmaxOutput(softmax);
+        network.setDataset(trainingSet);
+        return network;
+    } // public Network createNetwork
+
+    /**
+     * randomizes the weights of a network and trains it on its dataset until its error is below the threshold of the parameters
+     * file or it has run the largest number of iterations, without printing anything
+     *
+     * @param network the network
+     * @return the number of iterations that were run
+     */
+    public int train(Network network)
+    {
+        network.randomizeWeights(minWeightValue, maxWeightValue);
+        return train(network, maxIterations);
+    }
+
+    /**
+     * randomizes the weights of a network with the given generator and trains it like train(network), so that the same seed
+     * always trains the same network
+     *
+     * @param network the network
+     * @param random  the generator of the random weights
+     * @return the number of iterations that were run
+     */
+    public int train(Network network, Random random)
+    {
+        network.randomizeWeights(minWeightValue, maxWeightValue, random);
+        return train(network, maxIterations);
+    }
+
+    /**
+     * randomizes the weights of a network and trains it like train(network), but stops once its error is within the threshold
+     * of the lowest error it can reach on its dataset instead of within the threshold of 0, for datasets whose targets are not
+     * one-hot (see: DistillationDataset.getMinimumError)
+     *
+     * @param network      the network
+     * @param minimumError the lowest average error that the network can reach on its dataset
+     * @return the number of iterations that were run
+     */
+    public int train(Network network, double minimumError)
+    {
+        network.randomizeWeights(minWeightValue, maxWeightValue);
+        return train(network, maxIterations, minimumError);
+    }
+
+    /**
+     * trains a network from its current weights for at most the given number of iterations, stopping early once its error is
+     * below the threshold of the parameters file
+     *
+     * @param network    the network
+     * @param iterations the largest number of iterations
+     * @return the number of iterations that were run
+     */
+    public int train(Network network, int iterations)
+    {
+        return train(network, iterations, 0.0);
+    }
+
+    /**
+     * trains a network from its current weights for at most the given number of iterations, stopping early once its error is
+     * less than the threshold of the parameters file above the lowest error that it can reach
+     *
+     * @param network      the network
+     * @param iterations   the largest number of iterations
+     * @param minimumError the lowest average error that the network can reach on its dataset
+     * @return the number of iterations that were run
+     */
+    public int train(Network network, int iterations, double minimumError)
+    {
+        int iteration = 0;
+        double error = Double.MAX_VALUE;
+
+        while (iteration < iterations && error - minimumError > threshold)
+        {
+            error = network.runTrainingIteration(false);
+            iteration++;
+        }
+        return iteration;
+    } // public int train
+
+    /**
+     * returns the average error of a network over a dataset, without training it
+     *
+     * @param network the network
+     * @param dataset the dataset
+     * @return the average error of the test cases
+     */
+    public static double error(Network network, CompactDataset dataset)
+    {
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        double totalError = 0.0;
+
+        for (int sample = 0; sample < dataset.getNumSamples(); sample++)
+        {
+            dataset.copySample(sample, inputs, expectedOutputs);
+            network.setInputs(inputs);
+            network.calculateAllActivations();
+            totalError += network.calculateError(expectedOutputs);
+        }
+        return totalError / Math.max(1, dataset.getNumSamples());
+    } // public static double error
+
+    /**
+     * returns the number of test cases of a dataset that a network classifies correctly
+     *
+     * @param network the network
+     * @param dataset the dataset
+     * @return the number of correct classifications
+     */
+    public static int countCorrect(Network network, CompactDataset dataset)
+    {
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        int correct = 0;
+
+        for (int sample = 0; sample < dataset.getNumSamples(); sample++)
+        {
+            dataset.copySample(sample, inputs, expectedOutputs);
+            network.setInputs(inputs);
+            network.calculateAllActivations();
+
+            if (network.getMaxOutputIndex() == dataset.getLabel(sample))
+            {
+                correct++;
+            }
+        }
+        return correct;
+    } // public static int countCorrect
+
+    /**
+     * returns the average time of a forward pass of a network over the images of a dataset
+     *
+     * @param network     the network
+     * @param dataset     the dataset
+     * @param repetitions the number of timed passes over the dataset, after a tenth as many passes that warm up the JIT compiler
+     * @return the nanoseconds per image
+     */
+    public static double nanosPerImage(Network network, CompactDataset dataset, int repetitions)
+    {
+        double[][] inputs = new double[dataset.getNumSamples()][dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            dataset.copySample(sample, inputs[sample], expectedOutputs);
+        }
+
+        long start = 0;
+
+        for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+        {
+            if (repetition == 0)
+            {
+                start = System.nanoTime();
+            }
+
+            for (int sample = 0; sample < inputs.length; sample++)
+            {
+                network.setInputs(inputs[sample]);
+                network.calculateAllActivations();
+            }
+        } // for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+
+        return (double) (System.nanoTime() - start) / ((long) repetitions * inputs.length);
+    } // public static double nanosPerImage
+} // public class DigitBenchmark
@@ -0,0 +1,215 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a dataset for knowledge distillation, which hands out the test cases of another dataset with their expected
+ * output values replaced by a blend of the output activations of a trained teacher network and the true expected values:
+ *    target = softWeight * soft teacher output + (1 - softWeight) * true expected value
+ * A student network that trains on it with the usual Network.lowerErrorForAllWeights then learns the teacher's soft outputs,
+ * which say how much each test case looks like every class and not only which class is right. For a softmax output layer the
+ * omegas (expectedValue - outputNode) of the cross-entropy are exactly the gradient of the blend of the two cross-entropies, so
+ * no change to the backpropagation is needed.
+ *
+ * The teacher is run over one pass of the dataset when the DistillationDataset is created, and its outputs are cached as floats,
+ * so training the student never runs the teacher again. The cached outputs are softened with a temperature T, which raises the
+ * smaller outputs of a confident teacher so the student can learn from them: a softmax output p becomes p^(1/T), renormalized
+ * (the softmax of the thetas divided by T), and a sigmoid output becomes the sigmoid of its theta divided by T.
+ *
+ * The student's own outputs are not softened, since the targets are all that a Dataset can change, so a student that fits the
+ * targets exactly learns the flatter distribution of the teacher at T rather than the teacher's own. Its largest output is still
+ * the teacher's, so the predicted classes are unaffected, but its outputs are less confident than the teacher's, more so at
+ * higher temperatures and larger soft weights.
+ *
+ * Since the targets are not one-hot, the cross-entropy of a softmax student cannot drop below the average entropy of the
+ * targets, however well it fits them. That floor is worked out with the teacher outputs (see: getMinimumError), so that a
+ * student can be trained until its error is within a threshold of the floor, which is the Kullback-Leibler divergence of its
+ * outputs from the targets, instead of a threshold that only a student of one-hot labels can reach.
+ *
+ * The cached outputs are matched to the test cases by their place in the pass, so the wrapped dataset has to hand out its test
+ * cases in the same order on every pass, like InMemoryDataset, CompactDataset and MappedDataset do (ShuffledChunkDataset does
+ * not).
+ *
+ * The DistillationDataset class contains the following instance variables:
+ *    Dataset dataset: the wrapped dataset, which has the inputs and the true expected values
+ *    float[] teacherOutputs: the softened output activations of the teacher for every test case, test case after test case
+ *    double  softWeight: the weight of the teacher outputs in the blend, from 0.0 (the true values) to 1.0 (the teacher)
+ *    int     numSamples: the number of test cases of one pass
+ *    double  minimumError: the lowest average error that a student with the teacher's output layer can reach on the targets
+ *
+ */
+public class DistillationDataset implements Dataset
+{
+    /**
+     * the smallest output that is softened, so that the logarithm of an output that rounded to 0 or 1 is finite
+     */
+    public static final double MIN_OUTPUT = 1e-12;
+
+    private Dataset dataset;
+    private float[] teacherOutputs;
+    private double softWeight;
+    private int numSamples;
+    private double minimumError;
+
+    /**
+     * Creates a DistillationDataset by running a teacher over one pass of a dataset and caching its softened outputs
+     *
+     * @param teacher     the trained teacher, whose output layer has as many nodes as the dataset has expected values
+     * @param dataset     the dataset, which hands out its test cases in the same order on every pass
+     * @param temperature the temperature that the teacher outputs are softened with, where 1.0 leaves them unchanged
+     * @param softWeight  the weight of the teacher outputs in the blend, from 0.0 to 1.0
+     */
+    public DistillationDataset(Network teacher, Dataset dataset, double temperature, double softWeight)
+    {
+        this.dataset = dataset;
+        this.softWeight = softWeight;
+
+        int outputSize = dataset.getOutputSize();
+        teacherOutputs = new float[dataset.getNumSamples() * outputSize];
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[outputSize];
+        double[] soft = new double[outputSize];
+        DatasetIterator iterator = dataset.iterator();
+        int sample = 0;
+
+        try
+        {
+            while (iterator.next(inputs, expectedOutputs))
+            {
+                teacher.setInputs(inputs);
+                teacher.calculateAllActivations();
+                soften(teacher.getOutputActivations(), teacher.isSoftmaxOutput(), temperature, soft);
+
+                for (int outputNode = 0; outputNode < outputSize; outputNode++)
+                {
+                    teacherOutputs[sample * outputSize + outputNode] = (float) soft[outputNode];
+
+                    // the entropy of the blended targets is the lowest cross-entropy that a softmax student can have, while a
+                    // sigmoid student can match every target, so its squared error can reach 0
+                    double target = softWeight * teacherOutputs[sample * outputSize + outputNode] +
+                            (1.0 - softWeight) * expectedOutputs[outputNode];
+
+                    if (teacher.isSoftmaxOutput() && target > 0.0)
+                    {
+                        minimumError -= target * Math.log(target);
+                    }
+                } // for (int outputNode = 0; outputNode < outputSize; outputNode++)
+                sample++;
+            }
+        } // try
+        finally
+        {
+            iterator.close();
+        }
+        numSamples = sample;
+        minimumError /= Math.max(numSamples, 1);
+    } // public DistillationDataset
+
+    /**
+     * softens a set of output activations with a temperature
+     *
+     * @param outputs     the output activations
+     * @param softmax     true if the outputs are from a softmax layer, false if they are from sigmoids
+     * @param temperature the temperature
+     * @param soft        the array that the softened outputs are stored in
+     */
+    public static void soften(double[] outputs, boolean softmax, double temperature, double[] soft)
+    {
+        if (softmax)
+        {
+            for (int node = 0; node < outputs.length; node++) // ln(p) / T, which is theta / T up to a constant
+            {
+                soft[node] = Math.log(Math.max(outputs[node], MIN_OUTPUT)) / temperature;
+            }
+
+            Network.softmax(soft, soft, outputs.length);
+        } // if (softmax)
+        else
+        {
+            for (int node = 0; node < outputs.length; node++) // the sigmoid of theta / T
+            {
+                double output = Math.min(Math.max(outputs[node], MIN_OUTPUT), 1.0 - MIN_OUTPUT);
+                double theta = Math.log(output / (1.0 - output));
+                soft[node] = Network.thresholdFunction(theta / temperature);
+            }
+        }
+    } // public static void soften
+
+    public int getInputSize()
+    {
+        return dataset.getInputSize();
+    }
+
+    public int getOutputSize()
+    {
+        return dataset.getOutputSize();
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    /**
+     * returns the lowest average error that a student with the teacher's output layer can reach on the blended targets: their
+     * average entropy for a softmax layer trained with the cross-entropy, or 0 for a sigmoid layer trained with the squared error
+     *
+     * @return the lowest average error of a student
+     */
+    public double getMinimumError()
+    {
+        return minimumError;
+    }
+
+    /**
+     * returns the softened output of the teacher for one output node of one test case
+     *
+     * @param sample     the index of the test case in the pass
+     * @param outputNode the index of the output node
+     * @return the cached teacher output
+     */
+    public double getTeacherOutput(int sample, int outputNode)
+    {
+        return teacherOutputs[sample * getOutputSize() + outputNode];
+    }
+
+    /**
+     * starts a pass over the wrapped dataset that replaces the expected values of each test case with the blended targets
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        final DatasetIterator iterator = dataset.iterator();
+
+        return new DatasetIterator()
+        {
+            private int sample = 0; // the index of the next test case
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sample >= numSamples || !iterator.next(inputs, expectedOutputs))
+                {
+                    return false;
+                }
+
+                int outputSize = getOutputSize();
+
+                for (int outputNode = 0; outputNode < outputSize; outputNode++)
+                {
+                    expectedOutputs[outputNode] = softWeight * teacherOutputs[sample * outputSize + outputNode] +
+                            (1.0 - softWeight) * expectedOutputs[outputNode];
+                }
+                sample++;
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                sample = numSamples;
+                iterator.close();
+            }
+        };
+    } // public DatasetIterator iterator
+} // public class DistillationDataset
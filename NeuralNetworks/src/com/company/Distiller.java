@@ -0,0 +1,118 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class distills a trained teacher Network into smaller student networks with a DistillationDataset and reports what each
+ * student keeps of the teacher's accuracy and how much faster it is. Every student size is trained twice from random weights,
+ * once on the true labels alone and once on the blended targets of the teacher, so the gain of distillation over training the
+ * same small network directly can be read off each row. Both students train with the unchanged Network.runTrainingIteration,
+ * and both stop once their error is within the threshold of the parameters file of the lowest error they can reach: 0 for
+ * the true labels, and the entropy of the blended targets for the distilled student (see: DistillationDataset.getMinimumError),
+ * whose cross-entropy can never drop below it.
+ *
+ * The Distiller class contains the following methods:
+ *    int   countAgreement(Network teacher, Network student, CompactDataset dataset)
+ *    void  main(String[] args)
+ *
+ */
+public class Distiller
+{
+    /**
+     * returns the number of test cases of a dataset that a student classifies the same as its teacher
+     *
+     * @param teacher the teacher
+     * @param student the student
+     * @param dataset the dataset
+     * @return the number of test cases that the two networks agree on
+     */
+    public static int countAgreement(Network teacher, Network student, CompactDataset dataset)
+    {
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        int agreed = 0;
+
+        for (int sample = 0; sample < dataset.getNumSamples(); sample++)
+        {
+            dataset.copySample(sample, inputs, expectedOutputs);
+            teacher.setInputs(inputs);
+            teacher.calculateAllActivations();
+            student.setInputs(inputs);
+            student.calculateAllActivations();
+
+            if (teacher.getMaxOutputIndex() == student.getMaxOutputIndex())
+            {
+                agreed++;
+            }
+        }
+        return agreed;
+    } // public static int countAgreement
+
+    /**
+     * trains a teacher on the digit task, distills it into students of several sizes, and prints the accuracy, agreement, error
+     * and speed of each student trained on the true labels and on the blended targets
+     *
+     * @param args the parameters file, the hidden layers of the teacher (such as "100,50", or "-" for those of the parameters
+     *             file), the hidden layers of the students separated by slashes (such as "10/5/3"), the temperature, the weight
+     *             of the teacher outputs and the number of timed passes
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String parametersFileName = args.length > 0 ? args[0] : DigitBenchmark.TRAINING_PARAMETERS;
+        String teacherLayers = args.length > 1 ? args[1] : "-";
+        String[] studentLayers = (args.length > 2 ? args[2] : "10/5/3/2").split("/");
+        double temperature = args.length > 3 ? Double.parseDouble(args[3]) : 3.0;
+        double softWeight = args.length > 4 ? Double.parseDouble(args[4]) : 0.7;
+        int repetitions = args.length > 5 ? Integer.parseInt(args[5]) : 2000;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        CompactDataset test = benchmark.getTestSet();
+        Network teacher = teacherLayers.equals("-") ? benchmark.createNetwork() :
+                benchmark.createNetwork(Network.parseHiddenLayers(teacherLayers));
+        int iterations = benchmark.train(teacher);
+
+        int teacherCorrect = DigitBenchmark.countCorrect(teacher, test);
+        double teacherNanos = DigitBenchmark.nanosPerImage(teacher, test, repetitions);
+        System.out.printf("teacher %s trained for %d iterations: %d weights, test %d/%d correct, error %.4f, %.1f ns/image\n",
+                teacherLayers.equals("-") ? Arrays.toString(benchmark.getHiddenLayerNodes()) : "[" + teacherLayers + "]",
+                iterations, teacher.countWeights(), teacherCorrect, test.getNumSamples(),
+                DigitBenchmark.error(teacher, test), teacherNanos);
+
+        long start = System.nanoTime();
+        DistillationDataset distillation = new DistillationDataset(teacher, benchmark.getTrainingSet(), temperature, softWeight);
+        System.out.printf("cached the teacher outputs of %d test cases in %.2f ms (temperature %.1f, teacher weight %.2f), "
+                        + "lowest error of a distilled student %.4f\n\n", distillation.getNumSamples(),
+                (System.nanoTime() - start) / 1e6, temperature, softWeight, distillation.getMinimumError());
+        System.out.println("student  weights  targets    iter  correct  retained  agree  error    ns/image  speedup");
+
+        for (String layers : studentLayers)
+        {
+            int[] hiddenLayerNodes = Network.parseHiddenLayers(layers);
+
+            for (int distilled = 0; distilled < 2; distilled++)
+            {
+                Network student = benchmark.createNetwork(hiddenLayerNodes);
+
+                if (distilled == 1)
+                {
+                    student.setDataset(distillation);
+                }
+                int studentIterations = distilled == 1 ? benchmark.train(student, distillation.getMinimumError()) :
+                        benchmark.train(student);
+
+                int correct = DigitBenchmark.countCorrect(student, test);
+                double nanos = DigitBenchmark.nanosPerImage(student, test, repetitions);
+                System.out.printf("%-7s  %7d  %-9s  %4d  %3d/%-3d  %7.0f%%  %2d/%-2d  %.4f  %8.1f  %6.2fx\n",
+                        Arrays.toString(hiddenLayerNodes), student.countWeights(),
+                        distilled == 1 ? "distilled" : "labels", studentIterations, correct, test.getNumSamples(),
+                        100.0 * correct / Math.max(teacherCorrect, 1), countAgreement(teacher, student, test),
+                        test.getNumSamples(), DigitBenchmark.error(student, test), nanos, teacherNanos / nanos);
+            } // for (int distilled = 0; distilled < 2; distilled++)
+        } // for (String layers : studentLayers)
+    } // public static void main
+} // public class Distiller
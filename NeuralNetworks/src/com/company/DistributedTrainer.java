@@ -0,0 +1,154 @@
+package com.company;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class measures how data-parallel training with a ParameterServer scales with the number of worker processes. For each
+ * number of workers it starts a server on a free port of the loopback address, starts that many TrainingWorker JVMs with the
+ * same class path as this one, and trains the digit network from the same initial weights for the same number of rounds. It
+ * then prints the time per round, the test cases trained per second, the speedup over one worker, the scaling efficiency (the
+ * speedup divided by the number of workers), the share of each round spent sending weights rather than training, and the final
+ * error and test accuracy. The speedup is always measured against a run with one worker, which is added in front of the list of
+ * numbers of workers if the list does not start with one.
+ *
+ * The workers can be started by hand on other machines instead (see: TrainingWorker.main) with a server whose localOnly is
+ * false. On one machine the efficiency cannot be higher than the number of processors divided by the number of workers.
+ *
+ * The DistributedTrainer class contains the following methods:
+ *    int[]     parseWorkerCounts(String counts)
+ *    Process[] startWorkers(int port, int numWorkers, String parametersFileName, int repeat)
+ *    void      main(String[] args)
+ *
+ */
+public class DistributedTrainer
+{
+    /**
+     * parses a list of numbers of workers separated by commas, such as "2,4", and puts one worker in front of it if it does not
+     * start with one, since that run is the baseline of the speedup
+     *
+     * @param counts the list
+     * @return the numbers of workers, starting with 1
+     */
+    public static int[] parseWorkerCounts(String counts)
+    {
+        String[] values = counts.split(",");
+        int first = Integer.parseInt(values[0].trim());
+        int offset = first == 1 ? 0 : 1;
+        int[] workerCounts = new int[values.length + offset];
+        workerCounts[0] = 1;
+
+        for (int index = 0; index < values.length; index++)
+        {
+            workerCounts[index + offset] = Integer.parseInt(values[index].trim());
+        }
+        return workerCounts;
+    } // public static int[] parseWorkerCounts
+
+    /**
+     * starts a number of worker JVMs on this machine that connect to a server on the loopback address
+     *
+     * @param port               the port of the server
+     * @param numWorkers         the number of workers
+     * @param parametersFileName the parameters file that each worker loads the training set from
+     * @param repeat             the number of times that the training set is repeated before it is split into shards
+     * @return the worker processes
+     * @throws IOException if a process cannot be started
+     */
+    public static Process[] startWorkers(int port, int numWorkers, String parametersFileName, int repeat) throws IOException
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process[] workers = new Process[numWorkers];
+
+        for (int workerIndex = 0; workerIndex < numWorkers; workerIndex++)
+        {
+            List<String> command = new ArrayList<String>();
+            command.add(java);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(TrainingWorker.class.getName());
+            command.add("127.0.0.1");
+            command.add(String.valueOf(port));
+            command.add(String.valueOf(workerIndex));
+            command.add(String.valueOf(numWorkers));
+            command.add(parametersFileName);
+            command.add(String.valueOf(repeat));
+
+            workers[workerIndex] = new ProcessBuilder(command).inheritIO().start();
+        } // for (int workerIndex = 0; workerIndex < numWorkers; workerIndex++)
+        return workers;
+    } // public static Process[] startWorkers
+
+    /**
+     * trains the digit network with each number of workers on this machine and prints how training scales
+     *
+     * @param args the numbers of workers separated by commas (such as "1,2,4"), the number of rounds, the number of times that
+     *             the training set is repeated and the parameters file
+     * @throws IOException if a file cannot be read, a worker cannot be started or a connection fails
+     * @throws InterruptedException if interrupted while waiting for the workers to exit
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int[] workerCounts = parseWorkerCounts(args.length > 0 ? args[0] : "1,2,4");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int repeat = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        String parametersFileName = args.length > 3 ? args[3] : DigitBenchmark.TRAINING_PARAMETERS;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        CompactDataset test = benchmark.getTestSet();
+        Network network = benchmark.createNetwork();
+        network.randomizeWeights(-0.7, 0.7);
+        double[][][] initialWeights = network.copyWeights();
+
+        System.out.printf("%d processors, %d rounds over %d test cases, %d weights\n\n",
+                Runtime.getRuntime().availableProcessors(), rounds, benchmark.getTrainingSet().getNumSamples() * repeat,
+                network.countWeights());
+        System.out.println("workers  ms/round  cases/s    speedup  efficiency  sending  error     correct");
+
+        double oneWorkerNanos = 0.0;
+
+        for (int numWorkers : workerCounts) // every run starts from the same weights
+        {
+            network.restoreWeights(initialWeights);
+            ParameterServer server = new ParameterServer(network, 0, numWorkers, true);
+            Process[] workers = startWorkers(server.getPort(), numWorkers, parametersFileName, repeat);
+
+            try
+            {
+                server.acceptWorkers();
+
+                for (int round = 0; round < rounds; round++)
+                {
+                    server.runRound();
+                }
+            } // try
+            finally
+            {
+                server.close();
+
+                for (Process worker : workers)
+                {
+                    worker.waitFor();
+                }
+            }
+
+            double nanosPerRound = (double) server.getRoundNanos() / rounds;
+
+            if (oneWorkerNanos == 0.0)
+            {
+                oneWorkerNanos = nanosPerRound; // the first run always has one worker (see: parseWorkerCounts)
+            }
+            double speedup = oneWorkerNanos / nanosPerRound;
+
+            System.out.printf("%7d  %8.2f  %9.0f  %6.2fx  %9.0f%%  %6.0f%%  %.6f  %d/%d\n", numWorkers, nanosPerRound / 1e6,
+                    server.getNumSamples() / (nanosPerRound / 1e9), speedup, 100.0 * speedup / numWorkers,
+                    100.0 * (server.getRoundNanos() - server.getTrainingNanos()) / server.getRoundNanos(),
+                    server.getLastError(), DigitBenchmark.countCorrect(network, test), test.getNumSamples());
+        } // for (int numWorkers : workerCounts)
+    } // public static void main
+} // public class DistributedTrainer
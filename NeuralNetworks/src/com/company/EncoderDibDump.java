@@ -149,6 +149,10 @@ public class EncoderDibDump
 // identify it as such. Note that when the image is saved, it will be written out in the usual
 // inverted format with a positive bmpInfoHeader_biHeight value.
     static boolean topDownDIB = false;
+
+    // the reconstructed image is gray, so it is written as an 8-bit grayscale bitmap, a third of the size of a 24-bit one
+    static final int OUTPUT_BIT_COUNT = 8;
+
     /*
      * Methods to go between little and big endian integer formats.
      */
@@ -234,20 +238,23 @@ public class EncoderDibDump
      */
     public static void main(String[] args)
     {
-        String inFileName, outFileName, outFileName2;
-        int i, j, k;
-        int numberOfColors;
-        int pel;
-        int iByteVal, iColumn, iBytesPerRow, iPelsPerRow, iTrailingBits, iDeadBytes;
-// RBGQUAD
-        int RgbQuad2_rgbBlue;
-        int RgbQuad2_rgbGreen;
-        int RgbQuad2_rgbRed;
-        int RgbQuad2_rgbReserved;           // not used in this method
-// The color table
-        int[] colorPallet = new int[256];  // reserve space for the largest possible color table
-
-        EncoderDibDump dibdumper = new EncoderDibDump(); // needed to get to the byte swapping methods
+        String inFileName, outFileName, cacheFileName;
+        int i, j;
+        int iBytesPerRow;
+
+        // a directory is encoded as a batch by one autoencoder in one process (see: BatchEncoder)
+        if (args.length > 0 && new File(args[0]).isDirectory())
+        {
+            try
+            {
+                BatchEncoder.main(args);
+            }
+            catch (Exception e)
+            {
+                System.err.println("Batch error" + e);
+            }
+            return;
+        }
 
         if (args.length > 0)
             inFileName = args[0];
@@ -260,45 +267,17 @@ public class EncoderDibDump
         else
             outFileName = "output.bmp";
 
-        outFileName2 = "activations.txt";
+        cacheFileName = "activations.cache";
 
         try // lots of things can go wrong when doing file i/o
         {
-            // Open the file that is the first command line parameter
-            FileInputStream fstream = new FileInputStream(inFileName);
+            // reads the whole bitmap with one channel read and decodes the headers straight from it (see: BmpReader)
+            BmpReader reader = new BmpReader();
+            reader.read(inFileName);
 
-            // Convert our input stream to a DataInputStream
-            DataInputStream in = new DataInputStream(fstream);
-
-/*
- *  Read in BITMAPFILEHEADER
- *
- *              typedef struct tagBITMAPFILEHEADER {
-                    WORD    bfType;
-                    DWORD   bfSize;
-                    WORD    bfReserved1;
-                    WORD    bfReserved2;
-                    DWORD   bfOffBits;
-            } BITMAPFILEHEADER, FAR *LPBITMAPFILEHEADER, *PBITMAPFILEHEADER;
-
-bfType
-    Specifies the file type. It must be set to the signature word BM (0x4D42) to indicate bitmap.
-bfSize
-    Specifies the size, in bytes, of the bitmap file.
-bfReserved1
-    Reserved; set to zero
-bfReserved2
-    Reserved; set to zero
-bfOffBits
-    Specifies the offset, in bytes, from the BITMAPFILEHEADER structure to the bitmap bits
-*/
-
-// Read and Convert to big endian
-            bmpFileHeader_bfType      = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-            bmpFileHeader_bfSize      = dibdumper.swapInt(in.readInt());                // DWORD
-            bmpFileHeader_bfReserved1 = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-            bmpFileHeader_bfReserved2 = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-            bmpFileHeader_bfOffBits   = dibdumper.swapInt(in.readInt());                // DWORD
+            bmpFileHeader_bfType      = BmpReader.BMP_SIGNATURE;  // WORD
+            bmpFileHeader_bfSize      = reader.getFileSize();     // DWORD
+            bmpFileHeader_bfOffBits   = reader.getOffBits();      // DWORD
 
             System.out.printf("bfType=%2X bfSize=%d bfReserved1=%h bfReserved2=%h bfOffBits=%d\n",
                     bmpFileHeader_bfType,
@@ -307,114 +286,17 @@ bfOffBits
                     bmpFileHeader_bfReserved2,
                     bmpFileHeader_bfOffBits);
 
-/*
- Read in BITMAPINFOHEADER
-
-               typedef struct tagBITMAPINFOHEADER{
-                       DWORD      biSize;
-                       LONG       biWidth;
-                       LONG       biHeight;
-                       WORD       biPlanes;
-                       WORD       biBitCount;
-                       DWORD      biCompression;
-                       DWORD      biSizeImage;
-                       LONG       biXPelsPerMeter;
-                       LONG       biYPelsPerMeter;
-                       DWORD      biClrUsed;
-                       DWORD      biClrImportant;
-               } BITMAPINFOHEADER, FAR *LPBITMAPINFOHEADER, *PBITMAPINFOHEADER;
-
-
-biSize
-    Specifies the size of the structure, in bytes.
-    This size does not include the color table or the masks mentioned in the biClrUsed member.
-    See the Remarks section for more information.
-biWidth
-    Specifies the width of the bitmap, in pixels.
-biHeight
-    Specifies the height of the bitmap, in pixels.
-    If biHeight is positive, the bitmap is a bottom-up DIB and its origin is the lower left corner.
-    If biHeight is negative, the bitmap is a top-down DIB and its origin is the upper left corner.
-    If biHeight is negative, indicating a top-down DIB, biCompression must be either BI_RGB or BI_BITFIELDS. Top-down DIBs cannot be compressed.
-biPlanes
-    Specifies the number of planes for the target device.
-    This value must be set to 1.
-biBitCount
-    Specifies the number of bits per pixel.
-    The biBitCount member of the BITMAPINFOHEADER structure determines the number of bits that define each pixel and the maximum number of colors in the bitmap.
-    This member must be one of the following values.
-    Value     Description
-    1       The bitmap is monochrome, and the bmiColors member contains two entries.
-            Each bit in the bitmap array represents a pixel. The most significant bit is to the left in the image.
-            If the bit is clear, the pixel is displayed with the color of the first entry in the bmiColors table.
-            If the bit is set, the pixel has the color of the second entry in the table.
-    2       The bitmap has four possible color values.  The most significant half-nibble is to the left in the image.
-    4       The bitmap has a maximum of 16 colors, and the bmiColors member contains up to 16 entries.
-            Each pixel in the bitmap is represented by a 4-bit index into the color table. The most significant nibble is to the left in the image.
-            For example, if the first byte in the bitmap is 0x1F, the byte represents two pixels. The first pixel contains the color in the second table entry, and the second pixel contains the color in the sixteenth table entry.
-    8       The bitmap has a maximum of 256 colors, and the bmiColors member contains up to 256 entries. In this case, each byte in the array represents a single pixel.
-    16      The bitmap has a maximum of 2^16 colors.
-            If the biCompression member of the BITMAPINFOHEADER is BI_RGB, the bmiColors member is NULL.
-            Each WORD in the bitmap array represents a single pixel. The relative intensities of red, green, and blue are represented with 5 bits for each color component.
-            The value for blue is in the least significant 5 bits, followed by 5 bits each for green and red.
-            The most significant bit is not used. The bmiColors color table is used for optimizing colors used on palette-based devices, and must contain the number of entries specified by the biClrUsed member of the BITMAPINFOHEADER.
-    24      The bitmap has a maximum of 2^24 colors, and the bmiColors member is NULL.
-            Each 3-byte triplet in the bitmap array represents the relative intensities of blue, green, and red, respectively, for a pixel.
-            The bmiColors color table is used for optimizing colors used on palette-based devices, and must contain the number of entries specified by the biClrUsed member of the BITMAPINFOHEADER.
-    32      The bitmap has a maximum of 2^32 colors. If the biCompression member of the BITMAPINFOHEADER is BI_RGB, the bmiColors member is NULL. Each DWORD in the bitmap array represents the relative intensities of blue, green, and red, respectively, for a pixel. The high byte in each DWORD is not used. The bmiColors color table is
-            used for optimizing colors used on palette-based devices, and must contain the number of entries specified by the biClrUsed member of the BITMAPINFOHEADER.
-            If the biCompression member of the BITMAPINFOHEADER is BI_BITFIELDS, the bmiColors member contains three DWORD color masks that specify the red, green, and blue components, respectively, of each pixel.
-            Each DWORD in the bitmap array represents a single pixel.
-biCompression
-    Specifies the type of compression for a compressed bottom-up bitmap (top-down DIBs cannot be compressed). This member can be one of the following values.
-    Value               Description
-    BI_RGB              An uncompressed format.
-    BI_BITFIELDS        Specifies that the bitmap is not compressed and that the color table consists of three DWORD color masks that specify the red, green, and blue components of each pixel.
-                        This is valid when used with 16- and 32-bpp bitmaps.
-                        This value is valid in Windows Embedded CE versions 2.0 and later.
-    BI_ALPHABITFIELDS   Specifies that the bitmap is not compressed and that the color table consists of four DWORD color masks that specify the red, green, blue, and alpha components of each pixel.
-                        This is valid when used with 16- and 32-bpp bitmaps.
-                        This value is valid in Windows CE .NET 4.0 and later.
-                        You can OR any of the values in the above table with BI_SRCPREROTATE to specify that the source DIB section has the same rotation angle as the destination.
-biSizeImage
-    Specifies the size, in bytes, of the image. This value will be the number of bytes in each scan line which must be padded to
-    insure the line is a multiple of 4 bytes (it must align on a DWORD boundary) times the number of rows.
-    This value may be set to zero for BI_RGB bitmaps (so you cannot be sure it will be set).
-biXPelsPerMeter
-    Specifies the horizontal resolution, in pixels per meter, of the target device for the bitmap.
-    An application can use this value to select a bitmap from a resource group that best matches the characteristics of the current device.
-biYPelsPerMeter
-    Specifies the vertical resolution, in pixels per meter, of the target device for the bitmap
-biClrUsed
-    Specifies the number of color indexes in the color table that are actually used by the bitmap.
-    If this value is zero, the bitmap uses the maximum number of colors corresponding to the value of the biBitCount member for the compression mode specified by biCompression.
-    If biClrUsed is nonzero and the biBitCount member is less than 16, the biClrUsed member specifies the actual number of colors the graphics engine or device driver accesses.
-    If biBitCount is 16 or greater, the biClrUsed member specifies the size of the color table used to optimize performance of the system color palettes.
-    If biBitCount equals 16 or 32, the optimal color palette starts immediately following the three DWORD masks.
-    If the bitmap is a packed bitmap (a bitmap in which the bitmap array immediately follows the BITMAPINFO header and is referenced by a single pointer), the biClrUsed member must be either zero or the actual size of the color table.
-biClrImportant
-    Specifies the number of color indexes required for displaying the bitmap.
-    If this value is zero, all colors are required.
-Remarks
-
-The BITMAPINFO structure combines the BITMAPINFOHEADER structure and a color table to provide a complete definition of the dimensions and colors of a DIB.
-An application should use the information stored in the biSize member to locate the color table in a BITMAPINFO structure, as follows.
-
-pColor = ((LPSTR)pBitmapInfo + (WORD)(pBitmapInfo->bmiHeader.biSize));
-*/
-
-// Read and convert to big endian
-            bmpInfoHeader_biSize          = dibdumper.swapInt(in.readInt());              // DWORD
-            bmpInfoHeader_biWidth         = dibdumper.swapInt(in.readInt());              // LONG
-            bmpInfoHeader_biHeight        = dibdumper.swapInt(in.readInt());              // LONG
-            bmpInfoHeader_biPlanes        = dibdumper.swapShort(in.readUnsignedShort());  // WORD
-            bmpInfoHeader_biBitCount      = dibdumper.swapShort(in.readUnsignedShort());  // WORD
-            bmpInfoHeader_biCompression   = dibdumper.swapInt(in.readInt());              // DWORD
-            bmpInfoHeader_biSizeImage     = dibdumper.swapInt(in.readInt());              // DWORD
-            bmpInfoHeader_biXPelsPerMeter = dibdumper.swapInt(in.readInt());              // LONG
-            bmpInfoHeader_biYPelsPerMeter = dibdumper.swapInt(in.readInt());              // LONG
-            bmpInfoHeader_biClrUsed       = dibdumper.swapInt(in.readInt());              // DWORD
-            bmpInfoHeader_biClrImportant  = dibdumper.swapInt(in.readInt());              // DWORD
+            bmpInfoHeader_biSize          = reader.getInfoSize();       // DWORD
+            bmpInfoHeader_biWidth         = reader.getWidth();          // LONG
+            bmpInfoHeader_biHeight        = reader.getHeight();         // LONG, already made positive for top down DIBs
+            bmpInfoHeader_biPlanes        = reader.getPlanes();         // WORD
+            bmpInfoHeader_biBitCount      = reader.getBitCount();       // WORD
+            bmpInfoHeader_biCompression   = reader.getCompression();    // DWORD
+            bmpInfoHeader_biSizeImage     = reader.getSizeImage();      // DWORD
+            bmpInfoHeader_biXPelsPerMeter = reader.getXPelsPerMeter();  // LONG
+            bmpInfoHeader_biYPelsPerMeter = reader.getYPelsPerMeter();  // LONG
+            bmpInfoHeader_biClrUsed       = reader.getClrUsed();        // DWORD
+            bmpInfoHeader_biClrImportant  = reader.getClrImportant();   // DWORD
 
             System.out.printf("biSize=%d\nbiWidth=%d\nbiHeight=%d\nbiPlanes=%d\nbiBitCount=%d\nbiCompression=%d\nbiSizeImage=%d\nbiXPelsPerMeter=%d\nbiYPelsPerMeter=%d\nbiClrUsed=%d\nbiClrImportant=%d\n",
                     bmpInfoHeader_biSize,
@@ -431,324 +313,10 @@ pColor = ((LPSTR)pBitmapInfo + (WORD)(pBitmapInfo->bmiHeader.biSize));
 
             System.out.printf("\n");
 
-// Since we use the height to crate arrays, it cannot have a negative a value. If the height field is
-// less than zero, then make it positive and set the topDownDIB flag to TRUE so we know that the image is
-// stored on disc upsidedown (which means it is actually rightside up).
-            if (bmpInfoHeader_biHeight < 0)
-            {
-                topDownDIB = true;
-                bmpInfoHeader_biHeight = -bmpInfoHeader_biHeight;
-            }
-/*
-Now for the color table. For true color images, there isn't one.
-
-typedef struct tagRgbQuad2 {
-        BYTE    rgbBlue;
-        BYTE    rgbGreen;
-        BYTE    rgbRed;
-        BYTE    rgbReserved;
-        } RgbQuad2;
-
-typedef RgbQuad2 FAR* LPRgbQuad2;
-*/
+            topDownDIB = reader.isTopDown();
 
-            switch (bmpInfoHeader_biBitCount) // Determine the number of colors in the default color table
-            {
-                case 1:
-                    numberOfColors = 2;
-                    break;
-                case 2:
-                    numberOfColors = 4;
-                    break;
-                case 4:
-                    numberOfColors = 16;
-                    break;
-                case 8:
-                    numberOfColors = 256;
-                    break;
-                default:
-                    numberOfColors = 0; // no color table
-            }
-
-            System.out.printf("Color Depth = %d, %d\n", bmpInfoHeader_biBitCount, numberOfColors);
-            /*
-             * biClrUsed -  Specifies the number of color indexes in the color table that are actually used by the bitmap.
-             *     If this value is zero, the bitmap uses the maximum number of colors corresponding to the value of the biBitCount member for the compression mode specified by biCompression.
-             *     If biClrUsed is nonzero and the biBitCount member is less than 16, the biClrUsed member specifies the actual number of colors the graphics engine or device driver accesses.
-             *     If biBitCount is 16 or greater, the biClrUsed member specifies the size of the color table used to optimize performance of the system color palettes.
-             *     If biBitCount equals 16 or 32, the optimal color palette starts immediately following the three DWORD masks.
-             *     If the bitmap is a packed bitmap (a bitmap in which the bitmap array immediately follows the BITMAPINFO header and is referenced by a single pointer), the biClrUsed member must be either zero or the actual size of the color table.
-             */
-            if (bmpInfoHeader_biClrUsed > 0) numberOfColors = bmpInfoHeader_biClrUsed;
-
-            for (i = 0; i < numberOfColors; ++i) // Read in the color table (or not if numberOfColors is zero)
-            {
-                RgbQuad2_rgbBlue      = in.readUnsignedByte(); // lowest byte in the color
-                RgbQuad2_rgbGreen     = in.readUnsignedByte();
-                RgbQuad2_rgbRed       = in.readUnsignedByte(); // highest byte in the color
-                RgbQuad2_rgbReserved  = in.readUnsignedByte();
-
-                // Build the color from the RGB values. Since we declared the RgbQuad2 values to be
-                // int,
-                // we can shift and then OR the values
-                // to build up the color. Since we are reading one byte at a time, there are no "endian" issues.
-
-                colorPallet[i] =
-                        (RgbQuad2_rgbRed << 16) | (RgbQuad2_rgbGreen << 8) | RgbQuad2_rgbBlue;
-// System.out.printf("DEBUG: Color Table = %d, %06X\n", i, colorPallet[i]);
-            } // for (i = 0; i < numberOfColors; ++i)
-
-            /*
-             * Now for the fun part. We need to read in the rest of the bit map, but how we interpret the values depends on the color depth.
-             *
-             * numberOfColors = 2:   Each bit is a pel, so there are 8 pels per byte. The Color Table has only two values for "black" and "white"
-             * numberOfColors = 4:   Each pair of bits is a pel, so there are 4 pels per byte. The Color Table has only four values
-             * numberOfColors = 16;  Each nibble (4 bits) is a pel, so there are 2 pels per byte. The Color Table has 16 entries.
-             * numberOfColors = 256; Each byte is a pel and the value maps into the 256 byte Color Table.
-             *
-             * Any other value is read in as "true" color.
-             *
-             * The BMP image is stored from bottom to top, meaning that the first scan line is the last scan line in the image.
-             *
-             * The rest is the bitmap. Use the height and width information to read it in. And as I mentioned before....
-             * In the 32-bit format, each pixel in the image is represented by a series of four bytes of RGB stored as xBRG,
-             * where the 'x' is an unused byte. For ALL image types each scan line is padded to an even 4-byte boundary.
-             *
-             */
-
-            imageArray = new int[bmpInfoHeader_biHeight][bmpInfoHeader_biWidth]; // Create the array for the pels
-            /*
-             * I use the same loop structure for each case for clarity so you can see the similarities and differences.
-             * The outer loop is over the rows (in reverse), the inner loop over the columns.
-             */
-            switch (bmpInfoHeader_biBitCount)
-            {
-                case 1: // each bit is a color, so there are 8 pels per byte.  Works
-                    /*
-                     * Each byte read in is 8 columns, so we need to break them out. We also have to deal with the case
-                     * where the image width is not an integer multiple of 8, in which case we will
-                     * have bits from part of the remaining byte. Each color is 1 bit which is masked with 0x01.
-                     * The screen ordering of the pels is High-Bit to Low-Bit, so the most significant element is first in the array of pels.
-                     */
-                    iBytesPerRow = bmpInfoHeader_biWidth / 8;
-                    iTrailingBits = bmpInfoHeader_biWidth % 8;
-
-                    iDeadBytes = iBytesPerRow;
-                    if (iTrailingBits > 0) ++iDeadBytes;
-                    iDeadBytes = (4 - iDeadBytes % 4) % 4;
-
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iBytesPerRow; ++j)
-                        {
-                            iByteVal = in.readUnsignedByte();
-
-                            for (k = 0; k < 8; ++k)     // Get 8 pels from the one byte
-                            {
-                                iColumn = j * 8 + k;
-                                pel = colorPallet[(iByteVal >> (7 - k)) & 0x01];
-                                imageArray[i][iColumn] = pel;
-                            }
-                        }
-                        if (iTrailingBits > 0) // pick up the trailing bits for images that are not mod 8 columns wide
-                        {
-                            iByteVal = in.readUnsignedByte();
-
-                            for (k = 0; k < iTrailingBits; ++k)
-                            {
-                                iColumn = iBytesPerRow * 8 + k;
-                                pel = colorPallet[(iByteVal >> (7 - k)) & 0x01];
-                                imageArray[i][iColumn] = pel;
-                            }
-                        }
-
-                        for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-                    }
-                    break;
-                case 2: // 4 colors, Each byte is 4 pels (2 bits each),  Should work, not tested.
-                    /*
-                     * Each byte read in is 4 columns, so we need to break them out. We also have to deal with the case
-                     * where the image width is not an integer multiple of 4, in which case we will
-                     * have from 2 to 6 bits of the remaining byte. Each color is 2 bits which is masked with 0x03.
-                     * The screen ordering of the pels is High-Half-Nibble to Low-Half-Nibble, so the most significant element is first in the array of pels.
-                     */
-                    iBytesPerRow = bmpInfoHeader_biWidth / 4;
-                    iTrailingBits = bmpInfoHeader_biWidth % 4; // 0, 1, 2 or 3
-
-                    iDeadBytes = iBytesPerRow;
-                    if (iTrailingBits > 0) ++iDeadBytes;
-                    iDeadBytes = (4 - iDeadBytes % 4) % 4;
-
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iBytesPerRow; ++j)
-                        {
-                            iByteVal = in.readUnsignedByte();
-
-                            for (k = 0; k < 4; ++k) // Get 4 pels from one byte
-                            {
-                                iColumn = j * 4 + k;
-                                pel = colorPallet[(iByteVal >> ((3 - k) * 2)) & 0x03]; // shift 2 bits at a time and reverse order
-                                imageArray[i][iColumn] = pel;
-                            }
-                        }
-                        if (iTrailingBits > 0) // pick up the trailing nibble for images that are not mod 2 columns wide
-                        {
-                            iByteVal = in.readUnsignedByte();
-
-                            for (k = 0; k < iTrailingBits; ++k)
-                            {
-                                iColumn = iBytesPerRow * 4 + k;
-                                pel = colorPallet[(iByteVal >> ((3 - k) * 2)) & 0x03];
-                                imageArray[i][iColumn] = pel;
-                            }
-                        }
-                        for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-                    }
-                    break;
-                case 4: // 16 colors, Each byte is two pels. Works
-                    /*
-                     * Each byte read in is 2 columns, so we need to break them out. We also have to deal with the case
-                     * where the image width is not an integer multiple of 2, in which case we will
-                     * have one nibble from part of the remaining byte. We then read in the dead bytes so that each
-                     * scan line is a multiple of 4 bytes. Each color is a nibble (4 bits) which is masked with 0x0F.
-                     * The screen ordering of the pels is High-Nibble Low-Nibble, so the most significant element is first in the array of pels.
-                     */
-                    iPelsPerRow   = bmpInfoHeader_biWidth;
-                    iBytesPerRow  = iPelsPerRow / 2;
-                    iTrailingBits = iPelsPerRow % 2;  // Will either be 0 or 1
-
-                    iDeadBytes = iBytesPerRow;
-                    if (iTrailingBits > 0) ++iDeadBytes;
-                    iDeadBytes = (4 - iDeadBytes % 4) % 4;
-
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iBytesPerRow; ++j)
-                        {
-                            iByteVal = in.readUnsignedByte();
-
-                            for (k = 0; k < 2; ++k) // Two pels per byte
-                            {
-                                iColumn = j * 2 + k;          // 1 - k  is needed to have High, Low nibble ordering for the image.
-                                pel = colorPallet[(iByteVal >> ((1 - k) * 4)) & 0x0F]; // shift 4 bits at a time
-                                imageArray[i][iColumn] = pel;
-                            }
-                        }
-
-                        if (iTrailingBits > 0) // pick up the trailing nibble for images that are not mod 2 columns wide
-                        {
-                            iByteVal = in.readUnsignedByte();
-
-                            iColumn = iBytesPerRow * 2;
-                            pel = colorPallet[(iByteVal >> 4) & 0x0F]; // The High nibble is the last remaining pel
-                            imageArray[i][iColumn] = pel;
-                        }
-                        for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-                    } // for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)
-                    break;
-                case 8: // 1 byte, 1 pel, Works
-                    /*
-                     * Each byte read in is 1 column. We then read in the dead bytes so that each scan line is a multiple of 4 bytes.
-                     */
-                    iPelsPerRow = bmpInfoHeader_biWidth;
-                    iDeadBytes = (4 - iPelsPerRow % 4) % 4;
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                        {
-                            iByteVal = in.readUnsignedByte();
-                            pel = colorPallet[iByteVal];
-                            imageArray[i][j] = pel;
-                        }
-
-                        for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-                    }
-                    break;
-                case 16: // Not likely to work (format is not internally consistent), not tested.
-                    /*
-                     * Each two bytes read in is 1 column. Each color is 5 bits in the 2 byte word value, so we shift 5 bits and then mask them
-                     * off with 0x1F which is %11111 in binary. We then read in the dead bytes so that each scan line is a multiple of 4 bytes.
-                     */
-                    iPelsPerRow = bmpInfoHeader_biWidth;
-                    iDeadBytes = (4 - iPelsPerRow % 4) % 4;
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                        {
-                            pel = dibdumper.swapShort(in.readUnsignedShort()); // Need to deal with little endian values
-                            RgbQuad2_rgbBlue      =  pel        & 0x1F;
-                            RgbQuad2_rgbGreen     = (pel >> 5)  & 0x1F;
-                            RgbQuad2_rgbRed       = (pel >> 10) & 0x1F;
-                            pel =
-                                    (RgbQuad2_rgbRed << 16) | (RgbQuad2_rgbGreen << 8) | RgbQuad2_rgbBlue;
-                            imageArray[i][j] = pel;
-                        }
-
-                        for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-                    } // for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)
-                    break;
-                case 24: // Works
-                    /*
-                     * Each three bytes read in is 1 column. Each scan line is padded to by a multiple of 4 bytes. The disk image has only 3 however.
-                     */
-                    iPelsPerRow = bmpInfoHeader_biWidth;
-                    iDeadBytes = (4 - (iPelsPerRow * 3) % 4) % 4;
-
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                        {
-                            RgbQuad2_rgbBlue      = in.readUnsignedByte();
-                            RgbQuad2_rgbGreen     = in.readUnsignedByte();
-                            RgbQuad2_rgbRed       = in.readUnsignedByte();
-                            pel =
-                                    (RgbQuad2_rgbRed << 16) | (RgbQuad2_rgbGreen << 8) | RgbQuad2_rgbBlue;
-                            imageArray[i][j] = pel;
-                        }
-                        for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-                    }
-                    break;
-                case 32: // Works
-                    /*
-                     * Each four bytes read in is 1 column. The number of bytes per line will always be a multiple of 4, so there are no dead bytes.
-                     */
-                    iPelsPerRow = bmpInfoHeader_biWidth;
-                    for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-                    {
-                        if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                        for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                        {
-                            RgbQuad2_rgbBlue      = in.readUnsignedByte();
-                            RgbQuad2_rgbGreen     = in.readUnsignedByte();
-                            RgbQuad2_rgbRed       = in.readUnsignedByte();
-                            RgbQuad2_rgbReserved  = in.readUnsignedByte();
-                            pel =
-                                    (RgbQuad2_rgbReserved << 24) |(RgbQuad2_rgbRed << 16) | (RgbQuad2_rgbGreen << 8) | RgbQuad2_rgbBlue;
-                            imageArray[i][j] = pel;
-                        }
-                    }
-                    break;
-                default: // Oops
-                    System.out.printf("This error should not occur - 1!\n");
-
-            } // switch (bmpInfoHeader_biBitCount)
-
-            in.close();
-            fstream.close();
+            // decodes the pels of any color depth with the top row first, whichever way the rows are stored
+            imageArray = reader.readImageArray();
         } // try
         catch (Exception e)
         {
@@ -772,33 +340,17 @@ typedef RgbQuad2 FAR* LPRgbQuad2;
         }
 
         /*
-         * Now write out the true color bitmap (24-bits) to a disk file. This is here mostly to be sure we did it all correctly.
+         * Now train the autoencoder on the image and write out what it reconstructs as a bitmap.
          *
          */
         try
         {
-
-            FileOutputStream fstream = new FileOutputStream(outFileName);
-            PrintWriter txtout = new PrintWriter(new FileWriter(outFileName2));
-            DataOutputStream out = new DataOutputStream(fstream);
-
-            txtout.println(bmpInfoHeader_biHeight * bmpInfoHeader_biWidth);
-            for (int row = 0; row < imageArray.length; row++)
-            {
-                for (int column = 0; column < imageArray[row].length; column++)
-                {
-                    double value = dibdumper.pelToRGB(dibdumper.colorToGrayscale(imageArray[row][column])).blue / 255.0;
-                    txtout.println(value);
-                }
-            }
-            txtout.close();
-
             Scanner fileNameScanner = new Scanner(System.in);
             System.out.println("Name of input parameters file? Enter nothing to use default file name 'encodertest.txt'");
             String filename = fileNameScanner.nextLine();
 
-            // creates a scanner that reads the user-inputted activations file name
-            System.out.println("Name of activation parameters file? Enter nothing to use default file name 'activations.txt'");
+            // creates a scanner that reads the user-inputted activations cache file name
+            System.out.println("Name of activations cache file? Enter nothing to use default file name 'activations.cache'");
             String activationsname = fileNameScanner.nextLine();
 
             // creates a scanner that reads the user-inputted activations file name
@@ -815,19 +367,22 @@ typedef RgbQuad2 FAR* LPRgbQuad2;
             }
             FileInputStream inStream = new FileInputStream(new File(filename));
 
-            // if no value is entered, uses default file name "activations.txt"
+            // if no value is entered, uses default file name "activations.cache"
             if (activationsname.length() == 0)
             {
-                activationsname = "activations.txt";
+                activationsname = cacheFileName;
             }
-            FileInputStream inStream2 = new FileInputStream(new File(activationsname));
 
             // creates a scanner to read the .txt file using the FileInputStream
             Scanner sc = new Scanner(inStream);
-            Scanner sc2 = new Scanner(inStream2);
+
+            // maps the grayscale activations of the image from the cache file, which is only rebuilt when the image has changed,
+            // as an autoencoder dataset whose expected output values are its input values
+            ImageIngestor ingestor = new ImageIngestor(new String[] {inFileName}, null, 1);
+            MappedDataset dataset = new DatasetCache(false, 1).load(ingestor, activationsname, true);
 
             // reads the number of input nodes
-            int inputNodes = sc2.nextInt();
+            int inputNodes = dataset.getInputSize();
 
             // reads the number of output nodes
             int outputNodes = inputNodes;
@@ -842,8 +397,8 @@ typedef RgbQuad2 FAR* LPRgbQuad2;
                 hiddenLayerNodes[node] = sc.nextInt();
             }
 
-            // reads the number of test cases
-            int numTestCases = sc.nextInt();
+            // skips the number of test cases, since the cache holds the one image
+            sc.nextInt();
 
             // reads the learning factor value
             int lambda = sc.nextInt();
@@ -861,95 +416,27 @@ typedef RgbQuad2 FAR* LPRgbQuad2;
             int maxIterations = sc.nextInt();
 
             // creates the network using all of the gathered values
-            Network network = new Network(inputNodes, hiddenLayerNodes, outputNodes, lambda, maxIterations, numTestCases,
+            Network network = new Network(inputNodes, hiddenLayerNodes, outputNodes, lambda, maxIterations, 0,
                     minWeightValue, maxWeightValue, threshold);
 
-            // reads the values of the test cases and the values of the expected output values
-            network.setAllTestCasesAndOutputValues(sc2);
+            // trains on the mapped activations instead of parsing them as text
+            network.setDataset(dataset);
 
             // trains the network
             network.trainNetwork();
 
-// there is no color table for this true color image, so write out the pels
-
+            // the output activations are the reconstructed image in the order of the dataset, top row first
             double[] outputs = network.getOutputActivations();
 
-
-            iPelsPerRow = bmpInfoHeader_biWidth;
-            iDeadBytes = (4 - (iPelsPerRow * 3) % 4) % 4;
-
-            int counter = 0;
-
-            for (int row = bmpInfoHeader_biHeight - 1; row >= 0; --row) // read over the rows
+            // if no value is entered, writes to the output file name from the command line
+            if (outputFileName.length() == 0)
             {
-                if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                {
-                    int byteValue = (int) (outputs[counter] * 256.0);
-                    pel = dibdumper.rgbToPel(byteValue, byteValue, byteValue);
-                    imageArray[i][j] = pel;
-                    counter++;
-                }
-
+                outputFileName = outFileName;
             }
 
-            iDeadBytes = (4 - (bmpInfoHeader_biWidth * 3) % 4) % 4;
-
-            bmpInfoHeader_biSizeImage =  (bmpInfoHeader_biWidth * 3 + iDeadBytes) * bmpInfoHeader_biHeight;
-            bmpFileHeader_bfOffBits = 54;        // 54 byte offset for 24 bit images (just open one with this app to get this value)
-            bmpFileHeader_bfSize = bmpInfoHeader_biSizeImage + bmpFileHeader_bfOffBits;
-            bmpInfoHeader_biBitCount = 24;       // 24 bit color image. Changes this number to 32 to write out 32 bit color images
-            bmpInfoHeader_biCompression = 0;     // BI_RGB (which is a value of zero)
-            bmpInfoHeader_biClrUsed = 0;         // Zero for true color
-            bmpInfoHeader_biClrImportant = 0;    // Zero for true color
-
-// BITMAPFILEHEADER
-            out.writeShort(dibdumper.swapShort(bmpFileHeader_bfType));      // WORD
-            out.writeInt(dibdumper.swapInt(bmpFileHeader_bfSize));          // DWORD
-            out.writeShort(dibdumper.swapShort(bmpFileHeader_bfReserved1)); // WORD
-            out.writeShort(dibdumper.swapShort(bmpFileHeader_bfReserved2)); // WORD
-            out.writeInt(dibdumper.swapInt(bmpFileHeader_bfOffBits));       // DWORD
-
-// BITMAPINFOHEADER
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biSize));          // DWORD
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biWidth));         // LONG
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biHeight));        // LONG
-            out.writeShort(dibdumper.swapShort(bmpInfoHeader_biPlanes));    // WORD
-            out.writeShort(dibdumper.swapShort(bmpInfoHeader_biBitCount));  // WORD
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biCompression));   // DWORD
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biSizeImage));     // DWORD
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biXPelsPerMeter)); // LONG
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biYPelsPerMeter)); // LONG
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biClrUsed));       // DWORD
-            out.writeInt(dibdumper.swapInt(bmpInfoHeader_biClrImportant));  // DWORD
-
-// there is no color table for this true color image, so write out the pels
-
-            RgbQuad2_rgbReserved = 0;
-
-            for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)    // write over the rows (in the usual inverted format)
-            {
-                for (j = 0; j < bmpInfoHeader_biWidth; ++j) // and the columns
-                {
-                    pel = imageArray[i][j];
-                    RgbQuad2_rgbBlue  = pel & 0x00FF;
-                    RgbQuad2_rgbGreen = (pel >> 8)  & 0x00FF;
-                    RgbQuad2_rgbRed   = (pel >> 16) & 0x00FF;
-                    out.writeByte(RgbQuad2_rgbBlue); // lowest byte in the color
-                    out.writeByte(RgbQuad2_rgbGreen);
-                    out.writeByte(RgbQuad2_rgbRed);  // highest byte in the color
-                    if (bmpInfoHeader_biBitCount == 32) out.writeByte(RgbQuad2_rgbReserved);
-                }
-
-                if (bmpInfoHeader_biBitCount != 32)
-                {
-                    for (j = 0; j < iDeadBytes; ++j)
-                    {
-                        out.writeByte(0); // Now write out the "dead bytes" to pad to a 4 byte boundary
-                    }
-                }
-            } // for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)
+            // encodes the whole bitmap into one buffer and writes it with one channel call (see: BmpWriter)
+            new BmpWriter(OUTPUT_BIT_COUNT).writeActivations(outputFileName, outputs, 0, bmpInfoHeader_biHeight,
+                    bmpInfoHeader_biWidth);
         } // try
         catch (Exception e)
         {
@@ -0,0 +1,504 @@
+package com.company;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class tunes the learning factor, the range of the random weights, the hidden layers and the largest number of iterations
+ * of the digit network without editing bitmaptrain and rerunning DibDump for every combination. The images are decoded once by a
+ * DigitBenchmark, and every Network of the sweep trains on that same CompactDataset, which is only ever read: each network
+ * iterates over it with its own iterator and copies each test case into its own buffers, so the images are held in memory once
+ * however many networks train at the same time.
+ *
+ * The trials come from a grid (every combination of the given values) or a random search (learning factors drawn evenly on a
+ * log scale, weight ranges drawn evenly, hidden layers and iterations picked from lists), and each trial is seeded. The trials
+ * train in rounds on a fixed pool of threads: in each round every trial that is still training runs checkInterval more
+ * iterations, and only once all of them have finished the round are their errors compared. A trial is cut off if its error is
+ * worse than the best keepFraction of the errors at that check (once at least MIN_REPORTS trials have one), which is the median
+ * stopping rule when keepFraction is 0.5. A trial that reaches the error threshold stops there, and its final error counts for
+ * every later check that its largest number of iterations reaches, since its error would only have gone lower. Since every cut
+ * is decided from the errors of every trial at the check, and each trial trains from its own seed, the same trials give the
+ * same cuts and the same ranking however many threads there are and however they are scheduled. The cost is that the network
+ * of every trial is held in memory until the sweep ends, and a round waits for its slowest trial.
+ *
+ * Finished trials are ranked ahead of the ones that were cut off, then by the number of test images classified correctly, then
+ * by the error on the test images, and the table is printed and written to a file.
+ *
+ * The HyperparameterSweep class contains the following instance variables:
+ *    DigitBenchmark          benchmark: the decoded training and test images, shared by every trial
+ *    int                     numThreads: the number of trials that train at the same time
+ *    int                     checkInterval: the number of iterations between the checks of a trial against the others
+ *    double                  keepFraction: the fraction of the errors at a check that a trial must be among the best of to go on
+ *
+ */
+public class HyperparameterSweep
+{
+    /**
+     * the number of errors that must have been reported at a check before any trial is cut off there
+     */
+    public static final int MIN_REPORTS = 4;
+
+    private DigitBenchmark benchmark;
+    private int numThreads;
+    private int checkInterval;
+    private double keepFraction;
+
+    /**
+     * This class defines one combination of hyperparameters and, once it has trained, its results.
+     *
+     * The Trial class contains the following instance variables:
+     *    int[]   hiddenLayerNodes: the number of nodes in each hidden layer
+     *    double  lambda: the learning factor
+     *    double  weightRange: the random weights are drawn from -weightRange to weightRange
+     *    int     maxIterations: the largest number of training iterations
+     *    long    seed: the seed of the random weights
+     *    int     iterations: the number of iterations that were run
+     *    boolean cutOff: true if the trial was cut off before it finished
+     *    double  trainingError: the error of the last iteration
+     *    int     correct: the number of test images classified correctly
+     *    double  testError: the average error on the test images
+     *    double  millis: the milliseconds that the trial spent training and being measured
+     *    Network network: the network of the trial, from when the sweep starts until it is measured
+     *
+     */
+    public static class Trial
+    {
+        private int[] hiddenLayerNodes;
+        private double lambda;
+        private double weightRange;
+        private int maxIterations;
+        private long seed;
+        private int iterations;
+        private boolean cutOff;
+        private double trainingError;
+        private int correct;
+        private double testError;
+        private double millis;
+        private Network network;
+
+        /**
+         * Creates a Trial that has not trained yet
+         *
+         * @param hiddenLayerNodes the number of nodes in each hidden layer
+         * @param lambda           the learning factor
+         * @param weightRange      the random weights are drawn from -weightRange to weightRange
+         * @param maxIterations    the largest number of training iterations
+         * @param seed             the seed of the random weights
+         */
+        public Trial(int[] hiddenLayerNodes, double lambda, double weightRange, int maxIterations, long seed)
+        {
+            this.hiddenLayerNodes = hiddenLayerNodes;
+            this.lambda = lambda;
+            this.weightRange = weightRange;
+            this.maxIterations = maxIterations;
+            this.seed = seed;
+            trainingError = Double.MAX_VALUE;
+        } // public Trial
+
+        public int getIterations()
+        {
+            return iterations;
+        }
+
+        public boolean isCutOff()
+        {
+            return cutOff;
+        }
+
+        public int getCorrect()
+        {
+            return correct;
+        }
+
+        public double getTestError()
+        {
+            return testError;
+        }
+
+        /**
+         * formats the trial as a row of the results table
+         *
+         * @param rank the rank of the trial
+         * @param numTestImages the number of test images
+         * @return the row
+         */
+        public String toRow(int rank, int numTestImages)
+        {
+            return String.format("%4d  %-10s  %8.4f  %6.2f  %9d  %10d  %-8s  %10.6f  %3d/%-3d  %10.6f  %9.0f", rank,
+                    Arrays.toString(hiddenLayerNodes).replace(" ", ""), lambda, weightRange, maxIterations, iterations,
+                    cutOff ? "cut off" : "finished", trainingError, correct, numTestImages, testError, millis);
+        } // public String toRow
+    } // public static class Trial
+
+    /**
+     * Creates a HyperparameterSweep over the images of a benchmark
+     *
+     * @param benchmark     the decoded training and test images and the error threshold
+     * @param numThreads    the number of trials that train at the same time
+     * @param checkInterval the number of iterations between the checks of a trial against the others
+     * @param keepFraction  the fraction of the errors at a check that a trial must be among the best of to go on, or 1.0 to
+     *                      never cut a trial off
+     */
+    public HyperparameterSweep(DigitBenchmark benchmark, int numThreads, int checkInterval, double keepFraction)
+    {
+        this.benchmark = benchmark;
+        this.numThreads = Math.max(1, numThreads);
+        this.checkInterval = checkInterval;
+        this.keepFraction = keepFraction;
+    } // public HyperparameterSweep
+
+    /**
+     * makes a trial for every combination of the given values
+     *
+     * @param hiddenLayers  the hidden layers to try
+     * @param lambdas       the learning factors to try
+     * @param weightRanges  the weight ranges to try
+     * @param maxIterations the largest numbers of iterations to try
+     * @param seed          the seed of the first trial, which is increased by one for each trial after it
+     * @return the trials
+     */
+    public static List<Trial> grid(int[][] hiddenLayers, double[] lambdas, double[] weightRanges, int[] maxIterations,
+                                   long seed)
+    {
+        List<Trial> trials = new ArrayList<Trial>();
+
+        for (int[] hiddenLayerNodes : hiddenLayers)
+        {
+            for (double lambda : lambdas)
+            {
+                for (double weightRange : weightRanges)
+                {
+                    for (int iterations : maxIterations)
+                    {
+                        trials.add(new Trial(hiddenLayerNodes, lambda, weightRange, iterations, seed++));
+                    }
+                }
+            }
+        } // for (int[] hiddenLayerNodes : hiddenLayers)
+        return trials;
+    } // public static List<Trial> grid
+
+    /**
+     * makes trials with hyperparameters drawn at random
+     *
+     * @param numTrials      the number of trials
+     * @param hiddenLayers   the hidden layers to pick from
+     * @param minLambda      the smallest learning factor
+     * @param maxLambda      the largest learning factor
+     * @param minWeightRange the smallest weight range
+     * @param maxWeightRange the largest weight range
+     * @param maxIterations  the largest numbers of iterations to pick from
+     * @param random         the source of the hyperparameters and the seeds of the trials
+     * @return the trials
+     */
+    public static List<Trial> random(int numTrials, int[][] hiddenLayers, double minLambda, double maxLambda,
+                                     double minWeightRange, double maxWeightRange, int[] maxIterations, Random random)
+    {
+        List<Trial> trials = new ArrayList<Trial>();
+        double logMin = Math.log(minLambda);
+        double logMax = Math.log(maxLambda);
+
+        for (int trial = 0; trial < numTrials; trial++)
+        {
+            trials.add(new Trial(hiddenLayers[random.nextInt(hiddenLayers.length)],
+                    Math.exp(logMin + random.nextDouble() * (logMax - logMin)),
+                    minWeightRange + random.nextDouble() * (maxWeightRange - minWeightRange),
+                    maxIterations[random.nextInt(maxIterations.length)], random.nextLong()));
+        }
+        return trials;
+    } // public static List<Trial> random
+
+    /**
+     * returns whether a trial still has iterations to run
+     *
+     * @param trial the trial
+     * @return true if the trial has not been cut off, reached the error threshold or run its largest number of iterations
+     */
+    private boolean isTraining(Trial trial)
+    {
+        return !trial.cutOff && trial.iterations < trial.maxIterations && trial.trainingError > benchmark.getThreshold();
+    }
+
+    /**
+     * trains the network of a trial for one round of at most checkInterval iterations, stopping early at the error threshold or
+     * the largest number of iterations
+     *
+     * @param trial the trial
+     */
+    private void trainRound(Trial trial)
+    {
+        long start = System.nanoTime();
+        int roundEnd = trial.iterations + checkInterval;
+
+        while (trial.iterations < roundEnd && isTraining(trial))
+        {
+            trial.trainingError = trial.network.runTrainingIteration(false);
+            trial.iterations++;
+        }
+        trial.millis += (System.nanoTime() - start) / 1e6;
+    } // private void trainRound
+
+    /**
+     * measures the network of a trial on the test images and lets go of it
+     *
+     * @param trial the trial
+     */
+    private void measure(Trial trial)
+    {
+        long start = System.nanoTime();
+        trial.correct = DigitBenchmark.countCorrect(trial.network, benchmark.getTestSet());
+        trial.testError = DigitBenchmark.error(trial.network, benchmark.getTestSet());
+        trial.millis += (System.nanoTime() - start) / 1e6;
+        trial.network = null;
+    } // private void measure
+
+    /**
+     * cuts off the trials that are still training and whose errors are worse than the best keepFraction of the errors at a
+     * check. Every trial that has not been cut off and whose largest number of iterations reaches the check has an error there:
+     * the error after the round for a trial that is still training, or the final error of a trial that has finished.
+     *
+     * @param trials the trials, every one of which has finished the round of the check
+     * @param check  the index of the check, starting at 0 after the first checkInterval iterations
+     */
+    private void cutOff(List<Trial> trials, int check)
+    {
+        List<Double> errors = new ArrayList<Double>();
+
+        for (Trial trial : trials)
+        {
+            if (!trial.cutOff && trial.maxIterations >= (check + 1) * checkInterval)
+            {
+                errors.add(trial.trainingError);
+            }
+        }
+
+        if (errors.size() < MIN_REPORTS || keepFraction >= 1.0)
+        {
+            return;
+        }
+
+        Collections.sort(errors);
+        double cutoff = errors.get(Math.max(0, (int) Math.ceil(keepFraction * errors.size()) - 1));
+
+        for (Trial trial : trials)
+        {
+            if (isTraining(trial) && trial.trainingError > cutoff)
+            {
+                trial.cutOff = true;
+            }
+        }
+    } // private void cutOff
+
+    /**
+     * runs one task for each trial on the pool of threads and waits for all of them
+     *
+     * @param pool   the pool of threads
+     * @param trials the trials
+     * @param round  true to train each trial for a round, false to measure each trial
+     * @throws IllegalStateException if the sweep is interrupted
+     */
+    private void runAll(ExecutorService pool, List<Trial> trials, final boolean round)
+    {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (final Trial trial : trials)
+        {
+            tasks.add(new Callable<Void>()
+            {
+                public Void call()
+                {
+                    if (round)
+                    {
+                        trainRound(trial);
+                    }
+                    else
+                    {
+                        measure(trial);
+                    }
+                    return null;
+                } // public Void call
+            });
+        } // for (final Trial trial : trials)
+
+        try
+        {
+            for (Future<Void> result : pool.invokeAll(tasks))
+            {
+                result.get();
+            }
+        } // try
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("the sweep was interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    } // private void runAll
+
+    /**
+     * trains every trial in rounds on the pool of threads, cutting off the worst after each round, then measures them on the
+     * test images and ranks them
+     *
+     * @param trials the trials
+     * @return the trials from best to worst
+     * @throws IllegalStateException if the sweep is interrupted
+     */
+    public List<Trial> run(List<Trial> trials)
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("sweep"));
+
+        try
+        {
+            for (Trial trial : trials)
+            {
+                trial.network = benchmark.createNetwork(trial.hiddenLayerNodes, trial.lambda, -trial.weightRange,
+                        trial.weightRange, trial.maxIterations);
+                trial.network.randomizeWeights(-trial.weightRange, trial.weightRange, new Random(trial.seed));
+            }
+
+            List<Trial> training = new ArrayList<Trial>(trials);
+
+            for (int check = 0; !training.isEmpty(); check++)
+            {
+                runAll(pool, training, true);
+                cutOff(trials, check);
+
+                List<Trial> stillTraining = new ArrayList<Trial>();
+
+                for (Trial trial : training)
+                {
+                    if (isTraining(trial))
+                    {
+                        stillTraining.add(trial);
+                    }
+                }
+                training = stillTraining;
+            } // for (int check = 0; !training.isEmpty(); check++)
+
+            runAll(pool, trials, false);
+        } // try
+        finally
+        {
+            pool.shutdown();
+        }
+
+        List<Trial> ranked = new ArrayList<Trial>(trials);
+        Collections.sort(ranked, new Comparator<Trial>()
+        {
+            public int compare(Trial first, Trial second)
+            {
+                if (first.cutOff != second.cutOff)
+                {
+                    return first.cutOff ? 1 : -1;
+                }
+                if (first.correct != second.correct)
+                {
+                    return second.correct - first.correct;
+                }
+                return Double.compare(first.testError, second.testError);
+            } // public int compare
+        });
+        return ranked;
+    } // public List<Trial> run
+
+    /**
+     * writes the ranked trials as a table
+     *
+     * @param out           the writer
+     * @param ranked        the trials from best to worst
+     * @param numTestImages the number of test images
+     */
+    public static void writeTable(PrintWriter out, List<Trial> ranked, int numTestImages)
+    {
+        out.println("rank  hidden      lambda    range   max iter  iterations  status    train error  correct  test error" +
+                "  ms");
+
+        for (int rank = 0; rank < ranked.size(); rank++)
+        {
+            out.println(ranked.get(rank).toRow(rank + 1, numTestImages));
+        }
+        out.flush();
+    } // public static void writeTable
+
+    /**
+     * sweeps the hyperparameters of the digit network and writes the ranked results
+     *
+     * @param args "grid" or "random", the number of random trials, the number of threads, the iterations between checks, the
+     *             fraction of trials kept at each check, the results file and the parameters file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String mode = args.length > 0 ? args[0] : "grid";
+        int numTrials = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int checkInterval = args.length > 3 ? Integer.parseInt(args[3]) : 25;
+        double keepFraction = args.length > 4 ? Double.parseDouble(args[4]) : 0.5;
+        String resultsFileName = args.length > 5 ? args[5] : "sweepresults.txt";
+        String parametersFileName = args.length > 6 ? args[6] : DigitBenchmark.TRAINING_PARAMETERS;
+
+        long start = System.nanoTime();
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        System.out.printf("decoded %d training and %d test images once in %.1f ms\n", benchmark.getTrainingSet().getNumSamples(),
+                benchmark.getTestSet().getNumSamples(), (System.nanoTime() - start) / 1e6);
+
+        int[][] hiddenLayers = {{5}, {20}, {50}, {20, 10}};
+        int[] maxIterations = {300};
+        List<Trial> trials = mode.equals("random") ?
+                random(numTrials, hiddenLayers, 0.002, 0.2, 0.05, 1.0, maxIterations, new Random(1)) :
+                grid(hiddenLayers, new double[] {0.005, 0.02, 0.05}, new double[] {0.1, 0.7}, maxIterations, 1);
+
+        start = System.nanoTime();
+        List<Trial> ranked = new HyperparameterSweep(benchmark, numThreads, checkInterval, keepFraction).run(trials);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long iterations = 0;
+        long budget = 0;
+        int cutOff = 0;
+
+        for (Trial trial : ranked)
+        {
+            iterations += trial.iterations;
+            budget += trial.maxIterations;
+            cutOff += trial.cutOff ? 1 : 0;
+        }
+
+        System.out.printf("%d trials on %d threads in %.1f s: %d cut off, %d of %d iterations run\n\n", ranked.size(), numThreads,
+                seconds, cutOff, iterations, budget);
+        writeTable(new PrintWriter(System.out), ranked, benchmark.getTestSet().getNumSamples());
+
+        PrintWriter out = new PrintWriter(new FileWriter(resultsFileName));
+
+        try
+        {
+            writeTable(out, ranked, benchmark.getTestSet().getNumSamples());
+        }
+        finally
+        {
+            out.close();
+        }
+        System.out.println("\nwrote " + resultsFileName);
+    } // public static void main
+} // public class HyperparameterSweep
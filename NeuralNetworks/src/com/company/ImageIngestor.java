@@ -0,0 +1,401 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines an ingestor that decodes a list of labeled bitmaps on several threads at once, writing the grayscale value
+ * of every pel straight into a CompactDataset that was allocated for all of them up front. The list comes from a directory, a
+ * manifest file, or the caller.
+ *
+ * A directory of bitmaps is one class, and a directory of subdirectories of bitmaps has one class per subdirectory, numbered in
+ * the order of their names. A manifest has one bitmap per line, its file name (relative to the manifest) followed by its class.
+ *
+ * The images can be resized to a set output size as they are decoded (see: ImagePreprocessor), so the dataset is allocated, and
+ * the network is built, for the smaller size.
+ *
+ * Every decoder task has its own BmpReader and its own ImagePreprocessor, so the tasks share nothing but the array of pixels,
+ * which they write in disjoint ranges. The tasks take CHUNK_IMAGES images at a time from a shared counter, so a slow image does not
+ * hold up one thread while the others sit idle. The time of the last ingest is kept to report the number of images per second.
+ *
+ * The ImageIngestor class contains the following instance variables:
+ *    String[] fileNames: the names of the bitmaps
+ *    int[]    labels: the class index of each bitmap
+ *    int      numClasses: the number of classes
+ *    int      outputHeight, outputWidth: the size that the images are resized to, or 0 to keep the size of the bitmaps
+ *    long     elapsedNanos: the time that the last ingest took
+ *
+ */
+public class ImageIngestor
+{
+    /**
+     * the number of images that a decoder task takes at a time
+     */
+    public static final int CHUNK_IMAGES = 4;
+
+    private String[] fileNames;
+    private int[] labels;
+    private int numClasses;
+    private int outputHeight;
+    private int outputWidth;
+    private long elapsedNanos;
+
+    /**
+     * Creates an ImageIngestor for a list of labeled bitmaps
+     *
+     * @param fileNames  the names of the bitmaps
+     * @param labels     the class index of each bitmap, or null if the bitmaps are not labeled
+     * @param numClasses the number of classes
+     */
+    public ImageIngestor(String[] fileNames, int[] labels, int numClasses)
+    {
+        this.fileNames = fileNames;
+        this.labels = labels;
+        this.numClasses = numClasses;
+    } // public ImageIngestor
+
+    /**
+     * creates an ImageIngestor for the bitmaps in a directory. If the directory has subdirectories, each subdirectory is a class,
+     * numbered in the order of the names of the subdirectories. Otherwise every bitmap in the directory is class 0.
+     *
+     * @param directoryName the name of the directory
+     * @return the ImageIngestor
+     * @throws IOException if the directory cannot be listed or has no bitmaps
+     */
+    public static ImageIngestor fromDirectory(String directoryName) throws IOException
+    {
+        File directory = new File(directoryName);
+        File[] classDirectories = directory.listFiles();
+
+        if (classDirectories == null)
+        {
+            throw new IOException(directoryName + " is not a directory");
+        }
+        Arrays.sort(classDirectories);
+
+        List<String> fileNames = new ArrayList<String>();
+        List<Integer> labels = new ArrayList<Integer>();
+        int numClasses = 0;
+
+        for (File classDirectory : classDirectories)
+        {
+            if (classDirectory.isDirectory())
+            {
+                addBitmaps(classDirectory, numClasses++, fileNames, labels);
+            }
+        }
+
+        if (numClasses == 0) // a flat directory of bitmaps
+        {
+            addBitmaps(directory, numClasses++, fileNames, labels);
+        }
+
+        if (fileNames.isEmpty())
+        {
+            throw new IOException(directoryName + " has no bitmaps");
+        }
+
+        int[] labelArray = new int[labels.size()];
+
+        for (int image = 0; image < labelArray.length; image++)
+        {
+            labelArray[image] = labels.get(image);
+        }
+        return new ImageIngestor(fileNames.toArray(new String[0]), labelArray, numClasses);
+    } // public static ImageIngestor fromDirectory
+
+    /**
+     * adds the bitmaps in a directory to the lists of file names and labels, in the order of their names
+     *
+     * @param directory the directory
+     * @param label     the class of the bitmaps
+     * @param fileNames the list of file names
+     * @param labels    the list of labels
+     */
+    private static void addBitmaps(File directory, int label, List<String> fileNames, List<Integer> labels)
+    {
+        File[] files = directory.listFiles();
+        Arrays.sort(files);
+
+        for (File file : files)
+        {
+            if (file.isFile() && file.getName().toLowerCase().endsWith(".bmp"))
+            {
+                fileNames.add(file.getPath());
+                labels.add(label);
+            }
+        }
+    } // private static void addBitmaps
+
+    /**
+     * creates an ImageIngestor from a manifest file with one bitmap per line: the file name, relative to the directory of the
+     * manifest, followed by the class index. The number of classes is one more than the largest class index.
+     *
+     * @param manifestName the name of the manifest file
+     * @return the ImageIngestor
+     * @throws IOException if the manifest cannot be read or lists no bitmaps
+     */
+    public static ImageIngestor fromManifest(String manifestName) throws IOException
+    {
+        File parent = new File(manifestName).getAbsoluteFile().getParentFile();
+        Scanner sc = new Scanner(new FileInputStream(manifestName));
+        List<String> fileNames = new ArrayList<String>();
+        List<Integer> labels = new ArrayList<Integer>();
+        int numClasses = 0;
+
+        try
+        {
+            while (sc.hasNext())
+            {
+                File file = new File(sc.next());
+                int label = sc.nextInt();
+
+                fileNames.add(file.isAbsolute() ? file.getPath() : new File(parent, file.getPath()).getPath());
+                labels.add(label);
+                numClasses = Math.max(numClasses, label + 1);
+            }
+        } // try
+        finally
+        {
+            sc.close();
+        }
+
+        if (fileNames.isEmpty())
+        {
+            throw new IOException(manifestName + " lists no bitmaps");
+        }
+
+        int[] labelArray = new int[labels.size()];
+
+        for (int image = 0; image < labelArray.length; image++)
+        {
+            labelArray[image] = labels.get(image);
+        }
+        return new ImageIngestor(fileNames.toArray(new String[0]), labelArray, numClasses);
+    } // public static ImageIngestor fromManifest
+
+    public int getNumImages()
+    {
+        return fileNames.length;
+    }
+
+    public int getNumClasses()
+    {
+        return numClasses;
+    }
+
+    public String[] getFileNames()
+    {
+        return fileNames;
+    }
+
+    public int[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * sets the size that every image is resized to as it is decoded
+     *
+     * @param height the number of rows of the resized images, or 0 to keep the size of the bitmaps
+     * @param width  the number of columns of the resized images, or 0 to keep the size of the bitmaps
+     */
+    public void setOutputSize(int height, int width)
+    {
+        outputHeight = height;
+        outputWidth = width;
+    }
+
+    public int getOutputHeight()
+    {
+        return outputHeight;
+    }
+
+    public int getOutputWidth()
+    {
+        return outputWidth;
+    }
+
+    /**
+     * returns the time that the last ingest took
+     * @return the time, in nanoseconds
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * returns the number of images per second that the last ingest decoded
+     * @return the number of images per second
+     */
+    public double getImagesPerSecond()
+    {
+        return fileNames.length / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * decodes every bitmap into a new CompactDataset, using the output size, or else the size of the first bitmap, as the size of
+     * every image
+     *
+     * @param numThreads the number of decoder threads
+     * @return the dataset, with the pixels and labels of every bitmap
+     * @throws IOException if there are no bitmaps, or a bitmap cannot be read or has the wrong size
+     */
+    public CompactDataset ingest(int numThreads) throws IOException
+    {
+        if (fileNames.length == 0)
+        {
+            throw new IOException("there are no bitmaps to ingest");
+        }
+
+        int[] size = outputHeight > 0 ? new int[] {outputHeight, outputWidth} : DibDump.readImageSize(fileNames[0]);
+        CompactDataset dataset = new CompactDataset(fileNames.length, size[0] * size[1], numClasses);
+
+        for (int image = 0; labels != null && image < fileNames.length; image++) // unlabeled images are all class 0
+        {
+            dataset.setLabel(image, labels[image]);
+        }
+
+        ingest(dataset, numThreads);
+        return dataset;
+    } // public CompactDataset ingest
+
+    /**
+     * decodes every bitmap into the pixels of a dataset that already has room for them, leaving its labels alone
+     *
+     * @param dataset    the dataset, with at least as many test cases as there are bitmaps
+     * @param numThreads the number of decoder threads
+     * @throws IOException if a bitmap cannot be read or has the wrong size
+     */
+    public void ingest(final CompactDataset dataset, int numThreads) throws IOException
+    {
+        final AtomicInteger nextImage = new AtomicInteger(); // the first image of the next chunk to decode
+        final int inputSize = dataset.getInputSize();
+        numThreads = Math.max(1, Math.min(numThreads, (fileNames.length + CHUNK_IMAGES - 1) / CHUNK_IMAGES));
+
+        ExecutorService decoders = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("ingest"));
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (int task = 0; task < numThreads; task++)
+        {
+            tasks.add(new Callable<Void>()
+            {
+                public Void call() throws IOException
+                {
+                    BmpReader reader = new BmpReader(); // the decode state of this task alone
+                    ImagePreprocessor preprocessor = null;
+                    double[] resized = new double[inputSize];
+                    int first;
+
+                    while ((first = nextImage.getAndAdd(CHUNK_IMAGES)) < fileNames.length)
+                    {
+                        int last = Math.min(first + CHUNK_IMAGES, fileNames.length);
+
+                        for (int image = first; image < last; image++)
+                        {
+                            reader.read(fileNames[image]);
+
+                            int height = outputHeight > 0 ? outputHeight : reader.getHeight();
+                            int width = outputHeight > 0 ? outputWidth : reader.getWidth();
+
+                            if (height * width != inputSize)
+                            {
+                                throw new IOException(fileNames[image] + " has " + height * width + " pels, but " +
+                                        inputSize + " were expected");
+                            }
+                            if (preprocessor == null || preprocessor.getOutputHeight() != height ||
+                                    preprocessor.getOutputWidth() != width)
+                            {
+                                preprocessor = new ImagePreprocessor(height, width);
+                            }
+                            preprocessor.processGray(reader, dataset.getPixels(), image * inputSize, resized);
+                        } // for (int image = first; image < last; image++)
+                    } // while ((first = nextImage.getAndAdd(CHUNK_IMAGES)) < fileNames.length)
+                    return null;
+                } // public Void call
+            });
+        } // for (int task = 0; task < numThreads; task++)
+
+        long start = System.nanoTime();
+
+        try
+        {
+            for (Future<Void> result : decoders.invokeAll(tasks))
+            {
+                result.get();
+            }
+        } // try
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("the ingest was interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            decoders.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    } // public void ingest
+
+    /**
+     * ingests a directory or manifest with 1, 2, 4, ... threads up to the given number and prints the images per second of each
+     *
+     * @param args the name of the directory or manifest, the largest number of threads, and the number of repetitions
+     * @throws IOException if a bitmap cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String source = args.length > 0 ? args[0] : "src/com/company/TrainingData";
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ImageIngestor ingestor = new File(source).isDirectory() ? fromDirectory(source) : fromManifest(source);
+        System.out.println(ingestor.getNumImages() + " images in " + ingestor.getNumClasses() + " classes");
+
+        CompactDataset dataset = ingestor.ingest(maxThreads); // warms up the JIT compiler
+        double singleThreaded = 0.0;
+
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2)
+        {
+            long nanos = 0;
+
+            for (int repetition = 0; repetition < repetitions; repetition++)
+            {
+                ingestor.ingest(dataset, numThreads);
+                nanos += ingestor.getElapsedNanos();
+            }
+
+            double imagesPerSecond = (double) repetitions * ingestor.getNumImages() / (nanos / 1e9);
+
+            if (numThreads == 1)
+            {
+                singleThreaded = imagesPerSecond;
+            }
+            System.out.printf("%3d threads: %12.1f images/s  (%.2fx)\n", numThreads, imagesPerSecond,
+                    imagesPerSecond / singleThreaded);
+        } // for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2)
+    } // public static void main
+} // public class ImageIngestor
@@ -0,0 +1,292 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines the stage that turns a decoded bitmap into network input values in one pass over whole rows, without
+ * allocating anything per pixel. Each row of pels from the BmpReader is turned into gray levels through three lookup tables
+ * (one per color, so Y = 0.3 RED + 0.589 GREEN + 0.11 BLUE costs three loads and two adds), and the gray image is then shrunk or
+ * stretched to the configured output size by area averaging: every output pixel is the average of the part of the source image
+ * that it covers, weighted by how much of each source pixel falls inside it. Shrinking a 101 x 101 image to 32 x 32 this way
+ * keeps every source pixel's contribution, unlike skipping pixels, and cuts the work of the first layer about 10 times.
+ *
+ * The area weights of each axis depend only on the source and output sizes, so they are calculated once and reused for every
+ * image of that size, along with the buffers of the gray image and of the horizontally resized rows. A preprocessor is
+ * therefore not thread safe; each decoder thread keeps one of its own.
+ *
+ * The ImagePreprocessor class contains the following instance variables:
+ *    int        outputHeight: the number of rows of the output image
+ *    int        outputWidth: the number of columns of the output image
+ *    int        sourceHeight, sourceWidth: the size of the source image that the weights were calculated for
+ *    int[][]    rowSources, columnSources: the first source pixel that each output row or column covers
+ *    double[][] rowWeights, columnWeights: the weights of the source pixels that each output row or column covers
+ *    int[]      pelRow: one decoded row of pels
+ *    int[]      grays: the gray image
+ *    double[]   resizedRows: the gray image after it is resized horizontally
+ *
+ */
+public class ImagePreprocessor
+{
+    /**
+     * the red, green and blue parts of the gray level of each color value
+     */
+    private static final double[] RED_GRAY = new double[256];
+    private static final double[] GREEN_GRAY = new double[256];
+    private static final double[] BLUE_GRAY = new double[256];
+
+    static
+    {
+        for (int value = 0; value < 256; value++)
+        {
+            RED_GRAY[value] = 0.3 * (double) value;
+            GREEN_GRAY[value] = 0.589 * (double) value;
+            BLUE_GRAY[value] = 0.11 * (double) value;
+        }
+    }
+
+    private int outputHeight;
+    private int outputWidth;
+    private int sourceHeight;
+    private int sourceWidth;
+    private int[] rowSources;
+    private int[] columnSources;
+    private double[][] rowWeights;
+    private double[][] columnWeights;
+    private int[] pelRow = new int[0];
+    private int[] grays = new int[0];
+    private double[] resizedRows = new double[0];
+
+    /**
+     * Creates an ImagePreprocessor that resizes every image to the given size
+     *
+     * @param outputHeight the number of rows of the output image
+     * @param outputWidth  the number of columns of the output image
+     */
+    public ImagePreprocessor(int outputHeight, int outputWidth)
+    {
+        this.outputHeight = outputHeight;
+        this.outputWidth = outputWidth;
+    } // public ImagePreprocessor
+
+    public int getOutputHeight()
+    {
+        return outputHeight;
+    }
+
+    public int getOutputWidth()
+    {
+        return outputWidth;
+    }
+
+    /**
+     * returns the gray level of a pel, from the lookup tables. The result is the same as rounding
+     * 0.3 RED + 0.589 GREEN + 0.11 BLUE, which is the formula of DibDump.colorToGrayscale.
+     *
+     * @param pel the pel, in the 0x00RRGGBB format
+     * @return the gray level, from 0 to 255
+     */
+    public static int grayLevel(int pel)
+    {
+        return (int) Math.round(RED_GRAY[(pel >> 16) & 0xFF] + GREEN_GRAY[(pel >> 8) & 0xFF] + BLUE_GRAY[pel & 0xFF]);
+    }
+
+    /**
+     * converts a row of pels to gray levels through the lookup tables
+     *
+     * @param pels   the row of pels
+     * @param width  the number of pels in the row
+     * @param grays  the array that the gray levels are stored in
+     * @param offset the index in grays of the first gray level
+     */
+    public static void grayRow(int[] pels, int width, int[] grays, int offset)
+    {
+        for (int column = 0; column < width; column++)
+        {
+            int pel = pels[column];
+            grays[offset + column] = (int) Math.round(RED_GRAY[(pel >> 16) & 0xFF] + GREEN_GRAY[(pel >> 8) & 0xFF] +
+                    BLUE_GRAY[pel & 0xFF]);
+        }
+    } // public static void grayRow
+
+    /**
+     * calculates the area weights of one axis. Output pixel o covers the source interval [o * scale, (o + 1) * scale), where
+     * scale = sourceSize / outputSize, and the weight of each source pixel is the length of its overlap with that interval
+     * divided by scale, so the weights of every output pixel add up to 1.
+     *
+     * @param sourceSize the number of source pixels along the axis
+     * @param outputSize the number of output pixels along the axis
+     * @param sources    the array that the first source pixel of each output pixel is stored in
+     * @return the weights of the source pixels of each output pixel
+     */
+    private static double[][] areaWeights(int sourceSize, int outputSize, int[] sources)
+    {
+        double scale = (double) sourceSize / outputSize;
+        double[][] weights = new double[outputSize][];
+
+        for (int output = 0; output < outputSize; output++)
+        {
+            double start = output * scale;
+            double end = Math.min(sourceSize, (output + 1) * scale);
+            int first = (int) Math.floor(start);
+            int last = Math.min(sourceSize - 1, (int) Math.ceil(end) - 1);
+
+            sources[output] = first;
+            weights[output] = new double[last - first + 1];
+
+            for (int source = first; source <= last; source++)
+            {
+                double overlap = Math.min(end, source + 1) - Math.max(start, source);
+                weights[output][source - first] = overlap / (end - start);
+            }
+        } // for (int output = 0; output < outputSize; output++)
+        return weights;
+    } // private static double[][] areaWeights
+
+    /**
+     * makes sure that the weights and buffers fit a source image of the given size
+     *
+     * @param height the number of rows of the source image
+     * @param width  the number of columns of the source image
+     */
+    private void prepare(int height, int width)
+    {
+        if (height != sourceHeight || width != sourceWidth)
+        {
+            rowSources = new int[outputHeight];
+            columnSources = new int[outputWidth];
+            rowWeights = areaWeights(height, outputHeight, rowSources);
+            columnWeights = areaWeights(width, outputWidth, columnSources);
+            sourceHeight = height;
+            sourceWidth = width;
+        }
+        if (pelRow.length < width)
+        {
+            pelRow = new int[width];
+        }
+        if (grays.length < height * width)
+        {
+            grays = new int[height * width];
+        }
+        if (resizedRows.length < height * outputWidth)
+        {
+            resizedRows = new double[height * outputWidth];
+        }
+    } // private void prepare
+
+    /**
+     * decodes the image in a reader into gray levels and resizes it, leaving the average gray level of every output pixel
+     * (from 0.0 to 255.0) in the given array, or in the gray image itself when no resizing is needed
+     *
+     * @param reader the reader that holds the image
+     * @param output the array that the average gray levels are stored in, in row-major order with the top row first
+     * @return true if the output array was filled, or false if the image already has the output size, in which case its gray
+     *         levels are left in grays
+     */
+    private boolean resize(BmpReader reader, double[] output)
+    {
+        int height = reader.getHeight();
+        int width = reader.getWidth();
+        prepare(height, width);
+
+        for (int row = 0; row < height; row++)
+        {
+            reader.readRow(row, pelRow, 0);
+            grayRow(pelRow, width, grays, row * width);
+        }
+
+        if (height == outputHeight && width == outputWidth)
+        {
+            return false;
+        }
+
+        for (int row = 0; row < height; row++) // resizes every row horizontally
+        {
+            for (int column = 0; column < outputWidth; column++)
+            {
+                double[] weights = columnWeights[column];
+                int source = row * width + columnSources[column];
+                double sum = 0.0;
+
+                for (int index = 0; index < weights.length; index++)
+                {
+                    sum += weights[index] * grays[source + index];
+                }
+                resizedRows[row * outputWidth + column] = sum;
+            }
+        } // for (int row = 0; row < height; row++)
+
+        for (int row = 0; row < outputHeight; row++) // then resizes the columns vertically
+        {
+            double[] weights = rowWeights[row];
+
+            for (int column = 0; column < outputWidth; column++)
+            {
+                int source = rowSources[row] * outputWidth + column;
+                double sum = 0.0;
+
+                for (int index = 0; index < weights.length; index++)
+                {
+                    sum += weights[index] * resizedRows[source + index * outputWidth];
+                }
+                output[row * outputWidth + column] = sum;
+            }
+        } // for (int row = 0; row < outputHeight; row++)
+        return true;
+    } // private boolean resize
+
+    /**
+     * decodes, grays and resizes the image in a reader into one gray level byte per output pixel, which is how CompactDataset
+     * and MappedDataset store images
+     *
+     * @param reader the reader that holds the image
+     * @param pixels the array that the gray levels are stored in
+     * @param offset the index in pixels of the first output pixel
+     * @param output an array of at least outputHeight * outputWidth doubles that holds the resized image
+     */
+    public void processGray(BmpReader reader, byte[] pixels, int offset, double[] output)
+    {
+        int size = outputHeight * outputWidth;
+
+        if (resize(reader, output))
+        {
+            for (int index = 0; index < size; index++)
+            {
+                pixels[offset + index] = (byte) Math.round(output[index]);
+            }
+        }
+        else
+        {
+            for (int index = 0; index < size; index++)
+            {
+                pixels[offset + index] = (byte) grays[index];
+            }
+        }
+    } // public void processGray
+
+    /**
+     * decodes, grays, normalizes and resizes the image in a reader straight into network input values from 0.0 to 1.0
+     *
+     * @param reader the reader that holds the image
+     * @param inputs the array of at least outputHeight * outputWidth doubles that the input values are stored in
+     */
+    public void process(BmpReader reader, double[] inputs)
+    {
+        int size = outputHeight * outputWidth;
+
+        if (resize(reader, inputs))
+        {
+            for (int index = 0; index < size; index++)
+            {
+                inputs[index] /= CompactDataset.MAX_GRAY;
+            }
+        }
+        else
+        {
+            for (int index = 0; index < size; index++)
+            {
+                inputs[index] = CompactDataset.normalize(grays[index]);
+            }
+        }
+    } // public void process
+} // public class ImagePreprocessor
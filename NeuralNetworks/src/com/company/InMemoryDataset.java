@@ -0,0 +1,121 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a dataset that keeps every test case in memory, in the same testCases[numTestCases][inputSize] and
+ * expectedOutputValues[numTestCases][outputSize] arrays that Network has always used. Network wraps its own arrays in an
+ * InMemoryDataset, so the test cases that are set through Network's setters are the ones that it trains on.
+ *
+ * The InMemoryDataset class contains the following instance variables:
+ *    double[][] testCases: the input values of every test case
+ *    double[][] expectedOutputValues: the expected output values of every test case
+ *    int        inputSize: the number of input values in each test case
+ *    int        outputSize: the number of expected output values in each test case
+ *
+ */
+public class InMemoryDataset implements Dataset
+{
+    private double[][] testCases;
+    private double[][] expectedOutputValues;
+    private int inputSize;
+    private int outputSize;
+
+    /**
+     * Creates an InMemoryDataset that wraps existing arrays of test cases. The arrays are not copied, so later changes to them
+     * are seen by the dataset.
+     *
+     * @param testCases            the input values of every test case
+     * @param expectedOutputValues the expected output values of every test case
+     * @param inputSize            the number of input values in each test case
+     * @param outputSize           the number of expected output values in each test case
+     */
+    public InMemoryDataset(double[][] testCases, double[][] expectedOutputValues, int inputSize, int outputSize)
+    {
+        this.testCases = testCases;
+        this.expectedOutputValues = expectedOutputValues;
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+    } // public InMemoryDataset
+
+    /**
+     * Creates an InMemoryDataset with room for the given number of test cases, all set to 0
+     *
+     * @param numSamples the number of test cases
+     * @param inputSize  the number of input values in each test case
+     * @param outputSize the number of expected output values in each test case
+     */
+    public InMemoryDataset(int numSamples, int inputSize, int outputSize)
+    {
+        this(new double[numSamples][inputSize], new double[numSamples][outputSize], inputSize, outputSize);
+    } // public InMemoryDataset
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return outputSize;
+    }
+
+    public int getNumSamples()
+    {
+        return testCases.length;
+    }
+
+    /**
+     * returns the input values of a test case
+     *
+     * @param sample the index of the test case
+     * @return the input values of the test case (not a copy)
+     */
+    public double[] getInputs(int sample)
+    {
+        return testCases[sample];
+    }
+
+    /**
+     * returns the expected output values of a test case
+     *
+     * @param sample the index of the test case
+     * @return the expected output values of the test case (not a copy)
+     */
+    public double[] getExpectedOutputs(int sample)
+    {
+        return expectedOutputValues[sample];
+    }
+
+    /**
+     * starts a pass that visits the test cases in order
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        return new DatasetIterator()
+        {
+            private int sample = 0; // the index of the next test case
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sample >= testCases.length)
+                {
+                    return false;
+                }
+
+                System.arraycopy(testCases[sample], 0, inputs, 0, inputSize);
+                System.arraycopy(expectedOutputValues[sample], 0, expectedOutputs, 0, outputSize);
+                sample++;
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                sample = testCases.length;
+            }
+        };
+    } // public DatasetIterator iterator
+} // public class InMemoryDataset
@@ -0,0 +1,98 @@
+package com.company;
+
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This interface defines a feature layer that can be placed in front of the dense layers of a Network. A feature layer takes a
+ * flat array of input values, which for image layers is a stack of channels stored in row-major order (the same order that
+ * DibDump reads the rows and columns of imageArray), and produces a flat array of output values in the same layout. Layers are
+ * chained so that the output of one layer is the input of the next, and the output of the last layer becomes the input
+ * activations of the dense network.
+ *
+ * Back propagation follows the same notation as the Network class (see: "3-Minimizing and Optimizing the Error Function"). A
+ * layer receives the omegas of its outputs, which are the negative derivatives of the error with respect to each output, lowers
+ * the error of its own weights, and returns the omegas of its inputs so that the layer before it can do the same.
+ *
+ * The layer interface contains the following methods:
+ *    int      getInputSize()
+ *    int      getOutputSize()
+ *    double[] calculateOutputs(double[] inputs)
+ *    double[] lowerError(double[] outputOmegas, double learningFactor)
+ *    void     randomizeWeights(double min, double max)
+ *    void     randomizeWeights(double min, double max, Random random)
+ *    void     setAllWeights(Scanner sc)
+ *    void     outputWeights(PrintWriter out)
+ *
+ */
+public interface Layer
+{
+    /**
+     * returns the number of input values that the layer takes
+     *
+     * @return the number of input values
+     */
+    int getInputSize();
+
+    /**
+     * returns the number of output values that the layer produces
+     *
+     * @return the number of output values
+     */
+    int getOutputSize();
+
+    /**
+     * propagates forward through the layer. The layer keeps a reference to the inputs and its own outputs so that it can lower
+     * the error afterwards, so the returned array is owned by the layer and is overwritten by the next call.
+     *
+     * @param inputs the input values of the layer
+     * @return the output values of the layer
+     */
+    double[] calculateOutputs(double[] inputs);
+
+    /**
+     * propagates backward through the layer for the inputs of the last call to calculateOutputs, lowering the error of every
+     * weight in the layer by the learning factor
+     *
+     * @param outputOmegas   the omegas of the output values of the layer
+     * @param learningFactor the learning factor used to change the weights
+     * @return the omegas of the input values of the layer, owned by the layer and overwritten by the next call
+     */
+    double[] lowerError(double[] outputOmegas, double learningFactor);
+
+    /**
+     * randomizes the weights in the layer to a double in the range min to max
+     *
+     * @param min the minimum possible value of a weight
+     * @param max the maximum possible value of a weight
+     */
+    void randomizeWeights(double min, double max);
+
+    /**
+     * randomizes the weights in the layer to a double in the range min to max drawn from the given source, so that a seeded
+     * network randomizes its feature layers from the same seed as its dense weights
+     *
+     * @param min    the minimum possible value of a weight
+     * @param max    the maximum possible value of a weight
+     * @param random the source of the random values
+     */
+    void randomizeWeights(double min, double max, Random random);
+
+    /**
+     * sets all the weights in the layer to values read by the scanner, in the same order that outputWeights writes them
+     *
+     * @param sc the scanner that reads the values of the weights
+     */
+    void setAllWeights(Scanner sc);
+
+    /**
+     * writes all the weights in the layer, one per line
+     *
+     * @param out the writer that the weights are written to
+     */
+    void outputWeights(PrintWriter out);
+} // public interface Layer
@@ -0,0 +1,328 @@
+package com.company;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class splits the work of one wide layer of a single test case across a pool of worker threads, for the Network (see:
+ * Network.setLayerParallelism). Running many test cases at once does not help the latency of one image, or the 10201-wide
+ * layers of the autoencoder, where each test case is a large pass of its own, so instead the nodes of a layer are cut into
+ * contiguous ranges and each range runs on its own thread: the output nodes in the forward pass, and the input nodes in
+ * lowerErrorForAllWeights, whose rows of weights and omegas each thread then updates alone.
+ *
+ * The ranges never overlap, and every range but the last is a whole number of cache lines of doubles long, so two threads only
+ * ever write to the same cache line at the boundary between their ranges and never write to each other's nodes. Each range
+ * sums in the same order as the loop it replaces, so the results are identical to those of a single thread.
+ *
+ * Handing the ranges to the threads and waiting for them costs several microseconds, so only layers with at least minWeights
+ * weights are split. The threshold depends on the machine, so calibrate measures it by timing a single test case through layers
+ * of growing width with and without splitting.
+ *
+ * The LayerParallelism class contains the following instance variables:
+ *    ExecutorService workers: the threads that run every range but the first, which runs on the calling thread
+ *    int             numWorkers: the number of ranges that a layer is split into, including the one on the calling thread
+ *    long            minWeights: the number of weights from which a layer is split
+ *
+ */
+public class LayerParallelism
+{
+    /**
+     * the number of doubles in a 64-byte cache line, which every range but the last is a multiple of
+     */
+    public static final int NODES_PER_CACHE_LINE = 8;
+
+    /**
+     * the number of weights from which a layer is split when it has not been calibrated, about 65 microseconds of work on one
+     * thread
+     */
+    public static final long DEFAULT_MIN_WEIGHTS = 1L << 16;
+
+    /**
+     * the most that a split layer may take, as a fraction of the time on one thread, for calibrate to count it as faster
+     */
+    public static final double MIN_GAIN = 0.9;
+
+    private ExecutorService workers;
+    private int numWorkers;
+    private long minWeights;
+
+    /**
+     * This interface defines the work on one range of the nodes of a layer.
+     *
+     * The range interface contains the following methods:
+     *    void run(int start, int end)
+     *
+     */
+    public interface Range
+    {
+        /**
+         * does the work on the nodes from start to end - 1
+         *
+         * @param start the first node of the range
+         * @param end   one past the last node of the range
+         */
+        void run(int start, int end);
+    } // public interface Range
+
+    /**
+     * Creates a LayerParallelism with its own pool of numWorkers - 1 daemon threads
+     *
+     * @param numWorkers the number of ranges that a layer is split into, including the one on the calling thread
+     * @param minWeights the number of weights from which a layer is split
+     */
+    public LayerParallelism(int numWorkers, long minWeights)
+    {
+        this.numWorkers = Math.max(1, numWorkers);
+        this.minWeights = minWeights;
+        workers = Executors.newFixedThreadPool(Math.max(1, this.numWorkers - 1), new DaemonThreadFactory("layer"));
+    } // public LayerParallelism
+
+    public int getNumWorkers()
+    {
+        return numWorkers;
+    }
+
+    public long getMinWeights()
+    {
+        return minWeights;
+    }
+
+    public void setMinWeights(long minWeights)
+    {
+        this.minWeights = minWeights;
+    }
+
+    /**
+     * decides whether a layer is split
+     *
+     * @param numWeights the number of weights of the layer
+     * @return true if there is more than one worker and the layer has at least minWeights weights
+     */
+    public boolean shouldSplit(long numWeights)
+    {
+        return numWorkers > 1 && numWeights >= minWeights;
+    }
+
+    /**
+     * returns the length of every range but the last when a number of nodes is split, which is the nodes divided by the number
+     * of workers rounded up to a whole number of cache lines
+     *
+     * @param size the number of nodes
+     * @return the length of a range
+     */
+    public int chunkSize(int size)
+    {
+        int chunk = (size + numWorkers - 1) / numWorkers;
+        return (chunk + NODES_PER_CACHE_LINE - 1) / NODES_PER_CACHE_LINE * NODES_PER_CACHE_LINE;
+    }
+
+    /**
+     * runs the work on every range of a number of nodes, the first range on the calling thread and the others on the workers,
+     * and returns once every range is done
+     *
+     * @param size  the number of nodes
+     * @param range the work on one range
+     * @throws IllegalStateException if the calling thread is interrupted while it waits
+     */
+    public void forEachRange(int size, final Range range)
+    {
+        int chunk = Math.max(1, chunkSize(size));
+        int numRanges = (size + chunk - 1) / chunk;
+
+        if (numRanges <= 1)
+        {
+            range.run(0, size);
+            return;
+        }
+
+        Future<?>[] results = new Future<?>[numRanges - 1];
+
+        for (int index = 1; index < numRanges; index++) // hands every range but the first to the workers
+        {
+            final int start = index * chunk;
+            final int end = Math.min(start + chunk, size);
+
+            results[index - 1] = workers.submit(new Runnable()
+            {
+                public void run()
+                {
+                    range.run(start, end);
+                }
+            });
+        } // for (int index = 1; index < numRanges; index++)
+
+        range.run(0, chunk);
+
+        try
+        {
+            for (Future<?> result : results)
+            {
+                result.get();
+            }
+        } // try
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a split layer");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    } // public void forEachRange
+
+    /**
+     * stops the worker threads
+     */
+    public void shutdown()
+    {
+        workers.shutdownNow();
+    }
+
+    /**
+     * returns the average time of a forward pass followed by lowerErrorForAllWeights of one test case
+     *
+     * @param network         the network
+     * @param inputs          the inputs of the test case
+     * @param expectedOutputs the expected output values of the test case
+     * @param repetitions     the number of timed passes, after a tenth as many passes that warm up the JIT compiler
+     * @return the nanoseconds per pass
+     */
+    public static double nanosPerPass(Network network, double[] inputs, double[] expectedOutputs, int repetitions)
+    {
+        long start = 0;
+        network.setInputs(inputs);
+
+        for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+        {
+            if (repetition == 0)
+            {
+                start = System.nanoTime();
+            }
+            network.calculateAllActivations();
+            network.lowerErrorForAllWeights(expectedOutputs);
+        }
+        return (double) (System.nanoTime() - start) / repetitions;
+    } // public static double nanosPerPass
+
+    /**
+     * times one test case through networks whose first layer has 1024 inputs and a growing number of outputs, with the first
+     * layer split and on one thread, and returns the number of weights from which splitting is faster at every larger width
+     *
+     * @param numWorkers  the number of ranges that a layer is split into
+     * @param repetitions the number of timed passes at each width
+     * @param print       true to print the time of every width
+     * @return the calibrated threshold, or Long.MAX_VALUE if splitting is never faster
+     */
+    public static long calibrate(int numWorkers, int repetitions, boolean print)
+    {
+        int inputNodes = 1024;
+        int[] widths = {16, 32, 64, 128, 256, 512, 1024, 2048};
+        long threshold = Long.MAX_VALUE;
+        LayerParallelism parallelism = new LayerParallelism(numWorkers, 0);
+
+        double[] inputs = new double[inputNodes];
+        double[] expectedOutputs = new double[DigitBenchmark.NUM_CLASSES];
+        expectedOutputs[0] = 1.0;
+
+        for (int node = 0; node < inputNodes; node++)
+        {
+            inputs[node] = (node % 7) / 7.0;
+        }
+
+        if (print)
+        {
+            System.out.println("weights    one thread  split     speedup");
+        }
+
+        try
+        {
+            for (int width : widths)
+            {
+                long numWeights = (long) inputNodes * width;
+                Network network = new Network(inputNodes, new int[] {width}, DigitBenchmark.NUM_CLASSES, 0.001, 1, 0, -0.1, 0.1,
+                        0.0);
+                network.randomizeWeights(-0.1, 0.1);
+
+                double serial = nanosPerPass(network, inputs, expectedOutputs, repetitions);
+                parallelism.setMinWeights(numWeights); // splits the first layer only
+                network.setLayerParallelism(parallelism);
+                double split = nanosPerPass(network, inputs, expectedOutputs, repetitions);
+
+                if (print)
+                {
+                    System.out.printf("%8d  %10.0f  %8.0f  %6.2fx\n", numWeights, serial, split, serial / split);
+                }
+
+                if (split < MIN_GAIN * serial)
+                {
+                    threshold = Math.min(threshold, numWeights);
+                }
+                else
+                {
+                    threshold = Long.MAX_VALUE; // slower at this width, so only the larger widths can count
+                }
+            } // for (int width : widths)
+        } // try
+        finally
+        {
+            parallelism.shutdown();
+        }
+        return threshold;
+    } // public static long calibrate
+
+    /**
+     * calibrates the threshold, then trains a 10201-input network for a few test cases on one thread and split with every layer
+     * split, and checks that the two end with the same weights
+     *
+     * @param args the number of workers and the number of timed passes
+     */
+    public static void main(String[] args)
+    {
+        int numWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        System.out.printf("%d workers on %d processors\n\n", numWorkers, Runtime.getRuntime().availableProcessors());
+        long threshold = calibrate(numWorkers, repetitions, true);
+        System.out.println("\ncalibrated threshold: " + (threshold == Long.MAX_VALUE ? "never split" : threshold + " weights"));
+
+        int inputNodes = 10201;
+        Network network = new Network(inputNodes, new int[] {50}, DigitBenchmark.NUM_CLASSES, 0.01, 1, 0, -0.1, 0.1, 0.0);
+        network.randomizeWeights(-0.1, 0.1);
+        double[][][] initialWeights = network.copyWeights();
+        double[][] inputs = SparseInputBenchmark.randomInputs(4, inputNodes, 1.0, new java.util.Random(3));
+        double[] expectedOutputs = new double[DigitBenchmark.NUM_CLASSES];
+        expectedOutputs[1] = 1.0;
+
+        double[][][][] finalWeights = new double[2][][][];
+        LayerParallelism parallelism = new LayerParallelism(numWorkers, 0);
+
+        for (int run = 0; run < 2; run++) // on one thread, then with every layer split
+        {
+            network.restoreWeights(initialWeights);
+            network.setLayerParallelism(run == 0 ? null : parallelism);
+
+            for (double[] testCase : inputs)
+            {
+                network.setInputs(testCase);
+                network.calculateAllActivations();
+                network.lowerErrorForAllWeights(expectedOutputs);
+            }
+            finalWeights[run] = network.copyWeights();
+        } // for (int run = 0; run < 2; run++)
+        parallelism.shutdown();
+
+        System.out.println("split and single-thread training end with identical weights: " +
+                Arrays.deepEquals(finalWeights[0], finalWeights[1]));
+    } // public static void main
+} // public class LayerParallelism
@@ -0,0 +1,561 @@
+package com.company;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a rank-r factorization W ~ A * B of one layer of weights W, which has one row for each input node and one
+ * column for each output node like the layers of the Network weights array. A has r columns and B has r rows, so the weighted
+ * sums of the layer, which are the row vector of activations times W, can be made by multiplying the activations by A and the
+ * r results by B. That costs inputs * r + r * outputs multiplications and doubles instead of inputs * outputs, which is less
+ * when r is much smaller than the smaller side of W.
+ *
+ * The factorization is the truncated singular value decomposition W ~ U_r S_r V_r^T of the r largest singular values, which is
+ * the closest rank-r matrix to W, with A = U_r S_r and B = V_r^T. It is made one of two ways:
+ *    truncatedSvd:  exactly, from the eigenvectors of the Gram matrix of the smaller side of W (W^T W or W W^T), found with the
+ *                   cyclic Jacobi method. For a 10201 x 50 layer the Gram matrix is only 50 x 50.
+ *    randomizedSvd: by multiplying W by r + oversampling random vectors, sharpening the result with a few power iterations,
+ *                   and factoring the small projection of W onto the orthonormalized result exactly. This costs about
+ *                   inputs * outputs * (r + oversampling) operations however large both sides of W are.
+ *
+ * The LowRankFactorization class contains the following instance variables:
+ *    double[][] left: A, with one row for each input node and rank columns
+ *    double[][] right: B, with rank rows and one column for each output node
+ *    double[]   singularValues: the singular values that were kept, largest first
+ *    double[]   middle: the activations times A, reused by every call to multiply
+ *
+ */
+public class LowRankFactorization
+{
+    /**
+     * the number of sweeps after which the Jacobi method gives up on making the Gram matrix any more diagonal
+     */
+    public static final int MAX_SWEEPS = 100;
+
+    private double[][] left;
+    private double[][] right;
+    private double[] singularValues;
+    private double[] middle;
+
+    /**
+     * Creates a LowRankFactorization from its two factors
+     *
+     * @param left           A, with one row for each input node and rank columns
+     * @param right          B, with rank rows and one column for each output node
+     * @param singularValues the singular values that were kept, largest first
+     */
+    public LowRankFactorization(double[][] left, double[][] right, double[] singularValues)
+    {
+        this.left = left;
+        this.right = right;
+        this.singularValues = singularValues;
+        middle = new double[right.length];
+    } // public LowRankFactorization
+
+    public int getRank()
+    {
+        return right.length;
+    }
+
+    public int getInputSize()
+    {
+        return left.length;
+    }
+
+    public int getOutputSize()
+    {
+        return right[0].length;
+    }
+
+    public double[] getSingularValues()
+    {
+        return singularValues;
+    }
+
+    /**
+     * returns the number of multiplications of one product of a row vector with the factors
+     * @return inputs * rank + rank * outputs
+     */
+    public long getMultiplications()
+    {
+        return (long) getRank() * (getInputSize() + getOutputSize());
+    }
+
+    /**
+     * returns the number of bytes of the two factors
+     * @return the size of the factors in bytes
+     */
+    public long getBytes()
+    {
+        return 8L * getMultiplications();
+    }
+
+    /**
+     * multiplies a row vector by the factors, first by A and then by B
+     *
+     * @param activations the row vector, with one value for each input node
+     * @param thetas      the array that the product is stored in, with one value for each output node
+     */
+    public void multiply(double[] activations, double[] thetas)
+    {
+        int rank = getRank();
+        Arrays.fill(middle, 0.0);
+
+        for (int inputNode = 0; inputNode < left.length; inputNode++) // adds each row of A times its activation
+        {
+            double activation = activations[inputNode];
+            double[] row = left[inputNode];
+
+            for (int k = 0; k < rank; k++)
+            {
+                middle[k] += activation * row[k];
+            }
+        }
+
+        Arrays.fill(thetas, 0, getOutputSize(), 0.0);
+
+        for (int k = 0; k < rank; k++) // then each row of B times its part of the middle
+        {
+            double value = middle[k];
+            double[] row = right[k];
+
+            for (int outputNode = 0; outputNode < row.length; outputNode++)
+            {
+                thetas[outputNode] += value * row[outputNode];
+            }
+        }
+    } // public void multiply
+
+    /**
+     * stores the product A * B in a layer of weights, which replaces the weights with their closest rank-r matrix
+     *
+     * @param weights the weights, with one row for each input node and one column for each output node
+     */
+    public void copyProductTo(double[][] weights)
+    {
+        for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        {
+            Arrays.fill(weights[inputNode], 0.0);
+
+            for (int k = 0; k < getRank(); k++)
+            {
+                double value = left[inputNode][k];
+
+                for (int outputNode = 0; outputNode < weights[inputNode].length; outputNode++)
+                {
+                    weights[inputNode][outputNode] += value * right[k][outputNode];
+                }
+            }
+        } // for (int inputNode = 0; inputNode < weights.length; inputNode++)
+    } // public void copyProductTo
+
+    /**
+     * returns the Frobenius norm of W - A * B divided by the Frobenius norm of W
+     *
+     * @param weights W
+     * @return the relative error of the factorization
+     */
+    public double relativeError(double[][] weights)
+    {
+        double difference = 0.0;
+        double total = 0.0;
+
+        for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        {
+            for (int outputNode = 0; outputNode < weights[inputNode].length; outputNode++)
+            {
+                double approximation = 0.0;
+
+                for (int k = 0; k < getRank(); k++)
+                {
+                    approximation += left[inputNode][k] * right[k][outputNode];
+                }
+
+                double weight = weights[inputNode][outputNode];
+                difference += (weight - approximation) * (weight - approximation);
+                total += weight * weight;
+            }
+        } // for (int inputNode = 0; inputNode < weights.length; inputNode++)
+        return Math.sqrt(difference / Math.max(total, Double.MIN_VALUE));
+    } // public double relativeError
+
+    /**
+     * finds the eigenvalues and eigenvectors of a symmetric matrix with the cyclic Jacobi method, which rotates away the
+     * largest off-diagonal parts of the matrix until it is diagonal
+     *
+     * @param matrix  the symmetric matrix, which is destroyed
+     * @param vectors the array that the eigenvectors are stored in, one in each column
+     * @return the eigenvalues, in the order of the columns of vectors
+     */
+    private static double[] symmetricEigen(double[][] matrix, double[][] vectors)
+    {
+        int size = matrix.length;
+
+        for (int row = 0; row < size; row++)
+        {
+            Arrays.fill(vectors[row], 0.0);
+            vectors[row][row] = 1.0;
+        }
+
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++)
+        {
+            double offDiagonal = 0.0;
+            double diagonal = 0.0;
+
+            for (int p = 0; p < size; p++)
+            {
+                diagonal += matrix[p][p] * matrix[p][p];
+
+                for (int q = p + 1; q < size; q++)
+                {
+                    offDiagonal += matrix[p][q] * matrix[p][q];
+                }
+            }
+            if (offDiagonal <= 1e-30 * diagonal || offDiagonal == 0.0)
+            {
+                break;
+            }
+
+            for (int p = 0; p < size - 1; p++)
+            {
+                for (int q = p + 1; q < size; q++)
+                {
+                    if (matrix[p][q] == 0.0)
+                    {
+                        continue;
+                    }
+
+                    // the rotation by the angle that makes matrix[p][q] zero
+                    double theta = (matrix[q][q] - matrix[p][p]) / (2.0 * matrix[p][q]);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+                    if (theta == 0.0)
+                    {
+                        t = 1.0;
+                    }
+                    double c = 1.0 / Math.sqrt(t * t + 1.0);
+                    double s = t * c;
+
+                    for (int k = 0; k < size; k++) // rotates columns p and q
+                    {
+                        double kp = matrix[k][p];
+                        double kq = matrix[k][q];
+                        matrix[k][p] = c * kp - s * kq;
+                        matrix[k][q] = s * kp + c * kq;
+                    }
+                    for (int k = 0; k < size; k++) // then rows p and q
+                    {
+                        double pk = matrix[p][k];
+                        double qk = matrix[q][k];
+                        matrix[p][k] = c * pk - s * qk;
+                        matrix[q][k] = s * pk + c * qk;
+                    }
+                    for (int k = 0; k < size; k++) // and the eigenvectors
+                    {
+                        double kp = vectors[k][p];
+                        double kq = vectors[k][q];
+                        vectors[k][p] = c * kp - s * kq;
+                        vectors[k][q] = s * kp + c * kq;
+                    }
+                } // for (int q = p + 1; q < size; q++)
+            } // for (int p = 0; p < size - 1; p++)
+        } // for (int sweep = 0; sweep < MAX_SWEEPS; sweep++)
+
+        double[] values = new double[size];
+
+        for (int p = 0; p < size; p++)
+        {
+            values[p] = matrix[p][p];
+        }
+        return values;
+    } // private static double[] symmetricEigen
+
+    /**
+     * returns the indices of the values from largest to smallest
+     *
+     * @param values the values
+     * @return the indices in decreasing order of value
+     */
+    private static int[] decreasingOrder(double[] values)
+    {
+        int[] order = new int[values.length];
+
+        for (int index = 0; index < order.length; index++)
+        {
+            order[index] = index;
+        }
+        for (int index = 1; index < order.length; index++) // an insertion sort, since there are only as many as the rank
+        {
+            int current = order[index];
+            int position = index;
+
+            while (position > 0 && values[order[position - 1]] < values[current])
+            {
+                order[position] = order[position - 1];
+                position--;
+            }
+            order[position] = current;
+        }
+        return order;
+    } // private static int[] decreasingOrder
+
+    /**
+     * factors W exactly into its r largest singular values
+     *
+     * @param weights W, with one row for each input node and one column for each output node
+     * @param rank    r, from 1 to the smaller side of W
+     * @return the factorization
+     */
+    public static LowRankFactorization truncatedSvd(double[][] weights, int rank)
+    {
+        int rows = weights.length;
+        int columns = weights[0].length;
+        boolean gramOfColumns = columns <= rows; // the Gram matrix of the smaller side
+        int size = gramOfColumns ? columns : rows;
+        rank = Math.max(1, Math.min(rank, size));
+
+        double[][] gram = new double[size][size];
+
+        for (int a = 0; a < size; a++)
+        {
+            for (int b = a; b < size; b++)
+            {
+                double sum = 0.0;
+
+                if (gramOfColumns) // W^T W
+                {
+                    for (int row = 0; row < rows; row++)
+                    {
+                        sum += weights[row][a] * weights[row][b];
+                    }
+                }
+                else // W W^T
+                {
+                    for (int column = 0; column < columns; column++)
+                    {
+                        sum += weights[a][column] * weights[b][column];
+                    }
+                }
+                gram[a][b] = sum;
+                gram[b][a] = sum;
+            } // for (int b = a; b < size; b++)
+        } // for (int a = 0; a < size; a++)
+
+        double[][] vectors = new double[size][size];
+        double[] eigenvalues = symmetricEigen(gram, vectors);
+        int[] order = decreasingOrder(eigenvalues);
+
+        double[][] left = new double[rows][rank];
+        double[][] right = new double[rank][columns];
+        double[] singularValues = new double[rank];
+
+        for (int k = 0; k < rank; k++)
+        {
+            int vector = order[k];
+            singularValues[k] = Math.sqrt(Math.max(0.0, eigenvalues[vector]));
+
+            if (gramOfColumns) // B = V_r^T, and A = W V_r = U_r S_r
+            {
+                for (int column = 0; column < columns; column++)
+                {
+                    right[k][column] = vectors[column][vector];
+                }
+                for (int row = 0; row < rows; row++)
+                {
+                    double sum = 0.0;
+
+                    for (int column = 0; column < columns; column++)
+                    {
+                        sum += weights[row][column] * vectors[column][vector];
+                    }
+                    left[row][k] = sum;
+                }
+            } // if (gramOfColumns)
+            else // A = U_r, and B = U_r^T W = S_r V_r^T
+            {
+                for (int row = 0; row < rows; row++)
+                {
+                    left[row][k] = vectors[row][vector];
+                }
+                for (int column = 0; column < columns; column++)
+                {
+                    double sum = 0.0;
+
+                    for (int row = 0; row < rows; row++)
+                    {
+                        sum += vectors[row][vector] * weights[row][column];
+                    }
+                    right[k][column] = sum;
+                }
+            } // else
+        } // for (int k = 0; k < rank; k++)
+        return new LowRankFactorization(left, right, singularValues);
+    } // public static LowRankFactorization truncatedSvd
+
+    /**
+     * makes the columns of a matrix orthonormal with the modified Gram-Schmidt method
+     *
+     * @param matrix the matrix, whose columns are replaced
+     */
+    private static void orthonormalizeColumns(double[][] matrix)
+    {
+        int columns = matrix[0].length;
+
+        for (int column = 0; column < columns; column++)
+        {
+            for (int previous = 0; previous < column; previous++) // removes the parts along the earlier columns
+            {
+                double dot = 0.0;
+
+                for (int row = 0; row < matrix.length; row++)
+                {
+                    dot += matrix[row][column] * matrix[row][previous];
+                }
+                for (int row = 0; row < matrix.length; row++)
+                {
+                    matrix[row][column] -= dot * matrix[row][previous];
+                }
+            }
+
+            double norm = 0.0;
+
+            for (int row = 0; row < matrix.length; row++)
+            {
+                norm += matrix[row][column] * matrix[row][column];
+            }
+            norm = Math.sqrt(norm);
+
+            for (int row = 0; row < matrix.length; row++)
+            {
+                matrix[row][column] = norm > 0.0 ? matrix[row][column] / norm : 0.0;
+            }
+        } // for (int column = 0; column < columns; column++)
+    } // private static void orthonormalizeColumns
+
+    /**
+     * factors W approximately into its r largest singular values with the randomized SVD
+     *
+     * @param weights         W, with one row for each input node and one column for each output node
+     * @param rank            r, from 1 to the smaller side of W
+     * @param oversampling    the number of random vectors beyond r, which make the r largest singular values more accurate
+     * @param powerIterations the number of times that the random vectors are multiplied by W W^T again
+     * @param random          the source of the random vectors
+     * @return the factorization
+     */
+    public static LowRankFactorization randomizedSvd(double[][] weights, int rank, int oversampling, int powerIterations,
+                                                     Random random)
+    {
+        int rows = weights.length;
+        int columns = weights[0].length;
+        int samples = Math.min(rank + oversampling, Math.min(rows, columns));
+
+        double[][] range = new double[rows][samples];     // Y = W * Omega
+        double[][] omega = new double[columns][samples];
+
+        for (int column = 0; column < columns; column++)
+        {
+            for (int sample = 0; sample < samples; sample++)
+            {
+                omega[column][sample] = random.nextGaussian();
+            }
+        }
+
+        multiply(weights, omega, range);
+        orthonormalizeColumns(range);
+
+        for (int iteration = 0; iteration < powerIterations; iteration++) // Y = W (W^T Y), which favors the large values
+        {
+            multiplyTransposed(weights, range, omega);
+            orthonormalizeColumns(omega);
+            multiply(weights, omega, range);
+            orthonormalizeColumns(range);
+        }
+
+        double[][] projection = new double[samples][columns]; // C = Q^T W, a small matrix with the same large values as W
+
+        for (int sample = 0; sample < samples; sample++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                double q = range[row][sample];
+
+                for (int column = 0; column < columns; column++)
+                {
+                    projection[sample][column] += q * weights[row][column];
+                }
+            }
+        }
+
+        LowRankFactorization small = truncatedSvd(projection, rank);
+        double[][] left = new double[rows][small.getRank()];
+
+        for (int row = 0; row < rows; row++) // A = Q * (the left factor of C)
+        {
+            for (int sample = 0; sample < samples; sample++)
+            {
+                double q = range[row][sample];
+
+                for (int k = 0; k < small.getRank(); k++)
+                {
+                    left[row][k] += q * small.left[sample][k];
+                }
+            }
+        }
+        return new LowRankFactorization(left, small.right, small.singularValues);
+    } // public static LowRankFactorization randomizedSvd
+
+    /**
+     * stores W * X in a matrix
+     *
+     * @param weights W
+     * @param x       X, with as many rows as W has columns
+     * @param product the array that the product is stored in
+     */
+    private static void multiply(double[][] weights, double[][] x, double[][] product)
+    {
+        for (int row = 0; row < weights.length; row++)
+        {
+            Arrays.fill(product[row], 0.0);
+
+            for (int column = 0; column < weights[row].length; column++)
+            {
+                double weight = weights[row][column];
+
+                for (int k = 0; k < x[column].length; k++)
+                {
+                    product[row][k] += weight * x[column][k];
+                }
+            }
+        }
+    } // private static void multiply
+
+    /**
+     * stores W^T * Y in a matrix
+     *
+     * @param weights W
+     * @param y       Y, with as many rows as W
+     * @param product the array that the product is stored in
+     */
+    private static void multiplyTransposed(double[][] weights, double[][] y, double[][] product)
+    {
+        for (int column = 0; column < product.length; column++)
+        {
+            Arrays.fill(product[column], 0.0);
+        }
+
+        for (int row = 0; row < weights.length; row++)
+        {
+            for (int column = 0; column < weights[row].length; column++)
+            {
+                double weight = weights[row][column];
+
+                for (int k = 0; k < y[row].length; k++)
+                {
+                    product[column][k] += weight * y[row][k];
+                }
+            }
+        }
+    } // private static void multiplyTransposed
+} // public class LowRankFactorization
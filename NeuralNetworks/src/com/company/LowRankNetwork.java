@@ -0,0 +1,390 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a copy of a trained Network for inference in which the weights of chosen layers are replaced by a rank-r
+ * factorization (see: LowRankFactorization). The thetas of a factored layer are made by running the activations through the two
+ * thin factors one after the other, and every other layer runs dense. The dense layers add each row of the weights array times
+ * the activation of its input node, so they read the weights in the order they are stored, where the weighted sums of the
+ * Network read a column of the weights array, one row apart, for every node.
+ *
+ * Factoring the 660 x 50 first layer of the digit network at rank r takes 710 * r multiplications instead of 33000, which is
+ * less once r is below 46; the 10201 x N first layer of the image networks and the N x 10201 last layer of the autoencoder gain
+ * the same way for any r much smaller than N.
+ *
+ * The LowRankNetwork class contains the following instance variables:
+ *    int                    numLayers: the number of layers, including the input and output layers
+ *    double[][][]           weights: the dense weights of each layer, shared with the network
+ *    LowRankFactorization[] factorizations: the factorization of each layer, or null for a dense layer
+ *    double[][]             activations: the activations of each layer
+ *    boolean                softmaxOutput: true if the output layer is a softmax layer
+ *
+ */
+public class LowRankNetwork
+{
+    /**
+     * the number of interleaved rounds that the forward passes of main are timed in
+     */
+    public static final int TIMING_ROUNDS = 5;
+
+    private int numLayers;
+    private double[][][] weights;
+    private LowRankFactorization[] factorizations;
+    private double[][] activations;
+    private boolean softmaxOutput;
+
+    /**
+     * Creates a LowRankNetwork with every layer dense, which shares the weights of the network
+     *
+     * @param network the trained network, without feature layers
+     * @throws IllegalArgumentException if the network has feature layers
+     */
+    public LowRankNetwork(Network network)
+    {
+        if (network.getFeatureLayers().length > 0)
+        {
+            throw new IllegalArgumentException("only the dense layers of a network can be factored");
+        }
+
+        weights = network.getWeights();
+        numLayers = weights.length + 1;
+        factorizations = new LowRankFactorization[numLayers - 1];
+        activations = new double[numLayers][];
+
+        for (int n = 0; n < numLayers; n++)
+        {
+            activations[n] = new double[network.getActivations()[n].length];
+        }
+        softmaxOutput = network.isSoftmaxOutput();
+    } // public LowRankNetwork
+
+    /**
+     * replaces the weights of a layer with a factorization of them
+     *
+     * @param n             the index of the layer of weights, from 0 to the number of layers - 2
+     * @param factorization the factorization, or null to make the layer dense again
+     * @throws IllegalArgumentException if the factorization does not have the shape of the layer
+     */
+    public void setFactorization(int n, LowRankFactorization factorization)
+    {
+        if (factorization != null && (factorization.getInputSize() != activations[n].length ||
+                factorization.getOutputSize() != activations[n + 1].length))
+        {
+            throw new IllegalArgumentException("the factorization does not have the shape of layer " + n);
+        }
+        factorizations[n] = factorization;
+    } // public void setFactorization
+
+    /**
+     * returns the number of multiplications of one forward pass
+     * @return the number of multiplications of the weights of every layer
+     */
+    public long getMultiplications()
+    {
+        long count = 0;
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            count += factorizations[n] == null ? (long) activations[n].length * activations[n + 1].length :
+                    factorizations[n].getMultiplications();
+        }
+        return count;
+    } // public long getMultiplications
+
+    /**
+     * returns the number of bytes of the weights and factors of every layer
+     * @return the size of the weights in bytes
+     */
+    public long getWeightBytes()
+    {
+        return 8L * getMultiplications(); // one double for each multiplication
+    }
+
+    public double[] getOutputActivations()
+    {
+        return activations[numLayers - 1];
+    }
+
+    /**
+     * returns the index of the output activation with the largest value, which is the class that the network predicts
+     * @return the index of the largest output activation
+     */
+    public int getMaxOutputIndex()
+    {
+        double[] outputs = activations[numLayers - 1];
+        return Network.getMaxIndex(outputs, outputs.length);
+    } // public int getMaxOutputIndex
+
+    /**
+     * propagates a test case forward, through the two factors of each factored layer and the dense weights of every other layer
+     *
+     * @param inputs the input values of the test case
+     * @return the output activations (not a copy)
+     */
+    public double[] calculateOutputs(double[] inputs)
+    {
+        System.arraycopy(inputs, 0, activations[0], 0, activations[0].length);
+
+        for (int n = 0; n < numLayers - 1; n++) // iterates from the first hidden layer to the output layer
+        {
+            double[] previous = activations[n];
+            double[] thetas = activations[n + 1];
+
+            if (factorizations[n] != null)
+            {
+                factorizations[n].multiply(previous, thetas);
+            }
+            else
+            {
+                Arrays.fill(thetas, 0.0);
+
+                for (int inputNode = 0; inputNode < previous.length; inputNode++) // adds each row times its activation
+                {
+                    double activation = previous[inputNode];
+                    double[] row = weights[n][inputNode];
+
+                    for (int node = 0; node < thetas.length; node++)
+                    {
+                        thetas[node] += activation * row[node];
+                    }
+                }
+            } // else
+
+            if (n + 1 < numLayers - 1)
+            {
+                for (int node = 0; node < thetas.length; node++)
+                {
+                    thetas[node] = Network.thresholdFunction(thetas[node]);
+                }
+            }
+            else
+            {
+                Network.calculateOutputLayer(thetas, thetas, thetas.length, softmaxOutput);
+            }
+        } // for (int n = 0; n < numLayers - 1; n++)
+        return activations[numLayers - 1];
+    } // public double[] calculateOutputs
+
+    /**
+     * trains the digit network, factors one of its layers at every rank of a sweep with both the truncated and the randomized
+     * SVD, optionally fine-tunes each factored network, and prints the accuracy, error, memory and speed of each against the
+     * dense network. Fine-tuning trains the network with the layer set to the product of its factors for one iteration at a
+     * time and factors the layer again after each, so the other layers learn to make up for what the factors lose.
+     *
+     * @param args the parameters file, the index of the layer to factor, the number of timed passes of each forward pass (split
+     *             into TIMING_ROUNDS rounds), the number of fine-tuning iterations and the power iterations of the randomized SVD
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String parametersFileName = args.length > 0 ? args[0] : DigitBenchmark.TRAINING_PARAMETERS;
+        int layer = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int fineTuneIterations = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int powerIterations = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        CompactDataset test = benchmark.getTestSet();
+        Network network = benchmark.createNetwork();
+        int iterations = benchmark.train(network);
+        double[][][] trained = network.copyWeights();
+
+        double[][] layerWeights = network.getWeights()[layer];
+        int maxRank = Math.min(layerWeights.length, layerWeights[0].length);
+        LowRankNetwork lowRank = new LowRankNetwork(network);
+
+        double[][] inputs = new double[test.getNumSamples()][test.getInputSize()];
+        double[] expectedOutputs = new double[test.getOutputSize()];
+
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            test.copySample(sample, inputs[sample], expectedOutputs);
+        }
+
+        System.out.printf("trained for %d iterations: test %d/%d correct, error %.4f, %d bytes\n", iterations,
+                DigitBenchmark.countCorrect(network, test), test.getNumSamples(), DigitBenchmark.error(network, test),
+                lowRank.getWeightBytes());
+        System.out.printf("factoring layer %d (%d x %d)\n", layer, layerWeights.length, layerWeights[0].length);
+
+        int[] ranks = {maxRank, 40, 30, 20, 10, 5, 3, 2, 1};
+        String[] methods = {"truncated", "randomized"};
+        Random random = new Random(42);
+        List<LowRankFactorization> factored = new ArrayList<LowRankFactorization>();
+        List<String> rows = new ArrayList<String>(); // the columns of each factorization before its timing
+
+        for (int rank : ranks)
+        {
+            if (rank > maxRank || (rank == maxRank && rank != ranks[0]))
+            {
+                continue;
+            }
+
+            for (String method : methods)
+            {
+                network.restoreWeights(trained);
+                LowRankFactorization factorization = factor(layerWeights, rank, method, powerIterations, random);
+                double relativeError = factorization.relativeError(layerWeights);
+
+                for (int iteration = 0; iteration < fineTuneIterations; iteration++)
+                {
+                    factorization.copyProductTo(layerWeights);
+                    network.runTrainingIteration(false);
+                    factorization = factor(layerWeights, rank, method, powerIterations, random);
+                }
+                lowRank.setFactorization(layer, factorization);
+
+                int correct = 0;
+                double error = 0.0;
+
+                for (int sample = 0; sample < inputs.length; sample++)
+                {
+                    test.copySample(sample, inputs[sample], expectedOutputs);
+                    double[] outputs = lowRank.calculateOutputs(inputs[sample]);
+                    error += Network.calculateError(outputs, expectedOutputs, outputs.length, lowRank.softmaxOutput);
+
+                    if (lowRank.getMaxOutputIndex() == test.getLabel(sample))
+                    {
+                        correct++;
+                    }
+                }
+
+                factored.add(factorization);
+                rows.add(String.format("%4d  %-10s  %9.2e  %7d  %5.2fx  %-10s  %3d/%-3d  %7.4f", rank, method, relativeError,
+                        lowRank.getWeightBytes(), 8.0 * network.countWeights() / lowRank.getWeightBytes(),
+                        fineTuneIterations > 0 ? fineTuneIterations + " iter" : "no", correct, test.getNumSamples(),
+                        error / test.getNumSamples()));
+            } // for (String method : methods)
+        } // for (int rank : ranks)
+
+        // times the Network, the dense rows and every factorization in interleaved rounds, after a round of the same length
+        // that warms all of them up, so that no path is timed before the JIT compiler has finished with it and a slow stretch
+        // of the machine lands on every path instead of one; each path takes the median of its rounds
+        network.restoreWeights(trained);
+        lowRank.setFactorization(layer, null);
+
+        int passes = Math.max(1, repetitions / TIMING_ROUNDS);
+        double[][] roundNanos = new double[factored.size() + 2][TIMING_ROUNDS];
+
+        for (int round = -1; round < TIMING_ROUNDS; round++) // round -1 warms up
+        {
+            for (int path = 0; path < roundNanos.length; path++) // the Network, the dense rows, then each factorization
+            {
+                long nanos;
+
+                if (path == 0)
+                {
+                    nanos = timePasses(network, inputs, passes);
+                }
+                else
+                {
+                    lowRank.setFactorization(layer, path == 1 ? null : factored.get(path - 2));
+                    nanos = timePasses(lowRank, inputs, passes);
+                }
+
+                if (round >= 0)
+                {
+                    roundNanos[path][round] = (double) nanos / ((long) passes * inputs.length);
+                }
+            } // for (int path = 0; path < roundNanos.length; path++)
+        } // for (int round = -1; round < TIMING_ROUNDS; round++)
+
+        double networkNanos = median(roundNanos[0]);
+        double denseNanos = median(roundNanos[1]);
+        System.out.printf("%.1f ns/image in the Network, %.1f ns/image with contiguous rows (median of %d rounds of %d "
+                + "passes)\n\n", networkNanos, denseNanos, TIMING_ROUNDS, passes);
+        System.out.println("rank  method      rel error  bytes    memory  fine-tuned  correct  error    ns/image  speedup  "
+                + "vs Network");
+
+        for (int row = 0; row < rows.size(); row++)
+        {
+            double nanos = median(roundNanos[row + 2]);
+            System.out.printf("%s  %8.1f  %6.2fx  %9.2fx\n", rows.get(row), nanos, denseNanos / nanos, networkNanos / nanos);
+        }
+    } // public static void main
+
+    /**
+     * factors a layer of weights with the truncated or the randomized SVD
+     *
+     * @param weights         the weights of the layer
+     * @param rank            the rank of the factors
+     * @param method          "truncated" or "randomized"
+     * @param powerIterations the power iterations of the randomized SVD
+     * @param random          the source of the random vectors of the randomized SVD
+     * @return the factorization
+     */
+    private static LowRankFactorization factor(double[][] weights, int rank, String method, int powerIterations,
+                                               Random random)
+    {
+        if (method.equals("truncated"))
+        {
+            return LowRankFactorization.truncatedSvd(weights, rank);
+        }
+        return LowRankFactorization.randomizedSvd(weights, rank, 10, powerIterations, random);
+    } // private static LowRankFactorization factor
+
+    /**
+     * returns the time of the given number of forward passes of a network over a set of inputs
+     *
+     * @param network the network
+     * @param inputs  the input values of each image
+     * @param passes  the number of passes over the images
+     * @return the elapsed nanoseconds
+     */
+    private static long timePasses(Network network, double[][] inputs, int passes)
+    {
+        long start = System.nanoTime();
+
+        for (int pass = 0; pass < passes; pass++)
+        {
+            for (int sample = 0; sample < inputs.length; sample++)
+            {
+                network.setInputs(inputs[sample]);
+                network.calculateAllActivations();
+            }
+        }
+        return System.nanoTime() - start;
+    } // private static long timePasses
+
+    /**
+     * returns the time of the given number of forward passes of a low-rank network over a set of inputs
+     *
+     * @param lowRank the low-rank network
+     * @param inputs  the input values of each image
+     * @param passes  the number of passes over the images
+     * @return the elapsed nanoseconds
+     */
+    private static long timePasses(LowRankNetwork lowRank, double[][] inputs, int passes)
+    {
+        long start = System.nanoTime();
+
+        for (int pass = 0; pass < passes; pass++)
+        {
+            for (int sample = 0; sample < inputs.length; sample++)
+            {
+                lowRank.calculateOutputs(inputs[sample]);
+            }
+        }
+        return System.nanoTime() - start;
+    } // private static long timePasses
+
+    /**
+     * returns the median of a set of times
+     *
+     * @param values the times, which are sorted in place
+     * @return the median
+     */
+    private static double median(double[] values)
+    {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2.0;
+    } // private static double median
+} // public class LowRankNetwork
@@ -0,0 +1,283 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class prunes the smallest weights of a trained Network, setting them to zero, either every weight whose magnitude is
+ * below a threshold or the smallest fraction of the weights of each layer (the target sparsity). Pruning each layer to the same
+ * sparsity keeps the small output layer from losing all of its weights to the much larger first layer, whose weights are
+ * smaller on average.
+ *
+ * A pruned network can be fine-tuned: it is trained for a few more iterations with lowerErrorForAllWeights, and after every
+ * test case the pruned weights are set back to zero, so the remaining weights learn to make up for the pruned ones without the
+ * pruned ones growing back. The pruned network is then stored in CSR form (see: SparseNetwork) for inference.
+ *
+ * The MagnitudePruner class contains the following instance variables:
+ *    Network network: the network that is pruned
+ *    int[][] prunedIndices: the index inputNode * outputs + outputNode of every pruned weight of each layer
+ *
+ */
+public class MagnitudePruner
+{
+    private Network network;
+    private int[][] prunedIndices;
+
+    /**
+     * Creates a MagnitudePruner for a network, which has no pruned weights until one of the prune methods is called
+     *
+     * @param network the trained network
+     */
+    public MagnitudePruner(Network network)
+    {
+        this.network = network;
+        prunedIndices = new int[network.getWeights().length][0];
+    } // public MagnitudePruner
+
+    /**
+     * prunes every weight whose magnitude is below a threshold
+     *
+     * @param threshold the threshold
+     * @return the number of weights that are pruned
+     */
+    public int pruneBelow(double threshold)
+    {
+        double[] thresholds = new double[prunedIndices.length];
+        Arrays.fill(thresholds, threshold);
+        return prune(thresholds);
+    }
+
+    /**
+     * prunes the smallest weights of each layer, so that the given fraction of the weights of each layer is zero
+     *
+     * @param sparsity the fraction of the weights of each layer to prune, from 0.0 to 1.0
+     * @return the number of weights that are pruned
+     */
+    public int pruneToSparsity(double sparsity)
+    {
+        double[][][] weights = network.getWeights();
+        double[] thresholds = new double[weights.length];
+
+        for (int n = 0; n < weights.length; n++)
+        {
+            int outputs = weights[n][0].length;
+            double[] magnitudes = new double[weights[n].length * outputs];
+
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                for (int outputNode = 0; outputNode < outputs; outputNode++)
+                {
+                    magnitudes[inputNode * outputs + outputNode] = Math.abs(weights[n][inputNode][outputNode]);
+                }
+            }
+            Arrays.sort(magnitudes);
+
+            int numPruned = (int) Math.round(sparsity * magnitudes.length);
+            // every weight below the magnitude of the first weight that is kept is pruned
+            thresholds[n] = numPruned >= magnitudes.length ? Double.POSITIVE_INFINITY : magnitudes[numPruned];
+        } // for (int n = 0; n < weights.length; n++)
+        return prune(thresholds);
+    } // public int pruneToSparsity
+
+    /**
+     * prunes every weight of each layer whose magnitude is below the threshold of its layer, remembering which weights were
+     * pruned so that fine-tuning keeps them at zero
+     *
+     * @param thresholds the threshold of each layer
+     * @return the number of weights that are pruned
+     */
+    private int prune(double[] thresholds)
+    {
+        double[][][] weights = network.getWeights();
+        int total = 0;
+
+        for (int n = 0; n < weights.length; n++)
+        {
+            int outputs = weights[n][0].length;
+            int[] indices = new int[weights[n].length * outputs];
+            int count = 0;
+
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                for (int outputNode = 0; outputNode < outputs; outputNode++)
+                {
+                    if (Math.abs(weights[n][inputNode][outputNode]) < thresholds[n] || weights[n][inputNode][outputNode] == 0.0)
+                    {
+                        weights[n][inputNode][outputNode] = 0.0;
+                        indices[count++] = inputNode * outputs + outputNode;
+                    }
+                }
+            }
+            prunedIndices[n] = Arrays.copyOf(indices, count);
+            total += count;
+        } // for (int n = 0; n < weights.length; n++)
+        return total;
+    } // private int prune
+
+    /**
+     * sets every pruned weight back to zero
+     */
+    private void zeroPrunedWeights()
+    {
+        double[][][] weights = network.getWeights();
+
+        for (int n = 0; n < weights.length; n++)
+        {
+            int outputs = weights[n][0].length;
+
+            for (int index : prunedIndices[n])
+            {
+                weights[n][index / outputs][index % outputs] = 0.0;
+            }
+        }
+    } // private void zeroPrunedWeights
+
+    /**
+     * trains the pruned network on its dataset for the given number of iterations, setting the pruned weights back to zero after
+     * every test case
+     *
+     * @param iterations the number of iterations
+     * @return the average error of the last iteration
+     */
+    public double fineTune(int iterations)
+    {
+        Dataset dataset = network.getDataset();
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        double averageError = 0.0;
+
+        for (int iteration = 0; iteration < iterations; iteration++)
+        {
+            DatasetIterator iterator = dataset.iterator();
+            double totalError = 0.0;
+            int testCase = 0;
+
+            try
+            {
+                while (iterator.next(inputs, expectedOutputs))
+                {
+                    network.setInputs(inputs);
+                    network.calculateAllActivations();
+                    network.lowerErrorForAllWeights(expectedOutputs);
+                    zeroPrunedWeights();
+
+                    totalError += network.calculateError(expectedOutputs);
+                    testCase++;
+                }
+            } // try
+            finally
+            {
+                iterator.close();
+            }
+            averageError = totalError / Math.max(testCase, 1);
+        } // for (int iteration = 0; iteration < iterations; iteration++)
+        return averageError;
+    } // public double fineTune
+
+    /**
+     * trains the digit network, prunes it to 50%, 80% and 95% sparsity (after the CSR form of the unpruned network, to show how
+     * much of the speed comes from the layout alone), optionally fine-tunes each pruned network, and prints the accuracy, error,
+     * memory and speed of the CSR forward pass against the dense forward pass of the unpruned network
+     *
+     * @param args the parameters file, the number of fine-tuning iterations (200 unless given, or 0 to skip fine-tuning), the
+     *             number of timed passes and the seed of the random weights (1 unless given), so that runs with and without
+     *             fine-tuning prune the same trained network
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String parametersFileName = args.length > 0 ? args[0] : DigitBenchmark.TRAINING_PARAMETERS;
+        int fineTuneIterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        CompactDataset test = benchmark.getTestSet();
+        Network network = benchmark.createNetwork();
+        int iterations = benchmark.train(network, new Random(seed));
+        double[][][] trained = network.copyWeights();
+
+        int numWeights = network.countWeights();
+        double denseNanos = DigitBenchmark.nanosPerImage(network, test, repetitions);
+        System.out.printf("trained for %d iterations: %d weights, %d bytes, test %d/%d correct, error %.4f, %.1f ns/image\n\n",
+                iterations, numWeights, 8L * numWeights, DigitBenchmark.countCorrect(network, test), test.getNumSamples(),
+                DigitBenchmark.error(network, test), denseNanos);
+        System.out.println("sparsity  weights   CSR bytes  memory  correct  error    fine-tuned  ns/image  speedup");
+
+        double[] sparsities = {0.0, 0.5, 0.8, 0.95};
+        double[] inputs = new double[test.getInputSize()];
+        double[] expectedOutputs = new double[test.getOutputSize()];
+
+        for (double sparsity : sparsities)
+        {
+            network.restoreWeights(trained);
+            MagnitudePruner pruner = new MagnitudePruner(network);
+            pruner.pruneToSparsity(sparsity);
+
+            if (fineTuneIterations > 0 && sparsity > 0.0)
+            {
+                pruner.fineTune(fineTuneIterations);
+            }
+
+            SparseNetwork sparse = new SparseNetwork(network);
+            int correct = 0;
+
+            for (int sample = 0; sample < test.getNumSamples(); sample++) // the CSR network classifies the test images
+            {
+                test.copySample(sample, inputs, expectedOutputs);
+                sparse.calculateOutputs(inputs);
+
+                if (sparse.getMaxOutputIndex() == test.getLabel(sample))
+                {
+                    correct++;
+                }
+            }
+
+            double sparseNanos = nanosPerImage(sparse, test, repetitions);
+            System.out.printf("%7.0f%%  %7d  %10d  %5.2fx  %3d/%-3d  %.4f  %-10s  %8.1f  %6.2fx\n", 100.0 * sparsity,
+                    sparse.getNumWeights(), sparse.getWeightBytes(), 8.0 * numWeights / sparse.getWeightBytes(), correct,
+                    test.getNumSamples(), DigitBenchmark.error(network, test),
+                    fineTuneIterations > 0 && sparsity > 0.0 ? fineTuneIterations + " iter" : "no", sparseNanos,
+                    denseNanos / sparseNanos);
+        } // for (double sparsity : sparsities)
+    } // public static void main
+
+    /**
+     * returns the average time of a forward pass of a sparse network over the images of a dataset
+     *
+     * @param sparse      the sparse network
+     * @param dataset     the dataset
+     * @param repetitions the number of timed passes over the dataset, after a tenth as many passes that warm up the JIT compiler
+     * @return the nanoseconds per image
+     */
+    private static double nanosPerImage(SparseNetwork sparse, CompactDataset dataset, int repetitions)
+    {
+        double[][] inputs = new double[dataset.getNumSamples()][dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            dataset.copySample(sample, inputs[sample], expectedOutputs);
+        }
+
+        long start = 0;
+
+        for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+        {
+            if (repetition == 0)
+            {
+                start = System.nanoTime();
+            }
+
+            for (int sample = 0; sample < inputs.length; sample++)
+            {
+                sparse.calculateOutputs(inputs[sample]);
+            }
+        }
+        return (double) (System.nanoTime() - start) / ((long) repetitions * inputs.length);
+    } // private static double nanosPerImage
+} // public class MagnitudePruner
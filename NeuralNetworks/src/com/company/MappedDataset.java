@@ -0,0 +1,275 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a dataset of grayscale images that is read from a packed cache file mapped into memory. Nothing is copied
+ * out of the file when it is opened: the operating system pages the file in as test cases are touched, and each test case is
+ * normalized straight out of the mapping into the caller's arrays through the same lookup table as CompactDataset, so any test
+ * case can be read in any order without parsing anything, and the pages stay cached between runs.
+ *
+ * The file holds the same values as a CompactDataset (one grayscale byte per pixel and one int label per test case), laid out
+ * as a header, an index and the samples, all big-endian:
+ *    int  MAGIC_NUMBER
+ *    int  numSamples
+ *    int  inputSize
+ *    int  numClasses
+ *    long fingerprint (see: DatasetCache)
+ *    long sampleOffset, int label (once per test case, the index)
+ *    byte pixels (inputSize bytes per test case, every test case one after another)
+ *
+ * The dataset can also be opened as an autoencoder dataset, where the expected output values of every test case are its own
+ * input values instead of a one-hot label.
+ *
+ * The MappedDataset class contains the following instance variables:
+ *    MappedByteBuffer buffer: the mapped cache file
+ *    int              numSamples: the number of test cases
+ *    int              inputSize: the number of pixels in each test case
+ *    int              numClasses: the number of classes
+ *    long             fingerprint: the fingerprint of the sources that the file was built from
+ *    boolean          autoencoder: whether the expected output values are the input values instead of the label
+ *
+ */
+public class MappedDataset implements Dataset
+{
+    /**
+     * the first int in every cache file ("NNDC")
+     */
+    public static final int MAGIC_NUMBER = 0x4E4E4443;
+
+    /**
+     * the number of bytes in the header of a cache file
+     */
+    public static final int HEADER_BYTES = 24;
+
+    /**
+     * the number of bytes in the index entry of each test case
+     */
+    public static final int INDEX_ENTRY_BYTES = 12;
+
+    private MappedByteBuffer buffer;
+    private int numSamples;
+    private int inputSize;
+    private int numClasses;
+    private long fingerprint;
+    private boolean autoencoder;
+
+    /**
+     * Creates a MappedDataset that maps a cache file
+     *
+     * @param fileName    the name of the cache file
+     * @param autoencoder true if the expected output values of each test case are its input values
+     * @throws IOException if the file cannot be mapped or is not a cache file
+     */
+    public MappedDataset(String fileName, boolean autoencoder) throws IOException
+    {
+        FileChannel channel = new FileInputStream(fileName).getChannel();
+
+        try
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after the channel is closed
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC_NUMBER)
+        {
+            throw new IOException(fileName + " is not a dataset cache file");
+        }
+        numSamples = buffer.getInt(4);
+        inputSize = buffer.getInt(8);
+        numClasses = buffer.getInt(12);
+        fingerprint = buffer.getLong(16);
+
+        if (buffer.limit() < HEADER_BYTES + (long) numSamples * (INDEX_ENTRY_BYTES + inputSize))
+        {
+            throw new IOException(fileName + " is too short for " + numSamples + " test cases");
+        }
+
+        this.autoencoder = autoencoder;
+    } // public MappedDataset
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return autoencoder ? inputSize : numClasses;
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    /**
+     * returns the fingerprint of the sources that the file was built from
+     * @return the fingerprint
+     */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * returns the index in the file of the first pixel of a test case
+     *
+     * @param sample the index of the test case
+     * @return the index in the file of the first pixel
+     */
+    private int sampleOffset(int sample)
+    {
+        return (int) buffer.getLong(HEADER_BYTES + sample * INDEX_ENTRY_BYTES);
+    }
+
+    /**
+     * returns the class of a test case
+     *
+     * @param sample the index of the test case
+     * @return the index of the class
+     */
+    public int getLabel(int sample)
+    {
+        return buffer.getInt(HEADER_BYTES + sample * INDEX_ENTRY_BYTES + 8);
+    }
+
+    /**
+     * returns the grayscale value of one pixel of a test case
+     *
+     * @param sample the index of the test case
+     * @param index  the index of the pixel in the test case
+     * @return the grayscale value, from 0 to 255
+     */
+    public int getPixel(int sample, int index)
+    {
+        return buffer.get(sampleOffset(sample) + index) & 0xFF;
+    }
+
+    /**
+     * copies a test case out of the mapping into the given arrays, normalizing every pixel through the lookup table. Only
+     * absolute gets are used, so any number of threads can copy test cases at the same time.
+     *
+     * @param sample          the index of the test case
+     * @param inputs          the array that the input values are copied into
+     * @param expectedOutputs the array that the expected output values are copied into
+     */
+    public void copySample(int sample, double[] inputs, double[] expectedOutputs)
+    {
+        int offset = sampleOffset(sample);
+
+        for (int index = 0; index < inputSize; index++)
+        {
+            inputs[index] = CompactDataset.normalize(buffer.get(offset + index));
+        }
+
+        if (autoencoder)
+        {
+            System.arraycopy(inputs, 0, expectedOutputs, 0, inputSize);
+        }
+        else
+        {
+            for (int outputNode = 0; outputNode < numClasses; outputNode++)
+            {
+                expectedOutputs[outputNode] = 0.0;
+            }
+            expectedOutputs[getLabel(sample)] = 1.0;
+        }
+    } // public void copySample
+
+    /**
+     * starts a pass that visits the test cases in order
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        return new DatasetIterator()
+        {
+            private int sample = 0; // the index of the next test case
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sample >= numSamples)
+                {
+                    return false;
+                }
+
+                copySample(sample++, inputs, expectedOutputs);
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                sample = numSamples;
+            }
+        };
+    } // public DatasetIterator iterator
+
+    /**
+     * writes a CompactDataset to a cache file with two channel writes, one for the header and the index and one for the pixels.
+     * The file is written under a temporary name and then renamed, so a run that is stopped halfway never leaves a cache file
+     * that looks complete.
+     *
+     * @param dataset     the dataset to write
+     * @param fingerprint the fingerprint of the sources of the dataset
+     * @param fileName    the name of the cache file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(CompactDataset dataset, long fingerprint, String fileName) throws IOException
+    {
+        int numSamples = dataset.getNumSamples();
+        int inputSize = dataset.getInputSize();
+        long firstSample = HEADER_BYTES + (long) numSamples * INDEX_ENTRY_BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate((int) firstSample);
+        header.putInt(MAGIC_NUMBER);
+        header.putInt(numSamples);
+        header.putInt(inputSize);
+        header.putInt(dataset.getOutputSize());
+        header.putLong(fingerprint);
+
+        for (int sample = 0; sample < numSamples; sample++)
+        {
+            header.putLong(firstSample + (long) sample * inputSize);
+            header.putInt(dataset.getLabel(sample));
+        }
+        header.flip();
+
+        ByteBuffer pixels = ByteBuffer.wrap(dataset.getPixels(), 0, numSamples * inputSize);
+        File temporaryFile = new File(fileName + ".tmp");
+        FileChannel channel = new FileOutputStream(temporaryFile).getChannel();
+
+        try
+        {
+            while (header.hasRemaining())
+            {
+                channel.write(header);
+            }
+            while (pixels.hasRemaining())
+            {
+                channel.write(pixels);
+            }
+        } // try
+        finally
+        {
+            channel.close();
+        }
+
+        Files.move(temporaryFile.toPath(), new File(fileName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } // public static void write
+} // public class MappedDataset
@@ -0,0 +1,335 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class trains several copies of the same Network at once, each from its own seeded random weights, and keeps the first
+ * copy to reach the error threshold. Random weights sometimes start a network in a basin that it cannot train out of, as
+ * happens with XOR in testdoc.txt (most often with fewer hidden nodes), and such a run spends every one of its iterations
+ * without reaching the threshold. When the copies race, one unlucky start no longer decides how long training takes: as soon as
+ * one copy reaches the threshold the others are cancelled, and if none does within the time budget (or every copy runs out of
+ * iterations first) the copy with the lowest error is kept.
+ *
+ * Every copy trains on its own thread with the unchanged runTrainingIteration and shares the dataset of the original network,
+ * which it only reads. A cancelled copy stops at the end of its current iteration. Which copy wins a close race depends on how
+ * the threads are scheduled, but each copy on its own is repeatable from its seed.
+ *
+ * The MultiStartTrainer class contains the following instance variables:
+ *    int     numStarts: the number of copies that race
+ *    long    seed: the seed of the first copy, which is increased by one for each copy after it
+ *    long    timeBudgetMillis: the milliseconds after which the copy with the lowest error is kept
+ *    Start   winner: the copy that was kept by the last race
+ *    Start[] starts: the copies of the last race
+ *
+ */
+public class MultiStartTrainer
+{
+    private int numStarts;
+    private long seed;
+    private long timeBudgetMillis;
+    private Start winner;
+    private Start[] starts;
+
+    /**
+     * This class defines one seeded copy of the network in a race and how far it got.
+     *
+     * The Start class contains the following instance variables:
+     *    Network network: the copy of the network
+     *    long    seed: the seed of its random weights
+     *    int     iterations: the number of iterations that it ran
+     *    double  error: the error of its last iteration
+     *    boolean reachedThreshold: true if its error reached the error threshold
+     *
+     */
+    public static class Start
+    {
+        private Network network;
+        private long seed;
+        private volatile int iterations;
+        private volatile double error;
+        private volatile boolean reachedThreshold;
+
+        /**
+         * Creates a Start from a copy of a network and the seed of its random weights
+         *
+         * @param network the copy of the network
+         * @param seed    the seed of its random weights
+         */
+        public Start(Network network, long seed)
+        {
+            this.network = network;
+            this.seed = seed;
+            error = Double.MAX_VALUE;
+        } // public Start
+
+        public Network getNetwork()
+        {
+            return network;
+        }
+
+        public long getSeed()
+        {
+            return seed;
+        }
+
+        public int getIterations()
+        {
+            return iterations;
+        }
+
+        public double getError()
+        {
+            return error;
+        }
+
+        public boolean hasReachedThreshold()
+        {
+            return reachedThreshold;
+        }
+    } // public static class Start
+
+    /**
+     * Creates a MultiStartTrainer
+     *
+     * @param numStarts        the number of copies that race
+     * @param seed             the seed of the first copy
+     * @param timeBudgetMillis the milliseconds after which the copy with the lowest error is kept
+     */
+    public MultiStartTrainer(int numStarts, long seed, long timeBudgetMillis)
+    {
+        this.numStarts = Math.max(1, numStarts);
+        this.seed = seed;
+        this.timeBudgetMillis = timeBudgetMillis;
+    } // public MultiStartTrainer
+
+    public Start getWinner()
+    {
+        return winner;
+    }
+
+    public Start[] getStarts()
+    {
+        return starts;
+    }
+
+    /**
+     * trains one copy until it reaches the error threshold, runs out of iterations or the race is called off
+     *
+     * @param start     the copy
+     * @param cancelled set to true when the race is called off
+     */
+    private static void train(Start start, AtomicBoolean cancelled)
+    {
+        Network network = start.network;
+        network.randomizeWeights(network.getMinimumWeightValue(), network.getMaximumWeightValue(), new Random(start.seed));
+
+        while (start.iterations < network.getMaxIterations() && !cancelled.get())
+        {
+            start.error = network.runTrainingIteration(false);
+            start.iterations++;
+
+            if (start.error <= network.getErrorThreshold())
+            {
+                start.reachedThreshold = true;
+                return;
+            }
+        } // while (start.iterations < network.getMaxIterations() && !cancelled.get())
+    } // private static void train
+
+    /**
+     * races seeded copies of a network and returns the first copy to reach the error threshold, or the copy with the lowest error
+     * if none does within the time budget or the iterations of the network
+     *
+     * @param network the network, whose layers, hyperparameters and dataset are copied (its own weights are not changed)
+     * @return the copy that was kept
+     * @throws IllegalStateException if the race is interrupted
+     * @throws RuntimeException the first exception thrown by a copy, in the order of the copies, once every copy has stopped
+     */
+    public Network race(Network network)
+    {
+        starts = new Start[numStarts];
+        final AtomicReference<Start> first = new AtomicReference<Start>(); // the first copy to reach the threshold
+        final CountDownLatch finished = new CountDownLatch(1); // released by the first copy to reach the threshold
+        final CountDownLatch stopped = new CountDownLatch(numStarts); // released once every copy has stopped training
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(numStarts, new DaemonThreadFactory("start"));
+        List<Future<?>> results = new ArrayList<Future<?>>();
+
+        for (int index = 0; index < numStarts; index++)
+        {
+            final Start start = new Start(network.createTrainingCopy(), seed + index);
+            starts[index] = start;
+
+            results.add(pool.submit(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        train(start, cancelled);
+
+                        if (start.reachedThreshold)
+                        {
+                            first.compareAndSet(null, start);
+                            finished.countDown();
+                        }
+                    } // try
+                    catch (RuntimeException e)
+                    {
+                        cancelled.set(true); // calls off the race, which then rethrows the exception
+                        throw e;
+                    }
+                    finally
+                    {
+                        stopped.countDown();
+                    }
+                } // public void run
+            }));
+        } // for (int index = 0; index < numStarts; index++)
+
+        try
+        {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+
+            while (finished.getCount() > 0 && stopped.getCount() > 0 && System.nanoTime() < deadline)
+            {
+                finished.await(Math.min(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+            }
+
+            cancelled.set(true); // cancels every copy that is still training
+            stopped.await(); // every copy stops at the end of its current iteration, so its weights can be read
+
+            for (Future<?> result : results) // a copy that threw never trained to the end, so it cannot be kept
+            {
+                result.get();
+            }
+        } // try
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("the race was interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        winner = first.get();
+
+        if (winner == null) // no copy reached the threshold, so the copy with the lowest error is kept
+        {
+            winner = starts[0];
+
+            for (Start start : starts)
+            {
+                if (start.error < winner.error)
+                {
+                    winner = start;
+                }
+            }
+        } // if (winner == null)
+        return winner.network;
+    } // public Network race
+
+    /**
+     * trains the network of a parameters file in the format of testdoc.txt from each seed alone, one after another, and then
+     * races the same seeds, and prints the iterations and time of each
+     *
+     * @param args the parameters file, the number of copies, the seed of the first copy, the time budget in milliseconds and
+     *             optionally the hidden layers to use instead of those of the parameters file (such as "2", which often leaves
+     *             XOR stuck)
+     * @throws IOException if the parameters file cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String parametersFileName = args.length > 0 ? args[0] : "src/com/company/testdoc.txt";
+        int numStarts = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        long timeBudgetMillis = args.length > 3 ? Long.parseLong(args[3]) : 10000;
+        String hiddenLayers = args.length > 4 ? args[4] : null;
+
+        Scanner sc = new Scanner(new FileInputStream(new File(parametersFileName)));
+        Network network;
+
+        try
+        {
+            network = Network.readNetwork(sc);
+        }
+        finally
+        {
+            sc.close();
+        }
+
+        if (hiddenLayers != null)
+        {
+            network = network.createResizedCopy(Network.parseHiddenLayers(hiddenLayers));
+        }
+
+        System.out.printf("error threshold %.4f, at most %d iterations\n\n", network.getErrorThreshold(),
+                network.getMaxIterations());
+        System.out.println("seed  alone: iterations  error     ms");
+
+        double totalMillis = 0.0;
+        double slowestMillis = 0.0;
+        int stuck = 0;
+
+        for (int index = 0; index < numStarts; index++) // each seed alone, as trainNetwork would run it
+        {
+            Start start = new Start(network.createTrainingCopy(), seed + index);
+            long begin = System.nanoTime();
+            train(start, new AtomicBoolean());
+            double millis = (System.nanoTime() - begin) / 1e6;
+            totalMillis += millis;
+            slowestMillis = Math.max(slowestMillis, millis);
+            stuck += start.reachedThreshold ? 0 : 1;
+
+            System.out.printf("%4d  %17d  %.6f  %7.1f  %s\n", start.seed, start.iterations, start.error, millis,
+                    start.reachedThreshold ? "" : "did not reach the threshold");
+        } // for (int index = 0; index < numStarts; index++)
+
+        MultiStartTrainer trainer = new MultiStartTrainer(numStarts, seed, timeBudgetMillis);
+        long begin = System.nanoTime();
+        trainer.race(network);
+        double raceMillis = (System.nanoTime() - begin) / 1e6;
+
+        System.out.println("\nseed  race: iterations  error     result");
+
+        for (Start start : trainer.getStarts())
+        {
+            System.out.printf("%4d  %16d  %-8s  %s\n", start.seed, start.iterations,
+                    start.iterations == 0 ? "-" : String.format("%.6f", start.error),
+                    start == trainer.getWinner() ? "kept" : start.reachedThreshold ? "reached the threshold" :
+                    start.iterations == network.getMaxIterations() ? "ran out of iterations" : "cancelled");
+        }
+
+        System.out.printf("\n%d of %d single starts did not reach the threshold; a single start took %.1f ms on average and " +
+                "%.1f ms at worst\n", stuck, numStarts, totalMillis / numStarts, slowestMillis);
+        System.out.printf("the race of %d copies took %.1f ms and kept seed %d with error %.6f\n", numStarts, raceMillis,
+                trainer.getWinner().seed, trainer.getWinner().error);
+    } // public static void main
+} // public class MultiStartTrainer
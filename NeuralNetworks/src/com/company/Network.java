@@ -13,10 +13,18 @@ import java.util.*;
  * .txt file, and the class also contains a method that randomizes the weights between a certain inputted range. The values of
  * the activations in the first layer are also inputted by the user. The network can also calculate an error function defined as
  * E = (1/2) * (expectedValue - outputValue)^2. The network can minimize the error by taking the negative gradient of the error
- * function with respect to each individual weight. The network trains across every user-inputted test case by first randomizing
- * the weights, then taking the negative gradient of the error function with respect to each weight, multiplied by the learning
- * factor, for each test case until a certain error threshold is crossed or the maximum number iterations is reached. The network
- * utilizes the back propagation algorithm to apply changes to the weights on the fly in order to optimize the training process.
+ * function with respect to each individual weight. Optionally, the output layer can be a softmax layer instead of a sigmoid layer,
+ * in which case the error is the cross-entropy E = -sum(expectedValue * ln(outputValue)) and the psi of each output node reduces to
+ * (expectedValue - outputValue), so the output layer no longer saturates the way a sigmoid with a squared error does. The network
+ * trains across every user-inputted test case by first randomizing the weights, then taking the negative gradient of the error
+ * function with respect to each weight, multiplied by the learning factor, for each test case until a certain error threshold is
+ * crossed or the maximum number iterations is reached. The network utilizes the back propagation algorithm to apply changes to
+ * the weights on the fly in order to optimize the training process. The dense layers can also be preceded by a chain of feature
+ * layers (see: the Layer interface), such as convolution and pooling layers, which take the input of each test case with its
+ * spatial shape intact and produce the input activations of the dense layers. The omegas of the input activations are passed
+ * back through the feature layers so that they are trained together with the dense weights. The network trains on a Dataset,
+ * which by default wraps the testCases and expectedOutputValues arrays, but can be replaced with a dataset that streams its test
+ * cases from a file so that the test cases never have to fit in memory at once.
  * Documentation for the greek letter notation used to store values in the network(theta, omega, psi, lambda), as well as an
  * in-depth explanation on how back propagation works, can be found in the document "3-Minimizing and Optimizing the Error
  * Function."
@@ -36,31 +44,82 @@ import java.util.*;
  *    double[][]   testCases: stores the values of the input activations for every test case
  *    int          numTestCases: stores the number of test cases
  *    double[]     expectedOutputValues: stores the output values for every test case
+ *    Dataset      dataset: the test cases that the network trains on (wraps testCases and expectedOutputValues unless it is
+ *                 replaced with setDataset)
  *    double       errorThreshold: stores the value of the error threshold (how low the error should be before the network stops
  *                 training).
+ *    boolean      softmaxOutput: true if the output layer is a softmax layer trained with the cross-entropy error
+ *    Layer[]      featureLayers: the feature layers in front of the dense layers (empty if the inputs go straight into the dense
+ *                 layers)
+ *    int          inputSize: the number of input values in each test case, which is the input size of the first feature layer
+ *                 or the number of input activations if there are no feature layers
+ *    int[]        nonzeroInputs: the indices of the input activations that are not 0.0, in increasing order
+ *    int          numNonzeroInputs: the number of indices in nonzeroInputs
+ *    boolean      inputsChanged: true if an input activation was set since nonzeroInputs was last made
+ *    double       sparseInputDensity: the largest fraction of nonzero input activations at which the first layer visits only
+ *                 the nonzero inputs
+ *    LayerParallelism layerParallelism: the worker threads that wide layers are split across, or null to run every layer on
+ *                 the calling thread
+ *    double[][]   psis: the psi of every node of each layer, kept for the split weight updates
  *
  * The network class contains the following methods:
  *    void       calculateActivation(int layer, int index)
  *    void       calculateAllActivations()
+ *    void       calculateAllActivations(long[] bits)
+ *    void       calculateActivationsFromFirstThetas(double[] firstThetas)
  *    double     calculateError(double[] expectedValues)
+ *    double     calculateError(double[] outputs, double[] expectedValues, int length, boolean softmax)
  *    void       calculateLayerOfActivations(int layer)
+ *    double     calculatePsi(int layer, int index)
+ *    void       calculateSoftmaxLayer(int layer)
  *    double     calculateWeightedSum(int layer, int index)
+ *    Network    createInferenceCopy()
+ *    Network    createResizedCopy(int[] hiddenLayerNodes)
+ *    Network    createTrainingCopy()
+ *    double[][][] copyWeights()
+ *    int        countWeights()
  *    double     derivativeOfErrorWithRespectToWeight(int inputNode, int outputNode, int psi)
  *    double     derivativeOfThreshold(double input)
  *    double     getActivation(int layer, int index)
  *    double[][] getActivations()
+ *    Dataset    getDataset()
+ *    Layer[]    getFeatureLayers()
+ *    double     getErrorThreshold()
+ *    int        getMaxIterations()
+ *    double     getMaximumWeightValue()
+ *    double     getMinimumWeightValue()
+ *    double[][][] getWeights()
  *    double[]   getOutputActivations()
+ *    Layer[]    readFeatureLayers(Scanner sc, int height, int width)
+ *    Network    readNetwork(Scanner sc)
+ *    int[]      parseHiddenLayers(String layers)
+ *    int        getMaxOutputIndex()
  *    double     getRandomNumberInRange(double min, double max)
  *    void       lowerErrorForAllWeights(double[] expectedValues)
+ *    void       outputWeightsToTextFile(String fileName)
  *    void       printActivations()
  *    void       printAllWeights()
  *    void       randomizeWeights(int min, int max)
+ *    void       randomizeWeights(double min, double max, Random random)
+ *    void       restoreWeights(double[][][] copy)
  *    void       setAllWeights(Scanner sc)
  *    void       setAllExpectedOutputValues(Scanner sc)
  *    void       setInputActivation(int index, double value)
+ *    void       setInputs(double[] inputs)
+ *    void       setSoftmaxOutput(boolean softmax)
+ *    void       setSparseInputDensity(double density)
+ *    void       setLayerParallelism(LayerParallelism parallelism)
+ *    boolean    useSparseInputs()
+ *    boolean    isSoftmaxOutput()
+ *    boolean    readOutputLayerKeyword(Scanner sc)
  *    void       setAllTestCases(Scanner sc)
+ *    void       setDataset(Dataset dataset)
  *    void       setWeight(int layer, int inputNodeIndex, int outputNodeIndex, double value)
  *    double     thresholdFunction(double input)
+ *    void       calculateOutputLayer(double[] thetas, double[] outputs, int length, boolean softmax)
+ *    int        getMaxIndex(double[] values, int length)
+ *    void       softmax(double[] thetas, double[] outputs, int length)
+ *    double     runTrainingIteration(boolean printErrors)
  *    void       trainNetwork()
  *    void       main(String[] args)
  *
@@ -80,7 +139,31 @@ public class Network
     private double[][] testCases;
     private int numTestCases;
     private double[][] expectedOutputValues;
+    private Dataset dataset;
     private double errorThreshold;
+    private boolean softmaxOutput;
+    private Layer[] featureLayers;
+    private int inputSize;
+    private int[] nonzeroInputs;
+    private int numNonzeroInputs;
+    private boolean inputsChanged;
+    private double sparseInputDensity;
+    private LayerParallelism layerParallelism;
+    private double[][] psis;
+
+    /**
+     * the keyword in a parameters file that selects a softmax output layer trained with the cross-entropy error
+     */
+    public static final String SOFTMAX_KEYWORD = "softmax";
+
+    /**
+     * the default largest fraction of nonzero input activations at which the first layer visits only the nonzero inputs. Both
+     * paths read the weights in the same order, so the sparse path only saves the multiplications and weight updates of the
+     * zero inputs and costs an index lookup for each of the others; SparseInputBenchmark measured the two paths breaking even
+     * at about 0.75 of the inputs for training and 0.9 for inference on a 10201-50-5 network, so the sparse path is taken
+     * below 0.6, where it is faster for both
+     */
+    public static final double SPARSE_INPUT_DENSITY = 0.6;
 
     /**
      * Creates a Network object that takes in the number of input nodes, the number of hidden layer nodes, and the
@@ -142,14 +225,156 @@ public class Network
         testCases = new double[numTestCases][inputNodes];             // sets the size of the test case array
         this.numTestCases = numTestCases;                             // sets the number of test cases
         expectedOutputValues = new double[numTestCases][outputNodes]; // sets the size of the expected output array
+        dataset = new InMemoryDataset(testCases, expectedOutputValues, inputNodes, outputNodes); // trains on the arrays above
 
         minimumWeightValue = minWeightValue;                          // sets the minimum value of a random weight
         maximumWeightValue = maxWeightValue;                          // sets the maximum value of a random weight
 
         errorThreshold = threshold;                                   // sets the error threshold
 
+        featureLayers = new Layer[0];                                 // the inputs go straight into the dense layers
+        inputSize = inputNodes;
+
+        nonzeroInputs = new int[inputNodes];                          // found from the input activations when they are used
+        inputsChanged = true;
+        sparseInputDensity = SPARSE_INPUT_DENSITY;
+
     } // public Network
 
+    /**
+     * Creates a Network object whose dense layers are preceded by a chain of feature layers. The input of each test case is
+     * passed through the feature layers in order, and the output of the last feature layer becomes the input activations of the
+     * dense layers.
+     *
+     * @param featureLayers    the feature layers, in order from the input to the dense layers
+     * @param hiddenLayerNodes the number of nodes in each hidden layer, with hiddenLayerNodes.length representing
+     *                         the number of layers
+     * @param outputNodes      the number of nodes in the output layer in the network
+     * @param lambda           the value of the learning factor used to minimize the error
+     * @param maxIterations    the maximum number of iterations the network will run when minimizing error
+     * @param numTestCases     the number of test cases that the network will have
+     * @param minWeightValue   the minimum value that a randomly generated weight can be.
+     * @param maxWeightValue   the maximum value that a randomly generated weight can be.
+     * @param threshold        the value of the error threshold (how low the error should be before the network stops training).
+     * @throws IllegalArgumentException if the output size of a feature layer does not match the input size of the next one
+     */
+    public Network(Layer[] featureLayers, int[] hiddenLayerNodes, int outputNodes, double lambda, int maxIterations,
+                   int numTestCases, double minWeightValue, double maxWeightValue, double threshold)
+    {
+        this(featureLayers[featureLayers.length - 1].getOutputSize(), hiddenLayerNodes, outputNodes, lambda, maxIterations, 0,
+                minWeightValue, maxWeightValue, threshold);
+
+        for (int n = 1; n < featureLayers.length; n++)
+        {
+            if (featureLayers[n - 1].getOutputSize() != featureLayers[n].getInputSize())
+            {
+                throw new IllegalArgumentException("feature layer " + (n - 1) + " produces " +
+                        featureLayers[n - 1].getOutputSize() + " values but feature layer " + n + " takes " +
+                        featureLayers[n].getInputSize());
+            }
+        }
+
+        this.featureLayers = featureLayers;
+        inputSize = featureLayers[0].getInputSize();
+
+        testCases = new double[numTestCases][inputSize];              // the test cases hold the inputs of the first feature layer
+        this.numTestCases = numTestCases;
+        expectedOutputValues = new double[numTestCases][outputNodes];
+        dataset = new InMemoryDataset(testCases, expectedOutputValues, inputSize, outputNodes);
+    } // public Network
+
+    /**
+     * Creates a Network that shares the weights of another network but has its own activations, thetas and omegas, so that
+     * each thread can propagate its own inputs forward through the same trained weights at the same time. The copy has no
+     * test cases of its own, and it must not be trained while other copies are running, since the weights are shared.
+     *
+     * @param original the network whose weights are shared
+     */
+    private Network(Network original)
+    {
+        numLayers = original.numLayers;
+        activationArraySizes = original.activationArraySizes;
+        weights = original.weights;                            // shared, never copied
+
+        activations = new double[numLayers][];
+        omegas = new double[numLayers][];
+        thetas = new double[numLayers][];
+
+        for (int n = 0; n < numLayers; n++)
+        {
+            activations[n] = new double[activationArraySizes[n]];
+            omegas[n] = new double[activationArraySizes[n]];
+            thetas[n] = new double[activationArraySizes[n]];
+        }
+
+        learningFactor = original.learningFactor;
+        maxIterations = original.maxIterations;
+        minimumWeightValue = original.minimumWeightValue;
+        maximumWeightValue = original.maximumWeightValue;
+        errorThreshold = original.errorThreshold;
+        softmaxOutput = original.softmaxOutput;
+        featureLayers = original.featureLayers;
+        inputSize = original.inputSize;
+
+        nonzeroInputs = new int[activationArraySizes[0]];
+        inputsChanged = true;
+        sparseInputDensity = original.sparseInputDensity;
+
+        testCases = new double[0][inputSize];
+        expectedOutputValues = new double[0][activationArraySizes[numLayers - 1]];
+        dataset = original.dataset;
+    } // private Network
+
+    /**
+     * creates an untrained network with the same input and output layers, hyperparameters, output layer and dataset as this one
+     * but different hidden layers, for example to copy the weights of the hidden nodes that are kept after pruning into
+     *
+     * @param hiddenLayerNodes the number of nodes in each hidden layer of the new network
+     * @return the new network, whose weights are all zero
+     * @throws IllegalStateException if the network has feature layers
+     */
+    public Network createResizedCopy(int[] hiddenLayerNodes)
+    {
+        if (featureLayers.length > 0)
+        {
+            throw new IllegalStateException("a network with feature layers cannot share them with a resized copy");
+        }
+
+        Network copy = new Network(activationArraySizes[0], hiddenLayerNodes, activationArraySizes[numLayers - 1], learningFactor,
+                maxIterations, 0, minimumWeightValue, maximumWeightValue, errorThreshold);
+        copy.setSoftmaxOutput(softmaxOutput);
+        copy.setDataset(dataset);
+        return copy;
+    } // public Network createResizedCopy
+
+    /**
+     * creates an untrained network with the same layers, hyperparameters, output layer and dataset as this one, for example to
+     * train several copies of the same network from different random weights on different threads
+     *
+     * @return the new network, whose weights are all zero
+     * @throws IllegalStateException if the network has feature layers
+     */
+    public Network createTrainingCopy()
+    {
+        return createResizedCopy(Arrays.copyOfRange(activationArraySizes, 1, numLayers - 1));
+    } // public Network createTrainingCopy
+
+    /**
+     * creates a copy of the network for inference on another thread (see: the private copy constructor). Feature layers keep
+     * their outputs in buffers of their own, so a network with feature layers cannot be shared this way.
+     *
+     * @return a network that shares these weights but has its own activations
+     * @throws IllegalStateException if the network has feature layers
+     */
+    public Network createInferenceCopy()
+    {
+        if (featureLayers.length > 0)
+        {
+            throw new IllegalStateException("a network with feature layers cannot share them between threads");
+        }
+        return new Network(this);
+    } // public Network createInferenceCopy
+
     /**
      * gets the activation array
      *
@@ -161,6 +386,98 @@ public class Network
     } // public double[][] getActivations
 
 
+    /**
+     * gets the weight array, indexed by layer, input node and output node
+     *
+     * @return the 3d array of weights (not a copy)
+     */
+    public double[][][] getWeights()
+    {
+        return weights;
+    } // public double[][][] getWeights
+
+    /**
+     * copies every dense weight of the network
+     *
+     * @return a copy of the weights, indexed the same way as getWeights
+     */
+    public double[][][] copyWeights()
+    {
+        double[][][] copy = new double[weights.length][][];
+
+        for (int n = 0; n < weights.length; n++)
+        {
+            copy[n] = new double[weights[n].length][];
+
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                copy[n][inputNode] = weights[n][inputNode].clone();
+            }
+        }
+        return copy;
+    } // public double[][][] copyWeights
+
+    /**
+     * sets every dense weight of the network to the weights of a copy
+     *
+     * @param copy the weights, from copyWeights of this network or of one with the same layers
+     */
+    public void restoreWeights(double[][][] copy)
+    {
+        for (int n = 0; n < weights.length; n++)
+        {
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                System.arraycopy(copy[n][inputNode], 0, weights[n][inputNode], 0, weights[n][inputNode].length);
+            }
+        }
+    } // public void restoreWeights
+
+    /**
+     * counts the dense weights of the network
+     *
+     * @return the number of weights between every pair of adjacent layers
+     */
+    public int countWeights()
+    {
+        int count = 0;
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            count += activationArraySizes[n] * activationArraySizes[n + 1];
+        }
+        return count;
+    } // public int countWeights
+
+    /**
+     * gets the dataset that the network trains on
+     *
+     * @return the dataset that the network trains on
+     */
+    public Dataset getDataset()
+    {
+        return dataset;
+    } // public Dataset getDataset
+
+    /**
+     * replaces the dataset that the network trains on, for example with a StreamingDataset whose test cases do not fit in
+     * memory. A network that only trains on such a dataset can be created with 0 test cases so that the testCases and
+     * expectedOutputValues arrays take no memory.
+     *
+     * @param dataset the dataset that the network trains on
+     * @throws IllegalArgumentException if the sizes of the test cases do not match the input and output sizes of the network
+     */
+    public void setDataset(Dataset dataset)
+    {
+        if (dataset.getInputSize() != inputSize || dataset.getOutputSize() != activationArraySizes[numLayers - 1])
+        {
+            throw new IllegalArgumentException("the dataset has " + dataset.getInputSize() + " inputs and " +
+                    dataset.getOutputSize() + " outputs but the network has " + inputSize + " inputs and " +
+                    activationArraySizes[numLayers - 1] + " outputs");
+        }
+        this.dataset = dataset;
+    } // public void setDataset
+
     /**
      * returns the value stored in a specific activation
      *
@@ -179,10 +496,187 @@ public class Network
      * @param input the value of the input in the function
      * @return the output of the function
      */
-    public double thresholdFunction(double input)
+    public static double thresholdFunction(double input)
     {
         return 1.0 / (1.0 + Math.exp(- input));
-    } // public double thresholdFunction
+    } // public static double thresholdFunction
+
+    /**
+     * sets whether the output layer is a softmax layer trained with the cross-entropy error, or a sigmoid layer trained with
+     * the squared error
+     *
+     * @param softmax true to use a softmax output layer, false to use a sigmoid output layer
+     */
+    public void setSoftmaxOutput(boolean softmax)
+    {
+        softmaxOutput = softmax;
+    } // public void setSoftmaxOutput
+
+    /**
+     * returns whether the output layer is a softmax layer trained with the cross-entropy error
+     *
+     * @return true if the output layer is a softmax layer
+     */
+    public boolean isSoftmaxOutput()
+    {
+        return softmaxOutput;
+    } // public boolean isSoftmaxOutput
+
+    /**
+     * gets the feature layers in front of the dense layers
+     *
+     * @return the feature layers, which is empty if the inputs go straight into the dense layers
+     */
+    public Layer[] getFeatureLayers()
+    {
+        return featureLayers;
+    } // public Layer[] getFeatureLayers
+
+    /**
+     * gets the error that training stops at
+     *
+     * @return the error threshold
+     */
+    public double getErrorThreshold()
+    {
+        return errorThreshold;
+    } // public double getErrorThreshold
+
+    /**
+     * gets the largest number of iterations that trainNetwork runs
+     *
+     * @return the maximum number of iterations
+     */
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    } // public int getMaxIterations
+
+    /**
+     * gets the smallest value of a random weight
+     *
+     * @return the minimum weight value
+     */
+    public double getMinimumWeightValue()
+    {
+        return minimumWeightValue;
+    } // public double getMinimumWeightValue
+
+    /**
+     * gets the largest value of a random weight
+     *
+     * @return the maximum weight value
+     */
+    public double getMaximumWeightValue()
+    {
+        return maximumWeightValue;
+    } // public double getMaximumWeightValue
+
+    /**
+     * reads the optional output layer keyword from a parameters file. If the next token is "softmax", the token is consumed and
+     * the method returns true; otherwise nothing is consumed, so parameters files without the keyword are read as before.
+     *
+     * @param sc the scanner that reads the parameters file
+     * @return true if the parameters file selects a softmax output layer
+     */
+    public static boolean readOutputLayerKeyword(Scanner sc)
+    {
+        boolean softmax = sc.hasNext(SOFTMAX_KEYWORD);
+
+        if (softmax)
+        {
+            sc.next(); // consumes the keyword
+        }
+        return softmax;
+    } // public static boolean readOutputLayerKeyword
+
+    /**
+     * turns a list of thetas into a probability distribution with the softmax function a = e^theta / sum(e^theta). The largest
+     * theta is subtracted from every theta before exponentiating so that the exponentials cannot overflow. The outputs may be
+     * the same array as the thetas.
+     *
+     * @param thetas  the thetas
+     * @param outputs the array that the probabilities are stored in
+     * @param length  the number of thetas
+     */
+    public static void softmax(double[] thetas, double[] outputs, int length)
+    {
+        double maxTheta = thetas[0];
+
+        for (int node = 1; node < length; node++)
+        {
+            maxTheta = Math.max(maxTheta, thetas[node]);
+        }
+
+        double sum = 0.0;
+
+        for (int node = 0; node < length; node++)
+        {
+            outputs[node] = Math.exp(thetas[node] - maxTheta);
+            sum += outputs[node];
+        }
+
+        for (int node = 0; node < length; node++)
+        {
+            outputs[node] /= sum;
+        }
+    } // public static void softmax
+
+    /**
+     * turns the thetas of an output layer into its activations the same way the network does, with the softmax function or with
+     * the sigmoid of each theta, so that the inference variants of a network (such as QuantizedNetwork) produce the same outputs
+     * as the network they were made from. The outputs may be the same array as the thetas.
+     *
+     * @param thetas  the thetas of the output layer
+     * @param outputs the array that the activations are stored in
+     * @param length  the number of nodes in the output layer
+     * @param softmax true for a softmax output layer, false for a sigmoid output layer
+     */
+    public static void calculateOutputLayer(double[] thetas, double[] outputs, int length, boolean softmax)
+    {
+        if (softmax)
+        {
+            softmax(thetas, outputs, length);
+        }
+        else
+        {
+            for (int node = 0; node < length; node++)
+            {
+                outputs[node] = thresholdFunction(thetas[node]);
+            }
+        }
+    } // public static void calculateOutputLayer
+
+    /**
+     * turns the thetas of a layer into a probability distribution with the softmax function (see: softmax)
+     *
+     * @param layer the layer whose activations are calculated from its thetas
+     */
+    public void calculateSoftmaxLayer(int layer)
+    {
+        softmax(thetas[layer], activations[layer], activationArraySizes[layer]);
+    } // public void calculateSoftmaxLayer
+
+    /**
+     * returns the index of the largest of a list of values, or of the first of them if several are equally large
+     *
+     * @param values the values, such as the output activations of a network
+     * @param length the number of values
+     * @return the index of the largest value
+     */
+    public static int getMaxIndex(double[] values, int length)
+    {
+        int maxIndex = 0;
+
+        for (int index = 1; index < length; index++)
+        {
+            if (values[index] > values[maxIndex])
+            {
+                maxIndex = index;
+            }
+        }
+        return maxIndex;
+    } // public static int getMaxIndex
 
     /**
      * returns the derivative of the sigmoid threshold function at a value "input"
@@ -196,7 +690,9 @@ public class Network
     } // public double derivativeOfThreshold
 
     /**
-     * calculates the weighted sum of a specific activation by taking a weighted sum of all the values in the layer before
+     * calculates the weighted sum of a specific activation by taking a weighted sum of all the values in the layer before. In the
+     * first hidden layer the input activations that are 0.0 add nothing, so when few of them are nonzero (see: useSparseInputs)
+     * only the nonzero ones are visited.
      *
      * @param layer the layer that the requested activation is in
      * @param index the index of the requested activation
@@ -206,6 +702,16 @@ public class Network
     {
         double sum = 0.0; // defines a variable that stores the value of the weighted sum
 
+        if (layer == 1 && useSparseInputs())
+        {
+            for (int k = 0; k < numNonzeroInputs; k++) // iterates through the nonzero input activations only
+            {
+                int node = nonzeroInputs[k];
+                sum += activations[0][node] * weights[0][node][index];
+            }
+            return sum;
+        }
+
         for (int node = 0; node < activationArraySizes[layer - 1]; node++)
         {
             sum += activations[layer - 1][node] * weights[layer - 1][node][index]; // adds the dot product to the sum
@@ -241,17 +747,56 @@ public class Network
      * @return the error of the training set
      */
     public double calculateError(int testCase)
+    {
+        return calculateError(expectedOutputValues[testCase]);
+    } // public double calculateError
+
+    /**
+     * calculates the error of the current output activations against a set of expected values. For a sigmoid output layer the
+     * error is E = (1/2) * sum((expectedValue - outputNode)^2); for a softmax output layer it is the cross-entropy
+     * E = -sum(expectedValue * ln(outputNode)).
+     *
+     * @param expectedValues the expected output values
+     * @return the error of the output activations
+     */
+    public double calculateError(double[] expectedValues)
+    {
+        return calculateError(activations[numLayers - 1], expectedValues, activationArraySizes[numLayers - 1], softmaxOutput);
+    } // public double calculateError
+
+    /**
+     * calculates the error of a set of output activations against a set of expected values, the squared error for a sigmoid
+     * output layer or the cross-entropy for a softmax output layer, so that other implementations of the forward pass (see:
+     * LowRankNetwork) measure their outputs the same way as the network
+     *
+     * @param outputs        the output activations
+     * @param expectedValues the expected output values
+     * @param length         the number of output activations
+     * @param softmax        true if the outputs come from a softmax layer
+     * @return the error of the output activations
+     */
+    public static double calculateError(double[] outputs, double[] expectedValues, int length, boolean softmax)
     {
         double totalError = 0.0; // stores the sum of the errors of all the output values
 
-        for (int outputNode = 0; outputNode < activationArraySizes[numLayers - 1]; outputNode++)
+        for (int outputNode = 0; outputNode < length; outputNode++)
         {
-            double difference = expectedOutputValues[testCase][outputNode] - activations[numLayers - 1][outputNode];
-            totalError += difference * difference;
-        }
+            if (softmax)
+            {
+                if (expectedValues[outputNode] != 0.0) // skips the terms that are zero so that ln(0) is never multiplied by 0
+                {
+                    totalError -= expectedValues[outputNode] * Math.log(outputs[outputNode]);
+                }
+            }
+            else
+            {
+                double difference = expectedValues[outputNode] - outputs[outputNode];
+                totalError += difference * difference;
+            }
+        } // for (int outputNode = 0; outputNode < length; outputNode++)
 
-        return (0.5) * totalError;
-    } // public double calculateError
+        return softmax ? totalError : (0.5) * totalError;
+    } // public static double calculateError
 
     /**
      * sets the value of a specific weight to a specified value
@@ -277,16 +822,160 @@ public class Network
     {
         activations[0][index] = value;
         thetas[0][index] = value;
+        inputsChanged = true; // the nonzero inputs are found again the next time they are used
     } // public void setInputActivation
 
-    public void setAllInputActivations(int testCase)
+    /**
+     * sets the largest fraction of nonzero input activations at which the first layer visits only the nonzero inputs. A density
+     * of 0.0 always uses the dense path and a density above 1.0 always uses the sparse path.
+     *
+     * @param density the fraction of the input activations, from 0.0 to 1.0
+     */
+    public void setSparseInputDensity(double density)
+    {
+        sparseInputDensity = density;
+    }
+
+    /**
+     * decides whether the first layer visits only the nonzero input activations, finding them first if an input activation was
+     * set since they were last found. The input activations must be set with setInputActivation or setInputs, not written into
+     * the array from getActivations, for the change to be seen.
+     *
+     * @return true if the fraction of nonzero input activations is below the sparse input density
+     */
+    public boolean useSparseInputs()
+    {
+        if (inputsChanged)
+        {
+            numNonzeroInputs = 0;
+
+            for (int node = 0; node < activationArraySizes[0]; node++)
+            {
+                if (activations[0][node] != 0.0)
+                {
+                    nonzeroInputs[numNonzeroInputs++] = node;
+                }
+            }
+            inputsChanged = false;
+        } // if (inputsChanged)
+        return numNonzeroInputs < sparseInputDensity * activationArraySizes[0];
+    } // public boolean useSparseInputs
+
+    /**
+     * splits the forward pass and the weight updates of every layer with at least the threshold number of weights of a
+     * LayerParallelism across its worker threads: the output nodes of the layer in the forward pass, and the input nodes in
+     * lowerErrorForAllWeights. The results are the same as on one thread.
+     *
+     * @param parallelism the worker threads, or null to run every layer on the calling thread
+     */
+    public void setLayerParallelism(LayerParallelism parallelism)
     {
-        for (int node = 0; node < activationArraySizes[0]; node++) // iterates through each input node in the test case
+        layerParallelism = parallelism;
+
+        if (parallelism != null && psis == null)
         {
-            setInputActivation(node, testCases[testCase][node]);
+            psis = new double[numLayers][];
+
+            for (int n = 0; n < numLayers; n++)
+            {
+                psis[n] = new double[activationArraySizes[n]];
+            }
         }
+    } // public void setLayerParallelism
+
+    /**
+     * decides whether a layer of weights is split across the worker threads
+     *
+     * @param n the index of the layer of weights
+     * @return true if there is a LayerParallelism and the layer has at least its threshold number of weights
+     */
+    private boolean splitsLayer(int n)
+    {
+        return layerParallelism != null &&
+                layerParallelism.shouldSplit((long) activationArraySizes[n] * activationArraySizes[n + 1]);
+    }
+
+    public void setAllInputActivations(int testCase)
+    {
+        setInputs(testCases[testCase]);
     }
 
+    /**
+     * sets the input activations of the dense layers from the inputs of a test case. If the network has feature layers, the
+     * inputs are passed through every feature layer first and the output of the last one becomes the input activations.
+     *
+     * @param inputs the inputs of the test case, which must have inputSize values
+     */
+    public void setInputs(double[] inputs)
+    {
+        double[] values = inputs;
+
+        for (int layer = 0; layer < featureLayers.length; layer++) // propagates forward through the feature layers
+        {
+            values = featureLayers[layer].calculateOutputs(values);
+        }
+
+        for (int node = 0; node < activationArraySizes[0]; node++) // iterates through each input node
+        {
+            setInputActivation(node, values[node]);
+        }
+    } // public void setInputs
+
+    /**
+     * reads the optional feature layers of a network that takes images as input from a parameters file. Each feature layer is
+     * given by a keyword followed by its sizes, and the layers are read until the next token is not a layer keyword:
+     *    conv    numFilters kernelSize stride     a convolution layer
+     *    maxpool poolSize                         a max pooling layer
+     *    avgpool poolSize                         an average pooling layer
+     *    dense   numNodes                         a fully connected layer (flattens the channels)
+     * The shape of each layer is calculated from the shape of the layer before, starting from a single grayscale channel of the
+     * given height and width.
+     *
+     * @param sc     the scanner that reads the parameters file
+     * @param height the number of rows in each input image
+     * @param width  the number of columns in each input image
+     * @return the feature layers, or an empty array if the parameters file does not have any
+     */
+    public static Layer[] readFeatureLayers(Scanner sc, int height, int width)
+    {
+        ArrayList<Layer> layers = new ArrayList<Layer>();
+        int channels = 1;
+
+        while (sc.hasNext("conv|maxpool|avgpool|dense"))
+        {
+            String keyword = sc.next();
+            Layer layer;
+
+            if (keyword.equals("conv"))
+            {
+                ConvolutionLayer convolution = new ConvolutionLayer(channels, height, width, sc.nextInt(), sc.nextInt(),
+                        sc.nextInt());
+                channels = convolution.getOutputChannels();
+                height = convolution.getOutputHeight();
+                width = convolution.getOutputWidth();
+                layer = convolution;
+            }
+            else if (keyword.equals("dense"))
+            {
+                layer = new DenseLayer(channels * height * width, sc.nextInt());
+                channels = layer.getOutputSize();
+                height = 1;
+                width = 1;
+            }
+            else
+            {
+                PoolingLayer pooling = new PoolingLayer(keyword.equals("maxpool"), channels, height, width, sc.nextInt());
+                height = pooling.getOutputHeight();
+                width = pooling.getOutputWidth();
+                layer = pooling;
+            }
+
+            layers.add(layer);
+        } // while (sc.hasNext("conv|maxpool|avgpool|dense"))
+
+        return layers.toArray(new Layer[layers.size()]);
+    } // public static Layer[] readFeatureLayers
+
     /**
      * returns a double in the range min < x < max
      *
@@ -316,6 +1005,11 @@ public class Network
                 }
             } // for (int inputNode = 0; inputNode < activationArraySizes[n]; inputNode++)
         } // for (int n = 0; n < numLayers - 1; n++)
+
+        for (int layer = 0; layer < featureLayers.length; layer++) // the feature layer weights follow the dense weights
+        {
+            featureLayers[layer].setAllWeights(sc);
+        }
     } // public void setAllWeights
 
     /**
@@ -325,7 +1019,7 @@ public class Network
      */
     public void setTestCase(Scanner sc, int index)
     {
-        for (int node = 0; node < activationArraySizes[0]; node++) // iterates through the input nodes
+        for (int node = 0; node < inputSize; node++) // iterates through the input nodes
         {
             double value = sc.nextDouble();
             testCases[index][node] = value;
@@ -335,7 +1029,7 @@ public class Network
 
     public void setTestCaseAndOutputValue(Scanner sc, int index)
     {
-        for (int node = 0; node < activationArraySizes[0]; node++) // iterates through the input nodes
+        for (int node = 0; node < inputSize; node++) // iterates through the input nodes
         {
             double value = sc.nextDouble();
             testCases[index][node] = value;
@@ -412,10 +1106,20 @@ public class Network
      * outputs the weights to a text file
      */
     public void outputWeightsToTextFile() throws Exception
+    {
+        outputWeightsToTextFile("weights");
+    } // public void outputWeightsToTextFile
+
+    /**
+     * outputs the weights to a text file with the given name, in the order that setAllWeights reads them
+     *
+     * @param fileName the name of the file
+     */
+    public void outputWeightsToTextFile(String fileName) throws Exception
     {
         try
         {
-            PrintWriter out = new PrintWriter(new FileWriter("weights"));
+            PrintWriter out = new PrintWriter(new FileWriter(fileName));
             for (int n = 0; n < numLayers - 1; n++) // iterates through the layers
             {
                 for (int inputNode = 0; inputNode < activationArraySizes[n]; inputNode++) // iterates through input node indices
@@ -426,6 +1130,11 @@ public class Network
                     }
                 } // for (int inputNode = 0; inputNode < activationArraySizes[n]; inputNode++)
             } // for (int n = 0; n < numLayers - 1; n++)
+
+            for (int layer = 0; layer < featureLayers.length; layer++) // the feature layer weights follow the dense weights
+            {
+                featureLayers[layer].outputWeights(out);
+            }
             out.close();
         }
         catch (IOException e)
@@ -454,6 +1163,39 @@ public class Network
                 }
             } // for (int inputNode = 0; inputNode < activationArraySizes[n]; inputNode++)
         } // for (int n = 0; n < numLayers - 1; n++)
+
+        for (int layer = 0; layer < featureLayers.length; layer++)
+        {
+            featureLayers[layer].randomizeWeights(min, max);
+        }
+    } // public void randomizeWeights
+
+    /**
+     * randomizes the weights in the network to a double in the range min to max drawn from the given source, so that a
+     * network can be seeded and several networks can be randomized on different threads without sharing the source of
+     * Math.random. Any feature layers are randomized from the same source, after the dense weights.
+     *
+     * @param min    the minimum possible value of the weight
+     * @param max    the maximum possible value of the weight
+     * @param random the source of the random values
+     */
+    public void randomizeWeights(double min, double max, Random random)
+    {
+        for (int n = 0; n < numLayers - 1; n++) // iterates through the layers
+        {
+            for (int inputNode = 0; inputNode < activationArraySizes[n]; inputNode++)
+            {
+                for (int outputNode = 0; outputNode < activationArraySizes[n + 1]; outputNode++)
+                {
+                    setWeight(n, inputNode, outputNode, random.nextDouble() * (max - min) + min);
+                }
+            }
+        } // for (int n = 0; n < numLayers - 1; n++)
+
+        for (int layer = 0; layer < featureLayers.length; layer++)
+        {
+            featureLayers[layer].randomizeWeights(min, max, random);
+        }
     } // public void randomizeWeights
 
     /**
@@ -489,18 +1231,133 @@ public class Network
      */
     public void calculateAllActivations()
     {
+        useSparseInputs(); // finds the nonzero inputs here, so that split layers only ever read them
+
         for (int n = 1; n < numLayers; n++) // iterates from the first hidden layer to the output layer
         {
-            for (int node = 0; node < activationArraySizes[n]; node++) // iterates through all the nodes in a layer
+            calculateLayerOfThetas(n);
+        }
+
+        if (softmaxOutput)
+        {
+            calculateSoftmaxLayer(numLayers - 1); // replaces the sigmoid outputs with the softmax of the output thetas
+        }
+    } // public void calculateAllActivations
+
+    /**
+     * calculates the thetas and activations of every node in a layer, splitting the nodes across the worker threads if the
+     * layer is wide enough (see: setLayerParallelism)
+     *
+     * @param layer the layer, from 1 to the output layer
+     */
+    private void calculateLayerOfThetas(final int layer)
+    {
+        if (splitsLayer(layer - 1))
+        {
+            layerParallelism.forEachRange(activationArraySizes[layer], new LayerParallelism.Range()
+            {
+                public void run(int start, int end)
+                {
+                    calculateThetas(layer, start, end);
+                }
+            });
+        }
+        else
+        {
+            calculateThetas(layer, 0, activationArraySizes[layer]);
+        }
+    } // private void calculateLayerOfThetas
+
+    /**
+     * calculates the thetas and activations of a range of the nodes of a layer
+     *
+     * @param layer the layer, from 1 to the output layer
+     * @param start the first node of the range
+     * @param end   one past the last node of the range
+     */
+    private void calculateThetas(int layer, int start, int end)
+    {
+        for (int node = start; node < end; node++) // iterates through the nodes of the range
+        {
+            double weightedSum = calculateWeightedSum(layer, node); // calculates the weighted sum
+
+            thetas[layer][node] = weightedSum;
+            activations[layer][node] = thresholdFunction(weightedSum);
+        }
+    } // private void calculateThetas
+
+    /**
+     * Propagates forward from input activations that are all 0.0 or 1.0, packed 64 to a long with input node i in bit i % 64
+     * of bits[i / 64] (see: BitPackedDataset). Since every input is 0 or 1, the theta of each node in the first hidden layer is
+     * just the sum of the weights of the set bits, so the weighted sums are made by adding the row of weights of each set bit,
+     * skipping the inputs that are 0 and every multiplication. The input activations are set to the bits as well, so that
+     * lowerErrorForAllWeights can train on them afterward. The fewer bits are set, the faster this is, so images should be
+     * packed with the rarer of their two colors as the set bits.
+     *
+     * @param bits the packed input activations of the dense layers
+     * @throws IllegalStateException if the network has feature layers, whose inputs are not the input activations
+     * @throws IllegalArgumentException if the bits are not exactly one bit per input node (see: BitPackedDataset.checkBits)
+     */
+    public void calculateAllActivations(long[] bits)
+    {
+        if (featureLayers.length > 0)
+        {
+            throw new IllegalStateException("packed inputs go straight into the dense layers, so feature layers are not supported");
+        }
+        BitPackedDataset.checkBits(bits, activations[0].length);
+
+        Arrays.fill(activations[0], 0.0);
+        Arrays.fill(thetas[0], 0.0);
+        Arrays.fill(thetas[1], 0.0);
+
+        for (int word = 0; word < bits.length; word++) // iterates through the words of 64 input nodes
+        {
+            long remaining = bits[word];
+
+            while (remaining != 0L) // visits only the set bits, lowest first
             {
-                double weightedSum = calculateWeightedSum(n, node); // calculates the weighted sum
+                int inputNode = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1L; // clears the lowest set bit
+
+                setInputActivation(inputNode, 1.0);
+
+                double[] row = weights[0][inputNode];
+
+                for (int node = 0; node < activationArraySizes[1]; node++) // adds the weights of the input node to every theta
+                {
+                    thetas[1][node] += row[node];
+                }
+            } // while (remaining != 0L)
+        } // for (int word = 0; word < bits.length; word++)
 
-                thetas[n][node] = weightedSum;
-                activations[n][node] = thresholdFunction(weightedSum);
-            } // for (int node = 0; node < activationArraySizes[n]; node++)
-        } // for (int n = 1; n < numLayers; n++)
+        calculateActivationsFromFirstThetas(thetas[1]);
     } // public void calculateAllActivations
 
+    /**
+     * Propagates forward from the thetas of the first hidden layer, which were calculated some other way than from the input
+     * activations (for example by a BinarizedInputLayer), through the rest of the network.
+     *
+     * @param firstThetas the thetas of the first layer after the input layer
+     */
+    public void calculateActivationsFromFirstThetas(double[] firstThetas)
+    {
+        for (int node = 0; node < activationArraySizes[1]; node++)
+        {
+            thetas[1][node] = firstThetas[node];
+            activations[1][node] = thresholdFunction(firstThetas[node]);
+        }
+
+        for (int n = 2; n < numLayers; n++) // iterates from the second hidden layer to the output layer
+        {
+            calculateLayerOfThetas(n);
+        }
+
+        if (softmaxOutput)
+        {
+            calculateSoftmaxLayer(numLayers - 1);
+        }
+    } // public void calculateActivationsFromFirstThetas
+
     /**
      * calculates the derivative of the error function with respect to a given weight
      * @param layer the layer that the requested weight is in
@@ -513,14 +1370,36 @@ public class Network
         return -activations[layer][node] * psi;
     } // public double derivativeOfErrorWithRespectToWeight
 
+    /**
+     * calculates the psi of a node, which is the negative derivative of the error with respect to the node's theta. For a
+     * sigmoid node psi = omega * f'(theta). For a softmax output node trained with the cross-entropy error, the softmax
+     * derivative and the derivative of the logarithm cancel, so psi = omega = (expectedValue - outputValue).
+     *
+     * @param layer the layer that the node is in
+     * @param index the index of the node
+     * @return the psi of the node
+     */
+    public double calculatePsi(int layer, int index)
+    {
+        if (softmaxOutput && layer == numLayers - 1)
+        {
+            return omegas[layer][index];
+        }
+        return omegas[layer][index] * derivativeOfThreshold(thetas[layer][index]);
+    } // public double calculatePsi
+
     /**
      * lowers the error of every single weight in the network by taking the negative gradient of the error function with respect
      * to each individual weight, multiplied by the learning factor. This method utilizes back propagation to optimize the
-     * learning process
+     * learning process. The change of a weight out of an input activation of 0.0 is -lambda * 0 * psi = 0, so when few input
+     * activations are nonzero (see: useSparseInputs) and there are no feature layers that need the omegas of the inputs, the
+     * weights out of the zero inputs are skipped.
      * @param expectedValues the expected output values of the network
      */
     public void lowerErrorForAllWeights(double[] expectedValues)
     {
+        Arrays.fill(omegas[0], 0.0); // the input omegas are only summed below, so they are reset before every pass
+
         for (int outputNode = 0; outputNode < activationArraySizes[numLayers - 1]; outputNode++) // iterates through the output node indices
         {
             omegas[numLayers - 1][outputNode] = expectedValues[outputNode] - activations[numLayers - 1][outputNode];
@@ -528,14 +1407,25 @@ public class Network
 
         for (int n = numLayers - 2; n >= 0; n--) // iterates backwards through the layers starting from the final hidden layer
         {
+            boolean sparse = n == 0 && featureLayers.length == 0 && useSparseInputs(); // input omegas only feed feature layers
+            int numNodes = sparse ? numNonzeroInputs : activationArraySizes[n];
+
+            if (splitsLayer(n))
+            {
+                lowerErrorForSplitLayer(n, sparse, numNodes);
+                continue;
+            }
+
             for (int prevLayerNode = 0; prevLayerNode < activationArraySizes[n + 1]; prevLayerNode++) // iterates through the previous layer
             {
-                double psi = omegas[n + 1][prevLayerNode] * derivativeOfThreshold(thetas[n + 1][prevLayerNode]);
+                double psi = calculatePsi(n + 1, prevLayerNode);
 
                 omegas[n + 1][prevLayerNode] = 0.0; // resets the omega value in the previous layer
 
-                for (int currentLayerNode = 0; currentLayerNode < activationArraySizes[n]; currentLayerNode++)
+                for (int k = 0; k < numNodes; k++)
                 {
+                    int currentLayerNode = sparse ? nonzeroInputs[k] : k; // the nonzero inputs, or every node
+
                     /*
                      * Adds the part to every omega in the layer dependent on the
                      * weight[n][currentLayerNode][prevLayerNode]. Then lowers the error with respect to that weight. Note that
@@ -548,61 +1438,134 @@ public class Network
                     weights[n][currentLayerNode][prevLayerNode] += -learningFactor *
                             derivativeOfErrorWithRespectToWeight(n, currentLayerNode, psi);
 
-                } // for (int currentLayerNode = 0; currentLayerNode < activationArraySizes[n]; currentLayerNode++)
+                } // for (int k = 0; k < numNodes; k++)
 
             } // for (int prevLayerNode = 0; prevLayerNode < activationArraySizes[n + 1]; prevLayerNode++)
 
         } // for (int n = 0; n < numLayers - 1; n++)
 
+        double[] featureOmegas = omegas[0];
+
+        for (int layer = featureLayers.length - 1; layer >= 0; layer--) // propagates backward through the feature layers
+        {
+            featureOmegas = featureLayers[layer].lowerError(featureOmegas, learningFactor);
+        }
+
     } // public void lowerErrorForAllWeights
 
     /**
-     * trains the network on all the test cases until one of two conditions are satisfied: the average error of all the test cases
-     * is lower than the threshold error value, or if the number of iterations reaches the maximum number of iterations allowed.
-     * The method also echos all the hyperparameters, as well as the error of each test case, the average error of the test cases
-     * after each iteration, and the final average error after the network finishes training
+     * lowers the error of every weight of one layer the same way as lowerErrorForAllWeights, but with the input nodes of the
+     * layer split across the worker threads (see: setLayerParallelism). The psi of every node of the next layer is calculated
+     * first, and then each thread goes through every node of the next layer for its own range of input nodes, so it alone
+     * writes the omegas and the rows of weights of those nodes, and each omega is summed in the same order as on one thread.
+     *
+     * @param n        the index of the layer of weights
+     * @param sparse   true to visit only the nonzero input activations (n must be 0)
+     * @param numNodes the number of input nodes to visit
      */
-    public void trainNetwork()
+    private void lowerErrorForSplitLayer(final int n, final boolean sparse, int numNodes)
     {
-        double averageError = Double.MAX_VALUE; // sets the average error to the max double value in order to enter the while loop
-
-        int iterations = 0;
+        final double[] layerPsis = psis[n + 1];
 
-        randomizeWeights(minimumWeightValue, maximumWeightValue);
-
-        while (iterations < maxIterations && averageError > errorThreshold)
+        for (int prevLayerNode = 0; prevLayerNode < activationArraySizes[n + 1]; prevLayerNode++)
         {
-            iterations++;
-
-            averageError = 0;
+            layerPsis[prevLayerNode] = calculatePsi(n + 1, prevLayerNode);
+            omegas[n + 1][prevLayerNode] = 0.0; // resets the omega value in the previous layer
+        }
 
-            for (int testCase = 0; testCase < numTestCases; testCase++) // iterates through the test cases
+        layerParallelism.forEachRange(numNodes, new LayerParallelism.Range()
+        {
+            public void run(int start, int end)
             {
-                for (int node = 0; node < activationArraySizes[0]; node++) // iterates through each input node in the test case
+                for (int prevLayerNode = 0; prevLayerNode < activationArraySizes[n + 1]; prevLayerNode++)
                 {
-                    setInputActivation(node, testCases[testCase][node]);
+                    double psi = layerPsis[prevLayerNode];
+
+                    for (int k = start; k < end; k++) // the input nodes of this range only
+                    {
+                        int currentLayerNode = sparse ? nonzeroInputs[k] : k;
+
+                        omegas[n][currentLayerNode] += psi * weights[n][currentLayerNode][prevLayerNode];
+                        weights[n][currentLayerNode][prevLayerNode] += -learningFactor *
+                                derivativeOfErrorWithRespectToWeight(n, currentLayerNode, psi);
+                    }
                 }
+            } // public void run
+        });
+    } // private void lowerErrorForSplitLayer
+
+    /**
+     * runs one iteration of training, which propagates forward and lowers the error of every weight for each test case of the
+     * dataset in the order that the dataset hands them out. The error of each test case is calculated from the activations that
+     * were used to lower its error.
+     *
+     * @param printErrors true to print the expected and actual output values and the error of every test case
+     * @return the average error of the test cases
+     */
+    public double runTrainingIteration(boolean printErrors)
+    {
+        double[] inputs = new double[inputSize];
+        double[] expectedValues = new double[activationArraySizes[numLayers - 1]];
+        double totalError = 0.0;
+        int testCase = 0;
+
+        DatasetIterator iterator = dataset.iterator();
+
+        try
+        {
+            while (iterator.next(inputs, expectedValues)) // iterates through the test cases
+            {
+                setInputs(inputs); // sets the input activations, passing the test case through any feature layers
 
                 calculateAllActivations();
 
-                lowerErrorForAllWeights(expectedOutputValues[testCase]); // lowers the error by the learning factor
+                lowerErrorForAllWeights(expectedValues); // lowers the error by the learning factor
 
-                double error = calculateError(testCase);
+                double error = calculateError(expectedValues);
 
-                for (int outputNode = 0; outputNode < activationArraySizes[numLayers - 1]; outputNode++)
+                if (printErrors)
                 {
-                    System.out.println("expected value " + (outputNode + 1) + " for test case " + (testCase + 1) +
-                            " = " + expectedOutputValues[testCase][outputNode]);
-                    System.out.println("actual value " + (outputNode + 1) + " for test case " + (testCase + 1) +
-                            " = " + activations[numLayers - 1][outputNode]);
+                    for (int outputNode = 0; outputNode < activationArraySizes[numLayers - 1]; outputNode++)
+                    {
+                        System.out.println("expected value " + (outputNode + 1) + " for test case " + (testCase + 1) +
+                                " = " + expectedValues[outputNode]);
+                        System.out.println("actual value " + (outputNode + 1) + " for test case " + (testCase + 1) +
+                                " = " + activations[numLayers - 1][outputNode]);
+                    }
+                    System.out.println("error for test case " + (testCase + 1) + " = " + error + "\n");
                 }
-                System.out.println("error for test case " + (testCase + 1) + " = " + error + "\n");
 
-                averageError += error; // adds the error of this test case to averageError (summing the errors of all the test cases)
+                totalError += error; // adds the error of this test case to totalError (summing the errors of all the test cases)
+                testCase++;
+            } // while (iterator.next(inputs, expectedValues))
+        } // try
+        finally
+        {
+            iterator.close();
+        }
+
+        return totalError / (double) Math.max(testCase, 1);
+    } // public double runTrainingIteration
+
+    /**
+     * trains the network on all the test cases until one of two conditions are satisfied: the average error of all the test cases
+     * is lower than the threshold error value, or if the number of iterations reaches the maximum number of iterations allowed.
+     * The method also echos all the hyperparameters, as well as the error of each test case, the average error of the test cases
+     * after each iteration, and the final average error after the network finishes training
+     */
+    public void trainNetwork()
+    {
+        double averageError = Double.MAX_VALUE; // sets the average error to the max double value in order to enter the while loop
+
+        int iterations = 0;
 
-            } // for (int testCase = 0; testCase < numTestCases; testCase++)
+        randomizeWeights(minimumWeightValue, maximumWeightValue);
 
-            averageError /= (double) numTestCases;
+        while (iterations < maxIterations && averageError > errorThreshold)
+        {
+            iterations++;
+
+            averageError = runTrainingIteration(true); // trains on every test case of the dataset once
 
             System.out.println("AVERAGE ERROR FOR ITERATION " + iterations + " = " + averageError + "\n");
 
@@ -610,10 +1573,15 @@ public class Network
 
 
         System.out.println("HYPER PARAMETERS");
+        for (int layer = 0; layer < featureLayers.length; layer++)
+        {
+            System.out.println("feature layer " + layer + " = " + featureLayers[layer]);
+        }
         for (int n = 0; n < numLayers; n++)
         {
             System.out.println("num of activations in layer " + n + " = " + activationArraySizes[n]);
         }
+        System.out.println("output layer = " + (softmaxOutput ? "softmax (cross-entropy error)" : "sigmoid (squared error)"));
         System.out.println("error threshold = " + errorThreshold);
         System.out.println("max iterations = " + maxIterations);
         System.out.println("min weight value = " + minimumWeightValue);
@@ -632,6 +1600,81 @@ public class Network
         return activations[numLayers - 1];
     } // public double[] getOutputActivations()
 
+    /**
+     * returns the index of the output activation with the largest value, which is the class that the network predicts
+     * @return the index of the largest output activation
+     */
+    public int getMaxOutputIndex()
+    {
+        return getMaxIndex(activations[numLayers - 1], activationArraySizes[numLayers - 1]);
+    } // public int getMaxOutputIndex
+
+    /**
+     * parses a list of hidden layer sizes separated by commas, such as "100,50"
+     *
+     * @param layers the list
+     * @return the number of nodes in each hidden layer
+     */
+    public static int[] parseHiddenLayers(String layers)
+    {
+        String[] sizes = layers.split(",");
+        int[] hiddenLayerNodes = new int[sizes.length];
+
+        for (int layer = 0; layer < sizes.length; layer++)
+        {
+            hiddenLayerNodes[layer] = Integer.parseInt(sizes[layer].trim());
+        }
+        return hiddenLayerNodes;
+    } // public static int[] parseHiddenLayers
+
+    /**
+     * reads a network from a parameters file in the format of testdoc.txt: the number of input nodes, the number of hidden layers
+     * and the nodes in each, the number of output nodes, the number of test cases, the learning factor, the range of the random
+     * weights, the error threshold, the maximum number of iterations, the optional output layer keyword, and then the test cases
+     * and their expected output values
+     *
+     * @param sc the scanner that reads the parameters file
+     * @return the network, with its test cases set and its weights all zero
+     */
+    public static Network readNetwork(Scanner sc)
+    {
+        int inputNodes = sc.nextInt();                  // reads the number of input nodes
+
+        int[] hiddenLayerNodes = new int[sc.nextInt()]; // reads the number of hidden layers
+
+        for (int node = 0; node < hiddenLayerNodes.length; node++)
+        {
+            hiddenLayerNodes[node] = sc.nextInt();
+        }
+
+        int outputNodes = sc.nextInt();           // reads the number of output nodes
+
+        int numTestCases = sc.nextInt();          // reads the number of test cases
+
+        double lambda = sc.nextDouble();          // reads the learning factor value
+
+        double minWeightValue = sc.nextDouble();  // reads the minimum random weight value
+
+        double maxWeightValue = sc.nextDouble();  // reads the maximum random weight value
+
+        double threshold = sc.nextDouble();       // reads the error threshold value
+
+        int maxIterations = sc.nextInt();         // reads the maximum iterations value
+
+        boolean softmax = readOutputLayerKeyword(sc); // reads the optional "softmax" output layer keyword
+
+        Network network = new Network(inputNodes, hiddenLayerNodes, outputNodes, lambda, maxIterations, numTestCases,
+                minWeightValue, maxWeightValue, threshold);
+
+        network.setSoftmaxOutput(softmax);
+
+        network.setAllTestCases(sc);            // sets the test cases
+
+        network.setAllExpectedOutputValues(sc);
+
+        return network;
+    } // public static Network readNetwork
+
     /**
      * Main method that takes in user input from the .txt file and creates
      *
@@ -655,35 +1698,7 @@ public class Network
 
             Scanner sc = new Scanner(inStream);
 
-            int inputNodes = sc.nextInt();                  // reads the number of input nodes
-
-            int[] hiddenLayerNodes = new int[sc.nextInt()]; // reads the number of hidden layers
-
-            for (int node = 0; node < hiddenLayerNodes.length; node++)
-            {
-                hiddenLayerNodes[node] = sc.nextInt();
-            }
-
-            int outputNodes = sc.nextInt();           // reads the number of output nodes
-
-            int numTestCases = sc.nextInt();          // reads the number of test cases
-
-            double lambda = sc.nextDouble();          // reads the learning factor value
-
-            double minWeightValue = sc.nextDouble();  // reads the minimum random weight value
-
-            double maxWeightValue = sc.nextDouble();  // reads the maximum random weight value
-
-            double threshold = sc.nextDouble();       // reads the error threshold value
-
-            int maxIterations = sc.nextInt();         // reads the maximum iterations value
-
-            Network network = new Network(inputNodes, hiddenLayerNodes, outputNodes, lambda, maxIterations, numTestCases,
-                    minWeightValue, maxWeightValue, threshold);
-
-            network.setAllTestCases(sc);            // sets the test cases
-
-            network.setAllExpectedOutputValues(sc);
+            Network network = readNetwork(sc);   // reads the network, its test cases and its expected output values
 
             network.trainNetwork();              // trains the network
 
@@ -0,0 +1,295 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class removes whole hidden nodes from a trained Network and rebuilds it as a smaller dense network, instead of zeroing
+ * single weights (see: MagnitudePruner). Removing a hidden node removes its row of weights into it and its column of weights out
+ * of it, so the smaller network runs the same dense loops over fewer nodes and gets faster without any sparse kernels.
+ *
+ * The hidden nodes of each layer are ranked by one of two scores, and the best ones are kept in their original order:
+ *    WEIGHT_NORM: the L2 norm of the weights into the node times the L2 norm of the weights out of it, so a node with small
+ *                 weights on either side has little effect on the outputs
+ *    VARIANCE:    the variance of the activation of the node over the test cases of a dataset. A node whose activation hardly
+ *                 changes carries no information about the test case; the network has no biases to fold its constant value into,
+ *                 so removing it shifts the thetas of the next layer a little, which a few iterations of retraining make up for.
+ *
+ * The NeuronPruner class contains the following methods:
+ *    double[] weightNormScores(Network network, int layer)
+ *    double[] varianceScores(Network network, Dataset dataset, int layer)
+ *    int[]    bestNodes(double[] scores, int count)
+ *    Network  keepNodes(Network network, int[][] keptNodes)
+ *    Network  prune(Network network, double keepFraction, int method, Dataset dataset)
+ *    void     main(String[] args)
+ *
+ */
+public class NeuronPruner
+{
+    /**
+     * ranks the hidden nodes by the norms of their weights
+     */
+    public static final int WEIGHT_NORM = 0;
+
+    /**
+     * ranks the hidden nodes by the variance of their activations
+     */
+    public static final int VARIANCE = 1;
+
+    /**
+     * returns the weight norm score of every node of a hidden layer
+     *
+     * @param network the trained network
+     * @param layer   the index of the hidden layer, from 1 to the number of layers - 2
+     * @return the score of each node
+     */
+    public static double[] weightNormScores(Network network, int layer)
+    {
+        double[][][] weights = network.getWeights();
+        double[] scores = new double[weights[layer].length];
+
+        for (int node = 0; node < scores.length; node++)
+        {
+            double in = 0.0;
+            double out = 0.0;
+
+            for (int inputNode = 0; inputNode < weights[layer - 1].length; inputNode++)
+            {
+                in += weights[layer - 1][inputNode][node] * weights[layer - 1][inputNode][node];
+            }
+            for (int outputNode = 0; outputNode < weights[layer][node].length; outputNode++)
+            {
+                out += weights[layer][node][outputNode] * weights[layer][node][outputNode];
+            }
+            scores[node] = Math.sqrt(in) * Math.sqrt(out);
+        } // for (int node = 0; node < scores.length; node++)
+        return scores;
+    } // public static double[] weightNormScores
+
+    /**
+     * returns the variance of the activation of every node of a hidden layer over the test cases of a dataset
+     *
+     * @param network the trained network
+     * @param dataset the test cases
+     * @param layer   the index of the hidden layer, from 1 to the number of layers - 2
+     * @return the score of each node
+     */
+    public static double[] varianceScores(Network network, Dataset dataset, int layer)
+    {
+        int size = network.getActivations()[layer].length;
+        double[] sums = new double[size];
+        double[] squares = new double[size];
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        DatasetIterator iterator = dataset.iterator();
+        int count = 0;
+
+        try
+        {
+            while (iterator.next(inputs, expectedOutputs))
+            {
+                network.setInputs(inputs);
+                network.calculateAllActivations();
+
+                for (int node = 0; node < size; node++)
+                {
+                    double activation = network.getActivation(layer, node);
+                    sums[node] += activation;
+                    squares[node] += activation * activation;
+                }
+                count++;
+            }
+        } // try
+        finally
+        {
+            iterator.close();
+        }
+
+        double[] scores = new double[size];
+
+        for (int node = 0; node < size; node++)
+        {
+            double mean = sums[node] / Math.max(count, 1);
+            scores[node] = squares[node] / Math.max(count, 1) - mean * mean;
+        }
+        return scores;
+    } // public static double[] varianceScores
+
+    /**
+     * returns the indices of the nodes with the highest scores, in increasing order
+     *
+     * @param scores the score of each node
+     * @param count  the number of nodes to keep
+     * @return the indices of the kept nodes
+     */
+    public static int[] bestNodes(final double[] scores, int count)
+    {
+        Integer[] order = new Integer[scores.length];
+
+        for (int node = 0; node < order.length; node++)
+        {
+            order[node] = node;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer first, Integer second)
+            {
+                return Double.compare(scores[second], scores[first]); // the highest score first
+            }
+        });
+
+        int[] kept = new int[Math.max(1, Math.min(count, scores.length))];
+
+        for (int index = 0; index < kept.length; index++)
+        {
+            kept[index] = order[index];
+        }
+        Arrays.sort(kept);
+        return kept;
+    } // public static int[] bestNodes
+
+    /**
+     * builds a smaller network that has only the given nodes of each hidden layer, with their weights copied from the network
+     *
+     * @param network   the trained network
+     * @param keptNodes the indices of the kept nodes of each hidden layer, in increasing order (keptNodes[0] is hidden layer 1)
+     * @return the smaller network
+     */
+    public static Network keepNodes(Network network, int[][] keptNodes)
+    {
+        double[][][] weights = network.getWeights();
+        int numLayers = weights.length + 1;
+        int[] hiddenLayerNodes = new int[keptNodes.length];
+
+        for (int layer = 0; layer < keptNodes.length; layer++)
+        {
+            hiddenLayerNodes[layer] = keptNodes[layer].length;
+        }
+
+        Network smaller = network.createResizedCopy(hiddenLayerNodes);
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            int[] inputNodes = n == 0 ? null : keptNodes[n - 1];            // null keeps every input node
+            int[] outputNodes = n == numLayers - 2 ? null : keptNodes[n];  // null keeps every output node
+            int numInputs = inputNodes == null ? weights[n].length : inputNodes.length;
+            int numOutputs = outputNodes == null ? weights[n][0].length : outputNodes.length;
+
+            for (int inputNode = 0; inputNode < numInputs; inputNode++)
+            {
+                int from = inputNodes == null ? inputNode : inputNodes[inputNode];
+
+                for (int outputNode = 0; outputNode < numOutputs; outputNode++)
+                {
+                    int to = outputNodes == null ? outputNode : outputNodes[outputNode];
+                    smaller.setWeight(n, inputNode, outputNode, weights[n][from][to]);
+                }
+            }
+        } // for (int n = 0; n < numLayers - 1; n++)
+        return smaller;
+    } // public static Network keepNodes
+
+    /**
+     * keeps the given fraction of the best nodes of every hidden layer
+     *
+     * @param network      the trained network
+     * @param keepFraction the fraction of the nodes of each hidden layer to keep, from 0.0 to 1.0
+     * @param method       WEIGHT_NORM or VARIANCE
+     * @param dataset      the test cases that the variances are measured on (unused for WEIGHT_NORM)
+     * @return the smaller network
+     */
+    public static Network prune(Network network, double keepFraction, int method, Dataset dataset)
+    {
+        int numHidden = network.getActivations().length - 2;
+        int[][] keptNodes = new int[numHidden][];
+
+        for (int layer = 1; layer <= numHidden; layer++)
+        {
+            double[] scores = method == VARIANCE ? varianceScores(network, dataset, layer) : weightNormScores(network, layer);
+            keptNodes[layer - 1] = bestNodes(scores, (int) Math.round(keepFraction * scores.length));
+        }
+        return keepNodes(network, keptNodes);
+    } // public static Network prune
+
+    /**
+     * trains the digit network, removes hidden nodes with both scores at several fractions, optionally retrains each smaller
+     * network, and prints the accuracy, error and latency of each
+     *
+     * @param args the parameters file, the number of retraining iterations (100 unless given, or 0 to skip retraining), the
+     *             number of timed passes and the seed of the random weights (1 unless given), so that runs with and without
+     *             retraining shrink the same trained network
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String parametersFileName = args.length > 0 ? args[0] : DigitBenchmark.TRAINING_PARAMETERS;
+        int retrainIterations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        CompactDataset test = benchmark.getTestSet();
+        Network network = benchmark.createNetwork();
+        int iterations = benchmark.train(network, new Random(seed));
+
+        double baseNanos = DigitBenchmark.nanosPerImage(network, test, repetitions);
+        System.out.printf("trained for %d iterations: hidden layers %s, test %d/%d correct, error %.4f, %.1f ns/image\n\n",
+                iterations, Arrays.toString(benchmark.getHiddenLayerNodes()), DigitBenchmark.countCorrect(network, test),
+                test.getNumSamples(), DigitBenchmark.error(network, test), baseNanos);
+        System.out.println("score        kept  hidden     correct  error    retrained  correct  error    ns/image  speedup");
+
+        double[] keepFractions = {0.5, 0.2, 0.1};
+        String[] methods = {"weight norm", "variance"};
+
+        for (int method = 0; method < methods.length; method++)
+        {
+            for (double keepFraction : keepFractions)
+            {
+                Network smaller = prune(network, keepFraction, method, benchmark.getTrainingSet());
+                int correct = DigitBenchmark.countCorrect(smaller, test);
+                double error = DigitBenchmark.error(smaller, test);
+
+                String retrained = "no";
+                int retrainedCorrect = correct;
+                double retrainedError = error;
+
+                if (retrainIterations > 0)
+                {
+                    retrained = benchmark.train(smaller, retrainIterations) + " iter";
+                    retrainedCorrect = DigitBenchmark.countCorrect(smaller, test);
+                    retrainedError = DigitBenchmark.error(smaller, test);
+                }
+
+                double nanos = DigitBenchmark.nanosPerImage(smaller, test, repetitions);
+                System.out.printf("%-11s  %3.0f%%  %-9s  %3d/%-3d  %7.4f  %-9s  %3d/%-3d  %7.4f  %8.1f  %6.2fx\n",
+                        methods[method], 100.0 * keepFraction, Arrays.toString(hiddenSizes(smaller)), correct,
+                        test.getNumSamples(), error, retrained, retrainedCorrect, test.getNumSamples(), retrainedError, nanos,
+                        baseNanos / nanos);
+            } // for (double keepFraction : keepFractions)
+        } // for (int method = 0; method < methods.length; method++)
+    } // public static void main
+
+    /**
+     * returns the number of nodes in each hidden layer of a network
+     *
+     * @param network the network
+     * @return the sizes of the hidden layers
+     */
+    private static int[] hiddenSizes(Network network)
+    {
+        double[][] activations = network.getActivations();
+        int[] sizes = new int[activations.length - 2];
+
+        for (int layer = 0; layer < sizes.length; layer++)
+        {
+            sizes[layer] = activations[layer + 1].length;
+        }
+        return sizes;
+    } // private static int[] hiddenSizes
+} // public class NeuronPruner
@@ -0,0 +1,236 @@
+package com.company;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class coordinates data-parallel training of one Network across several worker processes (see: TrainingWorker), which may
+ * run on other machines or as separate JVMs on the same one. Each worker holds its own shard of the training set. In every
+ * round the server sends the current weights to every worker, each worker trains on its shard for one pass from those weights,
+ * and the server moves its own weights by the average of the changes of the workers. The changes are added up by a TreeReducer,
+ * whose fixed tree over the worker indices decides the order of the additions, so a run is repeatable whatever order the
+ * changes are read in. DataParallelTrainer takes the same steps with threads in one JVM.
+ *
+ * With one worker a round is exactly runTrainingIteration. With more workers a round takes as long as the slowest shard plus the
+ * time to send the weights back and forth, and every shard takes as many steps as it has test cases. The changes are averaged
+ * rather than added: each shard already takes many steps toward the same minimum in a pass, and adding the changes of k shards
+ * overshoots it by about k times, which makes the softmax digit network diverge from 4 workers on.
+ *
+ * The ParameterServer class contains the following instance variables:
+ *    Network            network: the network whose weights are trained
+ *    ServerSocket       serverSocket: the socket that the workers connect to
+ *    int                numWorkers: the number of workers
+ *    Socket[]           sockets: the connection to each worker, by worker index
+ *    DataInputStream[]  ins: the stream from each worker
+ *    DataOutputStream[] outs: the stream to each worker
+ *    int                numSamples: the number of test cases in all the shards together
+ *    double             lastError: the average error of the test cases in the last round
+ *    long               trainingNanos: the nanoseconds that the slowest worker spent training, summed over the rounds
+ *    long               roundNanos: the nanoseconds of every round, including the time to send the weights
+ *    TreeReducer        reducer: the change in the weights of each worker during a round, flattened layer by layer and row
+ *                       by row, and their sum
+ *    double[]           errors: the sum of the errors of the test cases of each worker during a round
+ *
+ */
+public class ParameterServer
+{
+    /**
+     * the milliseconds that acceptWorkers waits for the next worker before it gives up, so that a worker that fails to start
+     * does not leave the server waiting forever
+     */
+    public static final int ACCEPT_TIMEOUT_MILLIS = 60000;
+
+    private Network network;
+    private ServerSocket serverSocket;
+    private int numWorkers;
+    private Socket[] sockets;
+    private DataInputStream[] ins;
+    private DataOutputStream[] outs;
+    private int numSamples;
+    private double lastError;
+    private long trainingNanos;
+    private long roundNanos;
+    private TreeReducer reducer;
+    private double[] errors;
+
+    /**
+     * Creates a ParameterServer that listens for workers on the loopback address or on every address
+     *
+     * @param network    the network whose weights are trained
+     * @param port       the port to listen on, or 0 for any free port
+     * @param numWorkers the number of workers
+     * @param localOnly  true to accept only workers on this machine
+     * @throws IOException if the port cannot be opened
+     */
+    public ParameterServer(Network network, int port, int numWorkers, boolean localOnly) throws IOException
+    {
+        this.network = network;
+        this.numWorkers = numWorkers;
+        serverSocket = localOnly ? new ServerSocket(port, numWorkers, InetAddress.getLoopbackAddress()) :
+                new ServerSocket(port, numWorkers);
+        serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+        sockets = new Socket[numWorkers];
+        ins = new DataInputStream[numWorkers];
+        outs = new DataOutputStream[numWorkers];
+        lastError = Double.MAX_VALUE;
+        reducer = new TreeReducer(numWorkers, network.countWeights(), null);
+        errors = new double[numWorkers];
+    } // public ParameterServer
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    public double getLastError()
+    {
+        return lastError;
+    }
+
+    public long getTrainingNanos()
+    {
+        return trainingNanos;
+    }
+
+    public long getRoundNanos()
+    {
+        return roundNanos;
+    }
+
+    /**
+     * waits until every worker has connected and said which shard it holds
+     *
+     * @throws IOException if a connection fails or a worker does not connect within ACCEPT_TIMEOUT_MILLIS
+     * @throws IllegalStateException if two workers have the same index or an index is out of range
+     */
+    public void acceptWorkers() throws IOException
+    {
+        for (int connection = 0; connection < numWorkers; connection++)
+        {
+            Socket socket = serverSocket.accept();
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(),
+                    TrainingWorker.BUFFER_SIZE));
+            int workerIndex = in.readInt();
+
+            if (workerIndex < 0 || workerIndex >= numWorkers || sockets[workerIndex] != null)
+            {
+                socket.close();
+                throw new IllegalStateException("worker index " + workerIndex + " is out of range or already connected");
+            }
+
+            sockets[workerIndex] = socket;
+            ins[workerIndex] = in;
+            outs[workerIndex] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                    TrainingWorker.BUFFER_SIZE));
+            numSamples += in.readInt();
+        } // for (int connection = 0; connection < numWorkers; connection++)
+    } // public void acceptWorkers
+
+    /**
+     * runs one round: sends the weights to every worker, then moves the weights by the average change of the workers
+     *
+     * @return the average error of the test cases of every shard during the round
+     * @throws IOException if a connection fails
+     */
+    public double runRound() throws IOException
+    {
+        long start = System.nanoTime();
+        double[][][] weights = network.getWeights();
+
+        for (DataOutputStream out : outs) // every worker starts training before any change is read back
+        {
+            out.writeBoolean(true);
+            TrainingWorker.writeWeights(out, weights);
+            out.flush();
+        }
+
+        long slowest = 0;
+
+        for (int workerIndex = 0; workerIndex < numWorkers; workerIndex++)
+        {
+            DataInputStream in = ins[workerIndex];
+            double[] change = reducer.getBuffer(workerIndex);
+
+            for (int index = 0; index < change.length; index++) // the change of every weight, flattened by the worker
+            {
+                change[index] = in.readDouble();
+            }
+            errors[workerIndex] = in.readDouble();
+            slowest = Math.max(slowest, in.readLong());
+        } // for (int workerIndex = 0; workerIndex < numWorkers; workerIndex++)
+
+        TrainingWorker.addAverageChange(weights, reducer.reduce(), numWorkers);
+
+        double totalError = TreeReducer.reduce(errors);
+        trainingNanos += slowest;
+        roundNanos += System.nanoTime() - start;
+        lastError = totalError / Math.max(numSamples, 1);
+        return lastError;
+    } // public double runRound
+
+    /**
+     * runs rounds until the error is below a threshold or the largest number of rounds has been run
+     *
+     * @param maxRounds the largest number of rounds
+     * @param threshold the error to stop at
+     * @return the number of rounds that were run
+     * @throws IOException if a connection fails
+     */
+    public int train(int maxRounds, double threshold) throws IOException
+    {
+        int round = 0;
+
+        while (round < maxRounds && lastError > threshold)
+        {
+            runRound();
+            round++;
+        }
+        return round;
+    } // public int train
+
+    /**
+     * tells every worker to stop and closes the connections
+     *
+     * @throws IOException if a connection cannot be closed
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            for (DataOutputStream out : outs)
+            {
+                if (out != null)
+                {
+                    out.writeBoolean(false);
+                    out.flush();
+                }
+            }
+        } // try
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                if (socket != null)
+                {
+                    socket.close();
+                }
+            }
+            serverSocket.close();
+        }
+    } // public void close
+} // public class ParameterServer
@@ -0,0 +1,538 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class runs the forward pass of a trained Network over a stream of test cases as a pipeline, with each group of
+ * consecutive layers (a stage) on its own thread. Where calculateAllActivations runs every layer of one test case before
+ * starting the next, stage s works on one test case while stage s + 1 works on the test case before it, so as many test cases
+ * as there are stages are in flight at once and the throughput is set by the slowest stage instead of the sum of all of them,
+ * without batching any test cases together.
+ *
+ * Neighboring stages hand off activations through a link of two buffers (double buffering): the earlier stage fills one buffer
+ * while the later stage reads the other, and each buffer goes back to the earlier stage once it has been read, so the stages
+ * never copy activations and never allocate while the stream runs. The weights are shared with the network and only read.
+ *
+ * Each stage adds each row of weights times the activation of its input node, so it reads the weights in the order they are
+ * stored, and each theta is summed in the same order as in Network.calculateWeightedSum, so the outputs are identical to those
+ * of the network. Every stage counts the time that it spends computing and waiting for its input and output buffers, and
+ * getUtilizations reports the fraction of the time that each stage was busy: the stage that is busy the most is the bottleneck,
+ * and layers can be moved out of it (see: balanceStages).
+ *
+ * The PipelinedInference class contains the following instance variables:
+ *    double[][][] weights: the weights of the network, shared and only read
+ *    int[]        layerSizes: the number of nodes in each layer
+ *    boolean      softmaxOutput: true if the output layer is a softmax layer
+ *    int[]        firstLayers: the index of the first layer of weights of each stage
+ *    Link[]       links: the buffers between the stages, where link s is the input of stage s and the last link is the output
+ *    Stage[]      stages: the stages
+ *    Thread[]     threads: the thread of each stage, while the pipeline is running
+ *    long         startNanos: the time that the pipeline was started
+ *    long         endNanos: the time that the last stage finished, or 0 while the pipeline is running
+ *    int          nextSequence: the sequence number of the next test case to be submitted
+ *
+ */
+public class PipelinedInference
+{
+    private double[][][] weights;
+    private int[] layerSizes;
+    private boolean softmaxOutput;
+    private int[] firstLayers;
+    private Link[] links;
+    private Stage[] stages;
+    private Thread[] threads;
+    private long startNanos;
+    private long endNanos;
+    private int nextSequence;
+
+    /**
+     * This class defines one buffer of activations in a link, with the sequence number of the test case that it holds.
+     */
+    private static class Buffer
+    {
+        double[] values;
+        int sequence;
+        boolean last; // true if the buffer marks the end of the stream instead of holding a test case
+
+        Buffer(int size)
+        {
+            values = new double[size];
+        }
+    } // private static class Buffer
+
+    /**
+     * This class defines the two buffers between two stages, with a queue of the buffers that are ready to be read and a queue of
+     * the buffers that are free to be filled.
+     */
+    private static class Link
+    {
+        BlockingQueue<Buffer> full = new ArrayBlockingQueue<Buffer>(2);
+        BlockingQueue<Buffer> free = new ArrayBlockingQueue<Buffer>(2);
+
+        Link(int size)
+        {
+            free.add(new Buffer(size));
+            free.add(new Buffer(size));
+        }
+    } // private static class Link
+
+    /**
+     * This class defines one stage of the pipeline, which runs its layers of weights on every test case that arrives on its input
+     * link and passes the result to its output link.
+     */
+    private class Stage implements Runnable
+    {
+        int firstLayer;       // the first layer of weights of the stage
+        int lastLayer;        // the last layer of weights of the stage
+        Link input;
+        Link output;
+        double[][] scratch;   // the activations of the layers inside the stage
+        volatile long busyNanos;
+        volatile long inputWaitNanos;
+        volatile long outputWaitNanos;
+        volatile long testCases;
+
+        Stage(int firstLayer, int lastLayer, Link input, Link output)
+        {
+            this.firstLayer = firstLayer;
+            this.lastLayer = lastLayer;
+            this.input = input;
+            this.output = output;
+            scratch = new double[layerSizes.length][];
+
+            for (int layer = firstLayer + 1; layer <= lastLayer; layer++)
+            {
+                scratch[layer] = new double[layerSizes[layer]];
+            }
+        } // Stage
+
+        public void run()
+        {
+            try
+            {
+                while (true)
+                {
+                    long start = System.nanoTime();
+                    Buffer in = input.full.take();
+                    long gotInput = System.nanoTime();
+                    Buffer out = output.free.take();
+                    long gotOutput = System.nanoTime();
+
+                    boolean last = in.last; // read before the buffer is handed back, after which it may be refilled
+                    out.sequence = in.sequence;
+                    out.last = last;
+
+                    if (!last)
+                    {
+                        calculateStage(this, in.values, out.values);
+                    }
+                    long done = System.nanoTime();
+
+                    input.free.put(in);   // the earlier stage can fill this buffer again
+                    output.full.put(out);
+
+                    inputWaitNanos += gotInput - start;
+                    outputWaitNanos += gotOutput - gotInput;
+                    busyNanos += done - gotOutput;
+
+                    if (last)
+                    {
+                        return;
+                    }
+                    testCases++;
+                } // while (true)
+            } // try
+            catch (InterruptedException e)
+            {
+                // the pipeline was closed
+            }
+        } // public void run
+    } // private class Stage
+
+    /**
+     * Creates a PipelinedInference for a network, with its layers of weights grouped into stages
+     *
+     * @param network     the trained network, without feature layers
+     * @param firstLayers the index of the first layer of weights of each stage, starting with 0 and increasing
+     * @throws IllegalArgumentException if the network has feature layers or the stages are not in order
+     */
+    public PipelinedInference(Network network, int[] firstLayers)
+    {
+        if (network.getFeatureLayers().length > 0)
+        {
+            throw new IllegalArgumentException("only the dense layers of a network can be pipelined");
+        }
+
+        weights = network.getWeights();
+        layerSizes = new int[weights.length + 1];
+
+        for (int n = 0; n < layerSizes.length; n++)
+        {
+            layerSizes[n] = network.getActivations()[n].length;
+        }
+        softmaxOutput = network.isSoftmaxOutput();
+
+        if (firstLayers.length == 0 || firstLayers[0] != 0)
+        {
+            throw new IllegalArgumentException("the first stage must start at layer 0");
+        }
+        for (int stage = 1; stage < firstLayers.length; stage++)
+        {
+            if (firstLayers[stage] <= firstLayers[stage - 1] || firstLayers[stage] >= weights.length)
+            {
+                throw new IllegalArgumentException("stage " + stage + " starts at layer " + firstLayers[stage]);
+            }
+        }
+        this.firstLayers = firstLayers.clone();
+
+        int numStages = firstLayers.length;
+        links = new Link[numStages + 1];
+        stages = new Stage[numStages];
+
+        for (int stage = 0; stage <= numStages; stage++)
+        {
+            links[stage] = new Link(layerSizes[stage < numStages ? firstLayers[stage] : weights.length]);
+        }
+
+        for (int stage = 0; stage < numStages; stage++)
+        {
+            int lastLayer = stage + 1 < numStages ? firstLayers[stage + 1] - 1 : weights.length - 1;
+            stages[stage] = new Stage(firstLayers[stage], lastLayer, links[stage], links[stage + 1]);
+        }
+    } // public PipelinedInference
+
+    /**
+     * groups the layers of weights of a network into stages with about the same number of weights each, so that no stage holds
+     * the pipeline back much more than the others
+     *
+     * @param network   the network
+     * @param numStages the number of stages, at most the number of layers of weights
+     * @return the index of the first layer of weights of each stage
+     */
+    public static int[] balanceStages(Network network, int numStages)
+    {
+        double[][][] layerWeights = network.getWeights();
+        numStages = Math.max(1, Math.min(numStages, layerWeights.length));
+        long total = 0;
+
+        for (double[][] layer : layerWeights)
+        {
+            total += (long) layer.length * layer[0].length;
+        }
+
+        int[] firstLayers = new int[numStages];
+        long sum = 0;
+        int stage = 1;
+
+        for (int n = 0; n < layerWeights.length && stage < numStages; n++)
+        {
+            sum += (long) layerWeights[n].length * layerWeights[n][0].length;
+            int remainingLayers = layerWeights.length - (n + 1);
+
+            // starts the next stage once this one has its share of the weights, or when each later layer needs its own stage
+            if (sum * numStages >= total * stage || remainingLayers <= numStages - stage)
+            {
+                firstLayers[stage++] = n + 1;
+            }
+        }
+        return firstLayers;
+    } // public static int[] balanceStages
+
+    /**
+     * runs the layers of a stage on the activations of one test case
+     *
+     * @param stage   the stage
+     * @param inputs  the activations of the first layer of the stage
+     * @param outputs the array that the activations of the layer after the last layer of weights of the stage are stored in
+     */
+    private void calculateStage(Stage stage, double[] inputs, double[] outputs)
+    {
+        double[] previous = inputs;
+
+        for (int n = stage.firstLayer; n <= stage.lastLayer; n++)
+        {
+            double[] thetas = n == stage.lastLayer ? outputs : stage.scratch[n + 1];
+            Arrays.fill(thetas, 0.0);
+
+            for (int inputNode = 0; inputNode < layerSizes[n]; inputNode++) // adds each row times its activation
+            {
+                double activation = previous[inputNode];
+                double[] row = weights[n][inputNode];
+
+                for (int node = 0; node < thetas.length; node++)
+                {
+                    thetas[node] += activation * row[node];
+                }
+            }
+
+            if (n == weights.length - 1) // the output layer
+            {
+                Network.calculateOutputLayer(thetas, thetas, thetas.length, softmaxOutput);
+            }
+            else
+            {
+                for (int node = 0; node < thetas.length; node++)
+                {
+                    thetas[node] = Network.thresholdFunction(thetas[node]);
+                }
+            }
+            previous = thetas;
+        } // for (int n = stage.firstLayer; n <= stage.lastLayer; n++)
+    } // private void calculateStage
+
+    /**
+     * starts the thread of every stage. A pipeline carries one stream, so it is started once.
+     *
+     * @throws IllegalStateException if the pipeline was already started
+     */
+    public void start()
+    {
+        if (threads != null)
+        {
+            throw new IllegalStateException("the pipeline was already started");
+        }
+
+        int numStages = stages.length;
+        threads = new Thread[numStages];
+        startNanos = System.nanoTime();
+
+        for (int stage = 0; stage < numStages; stage++)
+        {
+            threads[stage] = new DaemonThreadFactory("stage " + stage).newThread(stages[stage]);
+            threads[stage].start();
+        }
+    } // public void start
+
+    /**
+     * copies the input activations of a test case into the pipeline, waiting until the first stage has a free buffer
+     *
+     * @param inputs the input activations
+     * @return the sequence number of the test case, which its outputs come out with
+     * @throws InterruptedException if the thread is interrupted while it waits
+     */
+    public int submit(double[] inputs) throws InterruptedException
+    {
+        Buffer buffer = links[0].free.take();
+        System.arraycopy(inputs, 0, buffer.values, 0, layerSizes[0]);
+        buffer.sequence = nextSequence++;
+        buffer.last = false;
+        links[0].full.put(buffer);
+        return buffer.sequence;
+    } // public int submit
+
+    /**
+     * marks the end of the stream, after which no more test cases can be submitted
+     *
+     * @throws InterruptedException if the thread is interrupted while it waits
+     */
+    public void finish() throws InterruptedException
+    {
+        Buffer buffer = links[0].free.take();
+        buffer.last = true;
+        links[0].full.put(buffer);
+    } // public void finish
+
+    /**
+     * copies the output activations of the next test case out of the pipeline, in the order that the test cases were submitted,
+     * waiting until the last stage has finished it
+     *
+     * @param outputs the array that the output activations are copied into
+     * @return the sequence number of the test case, or -1 if the stream has ended
+     * @throws InterruptedException if the thread is interrupted while it waits
+     */
+    public int take(double[] outputs) throws InterruptedException
+    {
+        Link output = links[links.length - 1];
+        Buffer buffer = output.full.take();
+        int sequence = buffer.last ? -1 : buffer.sequence;
+
+        if (buffer.last)
+        {
+            endNanos = System.nanoTime();
+        }
+        else
+        {
+            System.arraycopy(buffer.values, 0, outputs, 0, outputs.length);
+        }
+        output.free.put(buffer);
+        return sequence;
+    } // public int take
+
+    /**
+     * runs every stage of one test case on the calling thread, for comparison with the pipeline. The stages keep their inner
+     * activations in buffers of their own, so this must not be called while the pipeline is running.
+     *
+     * @param inputs  the input activations
+     * @param outputs the array that the output activations are stored in
+     */
+    public void calculateOutputs(double[] inputs, double[] outputs)
+    {
+        double[] values = inputs;
+
+        for (int stage = 0; stage < stages.length; stage++)
+        {
+            double[] result = stage == stages.length - 1 ? outputs : new double[layerSizes[stages[stage].lastLayer + 1]];
+            calculateStage(stages[stage], values, result);
+            values = result;
+        }
+    } // public void calculateOutputs
+
+    /**
+     * returns the fraction of the time since the pipeline started (until the end of the stream) that each stage spent computing
+     * @return the utilization of each stage, from 0.0 to 1.0
+     */
+    public double[] getUtilizations()
+    {
+        double elapsed = (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+        double[] utilizations = new double[stages.length];
+
+        for (int stage = 0; stage < stages.length; stage++)
+        {
+            utilizations[stage] = stages[stage].busyNanos / elapsed;
+        }
+        return utilizations;
+    } // public double[] getUtilizations
+
+    /**
+     * prints the layers, test cases, utilization and waiting times of every stage
+     */
+    public void printMetrics()
+    {
+        double[] utilizations = getUtilizations();
+        System.out.println("stage  layers   weights   test cases  busy   waiting for input  waiting for output");
+
+        for (int stage = 0; stage < stages.length; stage++)
+        {
+            Stage s = stages[stage];
+            long numWeights = 0;
+
+            for (int n = s.firstLayer; n <= s.lastLayer; n++)
+            {
+                numWeights += (long) layerSizes[n] * layerSizes[n + 1];
+            }
+
+            System.out.printf("%5d  %2d - %-2d  %8d  %10d  %4.0f%%  %14.1f ms  %15.1f ms\n", stage, s.firstLayer, s.lastLayer,
+                    numWeights, s.testCases, 100.0 * utilizations[stage], s.inputWaitNanos / 1e6, s.outputWaitNanos / 1e6);
+        }
+    } // public void printMetrics
+
+    /**
+     * stops the thread of every stage
+     */
+    public void close()
+    {
+        if (threads != null)
+        {
+            for (Thread thread : threads)
+            {
+                thread.interrupt();
+            }
+        }
+    } // public void close
+
+    /**
+     * streams the digit test images through a deep network with random weights, on one thread with calculateAllActivations,
+     * on one thread with the stages run one after the other, and through the pipeline, and prints the throughput of each, the
+     * utilization of every stage, and whether the pipeline gives the same outputs as the network
+     *
+     * @param args the hidden layers (such as "512,512,256"), the number of stages and the number of test cases to stream
+     * @throws IOException          if a digit image cannot be read
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int[] hiddenLayerNodes = Network.parseHiddenLayers(args.length > 0 ? args[0] : "512,512,512,256");
+        int numStages = args.length > 1 ? Integer.parseInt(args[1]) : hiddenLayerNodes.length + 1;
+        int numTestCases = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+
+        DigitBenchmark benchmark = new DigitBenchmark(DigitBenchmark.TRAINING_PARAMETERS);
+        CompactDataset test = benchmark.getTestSet();
+        Network network = benchmark.createNetwork(hiddenLayerNodes);
+        network.randomizeWeights(-0.1, 0.1);
+
+        double[][] inputs = new double[test.getNumSamples()][test.getInputSize()];
+        double[] expectedOutputs = new double[test.getOutputSize()];
+
+        for (int sample = 0; sample < inputs.length; sample++)
+        {
+            test.copySample(sample, inputs[sample], expectedOutputs);
+        }
+
+        final PipelinedInference pipeline = new PipelinedInference(network, balanceStages(network, numStages));
+        double[] outputs = new double[test.getOutputSize()];
+
+        long start = System.nanoTime(); // calculateAllActivations on one thread
+        for (int testCase = 0; testCase < numTestCases; testCase++)
+        {
+            network.setInputs(inputs[testCase % inputs.length]);
+            network.calculateAllActivations();
+        }
+        double networkRate = numTestCases / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime(); // the stages one after the other on one thread
+        for (int testCase = 0; testCase < numTestCases; testCase++)
+        {
+            pipeline.calculateOutputs(inputs[testCase % inputs.length], outputs);
+        }
+        double sequentialRate = numTestCases / ((System.nanoTime() - start) / 1e9);
+
+        final double[][] streamInputs = inputs;
+        final int streamLength = numTestCases;
+        Thread feeder = new Thread(new Runnable() // submits the stream while this thread takes the outputs
+        {
+            public void run()
+            {
+                try
+                {
+                    for (int testCase = 0; testCase < streamLength; testCase++)
+                    {
+                        pipeline.submit(streamInputs[testCase % streamInputs.length]);
+                    }
+                    pipeline.finish();
+                }
+                catch (InterruptedException e)
+                {
+                    // the stream was abandoned
+                }
+            } // public void run
+        });
+
+        start = System.nanoTime();
+        pipeline.start();
+        feeder.start();
+        double maxDifference = 0.0;
+        int sequence;
+
+        while ((sequence = pipeline.take(outputs)) >= 0)
+        {
+            if (sequence < inputs.length) // checks the first pass over the images against the network
+            {
+                network.setInputs(inputs[sequence]);
+                network.calculateAllActivations();
+
+                for (int node = 0; node < outputs.length; node++)
+                {
+                    maxDifference = Math.max(maxDifference, Math.abs(outputs[node] - network.getOutputActivations()[node]));
+                }
+            }
+        } // while ((sequence = pipeline.take(outputs)) >= 0)
+        double pipelineRate = numTestCases / ((System.nanoTime() - start) / 1e9);
+        pipeline.close();
+
+        System.out.printf("%d-%s-%d network, %d stages, %d test cases on %d processors\n\n", test.getInputSize(),
+                Arrays.toString(hiddenLayerNodes), test.getOutputSize(), pipeline.stages.length, numTestCases,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("calculateAllActivations:  %8.0f test cases/s\n", networkRate);
+        System.out.printf("stages on one thread:     %8.0f test cases/s\n", sequentialRate);
+        System.out.printf("pipeline:                 %8.0f test cases/s (%.2fx the stages on one thread)\n", pipelineRate,
+                pipelineRate / sequentialRate);
+        System.out.println("largest difference from the network outputs: " + maxDifference + "\n");
+        pipeline.printMetrics();
+    } // public static void main
+} // public class PipelinedInference
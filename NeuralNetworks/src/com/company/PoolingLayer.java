@@ -0,0 +1,222 @@
+package com.company;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a max or average pooling layer. Each channel of the input is split into non-overlapping poolSize x poolSize
+ * windows, and every window is replaced by either its largest value or the average of its values, so the height and width of
+ * the input shrink by a factor of poolSize (rows and columns that do not fill a whole window are dropped). The layer has no
+ * weights. When lowering the error, a max pooling layer passes each output omega back to the input that was the largest in its
+ * window, and an average pooling layer spreads each output omega evenly across its window.
+ *
+ * The PoolingLayer class contains the following instance variables:
+ *    boolean  maxPooling: true for max pooling, false for average pooling
+ *    int      channels, inputHeight, inputWidth: the shape of the input
+ *    int      poolSize: the width and height of each window
+ *    int      outputHeight, outputWidth: the shape of each output channel
+ *    int[]    maxIndices: the index of the largest input in each window of the last forward pass (max pooling only)
+ *    double[] outputs: the outputs of the last forward pass
+ *    double[] inputOmegas: the omegas of the inputs calculated by the last backward pass
+ *
+ */
+public class PoolingLayer implements Layer
+{
+    private boolean maxPooling;
+    private int channels;
+    private int inputHeight;
+    private int inputWidth;
+    private int poolSize;
+    private int outputHeight;
+    private int outputWidth;
+    private int[] maxIndices;
+    private double[] outputs;
+    private double[] inputOmegas;
+
+    /**
+     * Creates a PoolingLayer for inputs of the given shape
+     *
+     * @param maxPooling  true for max pooling, false for average pooling
+     * @param channels    the number of channels, which is the same for the input and the output
+     * @param inputHeight the number of rows in each input channel
+     * @param inputWidth  the number of columns in each input channel
+     * @param poolSize    the width and height of each window
+     * @throws IllegalArgumentException if the window does not fit inside the input
+     */
+    public PoolingLayer(boolean maxPooling, int channels, int inputHeight, int inputWidth, int poolSize)
+    {
+        if (poolSize < 1 || poolSize > inputHeight || poolSize > inputWidth)
+        {
+            throw new IllegalArgumentException("a " + poolSize + "x" + poolSize + " pool does not fit a " + inputHeight + "x" +
+                    inputWidth + " input");
+        }
+
+        this.maxPooling = maxPooling;
+        this.channels = channels;
+        this.inputHeight = inputHeight;
+        this.inputWidth = inputWidth;
+        this.poolSize = poolSize;
+
+        outputHeight = inputHeight / poolSize;
+        outputWidth = inputWidth / poolSize;
+
+        outputs = new double[channels * outputHeight * outputWidth];
+        maxIndices = new int[outputs.length];
+        inputOmegas = new double[channels * inputHeight * inputWidth];
+    } // public PoolingLayer
+
+    public int getInputSize()
+    {
+        return inputOmegas.length;
+    }
+
+    public int getOutputSize()
+    {
+        return outputs.length;
+    }
+
+    /**
+     * returns the number of output channels, which is the number of input channels
+     * @return the number of output channels
+     */
+    public int getOutputChannels()
+    {
+        return channels;
+    }
+
+    /**
+     * returns the number of rows in each output channel
+     * @return the number of rows in each output channel
+     */
+    public int getOutputHeight()
+    {
+        return outputHeight;
+    }
+
+    /**
+     * returns the number of columns in each output channel
+     * @return the number of columns in each output channel
+     */
+    public int getOutputWidth()
+    {
+        return outputWidth;
+    }
+
+    /**
+     * replaces every window of every channel with its largest value or its average value
+     *
+     * @param inputs the input values of the layer
+     * @return the output values of the layer
+     */
+    public double[] calculateOutputs(double[] inputs)
+    {
+        for (int channel = 0; channel < channels; channel++)
+        {
+            for (int row = 0; row < outputHeight; row++)
+            {
+                for (int column = 0; column < outputWidth; column++)
+                {
+                    int outputIndex = (channel * outputHeight + row) * outputWidth + column;
+                    int maxIndex = (channel * inputHeight + row * poolSize) * inputWidth + column * poolSize;
+                    double sum = 0.0;
+
+                    for (int poolRow = 0; poolRow < poolSize; poolRow++)
+                    {
+                        int inputIndex = (channel * inputHeight + row * poolSize + poolRow) * inputWidth + column * poolSize;
+
+                        for (int poolColumn = 0; poolColumn < poolSize; poolColumn++)
+                        {
+                            sum += inputs[inputIndex + poolColumn];
+
+                            if (inputs[inputIndex + poolColumn] > inputs[maxIndex])
+                            {
+                                maxIndex = inputIndex + poolColumn;
+                            }
+                        }
+                    } // for (int poolRow = 0; poolRow < poolSize; poolRow++)
+
+                    maxIndices[outputIndex] = maxIndex;
+                    outputs[outputIndex] = maxPooling ? inputs[maxIndex] : sum / (poolSize * poolSize);
+                } // for (int column = 0; column < outputWidth; column++)
+            } // for (int row = 0; row < outputHeight; row++)
+        } // for (int channel = 0; channel < channels; channel++)
+
+        return outputs;
+    } // public double[] calculateOutputs
+
+    /**
+     * passes each output omega back to the largest input of its window (max pooling) or spreads it evenly across its window
+     * (average pooling). The layer has no weights, so the learning factor is not used.
+     *
+     * @param outputOmegas   the omegas of the output values of the layer
+     * @param learningFactor the learning factor used to change the weights
+     * @return the omegas of the input values of the layer
+     */
+    public double[] lowerError(double[] outputOmegas, double learningFactor)
+    {
+        Arrays.fill(inputOmegas, 0.0);
+
+        for (int channel = 0; channel < channels; channel++)
+        {
+            for (int row = 0; row < outputHeight; row++)
+            {
+                for (int column = 0; column < outputWidth; column++)
+                {
+                    int outputIndex = (channel * outputHeight + row) * outputWidth + column;
+
+                    if (maxPooling)
+                    {
+                        inputOmegas[maxIndices[outputIndex]] += outputOmegas[outputIndex];
+                    }
+                    else
+                    {
+                        double omega = outputOmegas[outputIndex] / (poolSize * poolSize);
+
+                        for (int poolRow = 0; poolRow < poolSize; poolRow++)
+                        {
+                            int inputIndex = (channel * inputHeight + row * poolSize + poolRow) * inputWidth + column * poolSize;
+
+                            for (int poolColumn = 0; poolColumn < poolSize; poolColumn++)
+                            {
+                                inputOmegas[inputIndex + poolColumn] += omega;
+                            }
+                        }
+                    } // else
+                } // for (int column = 0; column < outputWidth; column++)
+            } // for (int row = 0; row < outputHeight; row++)
+        } // for (int channel = 0; channel < channels; channel++)
+
+        return inputOmegas;
+    } // public double[] lowerError
+
+    public void randomizeWeights(double min, double max)
+    {
+    }
+
+    public void randomizeWeights(double min, double max, Random random)
+    {
+    }
+
+    public void setAllWeights(Scanner sc)
+    {
+    }
+
+    public void outputWeights(PrintWriter out)
+    {
+    }
+
+    /**
+     * describes the layer for the hyperparameter echo of the network
+     * @return a description of the layer
+     */
+    public String toString()
+    {
+        return (maxPooling ? "max" : "average") + " pooling " + channels + "x" + inputHeight + "x" + inputWidth + " -> " +
+                channels + "x" + outputHeight + "x" + outputWidth + " (" + poolSize + "x" + poolSize + " pool)";
+    }
+} // public class PoolingLayer
@@ -0,0 +1,302 @@
+package com.company;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a dataset of labeled bitmaps that are decoded in the background while the network trains. The images are
+ * split into batches of batchSize images, and a pass hands the batches to a pool of decoder threads in order, keeping the
+ * Future of each batch in a queue. The training loop takes the batches out of the queue in the same order, so the test cases of
+ * a pass always come in the order of the file names, no matter which decoder finishes first.
+ *
+ * The queue is the backpressure: a pass starts with queueDepth batches handed to the decoders, and hands over the next batch
+ * only when the training loop takes one out, so at most queueDepth batches are ever decoded or being decoded ahead of the batch
+ * that the training loop is on, and the decoders only sit idle when they are that far ahead. The training loop only waits when
+ * the next batch is not decoded yet, and the total time it waits is kept so that the number of decoder threads and the queue
+ * depth can be tuned until it is close to 0.
+ *
+ * The decoder threads are started by the first pass and kept for every pass after it until shutdown is called. If keepDecoded
+ * is set, the pixels of the first pass that runs to the end are also kept, and every later pass hands them out without decoding
+ * anything, so only the first pass overlaps decoding with training. Otherwise every pass decodes the bitmaps again, and no more
+ * than queueDepth + 1 batches are held in memory at once.
+ *
+ * Each image is decoded with DibDump.readGrayscaleImage, or with a BmpReader and an ImagePreprocessor of its own when the images
+ * are resized, and stored as one grayscale byte per pixel. The pixels are normalized and the label is expanded into a one-hot
+ * row when the test case is handed out, the same way CompactDataset does it.
+ *
+ * The PrefetchingDataset class contains the following instance variables:
+ *    String[]        fileNames: the names of the bitmaps
+ *    int[]           labels: the class index of each bitmap
+ *    int             inputSize: the number of pixels in each (resized) image
+ *    int             numClasses: the number of classes, which is the number of expected output values
+ *    int             numDecoderThreads: the number of threads that decode bitmaps
+ *    int             batchSize: the number of bitmaps in each batch
+ *    int             queueDepth: the largest number of batches that can be decoded ahead of the training loop
+ *    int             outputHeight, outputWidth: the size that the images are resized to, or 0 to keep the size of the bitmaps
+ *    boolean         keepDecoded: whether the pixels of the first complete pass are kept for the passes after it
+ *    byte[]          decoded: the pixels of every image once a pass has run to the end with keepDecoded set, or else null
+ *    ExecutorService decoders: the threads that decode bitmaps, started by the first pass
+ *    AtomicLong      waitNanos: the total time that the training loop has waited for batches to be decoded
+ *
+ */
+public class PrefetchingDataset implements Dataset
+{
+    private String[] fileNames;
+    private int[] labels;
+    private int inputSize;
+    private int numClasses;
+    private int numDecoderThreads;
+    private int batchSize;
+    private int queueDepth;
+    private int outputHeight;
+    private int outputWidth;
+    private boolean keepDecoded;
+    private byte[] decoded;
+    private ExecutorService decoders;
+    private AtomicLong waitNanos = new AtomicLong();
+
+    /**
+     * Creates a PrefetchingDataset for a list of labeled bitmaps
+     *
+     * @param fileNames         the names of the bitmaps
+     * @param labels            the class index of each bitmap
+     * @param inputSize         the number of pixels in each (resized) image
+     * @param numClasses        the number of classes
+     * @param numDecoderThreads the number of threads that decode bitmaps
+     * @param batchSize         the number of bitmaps in each batch
+     * @param queueDepth        the largest number of batches that can be decoded ahead of the training loop
+     */
+    public PrefetchingDataset(String[] fileNames, int[] labels, int inputSize, int numClasses, int numDecoderThreads,
+                              int batchSize, int queueDepth)
+    {
+        this.fileNames = fileNames;
+        this.labels = labels;
+        this.inputSize = inputSize;
+        this.numClasses = numClasses;
+        this.numDecoderThreads = Math.max(1, numDecoderThreads);
+        this.batchSize = Math.max(1, batchSize);
+        this.queueDepth = Math.max(1, queueDepth);
+    } // public PrefetchingDataset
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return numClasses;
+    }
+
+    public int getNumSamples()
+    {
+        return fileNames.length;
+    }
+
+    /**
+     * sets the size that the images are resized to as they are decoded (see: ImagePreprocessor)
+     *
+     * @param height the number of rows of each image
+     * @param width  the number of columns of each image
+     */
+    public void setOutputSize(int height, int width)
+    {
+        outputHeight = height;
+        outputWidth = width;
+    }
+
+    /**
+     * sets whether the pixels of the first pass that runs to the end are kept, so that the passes after it decode nothing
+     *
+     * @param keepDecoded true to keep the pixels
+     */
+    public void setKeepDecoded(boolean keepDecoded)
+    {
+        this.keepDecoded = keepDecoded;
+    }
+
+    /**
+     * returns the total time that the training loop has waited for batches to be decoded, over every pass so far
+     * @return the time waited, in nanoseconds
+     */
+    public long getWaitNanos()
+    {
+        return waitNanos.get();
+    }
+
+    /**
+     * stops the decoder threads. A pass after this starts new ones.
+     */
+    public synchronized void shutdown()
+    {
+        if (decoders != null)
+        {
+            decoders.shutdownNow();
+            decoders = null;
+        }
+    } // public synchronized void shutdown
+
+    /**
+     * returns the decoder threads, starting them if this is the first pass since the dataset was created or shut down
+     *
+     * @return the decoder threads
+     */
+    private synchronized ExecutorService getDecoders()
+    {
+        if (decoders == null)
+        {
+            decoders = Executors.newFixedThreadPool(numDecoderThreads, new DaemonThreadFactory("bitmap decoder"));
+        }
+        return decoders;
+    } // private synchronized ExecutorService getDecoders
+
+    /**
+     * creates the task that decodes one batch of bitmaps into grayscale bytes
+     *
+     * @param firstSample the index of the first bitmap in the batch
+     * @return the task, which returns the pixels of every bitmap in the batch
+     */
+    private Callable<byte[]> decodeBatch(final int firstSample)
+    {
+        return new Callable<byte[]>()
+        {
+            public byte[] call() throws Exception
+            {
+                int samples = Math.min(batchSize, fileNames.length - firstSample);
+                byte[] pixels = new byte[samples * inputSize];
+
+                if (outputHeight > 0) // resizes each image as it is decoded
+                {
+                    BmpReader reader = new BmpReader();
+                    ImagePreprocessor preprocessor = new ImagePreprocessor(outputHeight, outputWidth);
+                    double[] resized = new double[inputSize];
+
+                    for (int sample = 0; sample < samples; sample++)
+                    {
+                        reader.read(fileNames[firstSample + sample]);
+                        preprocessor.processGray(reader, pixels, sample * inputSize, resized);
+                    }
+                }
+                else
+                {
+                    for (int sample = 0; sample < samples; sample++)
+                    {
+                        DibDump.readGrayscaleImage(fileNames[firstSample + sample], pixels, sample * inputSize, inputSize);
+                    }
+                }
+                return pixels;
+            } // public byte[] call
+        };
+    } // private Callable<byte[]> decodeBatch
+
+    /**
+     * starts a pass that hands out the test cases in order, decoding the bitmaps in the background unless the pixels of an
+     * earlier pass were kept
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        final byte[] kept = decoded;
+        final ExecutorService pool = kept == null ? getDecoders() : null;
+        final ArrayDeque<Future<byte[]>> readyBatches = new ArrayDeque<Future<byte[]>>();
+        final byte[] keeping = kept == null && keepDecoded ? new byte[fileNames.length * inputSize] : null;
+
+        return new DatasetIterator()
+        {
+            private byte[] batch = kept == null ? new byte[0] : kept; // the pixels of the batch being handed out
+            private int batchOffset = 0;        // the index of the first pixel of the batch in the pass
+            private int sampleInBatch = 0;      // the index in the batch of the next test case
+            private int sample = 0;             // the index of the next test case in the pass
+            private int nextBatch = 0;          // the index of the first bitmap of the next batch to hand to the decoders
+
+            /**
+             * hands batches to the decoders until queueDepth of them are ahead of the training loop or none are left
+             */
+            private void fillQueue()
+            {
+                while (readyBatches.size() < queueDepth && nextBatch < fileNames.length)
+                {
+                    readyBatches.add(pool.submit(decodeBatch(nextBatch)));
+                    nextBatch += batchSize;
+                }
+            } // private void fillQueue
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sample >= fileNames.length)
+                {
+                    close();
+                    return false;
+                }
+
+                if (sampleInBatch * inputSize >= batch.length) // only reached while decoding, since kept pixels are one batch
+                {
+                    fillQueue();
+                    long start = System.nanoTime();
+
+                    try
+                    {
+                        batchOffset += batch.length;
+                        batch = readyBatches.remove().get();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        close();
+                        throw new RuntimeException(e);
+                    }
+                    catch (ExecutionException e)
+                    {
+                        close();
+                        throw new RuntimeException(e.getCause());
+                    }
+
+                    waitNanos.addAndGet(System.nanoTime() - start);
+                    sampleInBatch = 0;
+                    fillQueue(); // replaces the batch that was just taken
+
+                    if (keeping != null)
+                    {
+                        System.arraycopy(batch, 0, keeping, batchOffset, batch.length);
+                    }
+                } // if (sampleInBatch * inputSize >= batch.length)
+
+                int offset = sampleInBatch * inputSize;
+
+                for (int index = 0; index < inputSize; index++)
+                {
+                    inputs[index] = CompactDataset.normalize(batch[offset + index]);
+                }
+
+                for (int outputNode = 0; outputNode < numClasses; outputNode++)
+                {
+                    expectedOutputs[outputNode] = 0.0;
+                }
+                expectedOutputs[labels[sample]] = 1.0;
+
+                sampleInBatch++;
+                sample++;
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                for (Future<byte[]> pending : readyBatches) // a pass closed early stops decoding the batches ahead of it
+                {
+                    pending.cancel(true);
+                }
+                readyBatches.clear();
+
+                if (keeping != null && sample >= fileNames.length)
+                {
+                    decoded = keeping; // only a pass that ran to the end has every image
+                }
+            } // public void close
+        };
+    } // public DatasetIterator iterator
+} // public class PrefetchingDataset
@@ -0,0 +1,435 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Scanner;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines an 8-bit copy of a trained Network for inference. Every weight is stored as a signed byte q with a scale s,
+ * so that the weight is about q * s, and every activation is stored as an unsigned byte a with a scale t, so that the
+ * activation is about a * t. The scale of the weights is chosen for each row (the weights into one node) or for each layer, so
+ * that the largest weight in the row or layer becomes 127, and the scale of the activations of each layer is calibrated by
+ * running the double network over a sample of test cases and taking the largest activation seen in that layer as 255. Since
+ * the sigmoid and the input values are never negative, the activations use all 8 bits instead of wasting one on a sign.
+ *
+ * The weighted sum of each node is then the integer dot product sum(q * a), which is exact in an int, times the one double
+ * s * t, and the sigmoid of a hidden node is a lookup in a table that maps the theta straight to the byte of the activation in
+ * the scale of the next layer, so the hidden layers never touch Math.exp. The thetas of the output layer go through the real
+ * sigmoid or softmax, since there are only a few of them. The weights are 8 times smaller than doubles, and the model as a
+ * whole gets close to that as the layers grow and the scales and sigmoid tables become a smaller part of it.
+ *
+ * The weights of row j of layer n are stored at weights[n][j * inputs ... (j + 1) * inputs - 1], the transpose of the Network
+ * layout, so that the dot product of each node reads one contiguous run of bytes.
+ *
+ * The QuantizedNetwork class contains the following instance variables:
+ *    int        numLayers: the number of layers, including the input and output layers
+ *    int[]      layerSizes: the number of nodes in each layer
+ *    byte[][]   weights: the quantized weights of each layer, row after row
+ *    double[][] weightScales: the scale of each row of weights of each layer
+ *    double[]   activationScales: the scale of the activations of each layer except the output layer
+ *    byte[][]   sigmoidTables: for each hidden layer, the quantized activation of each slice of thetas
+ *    byte[][]   codes: the quantized activations of each layer except the output layer
+ *    double[]   outputs: the output activations
+ *    boolean    softmaxOutput: true if the output layer is a softmax layer
+ *
+ */
+public class QuantizedNetwork
+{
+    /**
+     * the largest magnitude of a quantized weight
+     */
+    public static final int MAX_WEIGHT_CODE = 127;
+
+    /**
+     * the largest quantized activation
+     */
+    public static final int MAX_ACTIVATION_CODE = 255;
+
+    /**
+     * the number of entries in each sigmoid table
+     */
+    public static final int TABLE_SIZE = 8192;
+
+    /**
+     * the thetas from -TABLE_RANGE to TABLE_RANGE are looked up, and the rest are clamped to the ends of the table, where the
+     * sigmoid is within 1e-7 of 0 or 1
+     */
+    public static final double TABLE_RANGE = 16.0;
+
+    private static final double TABLE_SCALE = TABLE_SIZE / (2.0 * TABLE_RANGE); // table entries per unit of theta
+
+    private int numLayers;
+    private int[] layerSizes;
+    private byte[][] weights;
+    private double[][] weightScales;
+    private double[] activationScales;
+    private byte[][] sigmoidTables;
+    private byte[][] codes;
+    private double[] outputs;
+    private boolean softmaxOutput;
+
+    /**
+     * Creates a QuantizedNetwork from a trained network, calibrating the scales of the activations on a sample of test cases
+     *
+     * @param network     the trained network, without feature layers
+     * @param calibration the test cases that the activations are calibrated on
+     * @param maxSamples  the largest number of test cases of the calibration dataset to use
+     * @param perRow      true for a scale for each row of weights, or false for one scale for each layer
+     * @throws IllegalArgumentException if the network has feature layers
+     */
+    public QuantizedNetwork(Network network, Dataset calibration, int maxSamples, boolean perRow)
+    {
+        if (network.getFeatureLayers().length > 0)
+        {
+            throw new IllegalArgumentException("only the dense layers of a network can be quantized");
+        }
+
+        double[][] activations = network.getActivations();
+        numLayers = activations.length;
+        layerSizes = new int[numLayers];
+
+        for (int n = 0; n < numLayers; n++)
+        {
+            layerSizes[n] = activations[n].length;
+        }
+        softmaxOutput = network.isSoftmaxOutput();
+
+        quantizeWeights(network, perRow);
+        calibrate(network, calibration, maxSamples);
+
+        sigmoidTables = new byte[numLayers - 1][];
+
+        for (int n = 1; n < numLayers - 1; n++) // every hidden layer feeds its activations to the next layer
+        {
+            sigmoidTables[n] = new byte[TABLE_SIZE];
+
+            for (int entry = 0; entry < TABLE_SIZE; entry++)
+            {
+                double theta = (entry + 0.5) / TABLE_SCALE - TABLE_RANGE; // the middle of the slice of the entry
+                sigmoidTables[n][entry] = quantizeActivation(Network.thresholdFunction(theta), activationScales[n]);
+            }
+        }
+
+        codes = new byte[numLayers - 1][];
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            codes[n] = new byte[layerSizes[n]];
+        }
+        outputs = new double[layerSizes[numLayers - 1]];
+    } // public QuantizedNetwork
+
+    /**
+     * quantizes the weights of every layer, transposing them so that the weights into each node are contiguous
+     *
+     * @param network the trained network
+     * @param perRow  true for a scale for each row of weights, or false for one scale for each layer
+     */
+    private void quantizeWeights(Network network, boolean perRow)
+    {
+        weights = new byte[numLayers - 1][];
+        weightScales = new double[numLayers - 1][];
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            int inputs = layerSizes[n];
+            int rows = layerSizes[n + 1];
+            double[] largest = new double[rows];
+            double layerLargest = 0.0;
+
+            for (int row = 0; row < rows; row++) // finds the largest magnitude of each row and of the layer
+            {
+                for (int inputNode = 0; inputNode < inputs; inputNode++)
+                {
+                    largest[row] = Math.max(largest[row], Math.abs(network.getWeight(n, inputNode, row)));
+                }
+                layerLargest = Math.max(layerLargest, largest[row]);
+            }
+
+            weights[n] = new byte[rows * inputs];
+            weightScales[n] = new double[rows];
+
+            for (int row = 0; row < rows; row++)
+            {
+                double scale = (perRow ? largest[row] : layerLargest) / MAX_WEIGHT_CODE;
+
+                if (scale == 0.0) // a row of zeros stays zeros with any scale
+                {
+                    scale = 1.0;
+                }
+                weightScales[n][row] = scale;
+
+                for (int inputNode = 0; inputNode < inputs; inputNode++)
+                {
+                    weights[n][row * inputs + inputNode] = (byte) Math.round(network.getWeight(n, inputNode, row) / scale);
+                }
+            } // for (int row = 0; row < rows; row++)
+        } // for (int n = 0; n < numLayers - 1; n++)
+    } // private void quantizeWeights
+
+    /**
+     * runs the double network over the calibration test cases and sets the scale of the activations of each layer so that the
+     * largest activation seen in the layer becomes MAX_ACTIVATION_CODE
+     *
+     * @param network     the trained network
+     * @param calibration the test cases that the activations are calibrated on
+     * @param maxSamples  the largest number of test cases to use
+     */
+    private void calibrate(Network network, Dataset calibration, int maxSamples)
+    {
+        double[] largest = new double[numLayers - 1];
+        double[] inputs = new double[calibration.getInputSize()];
+        double[] expectedOutputs = new double[calibration.getOutputSize()];
+        DatasetIterator iterator = calibration.iterator();
+        int samples = 0;
+
+        try
+        {
+            while (samples < maxSamples && iterator.next(inputs, expectedOutputs))
+            {
+                network.setInputs(inputs);
+                network.calculateAllActivations();
+
+                double[][] activations = network.getActivations();
+
+                for (int n = 0; n < numLayers - 1; n++)
+                {
+                    for (int node = 0; node < layerSizes[n]; node++)
+                    {
+                        largest[n] = Math.max(largest[n], activations[n][node]);
+                    }
+                }
+                samples++;
+            } // while (samples < maxSamples && iterator.next(inputs, expectedOutputs))
+        } // try
+        finally
+        {
+            iterator.close();
+        }
+
+        activationScales = new double[numLayers - 1];
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            activationScales[n] = largest[n] > 0.0 ? largest[n] / MAX_ACTIVATION_CODE : 1.0 / MAX_ACTIVATION_CODE;
+        }
+    } // private void calibrate
+
+    /**
+     * quantizes an activation, clamping it to the range of an unsigned byte
+     *
+     * @param activation the activation
+     * @param scale      the scale of the activations of its layer
+     * @return the quantized activation, which is read back with & 0xFF
+     */
+    private static byte quantizeActivation(double activation, double scale)
+    {
+        long code = Math.round(activation / scale);
+        return (byte) Math.max(0, Math.min(MAX_ACTIVATION_CODE, code));
+    }
+
+    /**
+     * returns the number of bytes of the weights, their scales, the scales of the activations and the sigmoid tables
+     * @return the size of the model in bytes
+     */
+    public long getModelBytes()
+    {
+        long bytes = 8L * activationScales.length;
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            bytes += weights[n].length + 8L * weightScales[n].length;
+            bytes += sigmoidTables[n] == null ? 0 : sigmoidTables[n].length;
+        }
+        return bytes;
+    } // public long getModelBytes
+
+    public double[] getOutputActivations()
+    {
+        return outputs;
+    }
+
+    /**
+     * returns the index of the output activation with the largest value, which is the class that the network predicts
+     * @return the index of the largest output activation
+     */
+    public int getMaxOutputIndex()
+    {
+        return Network.getMaxIndex(outputs, outputs.length);
+    } // public int getMaxOutputIndex
+
+    /**
+     * propagates a test case forward through the quantized layers
+     *
+     * @param inputs the input values of the test case
+     * @return the output activations (not a copy)
+     */
+    public double[] calculateOutputs(double[] inputs)
+    {
+        for (int node = 0; node < layerSizes[0]; node++) // quantizes the inputs in the scale of the input layer
+        {
+            codes[0][node] = quantizeActivation(inputs[node], activationScales[0]);
+        }
+
+        for (int n = 0; n < numLayers - 1; n++) // iterates from the first hidden layer to the output layer
+        {
+            byte[] layerWeights = weights[n];
+            byte[] layerCodes = codes[n];
+            int numInputs = layerSizes[n];
+            boolean hidden = n + 1 < numLayers - 1;
+
+            for (int row = 0; row < layerSizes[n + 1]; row++)
+            {
+                int start = row * numInputs;
+                int sum = 0; // at most 127 * 255 per term, so an int holds the sum of more than 60000 terms
+
+                for (int inputNode = 0; inputNode < numInputs; inputNode++)
+                {
+                    sum += layerWeights[start + inputNode] * (layerCodes[inputNode] & 0xFF);
+                }
+
+                double theta = sum * weightScales[n][row] * activationScales[n];
+
+                if (hidden) // looks up the activation in the scale of the next layer
+                {
+                    int entry = (int) ((theta + TABLE_RANGE) * TABLE_SCALE);
+                    codes[n + 1][row] = sigmoidTables[n + 1][Math.max(0, Math.min(TABLE_SIZE - 1, entry))];
+                }
+                else
+                {
+                    outputs[row] = theta;
+                }
+            } // for (int row = 0; row < layerSizes[n + 1]; row++)
+        } // for (int n = 0; n < numLayers - 1; n++)
+
+        Network.calculateOutputLayer(outputs, outputs, outputs.length, softmaxOutput);
+        return outputs;
+    } // public double[] calculateOutputs
+
+    /**
+     * loads a trained network, quantizes it with its activations calibrated on the training images, and compares it with the
+     * double network on the test images, printing the size of each model, the time of each forward pass, and how far the
+     * outputs and the predicted classes of the quantized network are from those of the double network
+     *
+     * @param args the parameters file (in the format of bitmaptest), the weights file (the file that DibDump writes after
+     *             training and reads in test mode unless given), the directory of calibration images, the directory of test
+     *             images, "layer" for one weight scale for each layer, and the number of timed passes
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String parametersFileName = args.length > 0 ? args[0] : "src/com/company/bitmaptest";
+        String weightsFileName = args.length > 1 ? args[1] : "weights";
+        String calibrationDirectory = args.length > 2 ? args[2] : "src/com/company/TrainingData";
+        String testDirectory = args.length > 3 ? args[3] : "src/com/company/TestData";
+        boolean perRow = args.length <= 4 || !args[4].equals("layer");
+        int repetitions = args.length > 5 ? Integer.parseInt(args[5]) : 2000;
+
+        int numCores = Runtime.getRuntime().availableProcessors();
+        CompactDataset calibration = ImageIngestor.fromDirectory(calibrationDirectory).ingest(numCores);
+        ImageIngestor testImages = ImageIngestor.fromDirectory(testDirectory);
+        CompactDataset test = testImages.ingest(numCores);
+
+        Scanner sc = new Scanner(new FileInputStream(new File(parametersFileName)));
+        int[] hiddenLayerNodes = new int[sc.nextInt()];
+
+        for (int layer = 0; layer < hiddenLayerNodes.length; layer++)
+        {
+            hiddenLayerNodes[layer] = sc.nextInt();
+        }
+        int outputNodes = sc.nextInt();
+        boolean softmax = Network.readOutputLayerKeyword(sc);
+        sc.close();
+
+        Network network = new Network(calibration.getInputSize(), hiddenLayerNodes, outputNodes, 0.0, 0, 0, 0.0, 0.0, 0.0);
+        network.setSoftmaxOutput(softmax);
+        Scanner weightScanner = new Scanner(new FileInputStream(new File(weightsFileName)));
+        network.setAllWeights(weightScanner);
+        weightScanner.close();
+
+        QuantizedNetwork quantized = new QuantizedNetwork(network, calibration, calibration.getNumSamples(), perRow);
+
+        long doubleBytes = 0;
+
+        for (int n = 0; n < network.getActivations().length - 1; n++)
+        {
+            doubleBytes += 8L * network.getActivations()[n].length * network.getActivations()[n + 1].length;
+        }
+        System.out.printf("model size: double %d bytes, int8 %d bytes (%.2fx smaller), %s scales\n", doubleBytes,
+                quantized.getModelBytes(), (double) doubleBytes / quantized.getModelBytes(), perRow ? "per-row" : "per-layer");
+
+        int numSamples = test.getNumSamples();
+        double[][] inputs = new double[numSamples][test.getInputSize()];
+        double[] expectedOutputs = new double[test.getOutputSize()];
+        double[][] doubleOutputs = new double[numSamples][];
+        int[] doubleClasses = new int[numSamples];
+
+        for (int sample = 0; sample < numSamples; sample++)
+        {
+            test.copySample(sample, inputs[sample], expectedOutputs);
+            network.setInputs(inputs[sample]);
+            network.calculateAllActivations();
+            doubleOutputs[sample] = network.getOutputActivations().clone();
+            doubleClasses[sample] = network.getMaxOutputIndex();
+        }
+
+        int agreements = 0;
+        double maxDifference = 0.0;
+
+        for (int sample = 0; sample < numSamples; sample++)
+        {
+            double[] outputs = quantized.calculateOutputs(inputs[sample]);
+
+            for (int outputNode = 0; outputNode < outputs.length; outputNode++)
+            {
+                maxDifference = Math.max(maxDifference, Math.abs(outputs[outputNode] - doubleOutputs[sample][outputNode]));
+            }
+            if (quantized.getMaxOutputIndex() == doubleClasses[sample])
+            {
+                agreements++;
+            }
+            System.out.printf("%s: double class %d (%.4f), int8 class %d (%.4f)\n",
+                    new File(testImages.getFileNames()[sample]).getName(), doubleClasses[sample] + 1,
+                    doubleOutputs[sample][doubleClasses[sample]],
+                    quantized.getMaxOutputIndex() + 1, outputs[quantized.getMaxOutputIndex()]);
+        } // for (int sample = 0; sample < numSamples; sample++)
+
+        System.out.printf("int8 agrees with double on %d/%d test images, largest output difference %.4f\n", agreements,
+                numSamples, maxDifference);
+
+        long doubleNanos = 0;
+        long quantizedNanos = 0;
+
+        for (int repetition = -repetitions / 10; repetition < repetitions; repetition++) // the first tenth warms up
+        {
+            long start = System.nanoTime();
+
+            for (int sample = 0; sample < numSamples; sample++)
+            {
+                network.setInputs(inputs[sample]);
+                network.calculateAllActivations();
+            }
+            long middle = System.nanoTime();
+
+            for (int sample = 0; sample < numSamples; sample++)
+            {
+                quantized.calculateOutputs(inputs[sample]);
+            }
+            long end = System.nanoTime();
+
+            if (repetition >= 0)
+            {
+                doubleNanos += middle - start;
+                quantizedNanos += end - middle;
+            }
+        } // for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+
+        double images = (double) repetitions * numSamples;
+        System.out.printf("double %.1f images/s, int8 %.1f images/s (%.2fx)\n", images / (doubleNanos / 1e9),
+                images / (quantizedNanos / 1e9), (double) doubleNanos / quantizedNanos);
+    } // public static void main
+} // public class QuantizedNetwork
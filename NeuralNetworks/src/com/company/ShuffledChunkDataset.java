@@ -0,0 +1,132 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a dataset that reads a dataset file (see: StreamingDataset) in shuffled chunks. The file is split into
+ * chunks of chunkSamples consecutive test cases. Every pass visits the chunks in a random order, reads each chunk into a buffer
+ * with one positional channel read, and hands out the test cases of the chunk in a random order. Only one chunk is in memory at a
+ * time, so the test cases are mixed between passes without ever loading the whole file, which keeps the network from learning
+ * the order in which the test cases were written.
+ *
+ * The order of every pass is drawn from a Random created with the given seed, so the same seed always produces the same
+ * sequence of passes.
+ *
+ * The ShuffledChunkDataset class contains the following instance variables:
+ *    int    chunkSamples: the number of test cases in each chunk
+ *    Random random: draws the seed of each pass
+ *
+ */
+public class ShuffledChunkDataset extends StreamingDataset
+{
+    private int chunkSamples;
+    private Random random;
+
+    /**
+     * Creates a ShuffledChunkDataset that reads the header of a dataset file
+     *
+     * @param fileName     the name of the dataset file
+     * @param chunkSamples the number of test cases in each chunk
+     * @param seed         the seed of the random order of the passes
+     * @throws IOException if the file cannot be read or is not a dataset file
+     */
+    public ShuffledChunkDataset(String fileName, int chunkSamples, long seed) throws IOException
+    {
+        super(fileName, chunkSamples);
+
+        this.chunkSamples = Math.max(1, chunkSamples);
+        random = new Random(seed);
+    } // public ShuffledChunkDataset
+
+    /**
+     * shuffles an array of indices in place with the Fisher-Yates shuffle
+     *
+     * @param order  the indices to shuffle
+     * @param length the number of indices at the start of the array to shuffle
+     * @param random the source of the random order
+     */
+    private static void shuffle(int[] order, int length, Random random)
+    {
+        for (int index = length - 1; index > 0; index--)
+        {
+            int other = random.nextInt(index + 1);
+            int temp = order[index];
+            order[index] = order[other];
+            order[other] = temp;
+        }
+    } // private static void shuffle
+
+    /**
+     * starts a pass that visits the chunks, and the test cases in each chunk, in a random order
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        final Random passRandom;
+
+        synchronized (random)
+        {
+            passRandom = new Random(random.nextLong());
+        }
+
+        final int numChunks = (getNumSamples() + chunkSamples - 1) / chunkSamples;
+        final int[] chunkOrder = new int[numChunks];
+        final int[] sampleOrder = new int[chunkSamples];
+        final FileChannel channel = openChannel();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSamples * getRecordBytes());
+
+        for (int chunk = 0; chunk < numChunks; chunk++)
+        {
+            chunkOrder[chunk] = chunk;
+        }
+        shuffle(chunkOrder, numChunks, passRandom);
+
+        return new DatasetIterator()
+        {
+            private int chunkIndex = 0;     // the index in chunkOrder of the next chunk to read
+            private int samplesInChunk = 0; // the number of test cases in the chunk in the buffer
+            private int sampleIndex = 0;    // the index in sampleOrder of the next test case to hand out
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (sampleIndex >= samplesInChunk)
+                {
+                    if (chunkIndex >= numChunks)
+                    {
+                        close();
+                        return false;
+                    }
+
+                    int firstSample = chunkOrder[chunkIndex++] * chunkSamples;
+                    samplesInChunk = Math.min(chunkSamples, getNumSamples() - firstSample);
+
+                    buffer.clear();
+                    buffer.limit(samplesInChunk * getRecordBytes());
+                    readFully(channel, buffer, (long) HEADER_BYTES + (long) firstSample * getRecordBytes());
+
+                    for (int sample = 0; sample < samplesInChunk; sample++)
+                    {
+                        sampleOrder[sample] = sample;
+                    }
+                    shuffle(sampleOrder, samplesInChunk, passRandom);
+                    sampleIndex = 0;
+                } // if (sampleIndex >= samplesInChunk)
+
+                copySample(buffer, sampleOrder[sampleIndex++] * getRecordBytes(), inputs, expectedOutputs);
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                closeChannel(channel);
+            }
+        };
+    } // public DatasetIterator iterator
+} // public class ShuffledChunkDataset
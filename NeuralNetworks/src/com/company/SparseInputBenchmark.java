@@ -0,0 +1,172 @@
+package com.company;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class measures the sparse input path of the Network (see: Network.useSparseInputs) against the dense path, which is how
+ * Network.SPARSE_INPUT_DENSITY was chosen. It first times the forward pass alone and the forward pass with
+ * lowerErrorForAllWeights on random inputs with a range of fractions of nonzero values, with the network held to each path, and
+ * shows which path the network picks by itself at each fraction. It then trains the digit network on the binarized training
+ * images, whose background is exactly 0.0, from the same weights once held to the dense path and once choosing by itself. A
+ * zero input only ever adds 0.0 to a weighted sum or a weight, so both runs end with the same error.
+ *
+ * The SparseInputBenchmark class contains the following methods:
+ *    double[][] randomInputs(int numSamples, int size, double density, Random random)
+ *    double     nanosPerSample(Network network, double[][] inputs, double[][] expectedOutputs, boolean train, int repetitions)
+ *    void       main(String[] args)
+ *
+ */
+public class SparseInputBenchmark
+{
+    /**
+     * a sparse input density that is above every fraction, which holds the network to the sparse path
+     */
+    public static final double ALWAYS_SPARSE = 2.0;
+
+    /**
+     * makes random input activations in which the given fraction of the values of each test case are nonzero
+     *
+     * @param numSamples the number of test cases
+     * @param size       the number of input activations in each test case
+     * @param density    the fraction of nonzero values, from 0.0 to 1.0
+     * @param random     the source of the positions and values
+     * @return the input activations of every test case
+     */
+    public static double[][] randomInputs(int numSamples, int size, double density, Random random)
+    {
+        double[][] inputs = new double[numSamples][size];
+
+        for (int sample = 0; sample < numSamples; sample++)
+        {
+            for (int node = 0; node < size; node++)
+            {
+                if (random.nextDouble() < density)
+                {
+                    inputs[sample][node] = 1.0 - random.nextDouble(); // from (0.0, 1.0], never exactly 0.0
+                }
+            }
+        }
+        return inputs;
+    } // public static double[][] randomInputs
+
+    /**
+     * returns the average time of a forward pass, or a forward pass followed by lowerErrorForAllWeights, over a set of test cases
+     *
+     * @param network         the network
+     * @param inputs          the input activations of every test case
+     * @param expectedOutputs the expected output values of every test case
+     * @param train           true to lower the error after each forward pass
+     * @param repetitions     the number of timed passes over the test cases, after a tenth as many passes that warm up the JIT
+     *                        compiler
+     * @return the nanoseconds per test case
+     */
+    public static double nanosPerSample(Network network, double[][] inputs, double[][] expectedOutputs, boolean train,
+                                        int repetitions)
+    {
+        long start = 0;
+
+        for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+        {
+            if (repetition == 0)
+            {
+                start = System.nanoTime();
+            }
+
+            for (int sample = 0; sample < inputs.length; sample++)
+            {
+                network.setInputs(inputs[sample]);
+                network.calculateAllActivations();
+
+                if (train)
+                {
+                    network.lowerErrorForAllWeights(expectedOutputs[sample]);
+                }
+            }
+        } // for (int repetition = -repetitions / 10; repetition < repetitions; repetition++)
+
+        return (double) (System.nanoTime() - start) / ((long) repetitions * inputs.length);
+    } // public static double nanosPerSample
+
+    /**
+     * times both paths over a range of input densities and then trains the digit network on its binarized images both ways
+     *
+     * @param args the number of input activations, the number of hidden nodes, the number of timed passes and the number of
+     *             digit training iterations
+     * @throws IOException if a digit image cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int inputNodes = args.length > 0 ? Integer.parseInt(args[0]) : 10201;
+        int hiddenNodes = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int trainingIterations = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+
+        Random random = new Random(7);
+        Network network = new Network(inputNodes, new int[] {hiddenNodes}, DigitBenchmark.NUM_CLASSES, 0.01, 1, 0, -0.1, 0.1,
+                0.0);
+        network.randomizeWeights(-0.1, 0.1);
+
+        double[][] expectedOutputs = new double[16][DigitBenchmark.NUM_CLASSES];
+
+        for (int sample = 0; sample < expectedOutputs.length; sample++)
+        {
+            expectedOutputs[sample][random.nextInt(DigitBenchmark.NUM_CLASSES)] = 1.0;
+        }
+
+        System.out.printf("%d-%d-%d network, ns per test case\n\n", inputNodes, hiddenNodes, DigitBenchmark.NUM_CLASSES);
+        System.out.println("density  forward dense  sparse  speedup  train dense  sparse  speedup  chosen");
+
+        double[] densities = {0.01, 0.02, 0.05, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0};
+
+        for (double density : densities)
+        {
+            double[][] inputs = randomInputs(expectedOutputs.length, inputNodes, density, random);
+            double[] nanos = new double[4];
+
+            for (int run = 0; run < nanos.length; run++) // forward dense, forward sparse, train dense, train sparse
+            {
+                network.setSparseInputDensity(run % 2 == 0 ? 0.0 : ALWAYS_SPARSE);
+                nanos[run] = nanosPerSample(network, inputs, expectedOutputs, run >= 2, repetitions);
+            }
+
+            network.setSparseInputDensity(Network.SPARSE_INPUT_DENSITY);
+            network.setInputs(inputs[0]);
+
+            System.out.printf("%6.0f%%  %13.0f  %6.0f  %6.2fx  %11.0f  %6.0f  %6.2fx  %s\n", 100.0 * density, nanos[0], nanos[1],
+                    nanos[0] / nanos[1], nanos[2], nanos[3], nanos[2] / nanos[3], network.useSparseInputs() ? "sparse" : "dense");
+        } // for (double density : densities)
+
+        DigitBenchmark benchmark = new DigitBenchmark(DigitBenchmark.TRAINING_PARAMETERS);
+        CompactDataset training = benchmark.getTrainingSet();
+        boolean invert = BitPackedDataset.isMostlyLight(training, BitPackedDataset.GRAY_THRESHOLD);
+        BitPackedDataset binarized = BitPackedDataset.fromCompact(training, BitPackedDataset.GRAY_THRESHOLD, invert);
+        System.out.printf("\nbinarized digits: %.1f%% of the inputs are nonzero\n", 100.0 * binarized.getSetFraction());
+
+        String[] paths = {"dense", "automatic"};
+        Network digits = benchmark.createNetwork();
+        digits.setDataset(binarized);
+        digits.randomizeWeights(-0.7, 0.7);
+        double[][][] initialWeights = digits.copyWeights();
+
+        for (int path = 0; path < paths.length; path++) // both runs start from the same weights
+        {
+            digits.restoreWeights(initialWeights);
+            digits.setSparseInputDensity(path == 0 ? 0.0 : Network.SPARSE_INPUT_DENSITY);
+
+            long start = System.nanoTime();
+            double error = 0.0;
+
+            for (int iteration = 0; iteration < trainingIterations; iteration++)
+            {
+                error = digits.runTrainingIteration(false);
+            }
+
+            System.out.printf("%-9s  %d iterations in %.1f ms, final error %.6f\n", paths[path], trainingIterations,
+                    (System.nanoTime() - start) / 1e6, error);
+        } // for (int path = 0; path < paths.length; path++)
+    } // public static void main
+} // public class SparseInputBenchmark
@@ -0,0 +1,189 @@
+package com.company;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a copy of a pruned Network for inference that stores only the weights that are not zero, in compressed
+ * sparse row (CSR) form. The rows are the nodes of each layer after the input layer, and the weights into node j of layer n + 1
+ * are values[n][rowStarts[n][j] ... rowStarts[n][j + 1] - 1], with the index of the input node of each in the same place of
+ * columns[n]. The weighted sum of a node then only visits its remaining weights, and each row is one contiguous run of memory,
+ * where the weights of a node in the Network are spread one row of the weights array apart.
+ *
+ * A weight takes 12 bytes in CSR form (a double and an int) instead of 8, so the weights only take less memory than the dense
+ * doubles once more than a third of them are pruned.
+ *
+ * The SparseNetwork class contains the following instance variables:
+ *    int        numLayers: the number of layers, including the input and output layers
+ *    int[]      layerSizes: the number of nodes in each layer
+ *    int[][]    rowStarts: the index of the first weight of each row of each layer, followed by the number of weights
+ *    int[][]    columns: the input node of each weight of each layer
+ *    double[][] values: the value of each weight of each layer
+ *    double[][] activations: the activations of each layer
+ *    boolean    softmaxOutput: true if the output layer is a softmax layer
+ *
+ */
+public class SparseNetwork
+{
+    private int numLayers;
+    private int[] layerSizes;
+    private int[][] rowStarts;
+    private int[][] columns;
+    private double[][] values;
+    private double[][] activations;
+    private boolean softmaxOutput;
+
+    /**
+     * Creates a SparseNetwork from the weights of a network that are not zero
+     *
+     * @param network the pruned network, without feature layers
+     * @throws IllegalArgumentException if the network has feature layers
+     */
+    public SparseNetwork(Network network)
+    {
+        if (network.getFeatureLayers().length > 0)
+        {
+            throw new IllegalArgumentException("only the dense layers of a network can be stored in sparse form");
+        }
+
+        double[][][] weights = network.getWeights();
+        numLayers = weights.length + 1;
+        layerSizes = new int[numLayers];
+        activations = new double[numLayers][];
+
+        for (int n = 0; n < numLayers; n++)
+        {
+            layerSizes[n] = network.getActivations()[n].length;
+            activations[n] = new double[layerSizes[n]];
+        }
+        softmaxOutput = network.isSoftmaxOutput();
+
+        rowStarts = new int[numLayers - 1][];
+        columns = new int[numLayers - 1][];
+        values = new double[numLayers - 1][];
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            int count = 0;
+
+            for (int inputNode = 0; inputNode < layerSizes[n]; inputNode++) // counts the remaining weights of the layer
+            {
+                for (int node = 0; node < layerSizes[n + 1]; node++)
+                {
+                    if (weights[n][inputNode][node] != 0.0)
+                    {
+                        count++;
+                    }
+                }
+            }
+
+            rowStarts[n] = new int[layerSizes[n + 1] + 1];
+            columns[n] = new int[count];
+            values[n] = new double[count];
+            int index = 0;
+
+            for (int node = 0; node < layerSizes[n + 1]; node++) // stores the remaining weights row after row
+            {
+                rowStarts[n][node] = index;
+
+                for (int inputNode = 0; inputNode < layerSizes[n]; inputNode++)
+                {
+                    if (weights[n][inputNode][node] != 0.0)
+                    {
+                        columns[n][index] = inputNode;
+                        values[n][index] = weights[n][inputNode][node];
+                        index++;
+                    }
+                }
+            } // for (int node = 0; node < layerSizes[n + 1]; node++)
+            rowStarts[n][layerSizes[n + 1]] = index;
+        } // for (int n = 0; n < numLayers - 1; n++)
+    } // public SparseNetwork
+
+    /**
+     * returns the number of weights that are stored
+     * @return the number of weights that are not zero
+     */
+    public int getNumWeights()
+    {
+        int count = 0;
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            count += values[n].length;
+        }
+        return count;
+    } // public int getNumWeights
+
+    /**
+     * returns the number of bytes of the values, columns and row starts of every layer
+     * @return the size of the weights in bytes
+     */
+    public long getWeightBytes()
+    {
+        long bytes = 0;
+
+        for (int n = 0; n < numLayers - 1; n++)
+        {
+            bytes += 8L * values[n].length + 4L * columns[n].length + 4L * rowStarts[n].length;
+        }
+        return bytes;
+    } // public long getWeightBytes
+
+    public double[] getOutputActivations()
+    {
+        return activations[numLayers - 1];
+    }
+
+    /**
+     * returns the index of the output activation with the largest value, which is the class that the network predicts
+     * @return the index of the largest output activation
+     */
+    public int getMaxOutputIndex()
+    {
+        return Network.getMaxIndex(activations[numLayers - 1], layerSizes[numLayers - 1]);
+    } // public int getMaxOutputIndex
+
+    /**
+     * propagates a test case forward, visiting only the remaining weights of each node
+     *
+     * @param inputs the input values of the test case
+     * @return the output activations (not a copy)
+     */
+    public double[] calculateOutputs(double[] inputs)
+    {
+        System.arraycopy(inputs, 0, activations[0], 0, layerSizes[0]);
+
+        for (int n = 0; n < numLayers - 1; n++) // iterates from the first hidden layer to the output layer
+        {
+            double[] previous = activations[n];
+            int[] starts = rowStarts[n];
+            int[] layerColumns = columns[n];
+            double[] layerValues = values[n];
+
+            for (int node = 0; node < layerSizes[n + 1]; node++)
+            {
+                double sum = 0.0;
+
+                for (int index = starts[node]; index < starts[node + 1]; index++)
+                {
+                    sum += layerValues[index] * previous[layerColumns[index]];
+                }
+                activations[n + 1][node] = sum; // the theta, until the threshold function is applied below
+            }
+
+            if (n + 1 < numLayers - 1)
+            {
+                for (int node = 0; node < layerSizes[n + 1]; node++)
+                {
+                    activations[n + 1][node] = Network.thresholdFunction(activations[n + 1][node]);
+                }
+            }
+            else
+            {
+                Network.calculateOutputLayer(activations[n + 1], activations[n + 1], layerSizes[n + 1], softmaxOutput);
+            }
+        } // for (int n = 0; n < numLayers - 1; n++)
+        return activations[numLayers - 1];
+    } // public double[] calculateOutputs
+} // public class SparseNetwork
@@ -0,0 +1,284 @@
+package com.company;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines a dataset that is read from a binary file one buffer at a time, so the memory it uses is set by the size
+ * of its buffer instead of the number of test cases in the file. Each pass opens the file, reads bufferSamples test cases at a
+ * time into a single direct buffer with one channel read, and hands them out in the order they are stored.
+ *
+ * The file starts with a header of four big-endian ints, followed by one fixed-size record per test case:
+ *    int      MAGIC_NUMBER
+ *    int      numSamples
+ *    int      inputSize
+ *    int      outputSize
+ *    double[] inputs, double[] expectedOutputs (once per test case, (inputSize + outputSize) * 8 bytes)
+ * Because every record has the same size, the position of any test case can be calculated, which ShuffledChunkDataset uses to
+ * read the file in random chunks. A file in this format is made with write(Dataset, String).
+ *
+ * The StreamingDataset class contains the following instance variables:
+ *    String fileName: the name of the file that the test cases are read from
+ *    int    numSamples: the number of test cases in the file
+ *    int    inputSize: the number of input values in each test case
+ *    int    outputSize: the number of expected output values in each test case
+ *    int    bufferSamples: the number of test cases that are read from the file at a time
+ *
+ */
+public class StreamingDataset implements Dataset
+{
+    /**
+     * the first int in every dataset file ("NNSD")
+     */
+    public static final int MAGIC_NUMBER = 0x4E4E5344;
+
+    /**
+     * the number of bytes in the header of a dataset file
+     */
+    public static final int HEADER_BYTES = 16;
+
+    private String fileName;
+    private int numSamples;
+    private int inputSize;
+    private int outputSize;
+    private int bufferSamples;
+
+    /**
+     * Creates a StreamingDataset that reads the header of a dataset file
+     *
+     * @param fileName      the name of the dataset file
+     * @param bufferSamples the number of test cases that are read from the file at a time
+     * @throws IOException if the file cannot be read or is not a dataset file
+     */
+    public StreamingDataset(String fileName, int bufferSamples) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new FileInputStream(fileName));
+
+        try
+        {
+            if (in.readInt() != MAGIC_NUMBER)
+            {
+                throw new IOException(fileName + " is not a dataset file");
+            }
+            numSamples = in.readInt();
+            inputSize = in.readInt();
+            outputSize = in.readInt();
+        }
+        finally
+        {
+            in.close();
+        }
+
+        this.fileName = fileName;
+        this.bufferSamples = Math.max(1, bufferSamples);
+    } // public StreamingDataset
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getOutputSize()
+    {
+        return outputSize;
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    /**
+     * returns the name of the dataset file
+     * @return the name of the dataset file
+     */
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    /**
+     * returns the number of bytes in the record of each test case
+     * @return the number of bytes in each record
+     */
+    public int getRecordBytes()
+    {
+        return (inputSize + outputSize) * 8;
+    }
+
+    /**
+     * starts a pass that reads the test cases from the file in the order they are stored
+     *
+     * @return an iterator over the test cases
+     */
+    public DatasetIterator iterator()
+    {
+        final FileChannel channel = openChannel();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSamples * getRecordBytes());
+
+        buffer.limit(0); // the buffer starts empty
+
+        return new DatasetIterator()
+        {
+            private int samplesRead = 0; // the number of test cases that have been read from the file
+
+            public boolean next(double[] inputs, double[] expectedOutputs)
+            {
+                if (!buffer.hasRemaining())
+                {
+                    int samples = Math.min(bufferSamples, numSamples - samplesRead);
+
+                    if (samples <= 0)
+                    {
+                        close();
+                        return false;
+                    }
+
+                    buffer.clear();
+                    buffer.limit(samples * getRecordBytes());
+                    readFully(channel, buffer, (long) HEADER_BYTES + (long) samplesRead * getRecordBytes());
+                    buffer.flip();
+                    samplesRead += samples;
+                } // if (!buffer.hasRemaining())
+
+                copySample(buffer, buffer.position(), inputs, expectedOutputs);
+                buffer.position(buffer.position() + getRecordBytes());
+                return true;
+            } // public boolean next
+
+            public void close()
+            {
+                closeChannel(channel);
+            }
+        };
+    } // public DatasetIterator iterator
+
+    /**
+     * opens the dataset file for reading
+     *
+     * @return a channel that reads the dataset file
+     */
+    protected FileChannel openChannel()
+    {
+        try
+        {
+            return new FileInputStream(fileName).getChannel();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    } // protected FileChannel openChannel
+
+    /**
+     * closes a channel that was opened by openChannel
+     *
+     * @param channel the channel to close
+     */
+    protected static void closeChannel(FileChannel channel)
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    } // protected static void closeChannel
+
+    /**
+     * fills the rest of a buffer from a channel, starting at a position in the file
+     *
+     * @param channel  the channel to read
+     * @param buffer   the buffer to fill up to its limit
+     * @param position the position in the file of the first byte to read
+     */
+    protected static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+    {
+        try
+        {
+            while (buffer.hasRemaining())
+            {
+                int bytesRead = channel.read(buffer, position);
+
+                if (bytesRead < 0)
+                {
+                    throw new EOFException("the dataset file ended early");
+                }
+                position += bytesRead;
+            }
+        } // try
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    } // protected static void readFully
+
+    /**
+     * copies one test case out of a buffer of records
+     *
+     * @param buffer          the buffer that holds the record
+     * @param offset          the index in the buffer of the first byte of the record
+     * @param inputs          the array that the input values are copied into
+     * @param expectedOutputs the array that the expected output values are copied into
+     */
+    protected void copySample(ByteBuffer buffer, int offset, double[] inputs, double[] expectedOutputs)
+    {
+        for (int node = 0; node < inputSize; node++)
+        {
+            inputs[node] = buffer.getDouble(offset);
+            offset += 8;
+        }
+
+        for (int node = 0; node < outputSize; node++)
+        {
+            expectedOutputs[node] = buffer.getDouble(offset);
+            offset += 8;
+        }
+    } // protected void copySample
+
+    /**
+     * writes every test case of a dataset to a dataset file, one test case at a time
+     *
+     * @param dataset  the dataset to write
+     * @param fileName the name of the dataset file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Dataset dataset, String fileName) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        double[] inputs = new double[dataset.getInputSize()];
+        double[] expectedOutputs = new double[dataset.getOutputSize()];
+        DatasetIterator iterator = dataset.iterator();
+
+        try
+        {
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(dataset.getNumSamples());
+            out.writeInt(inputs.length);
+            out.writeInt(expectedOutputs.length);
+
+            while (iterator.next(inputs, expectedOutputs))
+            {
+                for (int node = 0; node < inputs.length; node++)
+                {
+                    out.writeDouble(inputs[node]);
+                }
+                for (int node = 0; node < expectedOutputs.length; node++)
+                {
+                    out.writeDouble(expectedOutputs[node]);
+                }
+            } // while (iterator.next(inputs, expectedOutputs))
+        } // try
+        finally
+        {
+            iterator.close();
+            out.close();
+        }
+    } // public static void write
+} // public class StreamingDataset
@@ -0,0 +1,257 @@
+package com.company;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class defines one worker of data-parallel training (see: ParameterServer), which runs in its own JVM. The worker loads
+ * its shard of the training set, connects to the parameter server over TCP, and then, for every round until the server tells it
+ * to stop, reads the current weights, trains its own Network for one pass over its shard with the usual runTrainingIteration
+ * (and so with lowerErrorForAllWeights), and sends back the change in every weight along with the error of the pass.
+ *
+ * The pass from the received weights and the flattened change (see: trainFrom), and the step of the server by the average of
+ * the changes (see: addAverageChange), are also what DataParallelTrainer does with threads in one JVM, so both kinds of
+ * data-parallel training take the same steps.
+ *
+ * Shard k of n workers holds every test case whose index is k modulo n. The training set can be repeated a number of times
+ * first, so that the same digit images stand in for a larger image set when measuring how training scales.
+ *
+ * The messages are sent with DataOutputStream, in this order:
+ *    worker to server, once:     int worker index, int number of test cases in the shard
+ *    server to worker, per round: boolean keep training, then (if true) every weight, layer by layer, row by row
+ *    worker to server, per round: every change of a weight in the same order, double sum of the errors of the pass,
+ *                                 long nanoseconds spent training
+ *
+ * The TrainingWorker class contains the following instance variables:
+ *    Network      network: the network that trains on the shard
+ *    double[][][] startWeights: the weights at the start of the round, which the changes are measured from
+ *    double[]     change: the change in every weight during the round, flattened layer by layer and row by row
+ *    int          numSamples: the number of test cases in the shard
+ *
+ */
+public class TrainingWorker
+{
+    /**
+     * the size of the socket stream buffers, which holds the weights of the digit network several times over
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private Network network;
+    private double[][][] startWeights;
+    private double[] change;
+    private int numSamples;
+
+    /**
+     * Creates a TrainingWorker that trains a network on a shard
+     *
+     * @param network the network, whose dataset is the shard
+     */
+    public TrainingWorker(Network network)
+    {
+        this.network = network;
+        numSamples = network.getDataset().getNumSamples();
+        startWeights = network.copyWeights();
+        change = new double[network.countWeights()];
+    } // public TrainingWorker
+
+    /**
+     * makes the shard of one worker from a training set
+     *
+     * @param dataset     the training set
+     * @param workerIndex the index of the worker, from 0 to numWorkers - 1
+     * @param numWorkers  the number of workers
+     * @param repeat      the number of times that the training set is repeated before it is split
+     * @return the test cases whose index is workerIndex modulo numWorkers
+     */
+    public static CompactDataset shard(CompactDataset dataset, int workerIndex, int numWorkers, int repeat)
+    {
+        int total = dataset.getNumSamples() * repeat;
+        int size = (total - workerIndex + numWorkers - 1) / numWorkers;
+        int inputSize = dataset.getInputSize();
+        CompactDataset shard = new CompactDataset(size, inputSize, dataset.getOutputSize());
+
+        for (int index = 0; index < size; index++)
+        {
+            int sample = (workerIndex + index * numWorkers) % dataset.getNumSamples();
+            System.arraycopy(dataset.getPixels(), sample * inputSize, shard.getPixels(), index * inputSize, inputSize);
+            shard.setLabel(index, dataset.getLabel(sample));
+        }
+        return shard;
+    } // public static CompactDataset shard
+
+    /**
+     * writes every weight of a network, layer by layer and row by row
+     *
+     * @param out     the stream
+     * @param weights the weights
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeWeights(DataOutputStream out, double[][][] weights) throws IOException
+    {
+        for (double[][] layer : weights)
+        {
+            for (double[] row : layer)
+            {
+                for (double weight : row)
+                {
+                    out.writeDouble(weight);
+                }
+            }
+        }
+    } // public static void writeWeights
+
+    /**
+     * reads every weight of a network in the order of writeWeights
+     *
+     * @param in      the stream
+     * @param weights the array that the weights are read into
+     * @throws IOException if the stream cannot be read
+     */
+    public static void readWeights(DataInputStream in, double[][][] weights) throws IOException
+    {
+        for (double[][] layer : weights)
+        {
+            for (double[] row : layer)
+            {
+                for (int index = 0; index < row.length; index++)
+                {
+                    row[index] = in.readDouble();
+                }
+            }
+        }
+    } // public static void readWeights
+
+    /**
+     * sets the weights of a network to the weights at the start of a round, trains it for one pass over its dataset, and
+     * flattens the change in every weight, layer by layer and row by row
+     *
+     * @param network      the network, whose weights are overwritten
+     * @param startWeights the weights at the start of the round, which are only read
+     * @param change       the array that the change in every weight is written into
+     * @return the sum of the errors of the test cases of the pass
+     */
+    public static double trainFrom(Network network, double[][][] startWeights, double[] change)
+    {
+        double[][][] weights = network.getWeights();
+
+        for (int n = 0; n < weights.length; n++)
+        {
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                System.arraycopy(startWeights[n][inputNode], 0, weights[n][inputNode], 0, weights[n][inputNode].length);
+            }
+        }
+
+        double error = network.runTrainingIteration(false) * network.getDataset().getNumSamples();
+        int index = 0;
+
+        for (int n = 0; n < weights.length; n++) // flattens the change of every weight
+        {
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                for (int outputNode = 0; outputNode < weights[n][inputNode].length; outputNode++)
+                {
+                    change[index++] = weights[n][inputNode][outputNode] - startWeights[n][inputNode][outputNode];
+                }
+            }
+        }
+        return error;
+    } // public static double trainFrom
+
+    /**
+     * moves a network's weights by the average change of the workers of a round
+     *
+     * @param weights    the weights of the network
+     * @param sum        the sum of the flattened changes of every worker (see: TreeReducer)
+     * @param numWorkers the number of workers
+     */
+    public static void addAverageChange(double[][][] weights, double[] sum, int numWorkers)
+    {
+        int index = 0;
+
+        for (int n = 0; n < weights.length; n++)
+        {
+            for (int inputNode = 0; inputNode < weights[n].length; inputNode++)
+            {
+                for (int outputNode = 0; outputNode < weights[n][inputNode].length; outputNode++)
+                {
+                    weights[n][inputNode][outputNode] += sum[index++] / numWorkers;
+                }
+            }
+        }
+    } // public static void addAverageChange
+
+    /**
+     * serves the parameter server until it says to stop
+     *
+     * @param socket      the connection to the server
+     * @param workerIndex the index of the worker
+     * @throws IOException if the connection fails
+     */
+    public void serve(Socket socket, int workerIndex) throws IOException
+    {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+
+        out.writeInt(workerIndex);
+        out.writeInt(numSamples);
+        out.flush();
+
+        while (in.readBoolean()) // a round
+        {
+            readWeights(in, startWeights);
+
+            long start = System.nanoTime();
+            double error = trainFrom(network, startWeights, change);
+            long trainingNanos = System.nanoTime() - start;
+
+            for (int index = 0; index < change.length; index++) // sends the change of every weight
+            {
+                out.writeDouble(change[index]);
+            }
+            out.writeDouble(error);
+            out.writeLong(trainingNanos);
+            out.flush();
+        } // while (in.readBoolean())
+    } // public void serve
+
+    /**
+     * loads a shard of the digit training set and serves a parameter server
+     *
+     * @param args the host and port of the server, the index of this worker, the number of workers, the parameters file and
+     *             the number of times that the training set is repeated
+     * @throws IOException if a file cannot be read or the connection fails
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int workerIndex = Integer.parseInt(args[2]);
+        int numWorkers = Integer.parseInt(args[3]);
+        String parametersFileName = args.length > 4 ? args[4] : DigitBenchmark.TRAINING_PARAMETERS;
+        int repeat = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+        DigitBenchmark benchmark = new DigitBenchmark(parametersFileName);
+        Network network = benchmark.createNetwork();
+        network.setDataset(shard(benchmark.getTrainingSet(), workerIndex, numWorkers, repeat));
+
+        Socket socket = new Socket(host, port);
+
+        try
+        {
+            new TrainingWorker(network).serve(socket, workerIndex);
+        }
+        finally
+        {
+            socket.close();
+        }
+    } // public static void main
+} // public class TrainingWorker
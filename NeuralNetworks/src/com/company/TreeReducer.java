@@ -0,0 +1,201 @@
+package com.company;
+
+import java.util.Random;
+
+/**
+ * @author Ray Wang
+ * @version 10/19/2026
+ * <p>
+ * This class sums one array of values from each of several workers, such as the changes in the weights that each worker made
+ * during an iteration of data-parallel training (see: DataParallelTrainer and ParameterServer), in a fixed order. Floating-point
+ * addition is not associative, so adding the arrays in whatever order the workers happen to finish makes the sum, and every
+ * weight trained from it, differ from run to run in the last bits. Here the arrays are always added as a balanced binary tree
+ * over the worker indices: in the first level worker 1 is added into worker 0, worker 3 into worker 2 and so on, in the next
+ * level worker 2 into worker 0, and so on until worker 0 holds the sum. The shape of the tree only depends on the number of
+ * workers, so the sum is bit-identical however the threads are scheduled.
+ *
+ * Each worker only writes its own array, so the threads of DataParallelTrainer can finish in any order without locking, and the
+ * sum is made once they all have. The rounding error grows with the depth of the tree rather than with the number of workers. The
+ * tree takes the same number of additions as adding the arrays one after another, and every addition reads two arrays in order,
+ * so it costs about the same (see: main). The values can also be split into ranges that are each summed by their own thread (see:
+ * LayerParallelism); every value is still summed by the same tree, so the split does not change the result.
+ *
+ * The TreeReducer class contains the following instance variables:
+ *    double[][]       buffers: the array of each worker, which the tree sums into the array of worker 0
+ *    int              numWorkers: the number of workers
+ *    int              length: the number of values in each array
+ *    LayerParallelism parallelism: the threads that the values are split across, or null to sum on the calling thread
+ *
+ */
+public class TreeReducer
+{
+    private double[][] buffers;
+    private int numWorkers;
+    private int length;
+    private LayerParallelism parallelism;
+
+    /**
+     * Creates a TreeReducer with an array of zeros for each worker
+     *
+     * @param numWorkers  the number of workers
+     * @param length      the number of values in each array
+     * @param parallelism the threads that the values are split across, or null to sum on the calling thread
+     */
+    public TreeReducer(int numWorkers, int length, LayerParallelism parallelism)
+    {
+        this.numWorkers = numWorkers;
+        this.length = length;
+        this.parallelism = parallelism;
+        buffers = new double[numWorkers][length];
+    } // public TreeReducer
+
+    public int getNumWorkers()
+    {
+        return numWorkers;
+    }
+
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * gets the array that a worker writes its values into before reduce is called
+     *
+     * @param worker the index of the worker
+     * @return the array of the worker (not a copy)
+     */
+    public double[] getBuffer(int worker)
+    {
+        return buffers[worker];
+    }
+
+    /**
+     * sums a range of the values of every worker into the array of worker 0 with the tree
+     *
+     * @param start the first value of the range
+     * @param end   one past the last value of the range
+     */
+    public void reduceRange(int start, int end)
+    {
+        for (int stride = 1; stride < numWorkers; stride *= 2) // each level of the tree
+        {
+            for (int worker = 0; worker + stride < numWorkers; worker += 2 * stride)
+            {
+                double[] sum = buffers[worker];
+                double[] other = buffers[worker + stride];
+
+                for (int index = start; index < end; index++)
+                {
+                    sum[index] += other[index];
+                }
+            }
+        } // for (int stride = 1; stride < numWorkers; stride *= 2)
+    } // public void reduceRange
+
+    /**
+     * sums the values of every worker with the tree. The arrays of the other workers are left partly summed, so each worker must
+     * write all of its values again before the next reduce.
+     *
+     * @return the array of worker 0, which now holds the sums
+     */
+    public double[] reduce()
+    {
+        if (parallelism == null || !parallelism.shouldSplit((long) length * numWorkers))
+        {
+            reduceRange(0, length);
+        }
+        else
+        {
+            parallelism.forEachRange(length, new LayerParallelism.Range()
+            {
+                public void run(int start, int end)
+                {
+                    reduceRange(start, end);
+                }
+            });
+        }
+        return buffers[0];
+    } // public double[] reduce
+
+    /**
+     * sums a list of numbers with the same tree as reduce, for example the errors of the workers
+     *
+     * @param values the numbers, which are left partly summed
+     * @return the sum
+     */
+    public static double reduce(double[] values)
+    {
+        for (int stride = 1; stride < values.length; stride *= 2)
+        {
+            for (int worker = 0; worker + stride < values.length; worker += 2 * stride)
+            {
+                values[worker] += values[worker + stride];
+            }
+        }
+        return values.length == 0 ? 0.0 : values[0];
+    } // public static double reduce
+
+    /**
+     * times the tree against a plain sum of the same arrays, one worker after another
+     *
+     * @param args the number of workers, the number of values in each array, the number of timed repetitions and the seed of
+     *             the values
+     */
+    public static void main(String[] args)
+    {
+        int numWorkers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        TreeReducer reducer = new TreeReducer(numWorkers, length, null);
+        double[][] values = new double[numWorkers][length];
+        double[] plain = new double[length];
+        Random random = new Random(seed);
+
+        for (double[] worker : values)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                worker[index] = random.nextGaussian();
+            }
+        }
+
+        long treeNanos = 0;
+        long plainNanos = 0;
+
+        for (int repetition = -repetitions / 5; repetition < repetitions; repetition++) // the first fifth warms up the JIT
+        {
+            for (int worker = 0; worker < numWorkers; worker++)
+            {
+                System.arraycopy(values[worker], 0, reducer.getBuffer(worker), 0, length);
+            }
+            long start = System.nanoTime();
+            reducer.reduce();
+            long tree = System.nanoTime() - start;
+
+            System.arraycopy(values[0], 0, plain, 0, length);
+            start = System.nanoTime();
+
+            for (int worker = 1; worker < numWorkers; worker++)
+            {
+                for (int index = 0; index < length; index++)
+                {
+                    plain[index] += values[worker][index];
+                }
+            }
+            long sequential = System.nanoTime() - start;
+
+            if (repetition >= 0)
+            {
+                treeNanos += tree;
+                plainNanos += sequential;
+            }
+        } // for (int repetition = -repetitions / 5; repetition < repetitions; repetition++)
+
+        System.out.printf("summing %d arrays of %d values: tree %.2f ns/value, plain %.2f ns/value (%.2fx)\n", numWorkers, length,
+                (double) treeNanos / repetitions / length, (double) plainNanos / repetitions / length,
+                (double) treeNanos / plainNanos);
+    } // public static void main
+} // public class TreeReducer